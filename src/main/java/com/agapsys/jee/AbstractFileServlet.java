@@ -15,1062 +15,500 @@
  */
 package com.agapsys.jee;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Enumeration;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.HttpOutput;
 
 public abstract class AbstractFileServlet extends HttpServlet {
 
     // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
     public static final String DEFAULT_MIME = "application/octet-stream";
     public static final int DEFAULT_BUFFER_SIZE = 4096;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+    public static final long DEFAULT_BUFFER_POOL_SIZE = 8 * 1024 * 1024;
+    public static final long DEFAULT_ZERO_COPY_THRESHOLD = 64 * 1024;
+    public static final int DEFAULT_MAX_RANGE_COUNT = 16;
+    public static final long DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final long DEFAULT_COMPRESSION_CACHE_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_NEGATIVE_CACHE_CAPACITY = 4096;
+    public static final long DEFAULT_NEGATIVE_CACHE_TTL = 2000;
 
-    private static final Map<String, String> MIME_MAP = new LinkedHashMap<>();
-
-    static {
-        MIME_MAP.put("123", "application/vnd.lotus-1-2-3");
-        MIME_MAP.put("3dml", "text/vnd.in3d.3dml");
-        MIME_MAP.put("3ds", "image/x-3ds");
-        MIME_MAP.put("3g2", "video/3gpp2");
-        MIME_MAP.put("3gp", "video/3gpp");
-        MIME_MAP.put("7z", "application/x-7z-compressed");
-        MIME_MAP.put("aab", "application/x-authorware-bin");
-        MIME_MAP.put("aac", "audio/x-aac");
-        MIME_MAP.put("aam", "application/x-authorware-map");
-        MIME_MAP.put("aas", "application/x-authorware-seg");
-        MIME_MAP.put("abs", "audio/x-mpeg");
-        MIME_MAP.put("abw", "application/x-abiword");
-        MIME_MAP.put("ac", "application/pkix-attr-cert");
-        MIME_MAP.put("acc", "application/vnd.americandynamics.acc");
-        MIME_MAP.put("ace", "application/x-ace-compressed");
-        MIME_MAP.put("acu", "application/vnd.acucobol");
-        MIME_MAP.put("acutc", "application/vnd.acucorp");
-        MIME_MAP.put("adp", "audio/adpcm");
-        MIME_MAP.put("aep", "application/vnd.audiograph");
-        MIME_MAP.put("afm", "application/x-font-type1");
-        MIME_MAP.put("afp", "application/vnd.ibm.modcap");
-        MIME_MAP.put("ahead", "application/vnd.ahead.space");
-        MIME_MAP.put("ai", "application/postscript");
-        MIME_MAP.put("aif", "audio/x-aiff");
-        MIME_MAP.put("aifc", "audio/x-aiff");
-        MIME_MAP.put("aiff", "audio/x-aiff");
-        MIME_MAP.put("aim", "application/x-aim");
-        MIME_MAP.put("air", "application/vnd.adobe.air-application-installer-package+zip");
-        MIME_MAP.put("ait", "application/vnd.dvb.ait");
-        MIME_MAP.put("ami", "application/vnd.amiga.ami");
-        MIME_MAP.put("anx", "application/annodex");
-        MIME_MAP.put("apk", "application/vnd.android.package-archive");
-        MIME_MAP.put("appcache", "text/cache-manifest");
-        MIME_MAP.put("application", "application/x-ms-application");
-        MIME_MAP.put("apr", "application/vnd.lotus-approach");
-        MIME_MAP.put("arc", "application/x-freearc");
-        MIME_MAP.put("art", "image/x-jg");
-        MIME_MAP.put("asc", "application/pgp-signature");
-        MIME_MAP.put("asf", "video/x-ms-asf");
-        MIME_MAP.put("asm", "text/x-asm");
-        MIME_MAP.put("aso", "application/vnd.accpac.simply.aso");
-        MIME_MAP.put("asx", "video/x-ms-asf");
-        MIME_MAP.put("atc", "application/vnd.acucorp");
-        MIME_MAP.put("atom", "application/atom+xml");
-        MIME_MAP.put("atomcat", "application/atomcat+xml");
-        MIME_MAP.put("atomsvc", "application/atomsvc+xml");
-        MIME_MAP.put("atx", "application/vnd.antix.game-component");
-        MIME_MAP.put("au", "audio/basic");
-        MIME_MAP.put("avi", "video/x-msvideo");
-        MIME_MAP.put("avx", "video/x-rad-screenplay");
-        MIME_MAP.put("aw", "application/applixware");
-        MIME_MAP.put("axa", "audio/annodex");
-        MIME_MAP.put("axv", "video/annodex");
-        MIME_MAP.put("azf", "application/vnd.airzip.filesecure.azf");
-        MIME_MAP.put("azs", "application/vnd.airzip.filesecure.azs");
-        MIME_MAP.put("azw", "application/vnd.amazon.ebook");
-        MIME_MAP.put("bat", "application/x-msdownload");
-        MIME_MAP.put("bcpio", "application/x-bcpio");
-        MIME_MAP.put("bdf", "application/x-font-bdf");
-        MIME_MAP.put("bdm", "application/vnd.syncml.dm+wbxml");
-        MIME_MAP.put("bed", "application/vnd.realvnc.bed");
-        MIME_MAP.put("bh2", "application/vnd.fujitsu.oasysprs");
-        MIME_MAP.put("bin", "application/octet-stream");
-        MIME_MAP.put("blb", "application/x-blorb");
-        MIME_MAP.put("blorb", "application/x-blorb");
-        MIME_MAP.put("bmi", "application/vnd.bmi");
-        MIME_MAP.put("bmp", "image/bmp");
-        MIME_MAP.put("body", "text/html");
-        MIME_MAP.put("book", "application/vnd.framemaker");
-        MIME_MAP.put("box", "application/vnd.previewsystems.box");
-        MIME_MAP.put("boz", "application/x-bzip2");
-        MIME_MAP.put("bpk", "application/octet-stream");
-        MIME_MAP.put("btif", "image/prs.btif");
-        MIME_MAP.put("bz", "application/x-bzip");
-        MIME_MAP.put("bz2", "application/x-bzip2");
-        MIME_MAP.put("c", "text/x-c");
-        MIME_MAP.put("c11amc", "application/vnd.cluetrust.cartomobile-config");
-        MIME_MAP.put("c11amz", "application/vnd.cluetrust.cartomobile-config-pkg");
-        MIME_MAP.put("c4d", "application/vnd.clonk.c4group");
-        MIME_MAP.put("c4f", "application/vnd.clonk.c4group");
-        MIME_MAP.put("c4g", "application/vnd.clonk.c4group");
-        MIME_MAP.put("c4p", "application/vnd.clonk.c4group");
-        MIME_MAP.put("c4u", "application/vnd.clonk.c4group");
-        MIME_MAP.put("cab", "application/vnd.ms-cab-compressed");
-        MIME_MAP.put("caf", "audio/x-caf");
-        MIME_MAP.put("cap", "application/vnd.tcpdump.pcap");
-        MIME_MAP.put("car", "application/vnd.curl.car");
-        MIME_MAP.put("cat", "application/vnd.ms-pki.seccat");
-        MIME_MAP.put("cb7", "application/x-cbr");
-        MIME_MAP.put("cba", "application/x-cbr");
-        MIME_MAP.put("cbr", "application/x-cbr");
-        MIME_MAP.put("cbt", "application/x-cbr");
-        MIME_MAP.put("cbz", "application/x-cbr");
-        MIME_MAP.put("cc", "text/x-c");
-        MIME_MAP.put("cct", "application/x-director");
-        MIME_MAP.put("ccxml", "application/ccxml+xml");
-        MIME_MAP.put("cdbcmsg", "application/vnd.contact.cmsg");
-        MIME_MAP.put("cdf", "application/x-cdf");
-        MIME_MAP.put("cdkey", "application/vnd.mediastation.cdkey");
-        MIME_MAP.put("cdmia", "application/cdmi-capability");
-        MIME_MAP.put("cdmic", "application/cdmi-container");
-        MIME_MAP.put("cdmid", "application/cdmi-domain");
-        MIME_MAP.put("cdmio", "application/cdmi-object");
-        MIME_MAP.put("cdmiq", "application/cdmi-queue");
-        MIME_MAP.put("cdx", "chemical/x-cdx");
-        MIME_MAP.put("cdxml", "application/vnd.chemdraw+xml");
-        MIME_MAP.put("cdy", "application/vnd.cinderella");
-        MIME_MAP.put("cer", "application/pkix-cert");
-        MIME_MAP.put("cfs", "application/x-cfs-compressed");
-        MIME_MAP.put("cgm", "image/cgm");
-        MIME_MAP.put("chat", "application/x-chat");
-        MIME_MAP.put("chm", "application/vnd.ms-htmlhelp");
-        MIME_MAP.put("chrt", "application/vnd.kde.kchart");
-        MIME_MAP.put("cif", "chemical/x-cif");
-        MIME_MAP.put("cii", "application/vnd.anser-web-certificate-issue-initiation");
-        MIME_MAP.put("cil", "application/vnd.ms-artgalry");
-        MIME_MAP.put("cla", "application/vnd.claymore");
-        MIME_MAP.put("class", "application/java");
-        MIME_MAP.put("clkk", "application/vnd.crick.clicker.keyboard");
-        MIME_MAP.put("clkp", "application/vnd.crick.clicker.palette");
-        MIME_MAP.put("clkt", "application/vnd.crick.clicker.template");
-        MIME_MAP.put("clkw", "application/vnd.crick.clicker.wordbank");
-        MIME_MAP.put("clkx", "application/vnd.crick.clicker");
-        MIME_MAP.put("clp", "application/x-msclip");
-        MIME_MAP.put("cmc", "application/vnd.cosmocaller");
-        MIME_MAP.put("cmdf", "chemical/x-cmdf");
-        MIME_MAP.put("cml", "chemical/x-cml");
-        MIME_MAP.put("cmp", "application/vnd.yellowriver-custom-menu");
-        MIME_MAP.put("cmx", "image/x-cmx");
-        MIME_MAP.put("cod", "application/vnd.rim.cod");
-        MIME_MAP.put("com", "application/x-msdownload");
-        MIME_MAP.put("conf", "text/plain");
-        MIME_MAP.put("cpio", "application/x-cpio");
-        MIME_MAP.put("cpp", "text/x-c");
-        MIME_MAP.put("cpt", "application/mac-compactpro");
-        MIME_MAP.put("crd", "application/x-mscardfile");
-        MIME_MAP.put("crl", "application/pkix-crl");
-        MIME_MAP.put("crt", "application/x-x509-ca-cert");
-        MIME_MAP.put("cryptonote", "application/vnd.rig.cryptonote");
-        MIME_MAP.put("csh", "application/x-csh");
-        MIME_MAP.put("csml", "chemical/x-csml");
-        MIME_MAP.put("csp", "application/vnd.commonspace");
-        MIME_MAP.put("css", "text/css");
-        MIME_MAP.put("cst", "application/x-director");
-        MIME_MAP.put("csv", "text/csv");
-        MIME_MAP.put("cu", "application/cu-seeme");
-        MIME_MAP.put("curl", "text/vnd.curl");
-        MIME_MAP.put("cww", "application/prs.cww");
-        MIME_MAP.put("cxt", "application/x-director");
-        MIME_MAP.put("cxx", "text/x-c");
-        MIME_MAP.put("dae", "model/vnd.collada+xml");
-        MIME_MAP.put("daf", "application/vnd.mobius.daf");
-        MIME_MAP.put("dart", "application/vnd.dart");
-        MIME_MAP.put("dataless", "application/vnd.fdsn.seed");
-        MIME_MAP.put("davmount", "application/davmount+xml");
-        MIME_MAP.put("dbk", "application/docbook+xml");
-        MIME_MAP.put("dcr", "application/x-director");
-        MIME_MAP.put("dcurl", "text/vnd.curl.dcurl");
-        MIME_MAP.put("dd2", "application/vnd.oma.dd2+xml");
-        MIME_MAP.put("ddd", "application/vnd.fujixerox.ddd");
-        MIME_MAP.put("deb", "application/x-debian-package");
-        MIME_MAP.put("def", "text/plain");
-        MIME_MAP.put("deploy", "application/octet-stream");
-        MIME_MAP.put("der", "application/x-x509-ca-cert");
-        MIME_MAP.put("dfac", "application/vnd.dreamfactory");
-        MIME_MAP.put("dgc", "application/x-dgc-compressed");
-        MIME_MAP.put("dib", "image/bmp");
-        MIME_MAP.put("dic", "text/x-c");
-        MIME_MAP.put("dir", "application/x-director");
-        MIME_MAP.put("dis", "application/vnd.mobius.dis");
-        MIME_MAP.put("dist", "application/octet-stream");
-        MIME_MAP.put("distz", "application/octet-stream");
-        MIME_MAP.put("djv", "image/vnd.djvu");
-        MIME_MAP.put("djvu", "image/vnd.djvu");
-        MIME_MAP.put("dll", "application/x-msdownload");
-        MIME_MAP.put("dmg", "application/x-apple-diskimage");
-        MIME_MAP.put("dmp", "application/vnd.tcpdump.pcap");
-        MIME_MAP.put("dms", "application/octet-stream");
-        MIME_MAP.put("dna", "application/vnd.dna");
-        MIME_MAP.put("doc", "application/msword");
-        MIME_MAP.put("docm", "application/vnd.ms-word.document.macroenabled.12");
-        MIME_MAP.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        MIME_MAP.put("dot", "application/msword");
-        MIME_MAP.put("dotm", "application/vnd.ms-word.template.macroenabled.12");
-        MIME_MAP.put("dotx", "application/vnd.openxmlformats-officedocument.wordprocessingml.template");
-        MIME_MAP.put("dp", "application/vnd.osgi.dp");
-        MIME_MAP.put("dpg", "application/vnd.dpgraph");
-        MIME_MAP.put("dra", "audio/vnd.dra");
-        MIME_MAP.put("dsc", "text/prs.lines.tag");
-        MIME_MAP.put("dssc", "application/dssc+der");
-        MIME_MAP.put("dtb", "application/x-dtbook+xml");
-        MIME_MAP.put("dtd", "application/xml-dtd");
-        MIME_MAP.put("dts", "audio/vnd.dts");
-        MIME_MAP.put("dtshd", "audio/vnd.dts.hd");
-        MIME_MAP.put("dump", "application/octet-stream");
-        MIME_MAP.put("dv", "video/x-dv");
-        MIME_MAP.put("dvb", "video/vnd.dvb.file");
-        MIME_MAP.put("dvi", "application/x-dvi");
-        MIME_MAP.put("dwf", "model/vnd.dwf");
-        MIME_MAP.put("dwg", "image/vnd.dwg");
-        MIME_MAP.put("dxf", "image/vnd.dxf");
-        MIME_MAP.put("dxp", "application/vnd.spotfire.dxp");
-        MIME_MAP.put("dxr", "application/x-director");
-        MIME_MAP.put("ecelp4800", "audio/vnd.nuera.ecelp4800");
-        MIME_MAP.put("ecelp7470", "audio/vnd.nuera.ecelp7470");
-        MIME_MAP.put("ecelp9600", "audio/vnd.nuera.ecelp9600");
-        MIME_MAP.put("ecma", "application/ecmascript");
-        MIME_MAP.put("edm", "application/vnd.novadigm.edm");
-        MIME_MAP.put("edx", "application/vnd.novadigm.edx");
-        MIME_MAP.put("efif", "application/vnd.picsel");
-        MIME_MAP.put("ei6", "application/vnd.pg.osasli");
-        MIME_MAP.put("elc", "application/octet-stream");
-        MIME_MAP.put("emf", "application/x-msmetafile");
-        MIME_MAP.put("eml", "message/rfc822");
-        MIME_MAP.put("emma", "application/emma+xml");
-        MIME_MAP.put("emz", "application/x-msmetafile");
-        MIME_MAP.put("eol", "audio/vnd.digital-winds");
-        MIME_MAP.put("eot", "application/vnd.ms-fontobject");
-        MIME_MAP.put("eps", "application/postscript");
-        MIME_MAP.put("epub", "application/epub+zip");
-        MIME_MAP.put("es3", "application/vnd.eszigno3+xml");
-        MIME_MAP.put("esa", "application/vnd.osgi.subsystem");
-        MIME_MAP.put("esf", "application/vnd.epson.esf");
-        MIME_MAP.put("et3", "application/vnd.eszigno3+xml");
-        MIME_MAP.put("etx", "text/x-setext");
-        MIME_MAP.put("eva", "application/x-eva");
-        MIME_MAP.put("evy", "application/x-envoy");
-        MIME_MAP.put("exe", "application/octet-stream");
-        MIME_MAP.put("exi", "application/exi");
-        MIME_MAP.put("ext", "application/vnd.novadigm.ext");
-        MIME_MAP.put("ez", "application/andrew-inset");
-        MIME_MAP.put("ez2", "application/vnd.ezpix-album");
-        MIME_MAP.put("ez3", "application/vnd.ezpix-package");
-        MIME_MAP.put("f", "text/x-fortran");
-        MIME_MAP.put("f4v", "video/x-f4v");
-        MIME_MAP.put("f77", "text/x-fortran");
-        MIME_MAP.put("f90", "text/x-fortran");
-        MIME_MAP.put("fbs", "image/vnd.fastbidsheet");
-        MIME_MAP.put("fcdt", "application/vnd.adobe.formscentral.fcdt");
-        MIME_MAP.put("fcs", "application/vnd.isac.fcs");
-        MIME_MAP.put("fdf", "application/vnd.fdf");
-        MIME_MAP.put("fe_launch", "application/vnd.denovo.fcselayout-link");
-        MIME_MAP.put("fg5", "application/vnd.fujitsu.oasysgp");
-        MIME_MAP.put("fgd", "application/x-director");
-        MIME_MAP.put("fh", "image/x-freehand");
-        MIME_MAP.put("fh4", "image/x-freehand");
-        MIME_MAP.put("fh5", "image/x-freehand");
-        MIME_MAP.put("fh7", "image/x-freehand");
-        MIME_MAP.put("fhc", "image/x-freehand");
-        MIME_MAP.put("fig", "application/x-xfig");
-        MIME_MAP.put("flac", "audio/flac");
-        MIME_MAP.put("fli", "video/x-fli");
-        MIME_MAP.put("flo", "application/vnd.micrografx.flo");
-        MIME_MAP.put("flv", "video/x-flv");
-        MIME_MAP.put("flw", "application/vnd.kde.kivio");
-        MIME_MAP.put("flx", "text/vnd.fmi.flexstor");
-        MIME_MAP.put("fly", "text/vnd.fly");
-        MIME_MAP.put("fm", "application/vnd.framemaker");
-        MIME_MAP.put("fnc", "application/vnd.frogans.fnc");
-        MIME_MAP.put("for", "text/x-fortran");
-        MIME_MAP.put("fpx", "image/vnd.fpx");
-        MIME_MAP.put("frame", "application/vnd.framemaker");
-        MIME_MAP.put("fsc", "application/vnd.fsc.weblaunch");
-        MIME_MAP.put("fst", "image/vnd.fst");
-        MIME_MAP.put("ftc", "application/vnd.fluxtime.clip");
-        MIME_MAP.put("fti", "application/vnd.anser-web-funds-transfer-initiation");
-        MIME_MAP.put("fvt", "video/vnd.fvt");
-        MIME_MAP.put("fxp", "application/vnd.adobe.fxp");
-        MIME_MAP.put("fxpl", "application/vnd.adobe.fxp");
-        MIME_MAP.put("fzs", "application/vnd.fuzzysheet");
-        MIME_MAP.put("g2w", "application/vnd.geoplan");
-        MIME_MAP.put("g3", "image/g3fax");
-        MIME_MAP.put("g3w", "application/vnd.geospace");
-        MIME_MAP.put("gac", "application/vnd.groove-account");
-        MIME_MAP.put("gam", "application/x-tads");
-        MIME_MAP.put("gbr", "application/rpki-ghostbusters");
-        MIME_MAP.put("gca", "application/x-gca-compressed");
-        MIME_MAP.put("gdl", "model/vnd.gdl");
-        MIME_MAP.put("geo", "application/vnd.dynageo");
-        MIME_MAP.put("gex", "application/vnd.geometry-explorer");
-        MIME_MAP.put("ggb", "application/vnd.geogebra.file");
-        MIME_MAP.put("ggt", "application/vnd.geogebra.tool");
-        MIME_MAP.put("ghf", "application/vnd.groove-help");
-        MIME_MAP.put("gif", "image/gif");
-        MIME_MAP.put("gim", "application/vnd.groove-identity-message");
-        MIME_MAP.put("gml", "application/gml+xml");
-        MIME_MAP.put("gmx", "application/vnd.gmx");
-        MIME_MAP.put("gnumeric", "application/x-gnumeric");
-        MIME_MAP.put("gph", "application/vnd.flographit");
-        MIME_MAP.put("gpx", "application/gpx+xml");
-        MIME_MAP.put("gqf", "application/vnd.grafeq");
-        MIME_MAP.put("gqs", "application/vnd.grafeq");
-        MIME_MAP.put("gram", "application/srgs");
-        MIME_MAP.put("gramps", "application/x-gramps-xml");
-        MIME_MAP.put("gre", "application/vnd.geometry-explorer");
-        MIME_MAP.put("grv", "application/vnd.groove-injector");
-        MIME_MAP.put("grxml", "application/srgs+xml");
-        MIME_MAP.put("gsf", "application/x-font-ghostscript");
-        MIME_MAP.put("gtar", "application/x-gtar");
-        MIME_MAP.put("gtm", "application/vnd.groove-tool-message");
-        MIME_MAP.put("gtw", "model/vnd.gtw");
-        MIME_MAP.put("gv", "text/vnd.graphviz");
-        MIME_MAP.put("gxf", "application/gxf");
-        MIME_MAP.put("gxt", "application/vnd.geonext");
-        MIME_MAP.put("gz", "application/x-gzip");
-        MIME_MAP.put("h", "text/x-c");
-        MIME_MAP.put("h261", "video/h261");
-        MIME_MAP.put("h263", "video/h263");
-        MIME_MAP.put("h264", "video/h264");
-        MIME_MAP.put("hal", "application/vnd.hal+xml");
-        MIME_MAP.put("hbci", "application/vnd.hbci");
-        MIME_MAP.put("hdf", "application/x-hdf");
-        MIME_MAP.put("hh", "text/x-c");
-        MIME_MAP.put("hlp", "application/winhlp");
-        MIME_MAP.put("hpgl", "application/vnd.hp-hpgl");
-        MIME_MAP.put("hpid", "application/vnd.hp-hpid");
-        MIME_MAP.put("hps", "application/vnd.hp-hps");
-        MIME_MAP.put("hqx", "application/mac-binhex40");
-        MIME_MAP.put("htc", "text/x-component");
-        MIME_MAP.put("htke", "application/vnd.kenameaapp");
-        MIME_MAP.put("htm", "text/html");
-        MIME_MAP.put("html", "text/html");
-        MIME_MAP.put("hvd", "application/vnd.yamaha.hv-dic");
-        MIME_MAP.put("hvp", "application/vnd.yamaha.hv-voice");
-        MIME_MAP.put("hvs", "application/vnd.yamaha.hv-script");
-        MIME_MAP.put("i2g", "application/vnd.intergeo");
-        MIME_MAP.put("icc", "application/vnd.iccprofile");
-        MIME_MAP.put("ice", "x-conference/x-cooltalk");
-        MIME_MAP.put("icm", "application/vnd.iccprofile");
-        MIME_MAP.put("ico", "image/x-icon");
-        MIME_MAP.put("ics", "text/calendar");
-        MIME_MAP.put("ief", "image/ief");
-        MIME_MAP.put("ifb", "text/calendar");
-        MIME_MAP.put("ifm", "application/vnd.shana.informed.formdata");
-        MIME_MAP.put("iges", "model/iges");
-        MIME_MAP.put("igl", "application/vnd.igloader");
-        MIME_MAP.put("igm", "application/vnd.insors.igm");
-        MIME_MAP.put("igs", "model/iges");
-        MIME_MAP.put("igx", "application/vnd.micrografx.igx");
-        MIME_MAP.put("iif", "application/vnd.shana.informed.interchange");
-        MIME_MAP.put("imp", "application/vnd.accpac.simply.imp");
-        MIME_MAP.put("ims", "application/vnd.ms-ims");
-        MIME_MAP.put("in", "text/plain");
-        MIME_MAP.put("ink", "application/inkml+xml");
-        MIME_MAP.put("inkml", "application/inkml+xml");
-        MIME_MAP.put("install", "application/x-install-instructions");
-        MIME_MAP.put("iota", "application/vnd.astraea-software.iota");
-        MIME_MAP.put("ipfix", "application/ipfix");
-        MIME_MAP.put("ipk", "application/vnd.shana.informed.package");
-        MIME_MAP.put("irm", "application/vnd.ibm.rights-management");
-        MIME_MAP.put("irp", "application/vnd.irepository.package+xml");
-        MIME_MAP.put("iso", "application/x-iso9660-image");
-        MIME_MAP.put("itp", "application/vnd.shana.informed.formtemplate");
-        MIME_MAP.put("ivp", "application/vnd.immervision-ivp");
-        MIME_MAP.put("ivu", "application/vnd.immervision-ivu");
-        MIME_MAP.put("jad", "text/vnd.sun.j2me.app-descriptor");
-        MIME_MAP.put("jam", "application/vnd.jam");
-        MIME_MAP.put("jar", "application/java-archive");
-        MIME_MAP.put("java", "text/x-java-source");
-        MIME_MAP.put("jisp", "application/vnd.jisp");
-        MIME_MAP.put("jlt", "application/vnd.hp-jlyt");
-        MIME_MAP.put("jnlp", "application/x-java-jnlp-file");
-        MIME_MAP.put("joda", "application/vnd.joost.joda-archive");
-        MIME_MAP.put("jpe", "image/jpeg");
-        MIME_MAP.put("jpeg", "image/jpeg");
-        MIME_MAP.put("jpg", "image/jpeg");
-        MIME_MAP.put("jpgm", "video/jpm");
-        MIME_MAP.put("jpgv", "video/jpeg");
-        MIME_MAP.put("jpm", "video/jpm");
-        MIME_MAP.put("js", "application/javascript");
-        MIME_MAP.put("jsf", "text/plain");
-        MIME_MAP.put("json", "application/json");
-        MIME_MAP.put("jsonml", "application/jsonml+json");
-        MIME_MAP.put("jspf", "text/plain");
-        MIME_MAP.put("kar", "audio/midi");
-        MIME_MAP.put("karbon", "application/vnd.kde.karbon");
-        MIME_MAP.put("kfo", "application/vnd.kde.kformula");
-        MIME_MAP.put("kia", "application/vnd.kidspiration");
-        MIME_MAP.put("kml", "application/vnd.google-earth.kml+xml");
-        MIME_MAP.put("kmz", "application/vnd.google-earth.kmz");
-        MIME_MAP.put("kne", "application/vnd.kinar");
-        MIME_MAP.put("knp", "application/vnd.kinar");
-        MIME_MAP.put("kon", "application/vnd.kde.kontour");
-        MIME_MAP.put("kpr", "application/vnd.kde.kpresenter");
-        MIME_MAP.put("kpt", "application/vnd.kde.kpresenter");
-        MIME_MAP.put("kpxx", "application/vnd.ds-keypoint");
-        MIME_MAP.put("ksp", "application/vnd.kde.kspread");
-        MIME_MAP.put("ktr", "application/vnd.kahootz");
-        MIME_MAP.put("ktx", "image/ktx");
-        MIME_MAP.put("ktz", "application/vnd.kahootz");
-        MIME_MAP.put("kwd", "application/vnd.kde.kword");
-        MIME_MAP.put("kwt", "application/vnd.kde.kword");
-        MIME_MAP.put("lasxml", "application/vnd.las.las+xml");
-        MIME_MAP.put("latex", "application/x-latex");
-        MIME_MAP.put("lbd", "application/vnd.llamagraphics.life-balance.desktop");
-        MIME_MAP.put("lbe", "application/vnd.llamagraphics.life-balance.exchange+xml");
-        MIME_MAP.put("les", "application/vnd.hhe.lesson-player");
-        MIME_MAP.put("lha", "application/x-lzh-compressed");
-        MIME_MAP.put("link66", "application/vnd.route66.link66+xml");
-        MIME_MAP.put("list", "text/plain");
-        MIME_MAP.put("list3820", "application/vnd.ibm.modcap");
-        MIME_MAP.put("listafp", "application/vnd.ibm.modcap");
-        MIME_MAP.put("lnk", "application/x-ms-shortcut");
-        MIME_MAP.put("log", "text/plain");
-        MIME_MAP.put("lostxml", "application/lost+xml");
-        MIME_MAP.put("lrf", "application/octet-stream");
-        MIME_MAP.put("lrm", "application/vnd.ms-lrm");
-        MIME_MAP.put("ltf", "application/vnd.frogans.ltf");
-        MIME_MAP.put("lvp", "audio/vnd.lucent.voice");
-        MIME_MAP.put("lwp", "application/vnd.lotus-wordpro");
-        MIME_MAP.put("lzh", "application/x-lzh-compressed");
-        MIME_MAP.put("m13", "application/x-msmediaview");
-        MIME_MAP.put("m14", "application/x-msmediaview");
-        MIME_MAP.put("m1v", "video/mpeg");
-        MIME_MAP.put("m21", "application/mp21");
-        MIME_MAP.put("m2a", "audio/mpeg");
-        MIME_MAP.put("m2v", "video/mpeg");
-        MIME_MAP.put("m3a", "audio/mpeg");
-        MIME_MAP.put("m3u", "audio/x-mpegurl");
-        MIME_MAP.put("m3u8", "application/vnd.apple.mpegurl");
-        MIME_MAP.put("m4a", "audio/mp4");
-        MIME_MAP.put("m4b", "audio/mp4");
-        MIME_MAP.put("m4r", "audio/mp4");
-        MIME_MAP.put("m4u", "video/vnd.mpegurl");
-        MIME_MAP.put("m4v", "video/mp4");
-        MIME_MAP.put("ma", "application/mathematica");
-        MIME_MAP.put("mac", "image/x-macpaint");
-        MIME_MAP.put("mads", "application/mads+xml");
-        MIME_MAP.put("mag", "application/vnd.ecowin.chart");
-        MIME_MAP.put("maker", "application/vnd.framemaker");
-        MIME_MAP.put("man", "text/troff");
-        MIME_MAP.put("mar", "application/octet-stream");
-        MIME_MAP.put("mathml", "application/mathml+xml");
-        MIME_MAP.put("mb", "application/mathematica");
-        MIME_MAP.put("mbk", "application/vnd.mobius.mbk");
-        MIME_MAP.put("mbox", "application/mbox");
-        MIME_MAP.put("mc1", "application/vnd.medcalcdata");
-        MIME_MAP.put("mcd", "application/vnd.mcd");
-        MIME_MAP.put("mcurl", "text/vnd.curl.mcurl");
-        MIME_MAP.put("mdb", "application/x-msaccess");
-        MIME_MAP.put("mdi", "image/vnd.ms-modi");
-        MIME_MAP.put("me", "text/troff");
-        MIME_MAP.put("mesh", "model/mesh");
-        MIME_MAP.put("meta4", "application/metalink4+xml");
-        MIME_MAP.put("metalink", "application/metalink+xml");
-        MIME_MAP.put("mets", "application/mets+xml");
-        MIME_MAP.put("mfm", "application/vnd.mfmp");
-        MIME_MAP.put("mft", "application/rpki-manifest");
-        MIME_MAP.put("mgp", "application/vnd.osgeo.mapguide.package");
-        MIME_MAP.put("mgz", "application/vnd.proteus.magazine");
-        MIME_MAP.put("mid", "audio/midi");
-        MIME_MAP.put("midi", "audio/midi");
-        MIME_MAP.put("mie", "application/x-mie");
-        MIME_MAP.put("mif", "application/x-mif");
-        MIME_MAP.put("mime", "message/rfc822");
-        MIME_MAP.put("mj2", "video/mj2");
-        MIME_MAP.put("mjp2", "video/mj2");
-        MIME_MAP.put("mk3d", "video/x-matroska");
-        MIME_MAP.put("mka", "audio/x-matroska");
-        MIME_MAP.put("mks", "video/x-matroska");
-        MIME_MAP.put("mkv", "video/x-matroska");
-        MIME_MAP.put("mlp", "application/vnd.dolby.mlp");
-        MIME_MAP.put("mmd", "application/vnd.chipnuts.karaoke-mmd");
-        MIME_MAP.put("mmf", "application/vnd.smaf");
-        MIME_MAP.put("mmr", "image/vnd.fujixerox.edmics-mmr");
-        MIME_MAP.put("mng", "video/x-mng");
-        MIME_MAP.put("mny", "application/x-msmoney");
-        MIME_MAP.put("mobi", "application/x-mobipocket-ebook");
-        MIME_MAP.put("mods", "application/mods+xml");
-        MIME_MAP.put("mov", "video/quicktime");
-        MIME_MAP.put("movie", "video/x-sgi-movie");
-        MIME_MAP.put("mp1", "audio/mpeg");
-        MIME_MAP.put("mp2", "audio/mpeg");
-        MIME_MAP.put("mp21", "application/mp21");
-        MIME_MAP.put("mp2a", "audio/mpeg");
-        MIME_MAP.put("mp3", "audio/mpeg");
-        MIME_MAP.put("mp4", "video/mp4");
-        MIME_MAP.put("mp4a", "audio/mp4");
-        MIME_MAP.put("mp4s", "application/mp4");
-        MIME_MAP.put("mp4v", "video/mp4");
-        MIME_MAP.put("mpa", "audio/mpeg");
-        MIME_MAP.put("mpc", "application/vnd.mophun.certificate");
-        MIME_MAP.put("mpe", "video/mpeg");
-        MIME_MAP.put("mpeg", "video/mpeg");
-        MIME_MAP.put("mpega", "audio/x-mpeg");
-        MIME_MAP.put("mpg", "video/mpeg");
-        MIME_MAP.put("mpg4", "video/mp4");
-        MIME_MAP.put("mpga", "audio/mpeg");
-        MIME_MAP.put("mpkg", "application/vnd.apple.installer+xml");
-        MIME_MAP.put("mpm", "application/vnd.blueice.multipass");
-        MIME_MAP.put("mpn", "application/vnd.mophun.application");
-        MIME_MAP.put("mpp", "application/vnd.ms-project");
-        MIME_MAP.put("mpt", "application/vnd.ms-project");
-        MIME_MAP.put("mpv2", "video/mpeg2");
-        MIME_MAP.put("mpy", "application/vnd.ibm.minipay");
-        MIME_MAP.put("mqy", "application/vnd.mobius.mqy");
-        MIME_MAP.put("mrc", "application/marc");
-        MIME_MAP.put("mrcx", "application/marcxml+xml");
-        MIME_MAP.put("ms", "text/troff");
-        MIME_MAP.put("mscml", "application/mediaservercontrol+xml");
-        MIME_MAP.put("mseed", "application/vnd.fdsn.mseed");
-        MIME_MAP.put("mseq", "application/vnd.mseq");
-        MIME_MAP.put("msf", "application/vnd.epson.msf");
-        MIME_MAP.put("msh", "model/mesh");
-        MIME_MAP.put("msi", "application/x-msdownload");
-        MIME_MAP.put("msl", "application/vnd.mobius.msl");
-        MIME_MAP.put("msty", "application/vnd.muvee.style");
-        MIME_MAP.put("mts", "model/vnd.mts");
-        MIME_MAP.put("mus", "application/vnd.musician");
-        MIME_MAP.put("musicxml", "application/vnd.recordare.musicxml+xml");
-        MIME_MAP.put("mvb", "application/x-msmediaview");
-        MIME_MAP.put("mwf", "application/vnd.mfer");
-        MIME_MAP.put("mxf", "application/mxf");
-        MIME_MAP.put("mxl", "application/vnd.recordare.musicxml");
-        MIME_MAP.put("mxml", "application/xv+xml");
-        MIME_MAP.put("mxs", "application/vnd.triscape.mxs");
-        MIME_MAP.put("mxu", "video/vnd.mpegurl");
-        MIME_MAP.put("n-gage", "application/vnd.nokia.n-gage.symbian.install");
-        MIME_MAP.put("n3", "text/n3");
-        MIME_MAP.put("nb", "application/mathematica");
-        MIME_MAP.put("nbp", "application/vnd.wolfram.player");
-        MIME_MAP.put("nc", "application/x-netcdf");
-        MIME_MAP.put("ncx", "application/x-dtbncx+xml");
-        MIME_MAP.put("nfo", "text/x-nfo");
-        MIME_MAP.put("ngdat", "application/vnd.nokia.n-gage.data");
-        MIME_MAP.put("nitf", "application/vnd.nitf");
-        MIME_MAP.put("nlu", "application/vnd.neurolanguage.nlu");
-        MIME_MAP.put("nml", "application/vnd.enliven");
-        MIME_MAP.put("nnd", "application/vnd.noblenet-directory");
-        MIME_MAP.put("nns", "application/vnd.noblenet-sealer");
-        MIME_MAP.put("nnw", "application/vnd.noblenet-web");
-        MIME_MAP.put("npx", "image/vnd.net-fpx");
-        MIME_MAP.put("nsc", "application/x-conference");
-        MIME_MAP.put("nsf", "application/vnd.lotus-notes");
-        MIME_MAP.put("ntf", "application/vnd.nitf");
-        MIME_MAP.put("nzb", "application/x-nzb");
-        MIME_MAP.put("oa2", "application/vnd.fujitsu.oasys2");
-        MIME_MAP.put("oa3", "application/vnd.fujitsu.oasys3");
-        MIME_MAP.put("oas", "application/vnd.fujitsu.oasys");
-        MIME_MAP.put("obd", "application/x-msbinder");
-        MIME_MAP.put("obj", "application/x-tgif");
-        MIME_MAP.put("oda", "application/oda");
-        MIME_MAP.put("odb", "application/vnd.oasis.opendocument.database");
-        MIME_MAP.put("odc", "application/vnd.oasis.opendocument.chart");
-        MIME_MAP.put("odf", "application/vnd.oasis.opendocument.formula");
-        MIME_MAP.put("odft", "application/vnd.oasis.opendocument.formula-template");
-        MIME_MAP.put("odg", "application/vnd.oasis.opendocument.graphics");
-        MIME_MAP.put("odi", "application/vnd.oasis.opendocument.image");
-        MIME_MAP.put("odm", "application/vnd.oasis.opendocument.text-master");
-        MIME_MAP.put("odp", "application/vnd.oasis.opendocument.presentation");
-        MIME_MAP.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
-        MIME_MAP.put("odt", "application/vnd.oasis.opendocument.text");
-        MIME_MAP.put("oga", "audio/ogg");
-        MIME_MAP.put("ogg", "audio/ogg");
-        MIME_MAP.put("ogv", "video/ogg");
-        MIME_MAP.put("ogx", "application/ogg");
-        MIME_MAP.put("omdoc", "application/omdoc+xml");
-        MIME_MAP.put("onepkg", "application/onenote");
-        MIME_MAP.put("onetmp", "application/onenote");
-        MIME_MAP.put("onetoc", "application/onenote");
-        MIME_MAP.put("onetoc2", "application/onenote");
-        MIME_MAP.put("opf", "application/oebps-package+xml");
-        MIME_MAP.put("opml", "text/x-opml");
-        MIME_MAP.put("oprc", "application/vnd.palm");
-        MIME_MAP.put("org", "application/vnd.lotus-organizer");
-        MIME_MAP.put("osf", "application/vnd.yamaha.openscoreformat");
-        MIME_MAP.put("osfpvg", "application/vnd.yamaha.openscoreformat.osfpvg+xml");
-        MIME_MAP.put("otc", "application/vnd.oasis.opendocument.chart-template");
-        MIME_MAP.put("otf", "application/x-font-otf");
-        MIME_MAP.put("otg", "application/vnd.oasis.opendocument.graphics-template");
-        MIME_MAP.put("oth", "application/vnd.oasis.opendocument.text-web");
-        MIME_MAP.put("oti", "application/vnd.oasis.opendocument.image-template");
-        MIME_MAP.put("otp", "application/vnd.oasis.opendocument.presentation-template");
-        MIME_MAP.put("ots", "application/vnd.oasis.opendocument.spreadsheet-template");
-        MIME_MAP.put("ott", "application/vnd.oasis.opendocument.text-template");
-        MIME_MAP.put("oxps", "application/oxps");
-        MIME_MAP.put("oxt", "application/vnd.openofficeorg.extension");
-        MIME_MAP.put("p", "text/x-pascal");
-        MIME_MAP.put("p10", "application/pkcs10");
-        MIME_MAP.put("p12", "application/x-pkcs12");
-        MIME_MAP.put("p7b", "application/x-pkcs7-certificates");
-        MIME_MAP.put("p7c", "application/pkcs7-mime");
-        MIME_MAP.put("p7m", "application/pkcs7-mime");
-        MIME_MAP.put("p7r", "application/x-pkcs7-certreqresp");
-        MIME_MAP.put("p7s", "application/pkcs7-signature");
-        MIME_MAP.put("p8", "application/pkcs8");
-        MIME_MAP.put("pas", "text/x-pascal");
-        MIME_MAP.put("paw", "application/vnd.pawaafile");
-        MIME_MAP.put("pbd", "application/vnd.powerbuilder6");
-        MIME_MAP.put("pbm", "image/x-portable-bitmap");
-        MIME_MAP.put("pcap", "application/vnd.tcpdump.pcap");
-        MIME_MAP.put("pcf", "application/x-font-pcf");
-        MIME_MAP.put("pcl", "application/vnd.hp-pcl");
-        MIME_MAP.put("pclxl", "application/vnd.hp-pclxl");
-        MIME_MAP.put("pct", "image/pict");
-        MIME_MAP.put("pcurl", "application/vnd.curl.pcurl");
-        MIME_MAP.put("pcx", "image/x-pcx");
-        MIME_MAP.put("pdb", "application/vnd.palm");
-        MIME_MAP.put("pdf", "application/pdf");
-        MIME_MAP.put("pfa", "application/x-font-type1");
-        MIME_MAP.put("pfb", "application/x-font-type1");
-        MIME_MAP.put("pfm", "application/x-font-type1");
-        MIME_MAP.put("pfr", "application/font-tdpfr");
-        MIME_MAP.put("pfx", "application/x-pkcs12");
-        MIME_MAP.put("pgm", "image/x-portable-graymap");
-        MIME_MAP.put("pgn", "application/x-chess-pgn");
-        MIME_MAP.put("pgp", "application/pgp-encrypted");
-        MIME_MAP.put("pic", "image/pict");
-        MIME_MAP.put("pict", "image/pict");
-        MIME_MAP.put("pkg", "application/octet-stream");
-        MIME_MAP.put("pki", "application/pkixcmp");
-        MIME_MAP.put("pkipath", "application/pkix-pkipath");
-        MIME_MAP.put("plb", "application/vnd.3gpp.pic-bw-large");
-        MIME_MAP.put("plc", "application/vnd.mobius.plc");
-        MIME_MAP.put("plf", "application/vnd.pocketlearn");
-        MIME_MAP.put("pls", "audio/x-scpls");
-        MIME_MAP.put("pml", "application/vnd.ctc-posml");
-        MIME_MAP.put("png", "image/png");
-        MIME_MAP.put("pnm", "image/x-portable-anymap");
-        MIME_MAP.put("pnt", "image/x-macpaint");
-        MIME_MAP.put("portpkg", "application/vnd.macports.portpkg");
-        MIME_MAP.put("pot", "application/vnd.ms-powerpoint");
-        MIME_MAP.put("potm", "application/vnd.ms-powerpoint.template.macroenabled.12");
-        MIME_MAP.put("potx", "application/vnd.openxmlformats-officedocument.presentationml.template");
-        MIME_MAP.put("ppam", "application/vnd.ms-powerpoint.addin.macroenabled.12");
-        MIME_MAP.put("ppd", "application/vnd.cups-ppd");
-        MIME_MAP.put("ppm", "image/x-portable-pixmap");
-        MIME_MAP.put("pps", "application/vnd.ms-powerpoint");
-        MIME_MAP.put("ppsm", "application/vnd.ms-powerpoint.slideshow.macroenabled.12");
-        MIME_MAP.put("ppsx", "application/vnd.openxmlformats-officedocument.presentationml.slideshow");
-        MIME_MAP.put("ppt", "application/vnd.ms-powerpoint");
-        MIME_MAP.put("pptm", "application/vnd.ms-powerpoint.presentation.macroenabled.12");
-        MIME_MAP.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
-        MIME_MAP.put("pqa", "application/vnd.palm");
-        MIME_MAP.put("prc", "application/x-mobipocket-ebook");
-        MIME_MAP.put("pre", "application/vnd.lotus-freelance");
-        MIME_MAP.put("prf", "application/pics-rules");
-        MIME_MAP.put("ps", "application/postscript");
-        MIME_MAP.put("psb", "application/vnd.3gpp.pic-bw-small");
-        MIME_MAP.put("psd", "image/vnd.adobe.photoshop");
-        MIME_MAP.put("psf", "application/x-font-linux-psf");
-        MIME_MAP.put("pskcxml", "application/pskc+xml");
-        MIME_MAP.put("ptid", "application/vnd.pvi.ptid1");
-        MIME_MAP.put("pub", "application/x-mspublisher");
-        MIME_MAP.put("pvb", "application/vnd.3gpp.pic-bw-var");
-        MIME_MAP.put("pwn", "application/vnd.3m.post-it-notes");
-        MIME_MAP.put("pya", "audio/vnd.ms-playready.media.pya");
-        MIME_MAP.put("pyv", "video/vnd.ms-playready.media.pyv");
-        MIME_MAP.put("qam", "application/vnd.epson.quickanime");
-        MIME_MAP.put("qbo", "application/vnd.intu.qbo");
-        MIME_MAP.put("qfx", "application/vnd.intu.qfx");
-        MIME_MAP.put("qps", "application/vnd.publishare-delta-tree");
-        MIME_MAP.put("qt", "video/quicktime");
-        MIME_MAP.put("qti", "image/x-quicktime");
-        MIME_MAP.put("qtif", "image/x-quicktime");
-        MIME_MAP.put("qwd", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("qwt", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("qxb", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("qxd", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("qxl", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("qxt", "application/vnd.quark.quarkxpress");
-        MIME_MAP.put("ra", "audio/x-pn-realaudio");
-        MIME_MAP.put("ram", "audio/x-pn-realaudio");
-        MIME_MAP.put("rar", "application/x-rar-compressed");
-        MIME_MAP.put("ras", "image/x-cmu-raster");
-        MIME_MAP.put("rcprofile", "application/vnd.ipunplugged.rcprofile");
-        MIME_MAP.put("rdf", "application/rdf+xml");
-        MIME_MAP.put("rdz", "application/vnd.data-vision.rdz");
-        MIME_MAP.put("rep", "application/vnd.businessobjects");
-        MIME_MAP.put("res", "application/x-dtbresource+xml");
-        MIME_MAP.put("rgb", "image/x-rgb");
-        MIME_MAP.put("rif", "application/reginfo+xml");
-        MIME_MAP.put("rip", "audio/vnd.rip");
-        MIME_MAP.put("ris", "application/x-research-info-systems");
-        MIME_MAP.put("rl", "application/resource-lists+xml");
-        MIME_MAP.put("rlc", "image/vnd.fujixerox.edmics-rlc");
-        MIME_MAP.put("rld", "application/resource-lists-diff+xml");
-        MIME_MAP.put("rm", "application/vnd.rn-realmedia");
-        MIME_MAP.put("rmi", "audio/midi");
-        MIME_MAP.put("rmp", "audio/x-pn-realaudio-plugin");
-        MIME_MAP.put("rms", "application/vnd.jcp.javame.midlet-rms");
-        MIME_MAP.put("rmvb", "application/vnd.rn-realmedia-vbr");
-        MIME_MAP.put("rnc", "application/relax-ng-compact-syntax");
-        MIME_MAP.put("roa", "application/rpki-roa");
-        MIME_MAP.put("roff", "text/troff");
-        MIME_MAP.put("rp9", "application/vnd.cloanto.rp9");
-        MIME_MAP.put("rpss", "application/vnd.nokia.radio-presets");
-        MIME_MAP.put("rpst", "application/vnd.nokia.radio-preset");
-        MIME_MAP.put("rq", "application/sparql-query");
-        MIME_MAP.put("rs", "application/rls-services+xml");
-        MIME_MAP.put("rsd", "application/rsd+xml");
-        MIME_MAP.put("rss", "application/rss+xml");
-        MIME_MAP.put("rtf", "application/rtf");
-        MIME_MAP.put("rtx", "text/richtext");
-        MIME_MAP.put("s", "text/x-asm");
-        MIME_MAP.put("s3m", "audio/s3m");
-        MIME_MAP.put("saf", "application/vnd.yamaha.smaf-audio");
-        MIME_MAP.put("sbml", "application/sbml+xml");
-        MIME_MAP.put("sc", "application/vnd.ibm.secure-container");
-        MIME_MAP.put("scd", "application/x-msschedule");
-        MIME_MAP.put("scm", "application/vnd.lotus-screencam");
-        MIME_MAP.put("scq", "application/scvp-cv-request");
-        MIME_MAP.put("scs", "application/scvp-cv-response");
-        MIME_MAP.put("scurl", "text/vnd.curl.scurl");
-        MIME_MAP.put("sda", "application/vnd.stardivision.draw");
-        MIME_MAP.put("sdc", "application/vnd.stardivision.calc");
-        MIME_MAP.put("sdd", "application/vnd.stardivision.impress");
-        MIME_MAP.put("sdkd", "application/vnd.solent.sdkm+xml");
-        MIME_MAP.put("sdkm", "application/vnd.solent.sdkm+xml");
-        MIME_MAP.put("sdp", "application/sdp");
-        MIME_MAP.put("sdw", "application/vnd.stardivision.writer");
-        MIME_MAP.put("see", "application/vnd.seemail");
-        MIME_MAP.put("seed", "application/vnd.fdsn.seed");
-        MIME_MAP.put("sema", "application/vnd.sema");
-        MIME_MAP.put("semd", "application/vnd.semd");
-        MIME_MAP.put("semf", "application/vnd.semf");
-        MIME_MAP.put("ser", "application/java-serialized-object");
-        MIME_MAP.put("setpay", "application/set-payment-initiation");
-        MIME_MAP.put("setreg", "application/set-registration-initiation");
-        MIME_MAP.put("sfd-hdstx", "application/vnd.hydrostatix.sof-data");
-        MIME_MAP.put("sfs", "application/vnd.spotfire.sfs");
-        MIME_MAP.put("sfv", "text/x-sfv");
-        MIME_MAP.put("sgi", "image/sgi");
-        MIME_MAP.put("sgl", "application/vnd.stardivision.writer-global");
-        MIME_MAP.put("sgm", "text/sgml");
-        MIME_MAP.put("sgml", "text/sgml");
-        MIME_MAP.put("sh", "application/x-sh");
-        MIME_MAP.put("shar", "application/x-shar");
-        MIME_MAP.put("shf", "application/shf+xml");
-        MIME_MAP.put("shtml", "text/x-server-parsed-html");
-        MIME_MAP.put("sid", "image/x-mrsid-image");
-        MIME_MAP.put("sig", "application/pgp-signature");
-        MIME_MAP.put("sil", "audio/silk");
-        MIME_MAP.put("silo", "model/mesh");
-        MIME_MAP.put("sis", "application/vnd.symbian.install");
-        MIME_MAP.put("sisx", "application/vnd.symbian.install");
-        MIME_MAP.put("sit", "application/x-stuffit");
-        MIME_MAP.put("sitx", "application/x-stuffitx");
-        MIME_MAP.put("skd", "application/vnd.koan");
-        MIME_MAP.put("skm", "application/vnd.koan");
-        MIME_MAP.put("skp", "application/vnd.koan");
-        MIME_MAP.put("skt", "application/vnd.koan");
-        MIME_MAP.put("sldm", "application/vnd.ms-powerpoint.slide.macroenabled.12");
-        MIME_MAP.put("sldx", "application/vnd.openxmlformats-officedocument.presentationml.slide");
-        MIME_MAP.put("slt", "application/vnd.epson.salt");
-        MIME_MAP.put("sm", "application/vnd.stepmania.stepchart");
-        MIME_MAP.put("smf", "application/vnd.stardivision.math");
-        MIME_MAP.put("smi", "application/smil+xml");
-        MIME_MAP.put("smil", "application/smil+xml");
-        MIME_MAP.put("smv", "video/x-smv");
-        MIME_MAP.put("smzip", "application/vnd.stepmania.package");
-        MIME_MAP.put("snd", "audio/basic");
-        MIME_MAP.put("snf", "application/x-font-snf");
-        MIME_MAP.put("so", "application/octet-stream");
-        MIME_MAP.put("spc", "application/x-pkcs7-certificates");
-        MIME_MAP.put("spf", "application/vnd.yamaha.smaf-phrase");
-        MIME_MAP.put("spl", "application/x-futuresplash");
-        MIME_MAP.put("spot", "text/vnd.in3d.spot");
-        MIME_MAP.put("spp", "application/scvp-vp-response");
-        MIME_MAP.put("spq", "application/scvp-vp-request");
-        MIME_MAP.put("spx", "audio/ogg");
-        MIME_MAP.put("sql", "application/x-sql");
-        MIME_MAP.put("src", "application/x-wais-source");
-        MIME_MAP.put("srt", "application/x-subrip");
-        MIME_MAP.put("sru", "application/sru+xml");
-        MIME_MAP.put("srx", "application/sparql-results+xml");
-        MIME_MAP.put("ssdl", "application/ssdl+xml");
-        MIME_MAP.put("sse", "application/vnd.kodak-descriptor");
-        MIME_MAP.put("ssf", "application/vnd.epson.ssf");
-        MIME_MAP.put("ssml", "application/ssml+xml");
-        MIME_MAP.put("st", "application/vnd.sailingtracker.track");
-        MIME_MAP.put("stc", "application/vnd.sun.xml.calc.template");
-        MIME_MAP.put("std", "application/vnd.sun.xml.draw.template");
-        MIME_MAP.put("stf", "application/vnd.wt.stf");
-        MIME_MAP.put("sti", "application/vnd.sun.xml.impress.template");
-        MIME_MAP.put("stk", "application/hyperstudio");
-        MIME_MAP.put("stl", "application/vnd.ms-pki.stl");
-        MIME_MAP.put("str", "application/vnd.pg.format");
-        MIME_MAP.put("stw", "application/vnd.sun.xml.writer.template");
-        MIME_MAP.put("sub", "text/vnd.dvb.subtitle");
-        MIME_MAP.put("sus", "application/vnd.sus-calendar");
-        MIME_MAP.put("susp", "application/vnd.sus-calendar");
-        MIME_MAP.put("sv4cpio", "application/x-sv4cpio");
-        MIME_MAP.put("sv4crc", "application/x-sv4crc");
-        MIME_MAP.put("svc", "application/vnd.dvb.service");
-        MIME_MAP.put("svd", "application/vnd.svd");
-        MIME_MAP.put("svg", "image/svg+xml");
-        MIME_MAP.put("svgz", "image/svg+xml");
-        MIME_MAP.put("swa", "application/x-director");
-        MIME_MAP.put("swf", "application/x-shockwave-flash");
-        MIME_MAP.put("swi", "application/vnd.aristanetworks.swi");
-        MIME_MAP.put("sxc", "application/vnd.sun.xml.calc");
-        MIME_MAP.put("sxd", "application/vnd.sun.xml.draw");
-        MIME_MAP.put("sxg", "application/vnd.sun.xml.writer.global");
-        MIME_MAP.put("sxi", "application/vnd.sun.xml.impress");
-        MIME_MAP.put("sxm", "application/vnd.sun.xml.math");
-        MIME_MAP.put("sxw", "application/vnd.sun.xml.writer");
-        MIME_MAP.put("t", "text/troff");
-        MIME_MAP.put("t3", "application/x-t3vm-image");
-        MIME_MAP.put("taglet", "application/vnd.mynfc");
-        MIME_MAP.put("tao", "application/vnd.tao.intent-module-archive");
-        MIME_MAP.put("tar", "application/x-tar");
-        MIME_MAP.put("tcap", "application/vnd.3gpp2.tcap");
-        MIME_MAP.put("tcl", "application/x-tcl");
-        MIME_MAP.put("teacher", "application/vnd.smart.teacher");
-        MIME_MAP.put("tei", "application/tei+xml");
-        MIME_MAP.put("teicorpus", "application/tei+xml");
-        MIME_MAP.put("tex", "application/x-tex");
-        MIME_MAP.put("texi", "application/x-texinfo");
-        MIME_MAP.put("texinfo", "application/x-texinfo");
-        MIME_MAP.put("text", "text/plain");
-        MIME_MAP.put("tfi", "application/thraud+xml");
-        MIME_MAP.put("tfm", "application/x-tex-tfm");
-        MIME_MAP.put("tga", "image/x-tga");
-        MIME_MAP.put("thmx", "application/vnd.ms-officetheme");
-        MIME_MAP.put("tif", "image/tiff");
-        MIME_MAP.put("tiff", "image/tiff");
-        MIME_MAP.put("tmo", "application/vnd.tmobile-livetv");
-        MIME_MAP.put("torrent", "application/x-bittorrent");
-        MIME_MAP.put("tpl", "application/vnd.groove-tool-template");
-        MIME_MAP.put("tpt", "application/vnd.trid.tpt");
-        MIME_MAP.put("tr", "text/troff");
-        MIME_MAP.put("tra", "application/vnd.trueapp");
-        MIME_MAP.put("trm", "application/x-msterminal");
-        MIME_MAP.put("tsd", "application/timestamped-data");
-        MIME_MAP.put("tsv", "text/tab-separated-values");
-        MIME_MAP.put("ttc", "application/x-font-ttf");
-        MIME_MAP.put("ttf", "application/x-font-ttf");
-        MIME_MAP.put("ttl", "text/turtle");
-        MIME_MAP.put("twd", "application/vnd.simtech-mindmapper");
-        MIME_MAP.put("twds", "application/vnd.simtech-mindmapper");
-        MIME_MAP.put("txd", "application/vnd.genomatix.tuxedo");
-        MIME_MAP.put("txf", "application/vnd.mobius.txf");
-        MIME_MAP.put("txt", "text/plain");
-        MIME_MAP.put("u32", "application/x-authorware-bin");
-        MIME_MAP.put("udeb", "application/x-debian-package");
-        MIME_MAP.put("ufd", "application/vnd.ufdl");
-        MIME_MAP.put("ufdl", "application/vnd.ufdl");
-        MIME_MAP.put("ulw", "audio/basic");
-        MIME_MAP.put("ulx", "application/x-glulx");
-        MIME_MAP.put("umj", "application/vnd.umajin");
-        MIME_MAP.put("unityweb", "application/vnd.unity");
-        MIME_MAP.put("uoml", "application/vnd.uoml+xml");
-        MIME_MAP.put("uri", "text/uri-list");
-        MIME_MAP.put("uris", "text/uri-list");
-        MIME_MAP.put("urls", "text/uri-list");
-        MIME_MAP.put("ustar", "application/x-ustar");
-        MIME_MAP.put("utz", "application/vnd.uiq.theme");
-        MIME_MAP.put("uu", "text/x-uuencode");
-        MIME_MAP.put("uva", "audio/vnd.dece.audio");
-        MIME_MAP.put("uvd", "application/vnd.dece.data");
-        MIME_MAP.put("uvf", "application/vnd.dece.data");
-        MIME_MAP.put("uvg", "image/vnd.dece.graphic");
-        MIME_MAP.put("uvh", "video/vnd.dece.hd");
-        MIME_MAP.put("uvi", "image/vnd.dece.graphic");
-        MIME_MAP.put("uvm", "video/vnd.dece.mobile");
-        MIME_MAP.put("uvp", "video/vnd.dece.pd");
-        MIME_MAP.put("uvs", "video/vnd.dece.sd");
-        MIME_MAP.put("uvt", "application/vnd.dece.ttml+xml");
-        MIME_MAP.put("uvu", "video/vnd.uvvu.mp4");
-        MIME_MAP.put("uvv", "video/vnd.dece.video");
-        MIME_MAP.put("uvva", "audio/vnd.dece.audio");
-        MIME_MAP.put("uvvd", "application/vnd.dece.data");
-        MIME_MAP.put("uvvf", "application/vnd.dece.data");
-        MIME_MAP.put("uvvg", "image/vnd.dece.graphic");
-        MIME_MAP.put("uvvh", "video/vnd.dece.hd");
-        MIME_MAP.put("uvvi", "image/vnd.dece.graphic");
-        MIME_MAP.put("uvvm", "video/vnd.dece.mobile");
-        MIME_MAP.put("uvvp", "video/vnd.dece.pd");
-        MIME_MAP.put("uvvs", "video/vnd.dece.sd");
-        MIME_MAP.put("uvvt", "application/vnd.dece.ttml+xml");
-        MIME_MAP.put("uvvu", "video/vnd.uvvu.mp4");
-        MIME_MAP.put("uvvv", "video/vnd.dece.video");
-        MIME_MAP.put("uvvx", "application/vnd.dece.unspecified");
-        MIME_MAP.put("uvvz", "application/vnd.dece.zip");
-        MIME_MAP.put("uvx", "application/vnd.dece.unspecified");
-        MIME_MAP.put("uvz", "application/vnd.dece.zip");
-        MIME_MAP.put("vcard", "text/vcard");
-        MIME_MAP.put("vcd", "application/x-cdlink");
-        MIME_MAP.put("vcf", "text/x-vcard");
-        MIME_MAP.put("vcg", "application/vnd.groove-vcard");
-        MIME_MAP.put("vcs", "text/x-vcalendar");
-        MIME_MAP.put("vcx", "application/vnd.vcx");
-        MIME_MAP.put("vis", "application/vnd.visionary");
-        MIME_MAP.put("viv", "video/vnd.vivo");
-        MIME_MAP.put("vob", "video/x-ms-vob");
-        MIME_MAP.put("vor", "application/vnd.stardivision.writer");
-        MIME_MAP.put("vox", "application/x-authorware-bin");
-        MIME_MAP.put("vrml", "model/vrml");
-        MIME_MAP.put("vsd", "application/vnd.visio");
-        MIME_MAP.put("vsf", "application/vnd.vsf");
-        MIME_MAP.put("vss", "application/vnd.visio");
-        MIME_MAP.put("vst", "application/vnd.visio");
-        MIME_MAP.put("vsw", "application/vnd.visio");
-        MIME_MAP.put("vtu", "model/vnd.vtu");
-        MIME_MAP.put("vxml", "application/voicexml+xml");
-        MIME_MAP.put("w3d", "application/x-director");
-        MIME_MAP.put("wad", "application/x-doom");
-        MIME_MAP.put("wav", "audio/x-wav");
-        MIME_MAP.put("wax", "audio/x-ms-wax");
-        MIME_MAP.put("wbmp", "image/vnd.wap.wbmp");
-        MIME_MAP.put("wbs", "application/vnd.criticaltools.wbs+xml");
-        MIME_MAP.put("wbxml", "application/vnd.wap.wbxml");
-        MIME_MAP.put("wcm", "application/vnd.ms-works");
-        MIME_MAP.put("wdb", "application/vnd.ms-works");
-        MIME_MAP.put("wdp", "image/vnd.ms-photo");
-        MIME_MAP.put("weba", "audio/webm");
-        MIME_MAP.put("webm", "video/webm");
-        MIME_MAP.put("webp", "image/webp");
-        MIME_MAP.put("wg", "application/vnd.pmi.widget");
-        MIME_MAP.put("wgt", "application/widget");
-        MIME_MAP.put("wks", "application/vnd.ms-works");
-        MIME_MAP.put("wm", "video/x-ms-wm");
-        MIME_MAP.put("wma", "audio/x-ms-wma");
-        MIME_MAP.put("wmd", "application/x-ms-wmd");
-        MIME_MAP.put("wmf", "application/x-msmetafile");
-        MIME_MAP.put("wml", "text/vnd.wap.wml");
-        MIME_MAP.put("wmlc", "application/vnd.wap.wmlc");
-        MIME_MAP.put("wmls", "text/vnd.wap.wmlscript");
-        MIME_MAP.put("wmlsc", "application/vnd.wap.wmlscriptc");
-        MIME_MAP.put("wmv", "video/x-ms-wmv");
-        MIME_MAP.put("wmx", "video/x-ms-wmx");
-        MIME_MAP.put("wmz", "application/x-msmetafile");
-        MIME_MAP.put("woff", "application/x-font-woff");
-        MIME_MAP.put("wpd", "application/vnd.wordperfect");
-        MIME_MAP.put("wpl", "application/vnd.ms-wpl");
-        MIME_MAP.put("wps", "application/vnd.ms-works");
-        MIME_MAP.put("wqd", "application/vnd.wqd");
-        MIME_MAP.put("wri", "application/x-mswrite");
-        MIME_MAP.put("wrl", "model/vrml");
-        MIME_MAP.put("wsdl", "application/wsdl+xml");
-        MIME_MAP.put("wspolicy", "application/wspolicy+xml");
-        MIME_MAP.put("wtb", "application/vnd.webturbo");
-        MIME_MAP.put("wvx", "video/x-ms-wvx");
-        MIME_MAP.put("x32", "application/x-authorware-bin");
-        MIME_MAP.put("x3d", "model/x3d+xml");
-        MIME_MAP.put("x3db", "model/x3d+binary");
-        MIME_MAP.put("x3dbz", "model/x3d+binary");
-        MIME_MAP.put("x3dv", "model/x3d+vrml");
-        MIME_MAP.put("x3dvz", "model/x3d+vrml");
-        MIME_MAP.put("x3dz", "model/x3d+xml");
-        MIME_MAP.put("xaml", "application/xaml+xml");
-        MIME_MAP.put("xap", "application/x-silverlight-app");
-        MIME_MAP.put("xar", "application/vnd.xara");
-        MIME_MAP.put("xbap", "application/x-ms-xbap");
-        MIME_MAP.put("xbd", "application/vnd.fujixerox.docuworks.binder");
-        MIME_MAP.put("xbm", "image/x-xbitmap");
-        MIME_MAP.put("xdf", "application/xcap-diff+xml");
-        MIME_MAP.put("xdm", "application/vnd.syncml.dm+xml");
-        MIME_MAP.put("xdp", "application/vnd.adobe.xdp+xml");
-        MIME_MAP.put("xdssc", "application/dssc+xml");
-        MIME_MAP.put("xdw", "application/vnd.fujixerox.docuworks");
-        MIME_MAP.put("xenc", "application/xenc+xml");
-        MIME_MAP.put("xer", "application/patch-ops-error+xml");
-        MIME_MAP.put("xfdf", "application/vnd.adobe.xfdf");
-        MIME_MAP.put("xfdl", "application/vnd.xfdl");
-        MIME_MAP.put("xht", "application/xhtml+xml");
-        MIME_MAP.put("xhtml", "application/xhtml+xml");
-        MIME_MAP.put("xhvml", "application/xv+xml");
-        MIME_MAP.put("xif", "image/vnd.xiff");
-        MIME_MAP.put("xla", "application/vnd.ms-excel");
-        MIME_MAP.put("xlam", "application/vnd.ms-excel.addin.macroenabled.12");
-        MIME_MAP.put("xlc", "application/vnd.ms-excel");
-        MIME_MAP.put("xlf", "application/x-xliff+xml");
-        MIME_MAP.put("xlm", "application/vnd.ms-excel");
-        MIME_MAP.put("xls", "application/vnd.ms-excel");
-        MIME_MAP.put("xlsb", "application/vnd.ms-excel.sheet.binary.macroenabled.12");
-        MIME_MAP.put("xlsm", "application/vnd.ms-excel.sheet.macroenabled.12");
-        MIME_MAP.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        MIME_MAP.put("xlt", "application/vnd.ms-excel");
-        MIME_MAP.put("xltm", "application/vnd.ms-excel.template.macroenabled.12");
-        MIME_MAP.put("xltx", "application/vnd.openxmlformats-officedocument.spreadsheetml.template");
-        MIME_MAP.put("xlw", "application/vnd.ms-excel");
-        MIME_MAP.put("xm", "audio/xm");
-        MIME_MAP.put("xml", "application/xml");
-        MIME_MAP.put("xo", "application/vnd.olpc-sugar");
-        MIME_MAP.put("xop", "application/xop+xml");
-        MIME_MAP.put("xpi", "application/x-xpinstall");
-        MIME_MAP.put("xpl", "application/xproc+xml");
-        MIME_MAP.put("xpm", "image/x-xpixmap");
-        MIME_MAP.put("xpr", "application/vnd.is-xpr");
-        MIME_MAP.put("xps", "application/vnd.ms-xpsdocument");
-        MIME_MAP.put("xpw", "application/vnd.intercon.formnet");
-        MIME_MAP.put("xpx", "application/vnd.intercon.formnet");
-        MIME_MAP.put("xsl", "application/xml");
-        MIME_MAP.put("xslt", "application/xslt+xml");
-        MIME_MAP.put("xsm", "application/vnd.syncml+xml");
-        MIME_MAP.put("xspf", "application/xspf+xml");
-        MIME_MAP.put("xul", "application/vnd.mozilla.xul+xml");
-        MIME_MAP.put("xvm", "application/xv+xml");
-        MIME_MAP.put("xvml", "application/xv+xml");
-        MIME_MAP.put("xwd", "image/x-xwindowdump");
-        MIME_MAP.put("xyz", "chemical/x-xyz");
-        MIME_MAP.put("xz", "application/x-xz");
-        MIME_MAP.put("yang", "application/yang");
-        MIME_MAP.put("yin", "application/yin+xml");
-        MIME_MAP.put("z", "application/x-compress");
-        MIME_MAP.put("Z", "application/x-compress");
-        MIME_MAP.put("z1", "application/x-zmachine");
-        MIME_MAP.put("z2", "application/x-zmachine");
-        MIME_MAP.put("z3", "application/x-zmachine");
-        MIME_MAP.put("z4", "application/x-zmachine");
-        MIME_MAP.put("z5", "application/x-zmachine");
-        MIME_MAP.put("z6", "application/x-zmachine");
-        MIME_MAP.put("z7", "application/x-zmachine");
-        MIME_MAP.put("z8", "application/x-zmachine");
-        MIME_MAP.put("zaz", "application/vnd.zzazz.deck+xml");
-        MIME_MAP.put("zip", "application/zip");
-        MIME_MAP.put("zir", "application/vnd.zul");
-        MIME_MAP.put("zirz", "application/vnd.zul");
-        MIME_MAP.put("zmm", "application/vnd.handheld-entertainment+xml");
-    }
-
-    // Returns the file extension acording to given path.
-    private static String __getExtension(String path) {
-
-        for (int i = path.length() - 1; i >= 0; i--) {
-            if (path.charAt(i) == '.') {
-                return path.substring(i + 1);
-            }
+    /**
+     * Name of the servlet context attribute holding content types registered
+     * for the whole context (a map of file extensions to content types).
+     */
+    public static final String MIME_TYPES_ATTRIBUTE = AbstractFileServlet.class.getName() + ".mimeTypes";
+
+    public static final String ENCODING_GZIP    = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    // Methods supported by file servlets.
+    private static final String ALLOWED_METHODS = "GET, HEAD, OPTIONS";
+
+    // Content-codings applied on the fly, in server preference order.
+    private static final String[] COMPRESSION_ENCODINGS = { ENCODING_GZIP, ENCODING_DEFLATE };
+
+    // Fraction of the compression cache that a single resource may occupy.
+    private static final int COMPRESSION_CACHE_ENTRY_RATIO = 8;
+
+    // Largest file region mapped into memory at once by zero-copy transfers.
+    static final long MAX_MAPPED_REGION_SIZE = 256 * 1024 * 1024;
+
+    // Shared executor performing resource reads for asynchronous transfers.
+    private static Executor defaultAsyncExecutor = null;
+
+    // Inclusive byte range of a resource.
+    private static class ByteRange {
+        private final long start;
+        private final long end;
+
+        private ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private long getLength() {
+            return end - start + 1;
+        }
+    }
+
+    private static final ByteRange UNSATISFIABLE_RANGE = new ByteRange(0, -1);
+
+    /**
+     * Stream over contents held in memory. Such streams are served through
+     * a single write per range, without copying contents through a buffer.
+     */
+    static final class ContentStream extends ByteArrayInputStream {
+        ContentStream(byte[] content) {
+            super(content);
+        }
+
+        /**
+         * Returns the contents of this stream.
+         *
+         * @return the contents of this stream. Returned array must not be
+         * modified.
+         */
+        byte[] getContent() {
+            return buf;
+        }
+    }
+
+    /**
+     * Stream over contents held in a buffer (such as a memory-mapped file
+     * region). When the response is written directly by Jetty, such streams
+     * are served by handing buffer slices to the container.
+     */
+    static final class BufferStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructor.
+         *
+         * @param buffer stream contents (from position zero up to the
+         * buffer capacity). Given buffer is not modified.
+         */
+        BufferStream(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+            this.buffer.clear();
+        }
+
+        /**
+         * Returns a read-only view of given region of the stream contents.
+         *
+         * @param position region position.
+         * @param count region length.
+         * @return a read-only view of given region of the stream contents.
+         */
+        ByteBuffer getRegion(long position, long count) {
+            ByteBuffer region = buffer.asReadOnlyBuffer();
+            region.limit((int) (position + count));
+            region.position((int) position);
+            return region;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining())
+                return -1;
+
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Owner of a file stream which maps the file into memory once per file
+     * version, so that mapped regions are shared by concurrent requests
+     * instead of being mapped on each request.
+     */
+    interface MappedRegions {
+        /**
+         * Returns a read-only memory-mapped view of the file starting at
+         * given position.
+         *
+         * @param position position in the file.
+         * @param count maximum view length. Returned view may be shorter if
+         * given region spans more than a single mapped region.
+         * @return a read-only memory-mapped view of the file.
+         * @throws IOException if the file could not be mapped.
+         */
+        ByteBuffer getMappedRegion(long position, long count) throws IOException;
+    }
+
+    /**
+     * Stream over a region of a file. Such streams are served through
+     * positional reads on their channel (or through memory-mapped regions
+     * shared by their owner), so that ranges are read without reading the
+     * preceding bytes.
+     */
+    static final class RegionStream extends InputStream {
+        private final FileChannel channel;
+        private final long offset;
+        private final long length;
+        private final Closeable owner;
+        private long position = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param channel file channel. Stream takes ownership of the channel.
+         * @param offset region offset in the file.
+         * @param length region length.
+         */
+        RegionStream(FileChannel channel, long offset, long length) {
+            this(channel, offset, length, channel);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param channel file channel.
+         * @param offset region offset in the file.
+         * @param length region length.
+         * @param owner resource closed along with the stream (such as a
+         * reference to a shared channel).
+         */
+        RegionStream(FileChannel channel, long offset, long length, Closeable owner) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+            this.owner = owner;
+        }
+
+        /**
+         * Returns the channel of the file containing the region.
+         *
+         * @return the channel of the file containing the region.
+         */
+        FileChannel getChannel() {
+            return channel;
+        }
+
+        /**
+         * Returns the offset of the region in the file.
+         *
+         * @return the offset of the region in the file.
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the region length.
+         *
+         * @return the region length.
+         */
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the regions of the file mapped by the owner of this stream.
+         *
+         * @return the regions of the file mapped by the owner of this stream
+         * or null if the file is not mapped.
+         */
+        MappedRegions getMappedRegions() {
+            return owner instanceof MappedRegions ? (MappedRegions) owner : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= length)
+                return -1;
+
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, length - position)), offset + position);
+
+            if (read < 0)
+                throw new EOFException("Unexpected end of file");
+
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
         }
 
-        return "";
+        @Override
+        public void close() throws IOException {
+            owner.close();
+        }
+    }
+
+    // GZIP output stream using a custom compression level.
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+        private LeveledGzipOutputStream(OutputStream out, int level, int bufferSize) throws IOException {
+            super(out, bufferSize);
+            def.setLevel(level);
+        }
     }
 
-    // Returns the mime-type associated with given URI or path
+    private static final Comparator<ByteRange> BYTE_RANGE_COMPARATOR = new Comparator<ByteRange>() {
+        @Override
+        public int compare(ByteRange o1, ByteRange o2) {
+            return o1.start < o2.start ? -1 : (o1.start == o2.start ? 0 : 1);
+        }
+    };
+
+    // Returns the mime-type associated with given URI or path according to
+    // default types.
     static String _getMimeType(String uriOrPath) {
-        String mime = MIME_MAP.get(__getExtension(uriOrPath));
+        String mime = MimeRegistry.DEFAULT.get(uriOrPath);
+        return mime != null ? mime : DEFAULT_MIME;
+    }
+
+    // Returns the index of the first character of given string region which
+    // is not a whitespace (as defined by String.trim()).
+    private static int __trimStart(String str, int start, int end) {
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+
+        return start;
+    }
+
+    // Returns the index following the last character of given string region
+    // which is not a whitespace (as defined by String.trim()).
+    private static int __trimEnd(String str, int start, int end) {
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        return end;
+    }
+
+    // Returns a boolean indicating if given string region equals (ignoring
+    // case) given string.
+    private static boolean __regionEquals(String str, int start, int end, String other) {
+        return end - start == other.length() && str.regionMatches(true, start, other, 0, other.length());
+    }
+
+    // Parses a quality value (e.g. "0.5") from given string region. Returns 1
+    // if such region is not a valid number.
+    private static float __parseQValue(String str, int start, int end) {
+        boolean negative = start < end && str.charAt(start) == '-';
+        boolean fraction = false;
+        boolean digits = false;
+        float value = 0;
+        float scale = 1;
+
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = str.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                digits = true;
+
+                if (fraction) {
+                    scale /= 10;
+                    value += (c - '0') * scale;
+                } else {
+                    value = value * 10 + (c - '0');
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return 1;
+            }
+        }
+
+        if (!digits) {
+            return 1;
+        }
+
+        return negative ? 0 : (value > 1 ? 1 : value);
+    }
+
+    // Returns the quality value declared in the parameters of an
+    // "Accept-Encoding" item (given header region, starting at the first
+    // ';', e.g. ";q=0.5") or 1 if no valid quality value is declared.
+    private static float __parseQuality(String acceptEncoding, int start, int end) {
+        for (int paramStart = start; paramStart < end;) {
+            int paramEnd = acceptEncoding.indexOf(';', paramStart + 1);
+
+            if (paramEnd < 0 || paramEnd > end) {
+                paramEnd = end;
+            }
+
+            int nameStart = __trimStart(acceptEncoding, paramStart + 1, paramEnd);
+            int valueEnd = __trimEnd(acceptEncoding, nameStart, paramEnd);
+
+            if (valueEnd - nameStart >= 2 && (acceptEncoding.charAt(nameStart) == 'q' || acceptEncoding.charAt(nameStart) == 'Q') && acceptEncoding.charAt(nameStart + 1) == '=') {
+                return __parseQValue(acceptEncoding, __trimStart(acceptEncoding, nameStart + 2, valueEnd), valueEnd);
+            }
+
+            paramStart = paramEnd;
+        }
+
+        return 1;
+    }
+
+    // Returns the quality value assigned to given content-coding by given
+    // "Accept-Encoding" header value or -1 if such coding is not listed
+    // ("x-gzip" is an alias of "gzip"). The header value is scanned in place.
+    private static float __getQuality(String acceptEncoding, String coding) {
+        boolean gzip = coding.equalsIgnoreCase(ENCODING_GZIP);
+        int length = acceptEncoding.length();
+        float quality = -1;
+
+        for (int itemStart = 0; itemStart <= length;) {
+            int itemEnd = acceptEncoding.indexOf(',', itemStart);
+
+            if (itemEnd < 0) {
+                itemEnd = length;
+            }
+
+            int paramsStart = acceptEncoding.indexOf(';', itemStart);
+
+            if (paramsStart < 0 || paramsStart > itemEnd) {
+                paramsStart = itemEnd;
+            }
+
+            int codingStart = __trimStart(acceptEncoding, itemStart, paramsStart);
+            int codingEnd = __trimEnd(acceptEncoding, codingStart, paramsStart);
+
+            if (__regionEquals(acceptEncoding, codingStart, codingEnd, coding) || (gzip && __regionEquals(acceptEncoding, codingStart, codingEnd, "x-gzip"))) {
+                quality = __parseQuality(acceptEncoding, paramsStart, itemEnd); // <-- Last occurrence prevails
+            }
+
+            itemStart = itemEnd + 1;
+        }
 
-        if (mime == null) {
-            mime = DEFAULT_MIME;
+        return quality;
+    }
+
+    // Returns a boolean indicating if the identity coding is acceptable
+    // according to given "Accept-Encoding" header value, i.e. unless it is
+    // excluded by either "identity;q=0" or "*;q=0" (without a more specific
+    // entry for identity).
+    static boolean _isIdentityAcceptable(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return true;
+        }
+
+        float quality = __getQuality(acceptEncoding, "identity");
+
+        if (quality < 0) {
+            quality = __getQuality(acceptEncoding, "*");
+        }
+
+        return quality != 0;
+    }
+
+    // Returns the preferred content-coding among given ones (listed in server
+    // preference order) according to given "Accept-Encoding" header value or
+    // null if identity coding shall be used (whose acceptability is checked
+    // by _isIdentityAcceptable). When equally acceptable, compressed codings
+    // are preferred over identity.
+    static String _negotiateEncoding(String acceptEncoding, String[] encodings) {
+        if (acceptEncoding == null || encodings.length == 0) {
+            return null;
+        }
+
+        float identityQuality = __getQuality(acceptEncoding, "identity");
+        float anyQuality = __getQuality(acceptEncoding, "*");
+
+        String selected = null;
+        float selectedQuality = identityQuality >= 0 ? identityQuality : (anyQuality >= 0 ? anyQuality : 1);
+
+        for (String encoding : encodings) {
+            float quality = __getQuality(acceptEncoding, encoding);
+
+            if (quality < 0) {
+                quality = anyQuality;
+            }
+
+            if (quality > 0 && (selected == null ? quality >= selectedQuality : quality > selectedQuality)) {
+                selected = encoding;
+                selectedQuality = quality;
+            }
         }
 
-        return mime;
+        return selected;
     }
 
     // Returns a decimal long value represented by given string or a default 
@@ -1081,182 +519,862 @@ public abstract class AbstractFileServlet extends HttpServlet {
         } catch (NumberFormatException ex) {
             return defaultValue;
         }
-    }
+    }
+
+    // Transfers data from given input stream to given output stream using a
+    // pooled buffer of given size
+    private static void __flush(InputStream is, OutputStream os, BufferPool bufferPool, int bufferSize) throws IOException {
+        ByteBuffer buffer = bufferPool.acquire(bufferSize);
+
+        try {
+            for (int length = 0; (length = is.read(buffer.array(), 0, bufferSize)) > 0;) {
+                os.write(buffer.array(), 0, length);
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    // Returns the length of the content provided by given input stream or -1
+    // if such length is unknown (available bytes of a stream are not its
+    // length, e.g. for inflating streams).
+    private static long __getLength(InputStream is) throws IOException {
+        if (is instanceof FileInputStream) {
+            return ((FileInputStream) is).getChannel().size();
+        }
+
+        if (is instanceof RegionStream) {
+            return ((RegionStream) is).getLength();
+        }
+
+        if (is instanceof ContentStream || is instanceof BufferStream) {
+            return is.available(); // <-- Contents held in memory are exactly available
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the channel backing given stream.
+     *
+     * @param is resource stream.
+     * @return the channel of the file read by given stream (see
+     * {@linkplain RegionStream}) or null if given stream is not backed by a
+     * file.
+     */
+    static FileChannel _getChannel(InputStream is) {
+        if (is instanceof FileInputStream) {
+            return ((FileInputStream) is).getChannel();
+        }
+
+        if (is instanceof RegionStream) {
+            return ((RegionStream) is).getChannel();
+        }
+
+        return null;
+    }
+
+    // Skips exactly given number of bytes from given input stream.
+    static void _skipFully(InputStream is, long count) throws IOException {
+        while (count > 0) {
+            long skipped = is.skip(count);
+
+            if (skipped <= 0) {
+                if (is.read() < 0) {
+                    throw new EOFException("Unexpected end of stream");
+                }
+
+                skipped = 1;
+            }
+
+            count -= skipped;
+        }
+    }
+
+    // Transfers given number of bytes, starting at given position, from given
+    // input stream to given response. File-backed streams (including file
+    // regions) are read through positional reads on their channel. If the
+    // region is large enough, the response is written directly by Jetty and
+    // the file is mapped once per version by the owner of the stream (see
+    // ChannelCache), file contents are handed to the container through the
+    // shared memory-mapped regions, so that the kernel moves the bytes
+    // without copying them through a user-space buffer. Files are never
+    // mapped per request, since mappings are only released by the garbage
+    // collector. Other streams are skipped up to given position. Streams
+    // held in memory are written at once. Zero-copy transfers are counted
+    // before being written, since the response may complete meanwhile.
+    private static void __transfer(InputStream is, HttpServletResponse response, long position, long count, BufferPool bufferPool, int bufferSize, long zeroCopyThreshold, AtomicLong zeroCopyTransfers) throws IOException {
+        OutputStream os = response.getOutputStream();
+        FileChannel channel = _getChannel(is);
+
+        if (is instanceof ContentStream) {
+            os.write(((ContentStream) is).getContent(), (int) position, (int) count);
+        } else if (is instanceof BufferStream) {
+            ByteBuffer region = ((BufferStream) is).getRegion(position, count);
+
+            if (os instanceof HttpOutput) {
+                ((HttpOutput) os).write(region);
+            } else {
+                // Wrapped responses are written through a pooled buffer.
+                ByteBuffer buffer = bufferPool.acquire(bufferSize);
+
+                try {
+                    while (region.hasRemaining()) {
+                        int length = Math.min(bufferSize, region.remaining());
+                        region.get(buffer.array(), 0, length);
+                        os.write(buffer.array(), 0, length);
+                    }
+                } finally {
+                    bufferPool.release(buffer);
+                }
+            }
+        } else if (channel != null) {
+            MappedRegions mappedRegions = is instanceof RegionStream ? ((RegionStream) is).getMappedRegions() : null;
+            position += is instanceof RegionStream ? ((RegionStream) is).getOffset() : 0;
+            long end = position + count;
+
+            if (mappedRegions != null && zeroCopyThreshold >= 0 && count >= zeroCopyThreshold && os instanceof HttpOutput) {
+                HttpOutput out = (HttpOutput) os;
+                zeroCopyTransfers.incrementAndGet();
+
+                while (position < end) {
+                    ByteBuffer region = mappedRegions.getMappedRegion(position, end - position);
+                    position += region.remaining();
+                    out.write(region);
+                }
+            } else {
+                ByteBuffer buffer = bufferPool.acquire(bufferSize);
+
+                try {
+                    while (position < end) {
+                        buffer.clear().limit((int) Math.min(bufferSize, end - position));
+                        int length = channel.read(buffer, position);
+
+                        if (length < 0) {
+                            throw new EOFException("Unexpected end of file");
+                        }
+
+                        os.write(buffer.array(), 0, length);
+                        position += length;
+                    }
+                } finally {
+                    bufferPool.release(buffer);
+                }
+            }
+        } else {
+            long end = position + count;
+            _skipFully(is, position);
+
+            ByteBuffer buffer = bufferPool.acquire(bufferSize);
+
+            try {
+                while (position < end) {
+                    int length = is.read(buffer.array(), 0, (int) Math.min(bufferSize, end - position));
+
+                    if (length < 0) {
+                        throw new EOFException("Unexpected end of stream");
+                    }
+
+                    os.write(buffer.array(), 0, length);
+                    position += length;
+                }
+            } finally {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    // Parses a single range specification (either "first-last", "first-" or
+    // "-suffixLength") against a resource of given length. Returns null if
+    // given specification is malformed, or UNSATISFIABLE_RANGE if no byte of
+    // the resource is covered by it.
+    private static ByteRange __parseRangeSpec(String spec, long length) {
+        int minus = spec.indexOf('-');
+
+        if (minus < 0) {
+            return null;
+        }
+
+        String strStart = spec.substring(0, minus).trim();
+        String strEnd   = spec.substring(minus + 1).trim();
+
+        if (strStart.isEmpty()) { // <-- suffix range (bytes=-n)
+            long suffixLength = __parseLong(strEnd, -1);
+
+            if (suffixLength < 0) {
+                return null;
+            }
+
+            if (suffixLength == 0 || length == 0) {
+                return UNSATISFIABLE_RANGE;
+            }
+
+            return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+        }
+
+        long start = __parseLong(strStart, -1);
+        long end   = strEnd.isEmpty() ? Long.MAX_VALUE : __parseLong(strEnd, -1);
+
+        if (start < 0 || end < start) {
+            return null;
+        }
+
+        if (start >= length) {
+            return UNSATISFIABLE_RANGE;
+        }
+
+        return new ByteRange(start, Math.min(end, length - 1));
+    }
+
+    // Parses the value of a "Range" header against a resource of given length.
+    // Returns null if header shall be ignored (absent, malformed or containing
+    // more than given maximum number of ranges), or an empty list if no byte
+    // of the resource is covered by given ranges. Otherwise, returns the
+    // satisfiable ranges sorted by position, with overlapping and adjacent
+    // ranges coalesced.
+    private static List<ByteRange> __parseRanges(String range, long length, int maxRangeCount) {
+        if (range == null || !range.regionMatches(true, 0, "bytes=", 0, "bytes=".length())) {
+            return null;
+        }
+
+        String[] specs = range.substring("bytes=".length()).split(",");
+
+        if (specs.length > maxRangeCount) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+
+        for (String spec : specs) {
+            ByteRange byteRange = __parseRangeSpec(spec.trim(), length);
+
+            if (byteRange == null) {
+                return null;
+            }
+
+            if (byteRange != UNSATISFIABLE_RANGE) {
+                ranges.add(byteRange);
+            }
+        }
+
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        Collections.sort(ranges, BYTE_RANGE_COMPARATOR);
+
+        List<ByteRange> coalesced = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    // Returns the header of a part of a "multipart/byteranges" response.
+    private static byte[] __getPartHeader(String boundary, String mime, ByteRange range, long length) {
+        String header = "\r\n--" + boundary + "\r\n"
+            + "Content-Type: " + mime + "\r\n"
+            + "Content-Range: bytes " + range.start + "-" + range.end + "/" + length + "\r\n"
+            + "\r\n";
+
+        return header.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Returns the entity tag of a representation encoded with given
+    // content-coding, derived from the entity tag of the resource.
+    private static String __getEncodedETag(String etag, String encoding) {
+        if (etag.endsWith("\"")) {
+            return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+        }
+
+        return etag + "-" + encoding;
+    }
+
+    // Returns the contents of given stream compressed with given content-coding.
+    private static byte[] __compress(InputStream is, long length, String encoding, int level, BufferPool bufferPool, int bufferSize) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(length / 2 + 64, Integer.MAX_VALUE));
+
+        if (encoding.equals(ENCODING_GZIP)) {
+            try (OutputStream os = new LeveledGzipOutputStream(baos, level, bufferSize)) {
+                __flush(is, os, bufferPool, bufferSize);
+            }
+        } else {
+            Deflater deflater = new Deflater(level);
+
+            try (OutputStream os = new DeflaterOutputStream(baos, deflater, bufferSize)) {
+                __flush(is, os, bufferPool, bufferSize);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        return baos.toByteArray();
+    }
+
+    // Returns an entity tag derived from given resource metadata. Resources
+    // of unknown length only get a weak tag derived from their timestamp.
+    private static String __getETag(long lastModified, long length) {
+        if (length < 0) {
+            return "W/\"" + Long.toHexString(lastModified) + "\"";
+        }
+
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    // Returns a boolean indicating if given entity tag matches any of the
+    // tags listed in given header value (either "*" or a comma-separated list
+    // of entity tags). Weak comparison ignores the weakness indicator ("W/").
+    // The header value is scanned in place.
+    private static boolean __matchesETag(String headerValue, String etag, boolean weakComparison) {
+        int length = headerValue.length();
+        int valueStart = __trimStart(headerValue, 0, length);
+
+        if (__trimEnd(headerValue, valueStart, length) - valueStart == 1 && headerValue.charAt(valueStart) == '*') {
+            return true;
+        }
+
+        int etagStart = 0;
+
+        if (etag.startsWith("W/")) {
+            if (!weakComparison) {
+                return false;
+            }
+
+            etagStart = 2;
+        }
+
+        int etagLength = etag.length() - etagStart;
+
+        for (int itemStart = 0; itemStart <= length;) {
+            int itemEnd = headerValue.indexOf(',', itemStart);
+
+            if (itemEnd < 0) {
+                itemEnd = length;
+            }
+
+            int tagStart = __trimStart(headerValue, itemStart, itemEnd);
+            int tagEnd = __trimEnd(headerValue, tagStart, itemEnd);
+            itemStart = itemEnd + 1;
+
+            if (headerValue.startsWith("W/", tagStart)) {
+                if (!weakComparison) {
+                    continue;
+                }
+
+                tagStart += 2;
+            }
+
+            if (tagEnd - tagStart == etagLength && headerValue.regionMatches(tagStart, etag, etagStart, etagLength)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Returns the value of a date header of given request or -1 if such
+    // header is absent or could not be parsed.
+    private static long __getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    // Evaluates the preconditions of given request (RFC 7232, section 6)
+    // against a resource with given validators. Returns the status code to be
+    // sent instead of the resource, or 0 if the resource shall be served.
+    private static int __evaluatePreconditions(HttpServletRequest request, String etag, long lastModified) {
+        String ifMatch = request.getHeader("If-Match");
+
+        if (ifMatch != null) {
+            if (!__matchesETag(ifMatch, etag, false)) {
+                return HttpServletResponse.SC_PRECONDITION_FAILED;
+            }
+        } else if (lastModified > 0) {
+            long ifUnmodifiedSince = __getDateHeader(request, "If-Unmodified-Since");
+
+            if (ifUnmodifiedSince >= 0 && lastModified / 1000 > ifUnmodifiedSince / 1000) {
+                return HttpServletResponse.SC_PRECONDITION_FAILED;
+            }
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifNoneMatch != null) {
+            if (__matchesETag(ifNoneMatch, etag, true)) {
+                return HttpServletResponse.SC_NOT_MODIFIED;
+            }
+        } else if (lastModified > 0) {
+            long ifModifiedSince = __getDateHeader(request, "If-Modified-Since");
+
+            if (ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                return HttpServletResponse.SC_NOT_MODIFIED;
+            }
+        }
+
+        return 0;
+    }
+
+    // Evaluates the preconditions of given request and, if the resource shall
+    // not be served, sends the appropriate response. Returns a boolean
+    // indicating if a response was sent.
+    private static boolean __sendPreconditionResponse(HttpServletRequest request, HttpServletResponse response, String etag, long lastModified) {
+        int status = __evaluatePreconditions(request, etag, lastModified);
+
+        if (status == 0) {
+            return false;
+        }
+
+        response.setStatus(status);
+
+        if (status == HttpServletResponse.SC_NOT_MODIFIED) {
+            response.setHeader("ETag", etag);
+
+            if (lastModified > 0) {
+                response.setDateHeader("Last-Modified", lastModified);
+            }
+        }
+
+        return true;
+    }
+
+    // Returns a boolean indicating if the "Range" header of given request
+    // shall be honored according to its "If-Range" header (if any).
+    private static boolean __isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        int start = __trimStart(ifRange, 0, ifRange.length());
+        int end = __trimEnd(ifRange, start, ifRange.length());
+
+        if (ifRange.startsWith("\"", start) || ifRange.startsWith("W/", start)) {
+            return !etag.startsWith("W/") && end - start == etag.length() && ifRange.startsWith(etag, start);
+        }
+
+        long date = __getDateHeader(request, "If-Range");
+
+        return date >= 0 && lastModified > 0 && lastModified / 1000 == date / 1000;
+    }
+
+    // Returns the executor shared by servlets which do not provide their own
+    // executor for asynchronous transfers.
+    private static synchronized Executor __getDefaultAsyncExecutor() {
+        if (defaultAsyncExecutor == null) {
+            int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+            defaultAsyncExecutor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                private final AtomicInteger threadCounter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, AbstractFileServlet.class.getSimpleName() + "-io-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return defaultAsyncExecutor;
+    }
+
+    // Returns the string-representation of the stack trace associated with
+    // given throwable.
+    private static String __getStackTrace(Throwable throwable) {
+        StringWriter stringWriter = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(stringWriter));
+
+        return stringWriter.toString();
+    }
+    // </editor-fold>
+
+    // Returns the length of the largest resource region among given segments.
+    private static long __getMaxSegmentLength(List<AsyncTransfer.Segment> segments) {
+        long max = 0;
+
+        for (AsyncTransfer.Segment segment : segments) {
+            if (segment.data == null) {
+                max = Math.max(max, segment.count);
+            }
+        }
+
+        return max;
+    }
+
+    // Returns the size of the buffer used to transfer given number of bytes:
+    // large enough to hold them, up to the size of the response buffer (so
+    // that each write fills the output buffer of the connector).
+    private int __getBufferSize(HttpServletResponse response, long count) {
+        int maxSize = Math.min(getMaxBufferSize(), Math.max(getDefaultBufferSize(), response.getBufferSize()));
+        return (int) Math.max(1, Math.min(count, maxSize));
+    }
+
+    // Sends the headers a GET request for the whole resource would receive,
+    // as a response to a HEAD request. Ranges are ignored, since they only
+    // apply to GET requests. Content length is omitted if negative (unknown).
+    private static void __sendHeadResponse(HttpServletResponse response, String mime, String encoding, long length, String etag, long lastModified) throws IOException {
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        response.addHeader("Accept-Ranges", "bytes");
+
+        if (encoding != null) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(mime);
+
+        response.addHeader("ETag", etag);
+
+        if (length >= 0) {
+            response.setContentLengthLong(length);
+        } else {
+            response.flushBuffer(); // <-- Otherwise, the empty body would be described as a zero length
+        }
+    }
+
+    // Based on https://github.com/NanoHttpd/nanohttpd/issues/232#issuecomment-180254564
+    // Returns a boolean indicating if the body is being transferred
+    // asynchronously. In this case, the transfer owns given stream.
+    private boolean __serveStream(HttpServletRequest request, HttpServletResponse response, InputStream is, String mime, String encoding, long fileLen, String etag, long lastModified) throws IOException {
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        List<ByteRange> ranges = null;
+
+        if (fileLen >= 0) {
+            response.addHeader("Accept-Ranges", "bytes"); // <-- Ranges of contents with unknown length are not served
+        }
+
+        if (fileLen >= 0 && __isRangeApplicable(request, etag, lastModified)) {
+            ranges = __parseRanges(request.getHeader("Range"), fileLen, getMaxRangeCount());
+        }
+
+        if (encoding != null && (ranges == null || !ranges.isEmpty())) {
+            response.setHeader("Content-Encoding", encoding);
+        }
 
-    // Retrive a map containing the request headers associated with given request.
-    private static Map<String, String> __getRequestHeaderMap(HttpServletRequest req) {
-        Map<String, String> reqHeaders = new LinkedHashMap<>();
-        Enumeration<String> headerNames = req.getHeaderNames();
-        if (headerNames != null) {
-            while (headerNames.hasMoreElements()) {
-                String headerName = headerNames.nextElement();
-                Enumeration<String> headerValues = req.getHeaders(headerName);
+        List<AsyncTransfer.Segment> segments = null; // <-- Whole resource, if null
 
-                if (headerValues != null) {
-                    StringBuilder headerValueBuilder = new StringBuilder();
-                    int i = 0;
-                    while (headerValues.hasMoreElements()) {
-                        if (i > 0) {
-                            headerValueBuilder.append(", ");
-                        }
+        // Headers must be set before any content is written, since response
+        // may be committed during transfer.
+        if (ranges != null && ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setContentType("text/plain");
+            response.addHeader("Content-Range", "bytes */" + fileLen);
+            response.addHeader("ETag", etag);
+            return false;
+        } else if (ranges != null && ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
 
-                        headerValueBuilder.append(headerValues.nextElement());
-                        i++;
-                    }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(mime);
+            response.setContentLengthLong(range.getLength());
+            response.addHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + fileLen);
+            response.addHeader("ETag", etag);
+            segments = Collections.singletonList(new AsyncTransfer.Segment(range.start, range.getLength()));
+        } else if (ranges != null) {
+            String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            boolean positional = _getChannel(is) != null || is instanceof ContentStream || is instanceof BufferStream;
+            long streamPosition = 0;
+            long contentLength = trailer.length;
+            segments = new ArrayList<>(2 * ranges.size() + 1);
 
-                    reqHeaders.put(headerName, headerValueBuilder.toString());
-                } else {
-                    reqHeaders.put(headerName, "");
-                }
+            // Ranges are sorted, so non-positional streams are only skipped
+            // forward between parts.
+            for (ByteRange range : ranges) {
+                byte[] partHeader = __getPartHeader(boundary, mime, range, fileLen);
+                contentLength += partHeader.length + range.getLength();
+
+                segments.add(new AsyncTransfer.Segment(partHeader));
+                segments.add(new AsyncTransfer.Segment(positional ? range.start : range.start - streamPosition, range.getLength()));
+                streamPosition = range.end + 1;
             }
-        }
-        return reqHeaders;
-    }
 
-    // Transfers data from given input stream to given output stream using a
-    // buffer of given size
-    private static void __flush(InputStream is, OutputStream os, int bufferSize) throws IOException {
-        byte[] buffer = new byte[bufferSize];
+            segments.add(new AsyncTransfer.Segment(trailer));
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            response.setContentLengthLong(contentLength);
+            response.addHeader("ETag", etag);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(mime);
+            response.addHeader("ETag", etag);
 
-        for (int length = 0; (length = is.read(buffer)) > 0;) {
-            os.write(buffer, 0, length);
+            if (fileLen >= 0) {
+                response.setContentLengthLong(fileLen);
+            }
         }
-    }
 
-    // Returns the string-representation of the stack trace associated with
-    // given throwable.
-    private static String __getStackTrace(Throwable throwable) {
-        StringWriter stringWriter = new StringWriter();
-        throwable.printStackTrace(new PrintWriter(stringWriter));
+        BufferPool bufferPool = _getBufferPool();
+        int bufferSize = __getBufferSize(response, segments != null ? __getMaxSegmentLength(segments) : (fileLen >= 0 ? fileLen : Long.MAX_VALUE));
 
-        return stringWriter.toString();
-    }
+        if (fileLen < 0) {
+            // Contents of unknown length are streamed up to their end.
+            __flush(is, response.getOutputStream(), bufferPool, bufferSize);
+            return false;
+        }
 
-    // Based on https://github.com/NanoHttpd/nanohttpd/issues/232#issuecomment-180254564
-    private static void __serveStream(HttpServletRequest request, HttpServletResponse response, InputStream is, String path, String mime, int bufferSize, long lastModified) throws IOException {
-        Map<String, String> reqHeaders = __getRequestHeaderMap(request);
+        if (isAsyncEnabled() && request.isAsyncSupported()) {
+            if (segments == null) {
+                segments = Collections.singletonList(new AsyncTransfer.Segment(0, fileLen));
+            }
 
-        String queryString = request.getQueryString();
-        if (queryString == null) {
-            queryString = "";
+            new AsyncTransfer(request.startAsync(), response.getOutputStream(), is, segments, getAsyncExecutor(), bufferPool, bufferSize).start();
+            return true;
         }
 
-        // Calculate etag
-        String etag = Integer.toHexString((path + lastModified + queryString + is.available()).hashCode());
+        long zeroCopyThreshold = getZeroCopyThreshold();
 
-        // Support (simple) skipping:
-        long startFrom = 0;
-        long endAt = -1;
+        if (segments == null) {
+            __transfer(is, response, 0, fileLen, bufferPool, bufferSize, zeroCopyThreshold, zeroCopyTransfers);
+            return false;
+        }
 
-        String range = reqHeaders.get("range");
-        if (range != null) {
-            if (range.startsWith("bytes=")) {
-                range = range.substring("bytes=".length());
-                int minus = range.indexOf('-');
+        OutputStream os = response.getOutputStream();
 
-                if (minus > 0) {
-                    startFrom = __parseLong(range.substring(0, minus), 0);
-                    endAt = __parseLong(range.substring(minus + 1), -1);
-                }
+        for (AsyncTransfer.Segment segment : segments) {
+            if (segment.data != null) {
+                os.write(segment.data);
+            } else {
+                __transfer(is, response, segment.position, segment.count, bufferPool, bufferSize, zeroCopyThreshold, zeroCopyTransfers);
             }
         }
 
-        response.addHeader("Accept-Ranges", "bytes");
+        return false;
+    }
 
-        // Change return code and add Content-Range header when skipping is requested
-        long fileLen = is.available();
-        if (range != null && startFrom >= 0) {
-            if (startFrom >= fileLen) {
-                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-                response.setContentType("text/plain");
-                response.addHeader("Content-Range", "bytes 0-0/" + fileLen);
-                response.addHeader("ETag", etag);
-            } else {
-                if (endAt < 0) {
-                    endAt = fileLen - 1;
-                }
+    /**
+     * Returns the resource pointed by given request. This method is called
+     * once per request (unless the request path is known to point to a
+     * missing resource).
+     *
+     * @param req HTTP request.
+     * @return the resource pointed by given request. If there is no such
+     * resource, the implementation shall return a resource which does not
+     * {@linkplain Resource#exists() exist} (or null, if request does not
+     * point to a directory either).
+     * @throws IOException if an I/O error happened while resolving the
+     * resource.
+     */
+    protected abstract Resource getResource(HttpServletRequest req) throws IOException;
 
-                long newLen = endAt - startFrom + 1;
+    /**
+     * Returns the content types registered by this servlet. These types
+     * override default ones and the ones registered for the servlet context
+     * (see {@linkplain AbstractFileServlet#MIME_TYPES_ATTRIBUTE}). This method
+     * is called once.
+     *
+     * @return a map of file extensions (case-insensitive, without the
+     * leading dot) to content types. Default implementation returns an empty
+     * map.
+     */
+    protected Map<String, String> getMimeTypes() {
+        return Collections.emptyMap();
+    }
 
-                if (newLen < 0) {
-                    newLen = 0;
-                }
+    /**
+     * Returns the charset declared by textual content types (text/*,
+     * JavaScript, JSON and XML) which do not declare parameters. This method
+     * is called once.
+     *
+     * @return the charset declared by textual content types (e.g. "UTF-8")
+     * or null in order to send types without a charset parameter. Default
+     * implementation returns null.
+     */
+    protected String getTextCharset() {
+        return null;
+    }
 
-                final long dataLen = newLen;
+    /**
+     * Returns the "Cache-Control" header value sent along with resources
+     * which do not declare their own policy (see
+     * {@linkplain Resource#getCacheControl()}).
+     *
+     * @return the "Cache-Control" header value (e.g. "no-cache") or null in
+     * order to omit such header. Default implementation returns null.
+     */
+    protected String getCacheControl() {
+        return null;
+    }
 
-                is.skip(startFrom);
+    /**
+     * Returns the content type associated with given path, according to its
+     * extension (case-insensitive). Lookups do not allocate.
+     *
+     * @param path file name, path or URI.
+     * @return the content type associated with given path or
+     * {@linkplain AbstractFileServlet#DEFAULT_MIME} if its extension is not
+     * registered.
+     */
+    protected final String getMimeType(String path) {
+        String mime = _getMimeRegistry().get(path);
+        return mime != null ? mime : DEFAULT_MIME;
+    }
 
-                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-                response.setContentType(mime);
-                __flush(is, response.getOutputStream(), bufferSize);
-                response.addHeader("Content-Length", "" + dataLen);
-                response.addHeader("Content-Range", "bytes " + startFrom + "-" + endAt + "/" + fileLen);
-                response.addHeader("ETag", etag);
-            }
-        } else {
-            if (etag.equals(reqHeaders.get("if-none-match"))) {
-                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                response.setContentType(mime);
-            } else {
-                response.setStatus(HttpServletResponse.SC_OK);
-                response.setContentType(mime);
-                __flush(is, response.getOutputStream(), bufferSize);
-                response.addHeader("Content-Length", "" + fileLen);
-                response.addHeader("ETag", etag);
-            }
-        }
+    /**
+     * Returns a boolean indicating if resources of given content type shall be
+     * compressed on the fly when they have no precompressed representation.
+     *
+     * @param mime content type.
+     * @return a boolean indicating if resources of given content type shall be
+     * compressed. Default implementation accepts textual types (text/*,
+     * JavaScript, JSON, XML and SVG).
+     */
+    protected boolean isCompressible(String mime) {
+        int end = mime.indexOf(';');
+        int start = __trimStart(mime, 0, end < 0 ? mime.length() : end);
+        end = __trimEnd(mime, start, end < 0 ? mime.length() : end);
 
+        return (end - start >= 5 && mime.regionMatches(true, start, "text/", 0, 5))
+            || (end - start >= 4 && mime.regionMatches(true, end - 4, "+xml", 0, 4))
+            || (end - start >= 5 && mime.regionMatches(true, end - 5, "+json", 0, 5))
+            || __regionEquals(mime, start, end, "application/javascript")
+            || __regionEquals(mime, start, end, "application/x-javascript")
+            || __regionEquals(mime, start, end, "application/json")
+            || __regionEquals(mime, start, end, "application/xml");
     }
-    // </editor-fold>
 
     /**
-     * Returns a boolean indicating if given request points to a directory.
+     * Returns the minimum length (in bytes) of resources compressed on the fly.
      *
-     * @param req HTTP request.
-     * @return boolean indicating if given request points to a directory.
+     * @return the minimum length of resources compressed on the fly. Default
+     * implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_COMPRESSION_THRESHOLD}.
      */
-    protected abstract boolean isDirectory(HttpServletRequest req);
+    protected long getCompressionThreshold() {
+        return DEFAULT_COMPRESSION_THRESHOLD;
+    }
 
     /**
-     * Returns a input stream associated with the resource pointed by given
-     * request.
+     * Returns the compression level (from 1 to 9) used when compressing
+     * resources on the fly. Higher levels produce smaller outputs at the cost
+     * of more CPU, which is paid once per resource version since compressed
+     * representations are cached.
      *
-     * @param req HTTP request.
-     * @return a input stream associated with the resource pointed by given
-     * request. If pointed resource does not exists, the implementation shall
-     * return null.
-     * @throws IOException if an I/O error happened while obtaining the input
-     * stream.
+     * @return the compression level used when compressing resources on the
+     * fly. Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_COMPRESSION_LEVEL}.
      */
-    protected abstract InputStream getTargetInputStreamFor(HttpServletRequest req) throws IOException;
+    protected int getCompressionLevel() {
+        return DEFAULT_COMPRESSION_LEVEL;
+    }
 
     /**
-     * Returns the number of milliseconds since UNIX epoch (GMT) representing
-     * the timestamp of resource (pointed by given request) last modification.
-     * It's assumed that this method will be called only if
-     * {@linkplain AbstractFileServlet#getTargetInputStreamFor(javax.servlet.http.HttpServletRequest)}
-     * returns a non-null value.
+     * Returns the maximum number of bytes kept in the cache of compressed
+     * representations. Resources larger than 1/8 of this size are not
+     * compressed on the fly.
      *
-     * @param req HTTP request.
-     * @return the number of milliseconds since UNIX epoch (GMT) representing
-     * the timestamp of resource (pointed by given request) last modification.
+     * @return the maximum number of bytes kept in the cache of compressed
+     * representations or zero in order to disable on-the-fly compression.
+     * Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_COMPRESSION_CACHE_SIZE}.
      */
-    protected abstract long getTargetLastModifiedFor(HttpServletRequest req);
+    protected long getCompressionCacheSize() {
+        return DEFAULT_COMPRESSION_CACHE_SIZE;
+    }
 
     /**
-     * Returns the content-type associated with the resource pointed by given
-     * request. It's assumed that this method will be called only if
-     * {@linkplain AbstractFileServlet#getTargetInputStreamFor(javax.servlet.http.HttpServletRequest)}
-     * returns a non-null value.
+     * Returns the number of requests served from the cache of compressed
+     * representations.
      *
-     * @param req HTTP request.
-     * @return the content-type associated with the resource pointed by given
-     * request.
+     * @return the number of requests served from the cache of compressed
+     * representations.
+     */
+    public long getCompressionCacheHits() {
+        ContentCache cache = __getCompressionCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of requests which required a resource to be
+     * compressed.
+     *
+     * @return the number of requests which required a resource to be
+     * compressed.
+     */
+    public long getCompressionCacheMisses() {
+        ContentCache cache = __getCompressionCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Returns the maximum number of paths kept in the cache of missing
+     * resources. Requests for cached paths are answered through
+     * {@linkplain AbstractFileServlet#onNotFound(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * without looking the resource up again.
+     *
+     * @return the maximum number of paths kept in the cache of missing
+     * resources or zero in order to disable it. Default implementation
+     * returns {@linkplain AbstractFileServlet#DEFAULT_NEGATIVE_CACHE_CAPACITY}.
+     */
+    protected int getNegativeCacheCapacity() {
+        return DEFAULT_NEGATIVE_CACHE_CAPACITY;
+    }
+
+    /**
+     * Returns the time during which a path is known to point to a missing
+     * resource. Unless the servlet detects new resources by itself (such as
+     * a {@linkplain MappedFileServlet} keeping a manifest of its directory),
+     * this is the maximum delay for a new resource to be served after being
+     * requested while missing.
+     *
+     * @return the time (in milliseconds) during which a path is known to
+     * point to a missing resource. Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_NEGATIVE_CACHE_TTL}.
+     */
+    protected long getNegativeCacheTtl() {
+        return DEFAULT_NEGATIVE_CACHE_TTL;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache of missing
+     * resources.
+     *
+     * @return the number of requests answered from the cache of missing
+     * resources.
      */
-    protected abstract String getTargetContentTypeFor(HttpServletRequest req);
+    public long getNegativeCacheHits() {
+        NegativeCache cache = _getNegativeCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of requests which required a resource to be looked
+     * up.
+     *
+     * @return the number of requests which required a resource to be looked
+     * up.
+     */
+    public long getNegativeCacheMisses() {
+        NegativeCache cache = _getNegativeCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
 
     /**
-     * Returns the default buffer size used for transfers.
+     * Returns the default buffer size used for transfers. Transfers use
+     * larger buffers when the response buffer (i.e. the output buffer of the
+     * connector) is larger, and smaller ones for smaller contents.
      *
      * @return the default buffer size used for transfers. Default
      * implementation returns
@@ -1266,11 +1384,275 @@ public abstract class AbstractFileServlet extends HttpServlet {
         return DEFAULT_BUFFER_SIZE;
     }
 
+    /**
+     * Returns the maximum buffer size used for transfers.
+     *
+     * @return the maximum buffer size used for transfers. Default
+     * implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_MAX_BUFFER_SIZE}.
+     */
+    protected int getMaxBufferSize() {
+        return DEFAULT_MAX_BUFFER_SIZE;
+    }
+
+    /**
+     * Returns the maximum number of bytes held by idle transfer buffers,
+     * which are reused by subsequent transfers.
+     *
+     * @return the maximum number of bytes held by idle transfer buffers or
+     * zero in order to allocate buffers for each transfer. This method is
+     * called once. Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_BUFFER_POOL_SIZE}.
+     */
+    protected long getBufferPoolSize() {
+        return DEFAULT_BUFFER_POOL_SIZE;
+    }
+
+    /**
+     * Returns the number of transfer buffers reused from the pool.
+     *
+     * @return the number of transfer buffers reused from the pool.
+     */
+    public long getBufferPoolHits() {
+        return _getBufferPool().getHitCount();
+    }
+
+    /**
+     * Returns the number of transfer buffers which were allocated since the
+     * pool had no idle buffer of the required size.
+     *
+     * @return the number of allocated transfer buffers.
+     */
+    public long getBufferPoolMisses() {
+        return _getBufferPool().getMissCount();
+    }
+
+    /**
+     * Returns the number of bytes held by idle transfer buffers.
+     *
+     * @return the number of bytes held by idle transfer buffers.
+     */
+    public long getBufferPoolOccupancy() {
+        return _getBufferPool().getPooledBytes();
+    }
+
+    /**
+     * Returns the number of file regions (whole contents or requested
+     * ranges) transferred without copying data through an user-space buffer
+     * (see {@linkplain AbstractFileServlet#getZeroCopyThreshold()}).
+     *
+     * @return the number of zero-copy transfers.
+     */
+    public long getZeroCopyTransferCount() {
+        return zeroCopyTransfers.get();
+    }
+
+    /**
+     * Returns the minimum content length (in bytes) for which file-backed
+     * resources are transferred without copying data through an user-space
+     * buffer. Such transfers require files to be mapped once per version by
+     * the stream owner: {@linkplain MappedFileServlet} maps the files it keeps
+     * open (see {@linkplain MappedFileServlet#getChannelCacheCapacity()}), so
+     * that files it opens per request (when such cache is disabled) are not
+     * transferred this way. Files are never mapped per request, since
+     * mappings are only released by the garbage collector. Asynchronous
+     * transfers (see {@linkplain AbstractFileServlet#isAsyncEnabled()}),
+     * wrapped responses and smaller resources are transferred through pooled
+     * buffers (see {@linkplain AbstractFileServlet#getBufferPoolSize()}).
+     *
+     * @return the minimum content length for zero-copy transfers or a
+     * negative value in order to disable them. Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_ZERO_COPY_THRESHOLD}.
+     */
+    protected long getZeroCopyThreshold() {
+        return DEFAULT_ZERO_COPY_THRESHOLD;
+    }
+
+    /**
+     * Returns the maximum number of ranges accepted in a single request.
+     * Requests asking for more ranges are answered with the whole content,
+     * preventing a small request from amplifying into a large number of
+     * response parts.
+     *
+     * @return the maximum number of ranges accepted in a single request.
+     * Default implementation returns
+     * {@linkplain AbstractFileServlet#DEFAULT_MAX_RANGE_COUNT}.
+     */
+    protected int getMaxRangeCount() {
+        return DEFAULT_MAX_RANGE_COUNT;
+    }
+
+    /**
+     * Returns a boolean indicating if response bodies are written
+     * asynchronously. When enabled, content is written only when the
+     * connection is writable and resource reads are performed by the
+     * {@linkplain AbstractFileServlet#getAsyncExecutor() asynchronous executor},
+     * so that slow clients do not hold request threads.
+     *
+     * Asynchronous transfers require the servlet to be registered with
+     * asynchronous support (see {@linkplain javax.servlet.annotation.WebServlet#asyncSupported()}).
+     * Otherwise, content is written by the request thread.
+     *
+     * @return a boolean indicating if response bodies are written
+     * asynchronously. Default implementation returns false.
+     */
+    protected boolean isAsyncEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the executor used to read resources during asynchronous
+     * transfers.
+     *
+     * @return the executor used to read resources during asynchronous
+     * transfers. Default implementation returns an executor shared by all
+     * servlets, backed by a fixed number of daemon threads.
+     */
+    protected Executor getAsyncExecutor() {
+        return __getDefaultAsyncExecutor();
+    }
+
+    private final Object mimeRegistryLock = new Object();
+    private MimeRegistry mimeRegistry = null;
+
+    // Returns the content types known by this instance: default types,
+    // overridden by types registered for the servlet context and by this
+    // servlet.
+    @SuppressWarnings("unchecked")
+    MimeRegistry _getMimeRegistry() {
+        synchronized (mimeRegistryLock) {
+            if (mimeRegistry == null) {
+                Map<String, String> overrides = new LinkedHashMap<>();
+
+                if (getServletConfig() != null) {
+                    Object contextTypes = getServletContext().getAttribute(MIME_TYPES_ATTRIBUTE);
+
+                    if (contextTypes instanceof Map)
+                        overrides.putAll((Map<String, String>) contextTypes);
+                }
+
+                overrides.putAll(getMimeTypes());
+                mimeRegistry = overrides.isEmpty() && getTextCharset() == null ? MimeRegistry.DEFAULT : new MimeRegistry(overrides, getTextCharset());
+            }
+
+            return mimeRegistry;
+        }
+    }
+
+    private final Object bufferPoolLock = new Object();
+    private BufferPool bufferPool = null;
+
+    private final AtomicLong zeroCopyTransfers = new AtomicLong();
+
+    // Returns the pool of transfer buffers used by this instance.
+    BufferPool _getBufferPool() {
+        synchronized (bufferPoolLock) {
+            if (bufferPool == null)
+                bufferPool = new BufferPool(Math.max(0, getBufferPoolSize()));
+
+            return bufferPool;
+        }
+    }
+
+    private final Object compressionCacheLock = new Object();
+    private ContentCache compressionCache = null;
+    private boolean compressionCacheInitialized = false;
+
+    // Returns the cache of compressed representations used by this instance
+    // or null if on-the-fly compression is disabled.
+    private ContentCache __getCompressionCache() {
+        synchronized (compressionCacheLock) {
+            if (!compressionCacheInitialized) {
+                long capacity = getCompressionCacheSize();
+
+                if (capacity > 0)
+                    compressionCache = new ContentCache(capacity);
+
+                compressionCacheInitialized = true;
+            }
+
+            return compressionCache;
+        }
+    }
+
+    private final Object negativeCacheLock = new Object();
+    private NegativeCache negativeCache = null;
+    private boolean negativeCacheInitialized = false;
+
+    // Returns the cache of missing resources used by this instance or null if
+    // such cache is disabled.
+    NegativeCache _getNegativeCache() {
+        synchronized (negativeCacheLock) {
+            if (!negativeCacheInitialized) {
+                int capacity = getNegativeCacheCapacity();
+
+                if (capacity > 0)
+                    negativeCache = new NegativeCache(capacity, getNegativeCacheTtl());
+
+                negativeCacheInitialized = true;
+            }
+
+            return negativeCache;
+        }
+    }
+
+    // Returns a boolean indicating if the resource pointed by given path is
+    // resolved from an in-memory index of known resources, so that a missing
+    // resource is detected without querying the storage. Such lookups bypass
+    // the cache of missing resources: they are as cheap as a cache lookup,
+    // and unique paths (such as the ones probed by scanners) would only evict
+    // useful entries.
+    boolean _isIndexed(String pathInfo) {
+        return false;
+    }
+
+    // Returns a boolean indicating if a resource with given content type and
+    // length shall be compressed on the fly.
+    private boolean __isCompressionApplicable(String mime, long length) {
+        if (mime == null || length < getCompressionThreshold() || !isCompressible(mime))
+            return false;
+
+        ContentCache cache = __getCompressionCache();
+        return cache != null && length <= cache.getCapacity() / COMPRESSION_CACHE_ENTRY_RATIO;
+    }
+
+    // Opens the contents of given resource, preferring contents held in
+    // memory and file channels. Returns null if resource does not exist.
+    private static InputStream __open(Resource resource, long length) throws IOException {
+        ByteBuffer content = resource.getContent();
+
+        if (content != null) {
+            if (content.hasArray() && content.arrayOffset() == 0 && content.array().length == content.capacity()) {
+                return new ContentStream(content.array());
+            }
+
+            return new BufferStream(content);
+        }
+
+        FileChannel channel = resource.openChannel();
+
+        if (channel != null) {
+            return new RegionStream(channel, 0, length >= 0 ? length : channel.size());
+        }
+
+        return resource.openStream();
+    }
+
     @Override
     protected final void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         InputStream targetInputStream = null;
         try {
-            if (!req.getMethod().toUpperCase().equals("GET")) {
+            String method = req.getMethod();
+            boolean head = "HEAD".equalsIgnoreCase(method);
+
+            if ("OPTIONS".equalsIgnoreCase(method)) {
+                resp.setHeader("Allow", ALLOWED_METHODS);
+                resp.setContentLength(0);
+                return;
+            }
+
+            if (!head && !"GET".equalsIgnoreCase(method)) {
+                resp.setHeader("Allow", ALLOWED_METHODS);
                 resp.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
                 return;
             }
@@ -1280,20 +1662,148 @@ public abstract class AbstractFileServlet extends HttpServlet {
                 pathInfo = "";
             }
 
-            if (isDirectory(req) && !pathInfo.endsWith("/")) {
+            NegativeCache negativeCache = _isIndexed(pathInfo) ? null : _getNegativeCache();
+
+            if (negativeCache != null && negativeCache.contains(pathInfo)) {
+                onNotFound(req, resp);
+                return;
+            }
+
+            Resource resource = getResource(req);
+
+            if (resource != null && resource.isDirectory() && !pathInfo.endsWith("/")) {
                 resp.sendRedirect(req.getRequestURI() + "/");
                 return;
             }
 
-            targetInputStream = getTargetInputStreamFor(req);
+            if (resource == null || !resource.exists()) {
+                if (negativeCache != null) {
+                    negativeCache.add(pathInfo);
+                }
 
-            if (targetInputStream == null) { // <-- Not found
                 onNotFound(req, resp);
-            } else {
-                long lastModified = getTargetLastModifiedFor(req);
-                String mime = getTargetContentTypeFor(req);
+                return;
+            }
+
+            long lastModified = resource.getLastModified();
+            long length = resource.getLength();
+
+            // Whenever resource length is known in advance, preconditions are
+            // evaluated before opening the resource.
+            if (length < 0) {
+                targetInputStream = __open(resource, length);
+
+                if (targetInputStream == null) { // <-- Not found
+                    onNotFound(req, resp);
+                    return;
+                }
+
+                length = __getLength(targetInputStream);
+            }
+
+            String mime = resource.getContentType();
+            String encoding = resource.getContentEncoding();
+            String compression = null;
+            String acceptEncoding = req.getHeader("Accept-Encoding");
+            boolean negotiated = resource.isEncodingNegotiated();
+
+            if (encoding == null && __isCompressionApplicable(mime, length)) {
+                negotiated = true;
+                compression = _negotiateEncoding(acceptEncoding, COMPRESSION_ENCODINGS);
+            }
+
+            // Identity representation is not sent if explicitly refused by
+            // the client (see RFC 7231, section 5.3.4).
+            boolean acceptable = encoding != null || compression != null || _isIdentityAcceptable(acceptEncoding);
+
+            if (negotiated || !acceptable) {
+                resp.addHeader("Vary", "Accept-Encoding");
+            }
+
+            String cacheControl = resource.getCacheControl();
+
+            if (cacheControl == null) {
+                cacheControl = getCacheControl();
+            }
+
+            if (cacheControl != null) {
+                resp.setHeader("Cache-Control", cacheControl);
+            }
+
+            String etag = resource.getETag();
+
+            if (etag == null) {
+                etag = __getETag(lastModified, length);
+            }
+
+            String compressionKey = null;
+
+            if (compression != null) {
+                compressionKey = pathInfo + " " + etag + " " + compression;
+                etag = __getEncodedETag(etag, compression);
+            }
+
+            if (__sendPreconditionResponse(req, resp, etag, lastModified)) {
+                return;
+            }
+
+            // Refused identity is reported only once preconditions are met.
+            if (!acceptable) {
+                resp.setStatus(HttpServletResponse.SC_NOT_ACCEPTABLE);
+                return;
+            }
+
+            if (compression != null) {
+                ContentCache cache = __getCompressionCache();
+                byte[] compressed = cache.get(compressionKey);
+
+                if (head) {
+                    // HEAD requests never read nor compress contents: the
+                    // compressed representation is described by its coding
+                    // and entity tag, and its length is only sent if known.
+                    __sendHeadResponse(resp, mime, compression, compressed != null ? compressed.length : -1, etag, lastModified);
+                    return;
+                }
+
+                if (compressed == null) {
+                    if (targetInputStream == null) {
+                        targetInputStream = __open(resource, length);
+
+                        if (targetInputStream == null) { // <-- Not found
+                            onNotFound(req, resp);
+                            return;
+                        }
+                    }
+
+                    compressed = __compress(targetInputStream, length, compression, getCompressionLevel(), _getBufferPool(), getDefaultBufferSize());
+                    cache.put(compressionKey, compressed);
+                }
+
+                if (targetInputStream != null) {
+                    targetInputStream.close();
+                }
+
+                targetInputStream = new ContentStream(compressed);
+                encoding = compression;
+                length = compressed.length;
+            }
+
+            if (head) {
+                __sendHeadResponse(resp, mime, encoding, length, etag, lastModified);
+                return;
+            }
+
+            if (targetInputStream == null) {
+                targetInputStream = __open(resource, length);
+
+                if (targetInputStream == null) { // <-- Not found
+                    onNotFound(req, resp);
+                    return;
+                }
+            }
 
-                __serveStream(req, resp, targetInputStream, pathInfo, mime, getDefaultBufferSize(), lastModified);
+            if (__serveStream(req, resp, targetInputStream, mime, encoding, length, etag, lastModified)) {
+                targetInputStream = null; // <-- Closed by asynchronous transfer
             }
         } catch (RuntimeException ex) {
             onUncaughtException(req, resp, ex);
@@ -1306,7 +1816,7 @@ public abstract class AbstractFileServlet extends HttpServlet {
 
     /**
      * Called if a resource pointed by given request does not exist (see
-     * {@linkplain AbstractFileServlet#getTargetInputStreamFor(javax.servlet.http.HttpServletRequest)}).
+     * {@linkplain AbstractFileServlet#getResource(javax.servlet.http.HttpServletRequest)}).
      * Default implementation just sends a
      * {@linkplain HttpServletResponse#SC_NOT_FOUND} status.
      *
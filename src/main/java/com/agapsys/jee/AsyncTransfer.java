@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * Non-blocking transfer of a response body.
+ *
+ * Content is written only when the container reports the connection as
+ * writable, so that slow clients do not hold a request thread. Reads from the
+ * resource may block, so they are performed by a separate I/O executor. At
+ * most one actor (either the container, through {@linkplain WriteListener}
+ * callbacks, or the I/O executor) drives a transfer at any time.
+ */
+final class AsyncTransfer implements WriteListener, Runnable {
+
+    /**
+     * Part of a response body. A segment either holds literal data or refers
+     * to a region of the resource being transferred.
+     */
+    static final class Segment {
+        final byte[] data;
+        final long position;
+        final long count;
+
+        /**
+         * Constructor.
+         *
+         * @param data literal data.
+         */
+        Segment(byte[] data) {
+            this.data = data;
+            this.position = 0;
+            this.count = data.length;
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param position region start. For non-positional streams, this is
+         * the number of bytes to be skipped from current stream position.
+         * @param count number of bytes in the region.
+         */
+        Segment(long position, long count) {
+            this.data = null;
+            this.position = position;
+            this.count = count;
+        }
+    }
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final InputStream is;
+    private final FileChannel channel;
+    private final long channelOffset;
+    private final byte[] content;
+    private final AbstractFileServlet.BufferStream bufferStream;
+    private final Iterator<Segment> segments;
+    private final Executor executor;
+
+    // Reads alternate between buffers: container may still hold a reference
+    // to the last written buffer until the output becomes ready again.
+    private final BufferPool bufferPool;
+    private final int bufferSize;
+    private final ByteBuffer[] buffers = new ByteBuffer[2];
+    private int bufferIndex = 0;
+
+    private boolean regionPending = false;
+    private long skip;
+    private long position;
+    private long end;
+
+    private byte[] pending = null;
+    private int pendingOffset;
+    private int pendingLength;
+
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param asyncContext asynchronous context of the request being served.
+     * @param out response output stream.
+     * @param is resource stream. This transfer takes ownership of the stream.
+     * @param segments body segments.
+     * @param executor executor used to read the resource.
+     * @param bufferPool pool providing read buffers.
+     * @param bufferSize number of bytes read at once.
+     */
+    AsyncTransfer(AsyncContext asyncContext, ServletOutputStream out, InputStream is, List<Segment> segments, Executor executor, BufferPool bufferPool, int bufferSize) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.is = is;
+        this.channel = AbstractFileServlet._getChannel(is);
+        this.channelOffset = is instanceof AbstractFileServlet.RegionStream ? ((AbstractFileServlet.RegionStream) is).getOffset() : 0;
+        this.content = is instanceof AbstractFileServlet.ContentStream ? ((AbstractFileServlet.ContentStream) is).getContent() : null;
+        this.bufferStream = is instanceof AbstractFileServlet.BufferStream ? (AbstractFileServlet.BufferStream) is : null;
+        this.segments = segments.iterator();
+        this.executor = executor;
+        this.bufferPool = bufferPool;
+        this.bufferSize = bufferSize;
+    }
+
+    // Writes as much as possible without blocking. Returns after scheduling a
+    // read, when the output is not ready or when the transfer is finished.
+    private void __pump() throws IOException {
+        while (!closed) {
+            if (pending != null) {
+                if (!out.isReady())
+                    return; // <-- Container will call onWritePossible()
+
+                out.write(pending, pendingOffset, pendingLength);
+                pending = null;
+            }
+
+            if (regionPending && position < end) {
+                executor.execute(this);
+                return;
+            }
+
+            regionPending = false;
+
+            if (!segments.hasNext()) {
+                if (out.isReady())
+                    __releaseBuffers(); // <-- Container no longer holds written buffers
+
+                __close();
+                return;
+            }
+
+            Segment segment = segments.next();
+
+            if (segment.data != null) {
+                pending = segment.data;
+                pendingOffset = 0;
+                pendingLength = segment.data.length;
+            } else if (content != null) {
+                // Contents held in memory are written at once.
+                pending = content;
+                pendingOffset = (int) segment.position;
+                pendingLength = (int) segment.count;
+            } else {
+                regionPending = true;
+
+                if (bufferStream != null) {
+                    skip = 0;
+                    position = segment.position;
+                } else if (channel != null) {
+                    skip = 0;
+                    position = channelOffset + segment.position;
+                } else {
+                    skip = segment.position;
+                    position = 0;
+                }
+
+                end = position + segment.count;
+            }
+        }
+    }
+
+    // Reads the next chunk of current region into a spare buffer.
+    private void __read() throws IOException {
+        ByteBuffer buffer = buffers[bufferIndex];
+
+        if (buffer == null) {
+            buffer = bufferPool.acquire(bufferSize);
+            buffers[bufferIndex] = buffer;
+        }
+
+        bufferIndex ^= 1;
+
+        int maxLength = (int) Math.min(bufferSize, end - position);
+        int length;
+
+        buffer.clear().limit(maxLength);
+
+        if (bufferStream != null) {
+            // Mapped regions may fault on access, so they are read by the
+            // executor as well.
+            bufferStream.getRegion(position, maxLength).get(buffer.array(), 0, maxLength);
+            length = maxLength;
+        } else if (channel != null) {
+            length = channel.read(buffer, position);
+        } else {
+            AbstractFileServlet._skipFully(is, skip);
+            skip = 0;
+            length = is.read(buffer.array(), 0, maxLength);
+        }
+
+        if (length < 0)
+            throw new EOFException("Unexpected end of stream");
+
+        position += length;
+        pending = buffer.array();
+        pendingOffset = 0;
+        pendingLength = length;
+    }
+
+    // Returns read buffers to the pool.
+    private void __releaseBuffers() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] != null) {
+                bufferPool.release(buffers[i]);
+                buffers[i] = null;
+            }
+        }
+    }
+
+    // Buffers not explicitly released are left to the garbage collector,
+    // since the container may still be writing them.
+    private void __close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        try {
+            is.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+
+        asyncContext.complete();
+    }
+
+    /**
+     * Starts the transfer.
+     */
+    void start() {
+        asyncContext.setTimeout(0); // <-- Connection idle timeout still applies
+        out.setWriteListener(this);
+    }
+
+    @Override
+    public synchronized void onWritePossible() throws IOException {
+        __pump();
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        __close();
+    }
+
+    @Override
+    public synchronized void run() {
+        try {
+            __read();
+            __pump();
+        } catch (IOException | RuntimeException ex) {
+            onError(ex);
+        }
+    }
+}
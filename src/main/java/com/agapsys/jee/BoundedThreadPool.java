@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Queued thread pool whose job queue may be bounded.
+ *
+ * Jobs offered while the queue is full are run by a few shedding threads,
+ * on which {@linkplain ConcurrencyLimitHandler} answers new requests
+ * immediately with a 503 status and a Retry-After header, instead of
+ * queueing them without bound. Only when shedding threads are saturated as
+ * well are jobs rejected (Jetty closes the associated connection).
+ */
+final class BoundedThreadPool extends QueuedThreadPool {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final int SHEDDING_THREADS = 2;
+    private static final int SHEDDING_QUEUE_CAPACITY = 256;
+    private static final long SHEDDING_THREAD_IDLE_TIMEOUT = 60000;
+
+    // Thread answering requests which could not be queued.
+    private static final class SheddingThread extends Thread {
+        private SheddingThread(Runnable r) {
+            super(r, BoundedThreadPool.class.getSimpleName() + "-shedding");
+            setDaemon(true);
+        }
+    }
+
+    /**
+     * Returns a boolean indicating if current thread runs jobs which could
+     * not be queued, so that new requests must be rejected.
+     *
+     * @return a boolean indicating if current thread runs jobs which could not
+     * be queued.
+     */
+    static boolean isShedding() {
+        return Thread.currentThread() instanceof SheddingThread;
+    }
+    // </editor-fold>
+
+    private final boolean bounded;
+    private final AtomicLong rejectedJobs = new AtomicLong();
+    private volatile ThreadPoolExecutor sheddingExecutor = null;
+
+    /**
+     * Constructor.
+     *
+     * @param minThreads minimum number of threads.
+     * @param maxThreads maximum number of threads.
+     * @param idleTimeout time (in milliseconds) after which idle threads
+     * above the minimum are stopped.
+     * @param maxQueuedJobs maximum number of jobs waiting for a thread or a
+     * negative value for no limit.
+     */
+    BoundedThreadPool(int minThreads, int maxThreads, int idleTimeout, int maxQueuedJobs) {
+        super(maxThreads, minThreads, idleTimeout, maxQueuedJobs < 0 ? new BlockingArrayQueue<Runnable>(minThreads, minThreads) : new BlockingArrayQueue<Runnable>(maxQueuedJobs));
+        this.bounded = maxQueuedJobs >= 0;
+    }
+
+    /**
+     * Returns the number of jobs which could not be queued (either answered
+     * by shedding threads or rejected).
+     *
+     * @return the number of jobs which could not be queued.
+     */
+    long getRejectedJobCount() {
+        return rejectedJobs.get();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (bounded) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(SHEDDING_THREADS, SHEDDING_THREADS, SHEDDING_THREAD_IDLE_TIMEOUT, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(SHEDDING_QUEUE_CAPACITY), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new SheddingThread(r);
+                }
+            });
+
+            executor.allowCoreThreadTimeOut(true);
+            sheddingExecutor = executor;
+        }
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        ThreadPoolExecutor executor = sheddingExecutor;
+
+        if (executor != null)
+            executor.shutdownNow();
+
+        sheddingExecutor = null;
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        try {
+            super.execute(job);
+        } catch (RejectedExecutionException ex) {
+            ThreadPoolExecutor executor = sheddingExecutor;
+
+            if (executor == null || !isRunning())
+                throw ex;
+
+            rejectedJobs.incrementAndGet();
+            executor.execute(job); // <-- Throws if shedding threads are saturated as well
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of heap buffers used by transfers.
+ *
+ * Buffers are grouped in power-of-two size classes, from
+ * {@linkplain BufferPool#MIN_BUFFER_SIZE} to
+ * {@linkplain BufferPool#MAX_BUFFER_SIZE}. Each class keeps its idle buffers
+ * in a fixed array of slots, claimed and filled through atomic swaps
+ * starting at a slot chosen by the calling thread, so that concurrent
+ * requests rarely contend for the same slot. Buffers which do not fit in the
+ * pool are left to the garbage collector.
+ */
+final class BufferPool {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    /** Size of the smallest pooled buffer. */
+    static final int MIN_BUFFER_SIZE = 1024;
+
+    /** Size of the largest pooled buffer. */
+    static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    // Maximum number of idle buffers kept by a size class.
+    private static final int MAX_SLOTS = 64;
+
+    // Number of size classes.
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE / MIN_BUFFER_SIZE) + 1;
+
+    // Returns the index of the size class holding buffers of given size.
+    private static int __getClassIndex(int size) {
+        if (size <= MIN_BUFFER_SIZE)
+            return 0;
+
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+    // </editor-fold>
+
+    private final AtomicReferenceArray<ByteBuffer>[] classes;
+
+    private final AtomicLong hits        = new AtomicLong();
+    private final AtomicLong misses      = new AtomicLong();
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of bytes held by idle buffers. This
+     * capacity is evenly split among size classes.
+     */
+    @SuppressWarnings("unchecked")
+    BufferPool(long capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        classes = (AtomicReferenceArray<ByteBuffer>[]) new AtomicReferenceArray<?>[CLASS_COUNT];
+
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            long size = (long) MIN_BUFFER_SIZE << i;
+            classes[i] = new AtomicReferenceArray<>((int) Math.min(MAX_SLOTS, capacity / CLASS_COUNT / size));
+        }
+    }
+
+    // Returns the index of the slot where the calling thread starts scanning
+    // given size class.
+    private static int __getStartSlot(AtomicReferenceArray<ByteBuffer> slots) {
+        return (int) (Thread.currentThread().getId() % slots.length());
+    }
+
+    /**
+     * Returns a buffer able to hold given number of bytes.
+     *
+     * @param size minimum buffer capacity.
+     * @return a cleared heap buffer whose capacity is at least given size.
+     * The buffer should be {@linkplain BufferPool#release(java.nio.ByteBuffer) released}
+     * once no longer used.
+     */
+    ByteBuffer acquire(int size) {
+        if (size > MAX_BUFFER_SIZE) {
+            misses.incrementAndGet();
+            return ByteBuffer.allocate(size);
+        }
+
+        int classIndex = __getClassIndex(size);
+        AtomicReferenceArray<ByteBuffer> slots = classes[classIndex];
+        int slotCount = slots.length();
+
+        if (slotCount > 0) {
+            int start = __getStartSlot(slots);
+
+            for (int i = 0; i < slotCount; i++) {
+                int index = (start + i) % slotCount;
+
+                if (slots.get(index) == null)
+                    continue;
+
+                ByteBuffer buffer = slots.getAndSet(index, null);
+
+                if (buffer != null) {
+                    hits.incrementAndGet();
+                    pooledBytes.addAndGet(-buffer.capacity());
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        return ByteBuffer.allocate(MIN_BUFFER_SIZE << classIndex);
+    }
+
+    /**
+     * Returns a buffer to this pool. The caller must no longer use it.
+     *
+     * @param buffer buffer obtained through
+     * {@linkplain BufferPool#acquire(int)}.
+     */
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+
+        if (capacity < MIN_BUFFER_SIZE || capacity > MAX_BUFFER_SIZE || Integer.bitCount(capacity) != 1)
+            return; // <-- Not pooled
+
+        AtomicReferenceArray<ByteBuffer> slots = classes[__getClassIndex(capacity)];
+        int slotCount = slots.length();
+
+        if (slotCount == 0)
+            return;
+
+        int start = __getStartSlot(slots);
+
+        for (int i = 0; i < slotCount; i++) {
+            int index = (start + i) % slotCount;
+
+            if (slots.get(index) == null && slots.compareAndSet(index, null, buffer)) {
+                pooledBytes.addAndGet(capacity);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of acquisitions which reused a pooled buffer.
+     *
+     * @return the number of acquisitions which reused a pooled buffer.
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of acquisitions which allocated a new buffer.
+     *
+     * @return the number of acquisitions which allocated a new buffer.
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of bytes held by idle buffers.
+     *
+     * @return the number of bytes held by idle buffers.
+     */
+    long getPooledBytes() {
+        return pooledBytes.get();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of open file channels.
+ *
+ * Channels are shared by concurrent requests through positional reads and
+ * reference counted: a channel is only closed once it is no longer cached
+ * and every stream reading it is closed. Channels are associated with the
+ * length and last modification timestamp of their file, so that a file
+ * replaced on disk is opened again (the channel of the former file is closed
+ * once released). Channels unused for longer than an idle timeout are closed
+ * in background, so that deleted files do not keep their disk space. When
+ * the capacity is exceeded, least recently used idle channels are closed.
+ *
+ * Streams expose the {@linkplain AbstractFileServlet.MappedRegions mapped
+ * regions} of their file, which are mapped on first use and shared until the
+ * channel is no longer cached, so that files are mapped once per version
+ * rather than once per request.
+ */
+final class ChannelCache {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, ChannelCache.class.getSimpleName() + "-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final class Entry {
+        private final FileChannel channel;
+        private final long length;
+        private final long lastModified;
+
+        private int references = 0;
+        private long lastUsed;
+        private boolean removed = false;
+
+        private ByteBuffer[] regions = null; // <-- Guarded by the entry itself
+
+        private Entry(FileChannel channel, long length, long lastModified) {
+            this.channel = channel;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        // Returns the mapped region at given index, mapping it on first use.
+        private synchronized ByteBuffer __getRegion(int index) throws IOException {
+            if (regions == null)
+                regions = new ByteBuffer[(int) ((length + AbstractFileServlet.MAX_MAPPED_REGION_SIZE - 1) / AbstractFileServlet.MAX_MAPPED_REGION_SIZE)];
+
+            if (regions[index] == null) {
+                long position = index * AbstractFileServlet.MAX_MAPPED_REGION_SIZE;
+                regions[index] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(length - position, AbstractFileServlet.MAX_MAPPED_REGION_SIZE));
+            }
+
+            return regions[index];
+        }
+    }
+
+    // Closes the channel of given entry. Mapped regions are released once
+    // no longer referenced by pending writes.
+    private static void __close(Entry entry) {
+        synchronized (entry) {
+            entry.regions = null;
+        }
+
+        try {
+            entry.channel.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+    }
+
+    // Marks given entry as no longer cached. Its channel is closed once
+    // released by all streams.
+    private static void __discard(Entry entry) {
+        entry.removed = true;
+
+        if (entry.references == 0)
+            __close(entry);
+    }
+
+    private static void __remove(Iterator<Entry> iterator, Entry entry) {
+        iterator.remove();
+        __discard(entry);
+    }
+    // </editor-fold>
+
+    // Reference held by a stream. Releasing it more than once has no effect.
+    private class Reference implements Closeable, AbstractFileServlet.MappedRegions {
+        private final Entry entry;
+        private boolean released = false;
+
+        private Reference(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public ByteBuffer getMappedRegion(long position, long count) throws IOException {
+            if (position < 0 || count < 0 || position + count > entry.length)
+                throw new IndexOutOfBoundsException("Invalid region: " + position + "+" + count);
+
+            int index = (int) (position / AbstractFileServlet.MAX_MAPPED_REGION_SIZE);
+            int offset = (int) (position % AbstractFileServlet.MAX_MAPPED_REGION_SIZE);
+
+            ByteBuffer region = entry.__getRegion(index).asReadOnlyBuffer();
+            region.position(offset);
+            region.limit((int) Math.min(region.capacity(), offset + count));
+            return region;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ChannelCache.this) {
+                if (released)
+                    return;
+
+                released = true;
+                entry.references--;
+                entry.lastUsed = System.currentTimeMillis();
+
+                if (entry.removed && entry.references == 0)
+                    __close(entry);
+                else
+                    __evictExcess(); // <-- Channels kept beyond capacity while in use
+            }
+        }
+    }
+
+    private final int capacity;
+    private final long idleTimeout;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledFuture<?> sweepTask;
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of cached channels.
+     * @param idleTimeout time (in milliseconds) after which unused channels
+     * are closed.
+     */
+    ChannelCache(int capacity, long idleTimeout) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        if (idleTimeout <= 0)
+            throw new IllegalArgumentException("Invalid idle timeout: " + idleTimeout);
+
+        this.capacity = capacity;
+        this.idleTimeout = idleTimeout;
+        this.sweepTask = SWEEPER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                __sweep();
+            }
+        }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    // Closes channels unused for longer than the idle timeout.
+    private synchronized void __sweep() {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            Entry entry = iterator.next();
+
+            if (entry.references == 0 && now - entry.lastUsed >= idleTimeout)
+                __remove(iterator, entry);
+        }
+    }
+
+    // Closes least recently used idle channels while capacity is exceeded.
+    // Channels in use are kept until released.
+    private void __evictExcess() {
+        for (Iterator<Entry> iterator = entries.values().iterator(); entries.size() > capacity && iterator.hasNext();) {
+            Entry entry = iterator.next();
+
+            if (entry.references == 0)
+                __remove(iterator, entry);
+        }
+    }
+
+    /**
+     * Opens a stream over given version of a file, sharing a cached channel
+     * if possible.
+     *
+     * @param file file to be read.
+     * @param length file length. Stream contents are limited to this length.
+     * @param lastModified file last modification timestamp.
+     * @return a stream over given file. Closing the stream releases the
+     * channel.
+     * @throws IOException if file could not be opened.
+     */
+    InputStream open(File file, long length, long lastModified) throws IOException {
+        String key = file.getPath();
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                entry.references++;
+            } else {
+                if (entry != null) {
+                    // File was replaced: former channel is no longer shared.
+                    entries.remove(key);
+                    __discard(entry);
+                }
+
+                entry = null;
+            }
+        }
+
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            entry = new Entry(FileChannel.open(file.toPath(), StandardOpenOption.READ), length, lastModified);
+            entry.references = 1;
+
+            synchronized (this) {
+                if (entries.containsKey(key)) {
+                    entry.removed = true; // <-- Opened concurrently: channel is private
+                } else {
+                    entries.put(key, entry);
+                    __evictExcess();
+                }
+            }
+        }
+
+        return new AbstractFileServlet.RegionStream(entry.channel, 0, length, new Reference(entry));
+    }
+
+    /**
+     * Returns the number of open channels held by this cache.
+     *
+     * @return the number of open channels held by this cache.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of opens which reused a cached channel.
+     *
+     * @return the number of opens which reused a cached channel.
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of opens which required a file to be opened.
+     *
+     * @return the number of opens which required a file to be opened.
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Closes all channels (channels in use are closed once released) and
+     * stops the idle eviction.
+     */
+    synchronized void close() {
+        sweepTask.cancel(false);
+
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();)
+            __remove(iterator, iterator.next());
+    }
+}
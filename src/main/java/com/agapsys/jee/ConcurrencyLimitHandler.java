@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+/**
+ * Handler limiting the number of requests handled concurrently and shedding
+ * load when the server is saturated.
+ *
+ * Requests exceeding the concurrency limit are suspended (without holding a
+ * thread) and resumed, in arrival order, as running requests finish. The
+ * number of suspended requests may be bounded: once the bound is reached,
+ * new requests are rejected immediately with a
+ * {@linkplain HttpServletResponse#SC_SERVICE_UNAVAILABLE} status and a
+ * Retry-After header, instead of adding latency to everyone. Requests
+ * dispatched by a {@linkplain BoundedThreadPool} whose queue is full are
+ * rejected the same way. A request started asynchronously keeps its permit
+ * until it is completed (or fails or times out), and its asynchronous
+ * dispatches are not limited again.
+ */
+final class ConcurrencyLimitHandler extends HandlerWrapper {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    // Request attribute marking a resumed request, which owns a permit.
+    private static final String ADMITTED_ATTRIBUTE = ConcurrencyLimitHandler.class.getName() + ".admitted";
+    // </editor-fold>
+
+    // Returns the permit of an asynchronous request once it is finished.
+    private class PermitListener implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void __release() {
+            if (released.compareAndSet(false, true)) // <-- Error and timeout are followed by completion
+                ConcurrencyLimitHandler.this.__release();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            __release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            __release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            __release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            event.getAsyncContext().addListener(this); // <-- Listeners are cleared when asynchronous mode is restarted
+        }
+    }
+
+    private final Semaphore permits; // <-- null if concurrency is not limited
+    private final int maxQueuedRequests;
+    private final String retryAfter;
+
+    private final Queue<AsyncContext> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrentRequests maximum number of requests handled
+     * concurrently or zero for no limit.
+     * @param maxQueuedRequests maximum number of requests waiting for a
+     * running request to finish or a negative value for no limit.
+     * @param retryAfter delay (in seconds) sent to rejected clients.
+     */
+    ConcurrencyLimitHandler(int maxConcurrentRequests, int maxQueuedRequests, int retryAfter) {
+        if (maxConcurrentRequests < 0)
+            throw new IllegalArgumentException("Invalid concurrency limit: " + maxConcurrentRequests);
+
+        if (retryAfter < 0)
+            throw new IllegalArgumentException("Invalid retry delay: " + retryAfter);
+
+        this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.retryAfter = Integer.toString(retryAfter);
+    }
+
+    // Answers given request without invoking the wrapped handler.
+    private void __reject(Request baseRequest, HttpServletResponse response) {
+        rejectedRequests.incrementAndGet();
+
+        baseRequest.setHandled(true);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", retryAfter);
+        response.setContentLength(0);
+    }
+
+    // Suspends given request until a permit is handed to it. Returns false if
+    // request must be rejected.
+    private boolean __suspend(Request baseRequest) {
+        int queued = queuedRequests.incrementAndGet();
+
+        if (maxQueuedRequests >= 0 && queued > maxQueuedRequests) {
+            queuedRequests.decrementAndGet();
+            return false;
+        }
+
+        AsyncContext asyncContext = baseRequest.startAsync();
+        asyncContext.setTimeout(0);
+        waiters.add(asyncContext);
+        baseRequest.setHandled(true);
+
+        if (permits.tryAcquire())
+            __release(); // <-- Permit was released while suspending
+
+        return true;
+    }
+
+    // Hands the permit of a finished request to the oldest suspended request
+    // or returns it.
+    private void __release() {
+        AsyncContext waiter = waiters.poll();
+
+        if (waiter != null) {
+            queuedRequests.decrementAndGet();
+            waiter.getRequest().setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+            waiter.dispatch();
+            return;
+        }
+
+        permits.release();
+
+        if (!waiters.isEmpty() && permits.tryAcquire())
+            __release(); // <-- Request was suspended while releasing
+    }
+
+    /**
+     * Returns the number of requests waiting for a running request to finish.
+     *
+     * @return the number of requests waiting for a running request to finish.
+     */
+    int getQueuedRequestCount() {
+        return queuedRequests.get();
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of rejected requests.
+     */
+    long getRejectedRequestCount() {
+        return rejectedRequests.get();
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        if (baseRequest.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            // Resumed request is handled as the initial dispatch it replaces.
+            baseRequest.removeAttribute(ADMITTED_ATTRIBUTE);
+            baseRequest.setDispatcherType(DispatcherType.REQUEST);
+        } else if (baseRequest.getDispatcherType() == DispatcherType.REQUEST && BoundedThreadPool.isShedding()) {
+            __reject(baseRequest, response);
+            return;
+        } else if (permits == null || baseRequest.getDispatcherType() == DispatcherType.ASYNC) {
+            // Asynchronous dispatches belong to a request already admitted.
+            super.handle(target, baseRequest, request, response);
+            return;
+        } else if (!permits.tryAcquire()) {
+            if (!__suspend(baseRequest))
+                __reject(baseRequest, response);
+
+            return;
+        }
+
+        boolean async = false;
+
+        try {
+            super.handle(target, baseRequest, request, response);
+
+            if (baseRequest.isAsyncStarted()) {
+                baseRequest.getAsyncContext().addListener(new PermitListener());
+                async = true;
+            }
+        } finally {
+            if (!async)
+                __release();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of resource contents, such as compressed
+ * representations or embedded resources.
+ *
+ * Entries are keyed by resource identity (including its validator when the
+ * resource may change), so that each resource version is read or compressed
+ * only once. When the capacity (in bytes) is exceeded, least recently used
+ * entries are evicted.
+ *
+ * Entries stored along with a content hash are content-addressed: entries
+ * holding identical data reference a single array, which is only released
+ * once no entry references it. The cache size counts each array once.
+ */
+final class ContentCache {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    // Data shared by the entries holding it.
+    private static final class Blob {
+        private final byte[] data;
+        private final String hash; // <-- null if data is not shared
+        private int references = 0;
+
+        private Blob(byte[] data, String hash) {
+            this.data = data;
+            this.hash = hash;
+        }
+    }
+    // </editor-fold>
+
+    private final long capacity;
+    private final Map<String, Blob> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Blob> blobs = new HashMap<>(); // <-- Shared data by hash
+    private long size = 0;
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong shares = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of cached bytes.
+     */
+    ContentCache(long capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        this.capacity = capacity;
+    }
+
+    // Associates given entry with given data.
+    private void __add(String key, Blob blob) {
+        if (blob.references++ == 0) {
+            size += blob.data.length;
+
+            if (blob.hash != null)
+                blobs.put(blob.hash, blob);
+        }
+
+        __release(entries.put(key, blob));
+    }
+
+    // Releases given data, referenced by a removed entry.
+    private void __release(Blob blob) {
+        if (blob != null && --blob.references == 0) {
+            size -= blob.data.length;
+
+            if (blob.hash != null)
+                blobs.remove(blob.hash);
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached bytes.
+     *
+     * @return the maximum number of cached bytes.
+     */
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the data associated with given key.
+     *
+     * @param key entry key.
+     * @return the data associated with given key or null if there is no such
+     * entry.
+     */
+    byte[] get(String key) {
+        byte[] data;
+
+        synchronized (this) {
+            Blob blob = entries.get(key);
+            data = blob == null ? null : blob.data;
+        }
+
+        if (data == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return data;
+    }
+
+    /**
+     * Stores data. Data larger than cache capacity is not stored.
+     *
+     * @param key entry key.
+     * @param data data to be stored. Stored arrays must not be modified.
+     */
+    void put(String key, byte[] data) {
+        put(key, data, null);
+    }
+
+    /**
+     * Stores data. Data larger than cache capacity is not stored. If data
+     * with given hash is already cached, given entry shares it instead.
+     *
+     * @param key entry key.
+     * @param data data to be stored. Stored arrays must not be modified.
+     * @param hash hash of given data or null if data must not be shared.
+     */
+    synchronized void put(String key, byte[] data, String hash) {
+        if (data.length > capacity)
+            return;
+
+        if (hash != null && share(key, hash) != null)
+            return;
+
+        __add(key, new Blob(data, hash));
+
+        Iterator<Blob> iterator = entries.values().iterator();
+
+        while (size > capacity && iterator.hasNext()) {
+            Blob blob = iterator.next();
+            iterator.remove();
+            __release(blob);
+        }
+    }
+
+    /**
+     * Associates given entry with cached data having given hash, so that
+     * entries holding identical data share a single array.
+     *
+     * @param key entry key.
+     * @param hash hash of the data held by given entry.
+     * @return the shared data or null if no cached data has given hash.
+     * Returned array must not be modified.
+     */
+    synchronized byte[] share(String key, String hash) {
+        Blob blob = blobs.get(hash);
+
+        if (blob == null)
+            return null;
+
+        __add(key, blob);
+        shares.incrementAndGet();
+
+        return blob.data;
+    }
+
+    /**
+     * Returns the number of lookups which found an entry.
+     *
+     * @return the number of lookups which found an entry.
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find an entry.
+     *
+     * @return the number of lookups which did not find an entry.
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries which share the data of another entry.
+     *
+     * @return the number of entries which share the data of another entry.
+     */
+    long getShareCount() {
+        return shares.get();
+    }
+
+    /**
+     * Returns the number of cached bytes.
+     *
+     * @return the number of cached bytes.
+     */
+    synchronized long getSize() {
+        return size;
+    }
+}
@@ -15,97 +15,649 @@
  */
 package com.agapsys.jee;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import javax.servlet.http.HttpServletRequest;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import javax.servlet.ServletException;
 
 public abstract class EmbeddedFileServlet extends MappedFileServlet {
 
     // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
-    private static final String KEY_INPUT_STREAM = EmbeddedFileServlet.class.getName() + ".inputStream";
-    private static final String KEY_IO_ERR       = EmbeddedFileServlet.class.getName() + ".ioErr";
-    private static final String KEY_INIT         = EmbeddedFileServlet.class.getName() + ".init";
-    // </editor-fold>
+    public static final long DEFAULT_CONTENT_CACHE_SIZE = 32 * 1024 * 1024;
 
-    @Override
-    void _prepareResponseDataOnlyOnce(HttpServletRequest req) {
-        if (req.getAttribute(KEY_INIT) == null) {
-            
-            String pathInfo = req.getPathInfo();
-            
-            if (pathInfo == null)
-                pathInfo = "";
-            
-            String embeddedPath = getMappedDirPath();
-
-            if (embeddedPath.endsWith("/")) {
-                embeddedPath = embeddedPath.substring(0, embeddedPath.length() - 1);
+    // Fraction of the content cache that a single resource may occupy.
+    private static final int CONTENT_CACHE_ENTRY_RATIO = 8;
+
+    // Returns the file associated with given URL or null if given URL does
+    // not point to a file in the filesystem.
+    private static File __getFile(URL url) {
+        if (!url.getProtocol().equals("file"))
+            return null;
+
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    // Returns a boolean indicating if given URL points to a directory.
+    private static boolean __isDirectory(URL url) throws IOException {
+        File file = __getFile(url);
+
+        if (file != null)
+            return file.isDirectory();
+
+        URLConnection conn = url.openConnection();
+
+        if (conn instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) conn).getJarEntry();
+            return entry != null && entry.isDirectory();
+        }
+
+        InputStream is = conn.getInputStream();
+
+        try {
+            is.available(); // <-- Workaround to detect embedded directories
+            return false;
+        } catch (NullPointerException ex) {
+            return true;
+        } finally {
+            try {
+                is.close();
+            } catch (NullPointerException | IOException ignored) {}
+        }
+    }
+
+    // Reads the whole contents of the resource pointed by given URL.
+    private static byte[] __readFully(URL url, long length) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) length);
+
+        try (InputStream is = url.openStream()) {
+            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+
+            for (int read; (read = is.read(buffer)) >= 0;) {
+                baos.write(buffer, 0, read);
             }
+        }
+
+        return baos.toByteArray();
+    }
+
+    // Returns the length of the resource pointed by given URL without reading
+    // its contents.
+    private static long __getLength(URL url) throws IOException {
+        File file = __getFile(url);
+
+        if (file != null)
+            return file.length();
+
+        return url.openConnection().getContentLengthLong();
+    }
+    // </editor-fold>
+
+    // Embedded resource (or its selected precompressed variant).
+    private class EmbeddedResource extends HashedResource {
+        private final URL url; // <-- null if resource does not exist
+        private final boolean isDirectory;
+        private final long length;
+        private final String mime;
+        private final String encoding;
+        private final boolean negotiated;
+        private final String etag;
 
-            embeddedPath = embeddedPath + pathInfo;
+        private EmbeddedResource(URL url, boolean isDirectory, long length, String mime, String encoding, boolean negotiated, String etag) {
+            this.url = url;
+            this.isDirectory = isDirectory;
+            this.length = length;
+            this.mime = mime;
+            this.encoding = encoding;
+            this.negotiated = negotiated;
+            this.etag = etag;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return isDirectory;
+        }
+
+        @Override
+        public boolean exists() {
+            return url != null;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public long getLastModified() {
+            return 0; // <-- Since resource is embedded, it will never be modified
+                      //     during runtime.
+        }
+
+        @Override
+        public String getContentType() {
+            return mime;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return encoding;
+        }
+
+        @Override
+        public boolean isEncodingNegotiated() {
+            return negotiated;
+        }
+
+        @Override
+        public String getETag() {
+            if (etag != null)
+                return etag; // <-- Computed at build time
+
+            return _getETag(url.toString(), length, 0, this);
+        }
+
+        @Override
+        String getContentETag() {
+            if (etag != null)
+                return etag;
+
+            return _computeETag(url.toString(), length, 0, this);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return url.openStream();
+        }
+
+        @Override
+        public boolean matches(long length, long lastModified) {
+            return true; // <-- Embedded resources do not change while deployed
+        }
+
+        @Override
+        public ByteBuffer getContent() throws IOException {
+            byte[] content = __getContent(url, length, getETag());
+            return content == null ? null : ByteBuffer.wrap(content);
+        }
 
-            if (embeddedPath.endsWith("/")) {
-                embeddedPath = embeddedPath.substring(0, embeddedPath.length() - 1);
+        @Override
+        public InputStream openStream() throws IOException {
+            InputStream is = __openStoredEntry(url);
+            return is != null ? is : url.openStream();
+        }
+    }
+
+    private final Map<String, VariantSet<URL>> variantCache = new LruMap<>(VARIANT_CACHE_CAPACITY);
+
+    private final Object resourceIndexLock = new Object();
+    private EmbeddedResourceIndex resourceIndex = null;
+    private boolean resourceIndexInitialized = false;
+
+    private final Map<File, ZipDirectory> zipDirectories = new HashMap<>(); // <-- null values denote unsupported archives
+
+    private final Object contentCacheLock = new Object();
+    private ContentCache contentCache = null;
+    private boolean contentCacheInitialized = false;
+
+    // Returns the cache of embedded resource contents or null if such cache
+    // is disabled.
+    private ContentCache __getContentCache() {
+        synchronized (contentCacheLock) {
+            if (!contentCacheInitialized) {
+                long capacity = getContentCacheSize();
+
+                if (capacity > 0)
+                    contentCache = new ContentCache(capacity);
+
+                contentCacheInitialized = true;
             }
 
-            InputStream is = EmbeddedFileServlet.class.getResourceAsStream(embeddedPath);
+            return contentCache;
+        }
+    }
 
-            boolean isDir;
+    // Returns the central directory of given jar file or null if such file
+    // cannot be read as a zip file.
+    private ZipDirectory __getZipDirectory(File jarFile) {
+        synchronized (zipDirectories) {
+            if (!zipDirectories.containsKey(jarFile)) {
+                ZipDirectory directory;
 
-            if (is == null) {
-                isDir = false;
-            } else {
                 try {
-                    is.available(); // <-- Workaround to detect embedded directories
-                    isDir = false;
-                } catch (NullPointerException ex) {
-                    isDir = true;
-                    try {
-                        is.close();
-                    } catch (NullPointerException | IOException ignored) {}
-                    is = null;
+                    directory = ZipDirectory._read(jarFile.toPath());
                 } catch (IOException ex) {
-                    isDir = false;
+                    directory = null; // <-- Resources are read through the jar stream instead
+                }
+
+                zipDirectories.put(jarFile, directory);
+            }
+
+            return zipDirectories.get(jarFile);
+        }
+    }
+
+    // Opens the resource pointed by given URL as a region of its jar file, if
+    // such resource is an uncompressed (STORED) entry, so that ranges are read
+    // without reading (and inflating) preceding bytes. Returns null if
+    // resource is not such an entry. Jar URLs are parsed in place, so that no
+    // connection is opened per request.
+    private InputStream __openStoredEntry(URL url) throws IOException {
+        if (!url.getProtocol().equals("jar"))
+            return null;
+
+        String path = url.getPath(); // <-- "file:/<jar path>!/<entry name>"
+        int separator = path.indexOf("!/");
+
+        if (separator < 0)
+            return null;
+
+        File jarFile;
+        String entryName;
+
+        try {
+            jarFile = __getFile(new URL(path.substring(0, separator))); // <-- Nested jars are not supported
+            entryName = new URI(path.substring(separator + 1)).getPath().substring(1); // <-- Decoded as an absolute path, so that colons are not taken as a scheme
+        } catch (MalformedURLException | URISyntaxException ex) {
+            return null;
+        }
+
+        if (jarFile == null)
+            return null;
+
+        ZipDirectory directory = __getZipDirectory(jarFile);
+        ZipDirectory.Entry entry = directory != null ? directory.get(entryName) : null;
+
+        if (entry == null)
+            return null;
+
+        return directory.open(entry);
+    }
+
+    // Returns the contents of the resource pointed by given URL, loading them
+    // into the content cache if needed. Resources holding identical contents
+    // (according to given entity tag, if known) share a single array.
+    // Returns null if the resource is not eligible for caching.
+    private byte[] __getContent(URL url, long length, String etag) throws IOException {
+        ContentCache cache = __getContentCache();
+
+        if (cache == null || length < 0 || length > cache.getCapacity() / CONTENT_CACHE_ENTRY_RATIO)
+            return null;
+
+        String key = url.toString();
+        byte[] content = cache.get(key);
+
+        if (content == null && etag != null)
+            content = cache.share(key, etag);
+
+        if (content == null) {
+            content = __readFully(url, length);
+
+            if (content.length == length) // <-- Otherwise, served length would not match
+                cache.put(key, content, etag != null ? etag : ValidatorCache._computeETag(ByteBuffer.wrap(content)));
+        }
+
+        return content;
+    }
+
+    // Loads the resources listed in the build-time index into the content
+    // cache, as long as they fit into it.
+    private void __preloadContentCache(EmbeddedResourceIndex index) throws IOException {
+        ContentCache cache = __getContentCache();
+
+        if (cache == null)
+            return;
+
+        for (EmbeddedResourceIndex.Entry entry : index.getEntries()) {
+            if (entry.isDirectory)
+                continue;
+
+            URL url = __getUrl(entry);
+
+            if (url == null || entry.etag != null && cache.share(url.toString(), entry.etag) != null)
+                continue; // <-- Identical contents are already loaded
+
+            if (cache.getSize() + entry.length <= cache.getCapacity() && entry.length <= cache.getCapacity() / CONTENT_CACHE_ENTRY_RATIO) {
+                byte[] content = __readFully(url, entry.length);
+
+                if (content.length == entry.length)
+                    cache.put(url.toString(), content, entry.etag);
+            }
+        }
+    }
+
+    // Returns the embedded directory path, without trailing "/".
+    private String __getEmbeddedDirPath() {
+        String embeddedPath = getMappedDirPath();
+
+        if (embeddedPath.endsWith("/")) {
+            embeddedPath = embeddedPath.substring(0, embeddedPath.length() - 1);
+        }
+
+        return embeddedPath;
+    }
 
-                    req.setAttribute(KEY_IO_ERR, ex);
-                    req.setAttribute(KEY_INIT, true);
-                    req.setAttribute(KEY_IS_DIR, isDir);
-                    return;
+    // Returns the build-time index of the embedded directory or null if there
+    // is no such index.
+    private EmbeddedResourceIndex __getResourceIndex() {
+        synchronized (resourceIndexLock) {
+            if (!resourceIndexInitialized) {
+                if (isResourceIndexEnabled()) {
+                    try {
+                        resourceIndex = EmbeddedResourceIndex._load(__getEmbeddedDirPath());
+                    } catch (IOException ex) {
+                        resourceIndex = null; // <-- Resources are looked up in the classpath
+                    }
                 }
+
+                resourceIndexInitialized = true;
             }
-            
-            req.setAttribute(KEY_IS_DIR, isDir);
 
-            if (isDir) {
-                embeddedPath = String.format("%s/%s", embeddedPath, getIndexFilename());
-                is = EmbeddedFileServlet.class.getResourceAsStream(embeddedPath);
+            return resourceIndex;
+        }
+    }
+
+    // Returns the URL of the resource associated with given index entry.
+    // URLs are resolved once per entry.
+    private URL __getUrl(EmbeddedResourceIndex.Entry entry) {
+        URL url = entry.url;
+
+        if (url == null) {
+            url = EmbeddedFileServlet.class.getResource(__getEmbeddedDirPath() + "/" + entry.key);
+            entry.url = url;
+        }
+
+        return url;
+    }
+
+    // Returns the precompressed variants of the resource associated with
+    // given index entry. Variants are resolved once per entry.
+    private VariantSet<EmbeddedResourceIndex.Entry> __getVariants(EmbeddedResourceIndex index, EmbeddedResourceIndex.Entry entry) {
+        VariantSet<EmbeddedResourceIndex.Entry> variants = entry.variants;
+
+        if (variants == null) {
+            variants = new VariantSet<>(entry.length, 0);
+
+            for (String encoding : getPrecompressedEncodings()) {
+                EmbeddedResourceIndex.Entry variantEntry = index.get(entry.key + _getVariantSuffix(encoding));
+
+                if (variantEntry != null && !variantEntry.isDirectory)
+                    variants.add(new VariantSet.Variant<>(encoding, variantEntry, variantEntry.length, 0));
+            }
+
+            entry.variants = variants;
+        }
+
+        return variants;
+    }
+
+    // Resolves the resource pointed by given path using given index,
+    // without scanning the classpath.
+    private Resource __getResourceFromIndex(String acceptEncoding, String pathInfo, EmbeddedResourceIndex index) {
+        String key = FileManifest._getKey(pathInfo);
+        EmbeddedResourceIndex.Entry entry = index.get(key);
+
+        boolean isDir = entry != null && entry.isDirectory;
+
+        if (isDir) {
+            key = key.isEmpty() ? getIndexFilename() : key + "/" + getIndexFilename();
+            entry = index.get(key);
+        }
+
+        if (entry != null && entry.isDirectory)
+            entry = null; // <-- Directories cannot be served
+
+        if (entry == null)
+            return new EmbeddedResource(null, isDir, -1, null, null, false, null);
+
+        String mime = entry.mime;
+        MimeRegistry mimeRegistry = _getMimeRegistry();
+
+        // Indexed types are resolved from default types when the index is
+        // generated, so that they prevail unless a type was registered for
+        // the extension (or the type was not indexed).
+        if (mime == null || mimeRegistry.isOverridden(key))
+            mime = mimeRegistry.get(key);
+        else
+            mime = mimeRegistry.withCharset(mime);
+
+        if (mime == null)
+            mime = DEFAULT_MIME;
+
+        String encoding = null;
+
+        VariantSet<EmbeddedResourceIndex.Entry> variants = __getVariants(index, entry);
+        boolean negotiated = !variants.isEmpty();
+
+        if (negotiated) {
+            VariantSet.Variant<EmbeddedResourceIndex.Entry> variant = variants.select(acceptEncoding);
+
+            if (variant != null) {
+                entry = variant.target;
+                encoding = variant.encoding;
             }
+        }
+
+        URL url = __getUrl(entry); // <-- If null, index is out of date
+        return new EmbeddedResource(url, isDir, entry.length, mime, encoding, negotiated, entry.etag);
+    }
+
+    // Returns the precompressed variants available for given embedded
+    // resource. Since embedded resources do not change during runtime,
+    // lookups are performed only once per resource.
+    private VariantSet<URL> __getVariants(String embeddedPath, long length) throws IOException {
+        synchronized (variantCache) {
+            VariantSet<URL> variants = variantCache.get(embeddedPath);
+
+            if (variants != null && variants.matches(length, 0))
+                return variants;
+        }
+
+        VariantSet<URL> variants = new VariantSet<>(length, 0);
+
+        for (String encoding : getPrecompressedEncodings()) {
+            URL variantUrl = EmbeddedFileServlet.class.getResource(embeddedPath + _getVariantSuffix(encoding));
+
+            if (variantUrl != null && !__isDirectory(variantUrl))
+                variants.add(new VariantSet.Variant<>(encoding, variantUrl, __getLength(variantUrl), 0));
+        }
 
-            req.setAttribute(KEY_INPUT_STREAM, is);
-            req.setAttribute(KEY_MIME, _getMimeType(embeddedPath));
-            req.setAttribute(KEY_INIT, true);
+        synchronized (variantCache) {
+            variantCache.put(embeddedPath, variants);
         }
+
+        return variants;
+    }
+
+    @Override
+    FileManifest _getManifest() {
+        return null; // <-- Embedded resources are not located in the filesystem
     }
 
     @Override
-    protected InputStream getTargetInputStreamFor(HttpServletRequest req) throws IOException {
-        _prepareResponseDataOnlyOnce(req);
+    public void init() throws ServletException {
+        super.init();
 
-        IOException ex = (IOException) req.getAttribute(KEY_IO_ERR);
+        EmbeddedResourceIndex index = __getResourceIndex(); // <-- Index is loaded before serving any request
 
-        if (ex != null) {
-            throw new IOException(ex);
+        if (index != null && isContentCachePreloaded()) {
+            try {
+                __preloadContentCache(index);
+            } catch (IOException ex) {
+                throw new ServletException(ex);
+            }
         }
+    }
 
-        return (InputStream) req.getAttribute(KEY_INPUT_STREAM);
+    @Override
+    public void destroy() {
+        synchronized (zipDirectories) {
+            for (ZipDirectory directory : zipDirectories.values()) {
+                if (directory != null)
+                    directory.close();
+            }
+
+            zipDirectories.clear();
+        }
+
+        super.destroy();
     }
 
     @Override
-    protected long getTargetLastModifiedFor(HttpServletRequest req) {
-        return 0; // <-- Since resource is embedded, it will never be modified
-                  //     during runtime. 
+    boolean _isIndexed(String pathInfo) {
+        return __getResourceIndex() != null;
     }
-    
+
+    @Override
+    Resource _getResource(String pathInfo, String acceptEncoding) throws IOException {
+        EmbeddedResourceIndex index = __getResourceIndex();
+
+        if (index != null)
+            return __getResourceFromIndex(acceptEncoding, pathInfo, index);
+
+        String embeddedPath = __getEmbeddedDirPath() + pathInfo;
+
+        if (embeddedPath.endsWith("/")) {
+            embeddedPath = embeddedPath.substring(0, embeddedPath.length() - 1);
+        }
+
+        URL url = EmbeddedFileServlet.class.getResource(embeddedPath);
+        boolean isDir = url != null && __isDirectory(url);
+
+        if (isDir) {
+            embeddedPath = String.format("%s/%s", embeddedPath, getIndexFilename());
+            url = EmbeddedFileServlet.class.getResource(embeddedPath);
+
+            if (url != null && __isDirectory(url))
+                url = null; // <-- Directories cannot be served
+        }
+
+        if (url == null)
+            return new EmbeddedResource(null, isDir, -1, null, null, false, null);
+
+        long length = __getLength(url);
+        String encoding = null;
+
+        VariantSet<URL> variants = __getVariants(embeddedPath, length);
+        boolean negotiated = !variants.isEmpty();
+
+        if (negotiated) {
+            VariantSet.Variant<URL> variant = variants.select(acceptEncoding);
+
+            if (variant != null) {
+                url      = variant.target;
+                length   = variant.length;
+                encoding = variant.encoding;
+            }
+        }
+
+        return new EmbeddedResource(url, isDir, length, getMimeType(embeddedPath), encoding, negotiated, null);
+    }
+
+    /**
+     * Returns a boolean indicating if this servlet resolves requests through
+     * the build-time index of the
+     * {@linkplain EmbeddedFileServlet#getMappedDirPath() embedded directory}
+     * (see {@linkplain EmbeddedResourceIndex}), when available. Otherwise,
+     * resources are looked up in the classpath on each request.
+     *
+     * @return a boolean indicating if this servlet resolves requests through
+     * the build-time index of the embedded directory. Default implementation
+     * returns true.
+     */
+    protected boolean isResourceIndexEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns the maximum number of bytes of embedded resources kept in
+     * memory. Since embedded resources do not change during runtime, cached
+     * resources are never read again. Resources larger than 1/8 of this size
+     * are not cached. When the capacity is exceeded, least recently used
+     * resources are evicted.
+     *
+     * @return the maximum number of bytes of embedded resources kept in
+     * memory or zero in order to disable the cache. Default implementation
+     * returns {@linkplain EmbeddedFileServlet#DEFAULT_CONTENT_CACHE_SIZE}.
+     */
+    protected long getContentCacheSize() {
+        return DEFAULT_CONTENT_CACHE_SIZE;
+    }
+
+    /**
+     * Returns a boolean indicating if the resources listed in the build-time
+     * index (see {@linkplain EmbeddedResourceIndex}) are loaded into memory
+     * when this servlet is initialized, as long as they fit into the
+     * {@linkplain EmbeddedFileServlet#getContentCacheSize() content cache}.
+     *
+     * @return a boolean indicating if indexed resources are loaded into
+     * memory on initialization. Default implementation returns false.
+     */
+    protected boolean isContentCachePreloaded() {
+        return false;
+    }
+
+    /**
+     * Returns the number of requests served from the cache of embedded
+     * resource contents.
+     *
+     * @return the number of requests served from the cache of embedded
+     * resource contents.
+     */
+    public long getContentCacheHits() {
+        ContentCache cache = __getContentCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of requests which required an embedded resource to
+     * be read.
+     *
+     * @return the number of requests which required an embedded resource to
+     * be read.
+     */
+    public long getContentCacheMisses() {
+        ContentCache cache = __getContentCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Returns the number of embedded resources whose cached contents are
+     * shared with another resource holding identical contents.
+     *
+     * @return the number of resources sharing the cached contents of another
+     * resource.
+     */
+    public long getContentCacheShares() {
+        ContentCache cache = __getContentCache();
+        return cache == null ? 0 : cache.getShareCount();
+    }
+
+    /**
+     * Returns the number of bytes held by the content cache. Contents shared
+     * by several resources are counted once.
+     *
+     * @return the number of bytes held by the content cache.
+     */
+    public long getContentCacheOccupancy() {
+        ContentCache cache = __getContentCache();
+        return cache == null ? 0 : cache.getSize();
+    }
+
     /**
      * Returns the embedded directory path mapped for requests
      * handled by this instance.
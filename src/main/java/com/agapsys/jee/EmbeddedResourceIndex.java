@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the resources embedded under a classpath directory.
+ *
+ * An index is generated at build time (see
+ * {@linkplain EmbeddedResourceIndex#main(java.lang.String[])}) and stored as
+ * a resource named {@linkplain EmbeddedResourceIndex#RESOURCE_NAME} in the
+ * indexed directory. {@linkplain EmbeddedFileServlet} loads it on
+ * initialization, so that existence, directory and index-file resolution do
+ * not scan the classpath.
+ *
+ * Each line of an index describes an entry, using tab-separated fields:
+ * path (relative to the indexed directory, using "/" as separator), type
+ * ("d" for directories, "f" for files), length, mime type and content hash.
+ * Lines starting with "#" are ignored.
+ */
+public final class EmbeddedResourceIndex {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    public static final String RESOURCE_NAME = ".resource-index";
+
+    private static final String HEADER = "# Embedded resource index: path, type, length, mime, hash";
+    private static final String TYPE_DIRECTORY = "d";
+    private static final String TYPE_FILE      = "f";
+    private static final String NO_VALUE       = "-";
+
+    /** Index entry. */
+    static final class Entry {
+        final String key;
+        final boolean isDirectory;
+        final long length;
+        final String mime;
+        final String hash;
+        final String etag; // <-- Strong entity tag derived from hash (or null)
+
+        // Resolved on first use.
+        volatile URL url = null;
+        volatile VariantSet<Entry> variants = null;
+
+        private Entry(String key, boolean isDirectory, long length, String mime, String hash) {
+            this.key = key;
+            this.isDirectory = isDirectory;
+            this.length = length;
+            this.mime = mime;
+            this.hash = hash;
+            this.etag = hash == null ? null : "\"" + hash + "\"";
+        }
+    }
+
+    /**
+     * Loads the index of given embedded directory.
+     *
+     * @param embeddedDirPath embedded directory path (without trailing "/").
+     * @return the index of given directory or null if there is no index.
+     * @throws IOException if an I/O error happened while reading the index.
+     */
+    static EmbeddedResourceIndex _load(String embeddedDirPath) throws IOException {
+        InputStream is = EmbeddedResourceIndex.class.getResourceAsStream(embeddedDirPath + "/" + RESOURCE_NAME);
+
+        if (is == null)
+            return null;
+
+        Map<String, Entry> entries = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null;) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] fields = line.split("\t", -1);
+
+                if (fields.length != 5)
+                    throw new IOException("Invalid index entry: " + line);
+
+                try {
+                    entries.put(fields[0], new Entry(
+                        fields[0],
+                        fields[1].equals(TYPE_DIRECTORY),
+                        Long.parseLong(fields[2]),
+                        fields[3].equals(NO_VALUE) ? null : fields[3],
+                        fields[4].equals(NO_VALUE) ? null : fields[4]
+                    ));
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid index entry: " + line, ex);
+                }
+            }
+        }
+
+        return new EmbeddedResourceIndex(entries);
+    }
+
+    // Writes the entries of given directory (and its descendants) to given
+    // writer. Entries are written in a stable order.
+    private static void __write(Writer writer, Path root, Path path) throws IOException {
+        String key = root.relativize(path).toString().replace(File.separatorChar, '/');
+
+        if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0)
+            throw new IOException("Unsupported resource name: " + key);
+
+        if (Files.isDirectory(path)) {
+            writer.write(key + "\t" + TYPE_DIRECTORY + "\t0\t" + NO_VALUE + "\t" + NO_VALUE + "\n");
+
+            File[] children = path.toFile().listFiles();
+
+            if (children == null)
+                throw new IOException("Cannot list directory: " + path);
+
+            Arrays.sort(children);
+
+            for (File child : children) {
+                if (!key.isEmpty() || !child.getName().equals(RESOURCE_NAME))
+                    __write(writer, root, child.toPath());
+            }
+        } else {
+            String hash;
+
+            try (InputStream is = Files.newInputStream(path)) {
+                hash = ValidatorCache._computeHash(is);
+            }
+
+            String mime = AbstractFileServlet._getMimeType(path.getFileName().toString());
+            writer.write(key + "\t" + TYPE_FILE + "\t" + Files.size(path) + "\t" + mime + "\t" + hash + "\n");
+        }
+    }
+
+    /**
+     * Writes the index of given directory.
+     *
+     * @param dir directory to be indexed.
+     * @param writer destination writer.
+     * @throws IOException if an I/O error happened.
+     */
+    static void _write(Path dir, Writer writer) throws IOException {
+        writer.write(HEADER + "\n");
+        __write(writer, dir, dir);
+        writer.flush();
+    }
+
+    /**
+     * Generates the index of an embedded directory at build time. It must be
+     * invoked by the build of the application embedding the resources, after
+     * they are copied to the output directory (e.g. by binding the "java"
+     * goal of exec-maven-plugin to "process-classes" phase).
+     *
+     * @param args output directory (e.g. "target/classes") followed by the
+     * paths of the embedded directories to be indexed (e.g. "/webroot").
+     * @throws IOException if an I/O error happened.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2)
+            throw new IllegalArgumentException("Usage: " + EmbeddedResourceIndex.class.getName() + " <outputDir> <embeddedDir>...");
+
+        for (int i = 1; i < args.length; i++) {
+            Path dir = new File(args[0], args[i].replace('/', File.separatorChar)).toPath();
+
+            if (!Files.isDirectory(dir))
+                throw new IOException("Not a directory: " + dir);
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(dir.resolve(RESOURCE_NAME)), StandardCharsets.UTF_8))) {
+                _write(dir, writer);
+            }
+        }
+    }
+    // </editor-fold>
+
+    private final Map<String, Entry> entries;
+
+    private EmbeddedResourceIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the entry associated with given key.
+     *
+     * @param key entry key (see {@linkplain FileManifest#_getKey(java.lang.String)}).
+     * @return the entry associated with given key or null if there is no such
+     * resource.
+     */
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the entries of this index.
+     *
+     * @return the entries of this index.
+     */
+    Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Returns the number of entries in this index.
+     *
+     * @return the number of entries in this index.
+     */
+    int size() {
+        return entries.size();
+    }
+}
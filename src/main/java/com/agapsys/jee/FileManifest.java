@@ -0,0 +1,372 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * In-memory manifest of a directory tree.
+ *
+ * The manifest is built in parallel on creation and kept current by a
+ * {@linkplain WatchService}, so that lookups do not query the filesystem.
+ * Entries are keyed by their path relative to the root directory, using "/"
+ * as separator and no leading nor trailing separator (the root directory
+ * itself is associated with an empty key).
+ *
+ * If the watcher loses events (overflow) or fails, the manifest is marked as
+ * {@linkplain FileManifest#isValid() invalid} until it is rebuilt, and
+ * callers are expected to query the filesystem meanwhile. Sub-trees which
+ * cannot be tracked (symbolic links to directories and directories which
+ * could not be scanned) are {@linkplain FileManifest#isIndexed(String) not
+ * indexed}, and lookups within them must query the filesystem as well.
+ */
+final class FileManifest implements Runnable {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    /** Manifest entry. */
+    static final class Entry {
+        final boolean isDirectory;
+        final long length;
+        final long lastModified;
+        final String mime;
+
+        private Entry(boolean isDirectory, long length, long lastModified, String mime) {
+            this.isDirectory = isDirectory;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.mime = mime;
+        }
+    }
+
+    private static final ForkJoinPool FORK_JOIN_POOL = new ForkJoinPool();
+
+    /**
+     * Returns the manifest key associated with given request path.
+     *
+     * @param pathInfo request path.
+     * @return the manifest key associated with given request path.
+     */
+    static String _getKey(String pathInfo) {
+        StringBuilder sb = new StringBuilder(pathInfo.length());
+        boolean separator = false;
+
+        for (int i = 0; i < pathInfo.length(); i++) {
+            char c = pathInfo.charAt(i);
+
+            if (c == '/') {
+                separator = sb.length() > 0; // <-- Repeated separators are collapsed
+            } else {
+                if (separator)
+                    sb.append('/');
+
+                separator = false;
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+    // </editor-fold>
+
+    // Registers and scans a directory, forking a task per sub-directory.
+    private class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        private ScanTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask> subTasks = new ArrayList<>();
+
+            try {
+                // Directory is registered before being listed, so that no
+                // change happening during the scan is lost.
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path child : stream) {
+                        if (!__put(child))
+                            continue;
+
+                        // Linked directories are not watched (and may form
+                        // cycles), so their contents cannot be tracked.
+                        if (Files.isSymbolicLink(child))
+                            unindexed.add(__getKey(child));
+                        else
+                            subTasks.add(new ScanTask(child));
+                    }
+                }
+            } catch (IOException | ClosedWatchServiceException ex) {
+                unindexed.add(__getKey(dir)); // <-- Directory contents may be unknown
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+
+    private final Path root;
+    private final WatchService watchService;
+    private final NavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final NavigableSet<String> unindexed = new ConcurrentSkipListSet<>();
+    private final Thread watcherThread;
+    private final Runnable changeListener;
+    private final MimeRegistry mimeRegistry;
+
+    private volatile boolean valid = false;
+    private volatile long generation = 0;
+
+    /**
+     * Constructor. Builds the manifest and starts watching the directory tree.
+     *
+     * @param root root directory.
+     * @param changeListener listener notified (by the watcher thread) after
+     * the manifest is updated, or null.
+     * @throws IOException if an I/O error happened while creating the watcher.
+     */
+    FileManifest(Path root, Runnable changeListener) throws IOException {
+        this(root, changeListener, MimeRegistry.DEFAULT);
+    }
+
+    /**
+     * Constructor. Builds the manifest and starts watching the directory tree.
+     *
+     * @param root root directory.
+     * @param changeListener listener notified (by the watcher thread) after
+     * the manifest is updated, or null.
+     * @param mimeRegistry registry used to resolve the content types of files.
+     * @throws IOException if an I/O error happened while creating the watcher.
+     */
+    FileManifest(Path root, Runnable changeListener, MimeRegistry mimeRegistry) throws IOException {
+        this.root = root;
+        this.changeListener = changeListener;
+        this.mimeRegistry = mimeRegistry;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        __build();
+
+        watcherThread = new Thread(this, FileManifest.class.getSimpleName() + "-" + root);
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    // Returns the key associated with given path.
+    private String __getKey(Path path) {
+        String key = root.relativize(path).toString();
+        return path.getFileSystem().getSeparator().equals("/") ? key : key.replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    // Stores the entry associated with given path. Returns a boolean
+    // indicating if given path is a directory.
+    private boolean __put(Path path) {
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            __remove(path);
+            return false;
+        }
+
+        Path fileName = path.getFileName();
+        String mime = null;
+
+        if (!attributes.isDirectory() && fileName != null) {
+            mime = mimeRegistry.get(fileName.toString());
+
+            if (mime == null)
+                mime = AbstractFileServlet.DEFAULT_MIME;
+        }
+
+        entries.put(__getKey(path), new Entry(attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis(), mime));
+        return attributes.isDirectory();
+    }
+
+    // Removes the entries associated with given path and its descendants.
+    private void __remove(Path path) {
+        String key = __getKey(path);
+        String prefix = key + "/";
+
+        entries.remove(key);
+        entries.subMap(prefix, prefix + '\uffff').clear();
+
+        unindexed.remove(key);
+        unindexed.subSet(prefix, prefix + '\uffff').clear();
+    }
+
+    // Scans the whole directory tree. Manifest remains invalid during the
+    // scan and, if the root directory could not be read, after it.
+    private void __build() {
+        valid = false;
+        entries.clear();
+        unindexed.clear();
+
+        if (!__put(root))
+            return;
+
+        FORK_JOIN_POOL.invoke(new ScanTask(root));
+        valid = true;
+    }
+
+    /**
+     * Returns the number of updates applied to this manifest. Data derived
+     * from entries may be cached as long as this number does not change.
+     *
+     * @return the number of updates applied to this manifest.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns a boolean indicating if this manifest reflects the contents of
+     * the directory tree.
+     *
+     * @return a boolean indicating if this manifest reflects the contents of
+     * the directory tree. If false, the filesystem must be queried instead.
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns a boolean indicating if the entry associated with given key is
+     * tracked by this manifest. Entries within symbolic links to directories,
+     * or within directories which could not be scanned, are not tracked.
+     *
+     * @param key entry key (see {@linkplain FileManifest#_getKey(java.lang.String)}).
+     * @return a boolean indicating if the entry associated with given key is
+     * tracked by this manifest. If false, the filesystem must be queried
+     * instead.
+     */
+    boolean isIndexed(String key) {
+        if (unindexed.isEmpty())
+            return true;
+
+        if (unindexed.contains(""))
+            return false; // <-- Root directory could not be scanned
+
+        for (int i = key.indexOf('/'); i >= 0; i = key.indexOf('/', i + 1)) {
+            if (unindexed.contains(key.substring(0, i)))
+                return false;
+        }
+
+        return !unindexed.contains(key);
+    }
+
+    /**
+     * Returns the entry associated with given key.
+     *
+     * @param key entry key (see {@linkplain FileManifest#_getKey(java.lang.String)}).
+     * @return the entry associated with given key or null if there is no such
+     * file or directory.
+     */
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the number of entries in this manifest.
+     *
+     * @return the number of entries in this manifest.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops watching the directory tree. After this method is called, this
+     * manifest is no longer valid.
+     */
+    void close() {
+        valid = false;
+
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            WatchKey key;
+
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException | InterruptedException ex) {
+                valid = false;
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+            boolean overflow = false;
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+
+                Path path = dir.resolve((Path) event.context());
+
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    __remove(path);
+                } else if (__put(path) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    if (Files.isSymbolicLink(path))
+                        unindexed.add(__getKey(path));
+                    else
+                        FORK_JOIN_POOL.invoke(new ScanTask(path));
+                }
+            }
+
+            if (!key.reset() && dir.equals(root)) {
+                valid = false; // <-- Root directory is no longer accessible
+            } else if (overflow) {
+                // Events were lost. Lookups fall back to the filesystem
+                // during rebuild.
+                __build();
+            }
+
+            generation++; // <-- Only updated by the watcher thread
+
+            if (changeListener != null)
+                changeListener.run();
+        }
+    }
+}
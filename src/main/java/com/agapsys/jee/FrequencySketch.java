@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+/**
+ * Approximate access frequency of keys (count-min sketch), used to decide
+ * whether a new entry deserves the room taken by existing ones (TinyLFU).
+ *
+ * Counters saturate at 15 and are halved once the number of recorded
+ * accesses reaches ten times the sketch width, so that frequencies reflect
+ * recent history.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0x3c6ef372, 0xbb67ae85, 0x6a09e667 };
+
+    private final byte[] counters;
+    private final int width;
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedKeys expected number of distinct keys kept by the owner.
+     */
+    FrequencySketch(int expectedKeys) {
+        int w = 256;
+
+        while (w < expectedKeys && w < (1 << 24))
+            w <<= 1;
+
+        this.width = w;
+        this.counters = new byte[DEPTH * w];
+        this.sampleSize = 10 * w;
+    }
+
+    // Returns the index of the counter associated with given hash in given
+    // row.
+    private int __index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+
+    /**
+     * Records an access to given key.
+     *
+     * @param key accessed key.
+     */
+    synchronized void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+
+        for (int row = 0; row < DEPTH; row++) {
+            int index = __index(hash, row);
+
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            for (int i = 0; i < counters.length; i++)
+                counters[i] >>= 1;
+
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to given key.
+     *
+     * @param key key.
+     * @return the estimated number of recent accesses to given key.
+     */
+    synchronized int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+
+        for (int row = 0; row < DEPTH; row++)
+            frequency = Math.min(frequency, counters[__index(hash, row)]);
+
+        return frequency;
+    }
+}
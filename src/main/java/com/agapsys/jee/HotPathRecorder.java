@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access counts of recently requested paths, from which the most requested
+ * ones are periodically saved to a file, so that caches may be warmed when
+ * the application is restarted.
+ *
+ * Counts are kept for a bounded number of paths (least recently requested
+ * paths are forgotten) and halved whenever the list is saved, so that it
+ * reflects recent history. The list is written to a sibling file which then
+ * replaces the former list, so that a crash never leaves a partially written
+ * list behind.
+ */
+final class HotPathRecorder {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    // Number of tracked paths per saved path.
+    private static final int TRACKED_PATH_RATIO = 8;
+
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, HotPathRecorder.class.getSimpleName());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private static final Comparator<Map.Entry<String, long[]>> HOTTEST_FIRST = new Comparator<Map.Entry<String, long[]>>() {
+        @Override
+        public int compare(Map.Entry<String, long[]> o1, Map.Entry<String, long[]> o2) {
+            return Long.compare(o2.getValue()[0], o1.getValue()[0]);
+        }
+    };
+
+    /**
+     * Reads a list of paths saved by a recorder.
+     *
+     * @param file file holding the list.
+     * @param count maximum number of returned paths.
+     * @return the paths held by given file, hottest first, or an empty list if
+     * given file does not exist.
+     * @throws IOException if an I/O error happened while reading given file.
+     */
+    static List<String> _load(Path file, int count) throws IOException {
+        List<String> lines;
+
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex) {
+            return Collections.emptyList();
+        }
+
+        List<String> paths = new ArrayList<>(Math.min(count, lines.size()));
+
+        for (String line : lines) {
+            if (paths.size() == count)
+                break;
+
+            if (!line.isEmpty())
+                paths.add(line);
+        }
+
+        return paths;
+    }
+    // </editor-fold>
+
+    private final Path file;
+    private final int count;
+    private final Map<String, long[]> counts;
+    private final ScheduledFuture<?> saveTask;
+
+    /**
+     * Constructor.
+     *
+     * @param file file where the list of hottest paths is saved.
+     * @param count maximum number of saved paths.
+     * @param saveInterval interval (in milliseconds) between saves.
+     */
+    HotPathRecorder(Path file, int count, long saveInterval) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Invalid count: " + count);
+
+        if (saveInterval <= 0)
+            throw new IllegalArgumentException("Invalid save interval: " + saveInterval);
+
+        this.file = file;
+        this.count = count;
+        this.counts = new LruMap<>((int) Math.min(Integer.MAX_VALUE, (long) count * TRACKED_PATH_RATIO));
+        this.saveTask = SAVER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save();
+                } catch (IOException ignored) {
+                    // List will be saved again on next run.
+                }
+            }
+        }, saveInterval, saveInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an access to given path.
+     *
+     * @param path accessed path.
+     */
+    synchronized void record(String path) {
+        long[] pathCount = counts.get(path);
+
+        if (pathCount == null) {
+            if (path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0)
+                return; // <-- Cannot be saved
+
+            pathCount = new long[1];
+            counts.put(path, pathCount);
+        }
+
+        pathCount[0]++;
+    }
+
+    /**
+     * Returns the most requested paths. Counts are halved afterwards.
+     *
+     * @return the most requested paths, hottest first.
+     */
+    synchronized List<String> getHottest() {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(counts.entrySet());
+        Collections.sort(entries, HOTTEST_FIRST);
+
+        List<String> paths = new ArrayList<>(Math.min(count, entries.size()));
+
+        for (Map.Entry<String, long[]> entry : entries) {
+            if (paths.size() == count)
+                break;
+
+            paths.add(entry.getKey());
+        }
+
+        for (Iterator<long[]> iterator = counts.values().iterator(); iterator.hasNext();) {
+            long[] pathCount = iterator.next();
+            pathCount[0] >>= 1;
+
+            if (pathCount[0] == 0)
+                iterator.remove();
+        }
+
+        return paths;
+    }
+
+    /**
+     * Saves the list of the most requested paths. If no path was requested
+     * since last save, the former list is kept.
+     *
+     * @throws IOException if an I/O error happened while saving the list.
+     */
+    void save() throws IOException {
+        List<String> paths = getHottest();
+
+        if (paths.isEmpty())
+            return;
+
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+
+            for (String path : paths) {
+                writer.write(path);
+                writer.write('\n');
+            }
+
+            writer.flush();
+            channel.force(true); // <-- List is on disk before replacing the former one
+        }
+
+        try {
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stops periodic saves and saves the list one last time.
+     *
+     * @throws IOException if an I/O error happened while saving the list.
+     */
+    void close() throws IOException {
+        saveTask.cancel(false);
+        save();
+    }
+}
@@ -19,84 +19,880 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 public abstract class MappedFileServlet extends AbstractFileServlet {
     
     // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
-    private static final String KEY_FILE          = MappedFileServlet.class.getName() + ".file";
-            static final String KEY_MIME          = MappedFileServlet.class.getName() + ".mime";
-    private static final String KEY_LAST_MODIFIED = MappedFileServlet.class.getName() + ".lastModified";
-            static final String KEY_IS_DIR        = MappedFileServlet.class.getName() + ".isDir";
-    
     public static final String DEFAULT_INDEX_FILENAME = "index.html";
+    public static final int DEFAULT_VALIDATOR_CACHE_CAPACITY = 4096;
+    public static final long DEFAULT_FILE_CACHE_HEAP_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_FILE_CACHE_MAPPED_SIZE = 1024 * 1024 * 1024;
+    public static final int DEFAULT_CHANNEL_CACHE_CAPACITY = 256;
+    public static final long DEFAULT_CHANNEL_CACHE_IDLE_TIMEOUT = 30000;
+    public static final int DEFAULT_HOT_PATH_COUNT = 256;
+    public static final long DEFAULT_HOT_PATH_SAVE_INTERVAL = 60000;
+
+    public static final String ENCODING_BROTLI = "br";
+
+    public static final String FINGERPRINT_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    static final int VARIANT_CACHE_CAPACITY = 4096;
+
+    private static final int FINGERPRINT_LENGTH = 12; // <-- Number of hash digits embedded into fingerprinted paths
+
+    // Returns a boolean indicating if given region of given string is a
+    // fingerprint.
+    private static boolean __isFingerprint(String str, int start, int end) {
+        if (end - start != FINGERPRINT_LENGTH)
+            return false;
+
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+                return false;
+        }
+
+        return true;
+    }
+
+    // Returns the position of the fingerprint embedded into the last segment
+    // of given path (either "name.<fingerprint>.ext" or "name.<fingerprint>")
+    // or -1 if there is no such fingerprint.
+    private static int __getFingerprintStart(String path) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+
+        if (dot <= slash)
+            return -1;
+
+        int previousDot = path.lastIndexOf('.', dot - 1);
+
+        if (previousDot > slash && __isFingerprint(path, previousDot + 1, dot))
+            return previousDot + 1;
+
+        if (__isFingerprint(path, dot + 1, path.length()))
+            return dot + 1;
+
+        return -1;
+    }
+
+    // Returns a boolean indicating if given path points to an embedded
+    // resource index (see EmbeddedResourceIndex), which is never served
+    // since it lists every resource of its directory.
+    private static boolean __isResourceIndex(String path) {
+        return path.endsWith("/" + EmbeddedResourceIndex.RESOURCE_NAME) || path.equals(EmbeddedResourceIndex.RESOURCE_NAME);
+    }
+
+    // Resource served through a fingerprinted path. Since contents of such
+    // path never change, the resource may be cached indefinitely.
+    private static final class FingerprintedResource extends Resource {
+        private final String path; // <-- Path without fingerprint
+        private final Resource resource;
+
+        private FingerprintedResource(String path, Resource resource) {
+            this.path = path;
+            this.resource = resource;
+        }
+
+        @Override
+        public boolean exists() {
+            return resource.exists();
+        }
 
-    // Returns the mime-type associated with given file.
-    private static String __getMimeType(File file) {
-        return _getMimeType(file.getName());
+        @Override
+        public long getLength() {
+            return resource.getLength();
+        }
+
+        @Override
+        public long getLastModified() {
+            return resource.getLastModified();
+        }
+
+        @Override
+        public String getContentType() {
+            return resource.getContentType();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return resource.getContentEncoding();
+        }
+
+        @Override
+        public boolean isEncodingNegotiated() {
+            return resource.isEncodingNegotiated();
+        }
+
+        @Override
+        public String getETag() {
+            return resource.getETag();
+        }
+
+        @Override
+        public String getCacheControl() {
+            return FINGERPRINT_CACHE_CONTROL;
+        }
+
+        @Override
+        public ByteBuffer getContent() throws IOException {
+            return resource.getContent();
+        }
+
+        @Override
+        public FileChannel openChannel() throws IOException {
+            return resource.openChannel();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return resource.openStream();
+        }
+    }
+
+    // Returns the suffix appended to the name of a resource in order to
+    // obtain its precompressed variant using given content-coding.
+    static String _getVariantSuffix(String encoding) {
+        switch (encoding) {
+            case ENCODING_BROTLI:
+                return ".br";
+
+            case ENCODING_GZIP:
+                return ".gz";
+
+            default:
+                return "." + encoding;
+        }
+    }
+
+    // Returns the attributes of given file (obtained through a single
+    // filesystem query) or null if given file cannot be accessed.
+    private static BasicFileAttributes __readAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException | InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    // Loads the contents of given file, either into the heap or as a
+    // memory-mapped region. Returns null if file length does not match given
+    // one (i.e. file was changed after being queried).
+    private static ByteBuffer __loadContent(File file, long length, boolean mapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() != length)
+                return null;
+
+            if (mapped)
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            ByteBuffer content = ByteBuffer.allocate((int) length);
+
+            while (content.hasRemaining()) {
+                if (channel.read(content, content.position()) < 0)
+                    return null;
+            }
+
+            content.clear();
+            return content;
+        }
     }
     // </editor-fold>
-    
-    // prepares the response data associated with given request.
-    void _prepareResponseDataOnlyOnce(HttpServletRequest req) {
-        if (req.getAttribute(KEY_FILE) == null) {
-            
-            String pathInfo    = req.getPathInfo();
-            
-            if (pathInfo == null)
-                pathInfo = "";
-            
-            String fileSeparator = System.getProperty("file.separator");
-            String filePath      = pathInfo.replaceAll(Pattern.quote("/"), fileSeparator);
-            String mappedDirPath = getMappedDirPath();
 
-            File file = new File(mappedDirPath, filePath);
+    // Resource whose content hash may be computed on demand. A resource is
+    // its own source of contents for hash computation.
+    abstract class HashedResource extends Resource implements ValidatorCache.Source {
+        // Returns the entity tag derived from the content hash of this
+        // resource, computing such hash if necessary, or null if content
+        // hashes are not available.
+        abstract String getContentETag();
+    }
+
+    // File of the mapped directory (or its selected precompressed variant).
+    private class FileResource extends HashedResource {
+        private final File file;
+        private final boolean isDirectory;
+        private final long length; // <-- -1 if file does not exist
+        private final long lastModified;
+        private final String mime;
+        private final String encoding;
+        private final boolean negotiated;
+
+        private FileResource(File file, boolean isDirectory, long length, long lastModified, String mime, String encoding, boolean negotiated) {
+            this.file = file;
+            this.isDirectory = isDirectory;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.mime = mime;
+            this.encoding = encoding;
+            this.negotiated = negotiated;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return isDirectory;
+        }
+
+        @Override
+        public boolean exists() {
+            return length >= 0;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String getContentType() {
+            return mime;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return encoding;
+        }
+
+        @Override
+        public boolean isEncodingNegotiated() {
+            return negotiated;
+        }
+
+        @Override
+        public String getETag() {
+            return _getETag(file.getPath(), length, lastModified, this);
+        }
+
+        @Override
+        String getContentETag() {
+            return _computeETag(file.getPath(), length, lastModified, this);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public boolean matches(long length, long lastModified) {
+            BasicFileAttributes attributes = __readAttributes(file);
+            return attributes != null && attributes.size() == length && attributes.lastModifiedTime().toMillis() == lastModified;
+        }
+
+        @Override
+        public ByteBuffer getContent() throws IOException {
+            TieredContentCache cache = __getFileCache();
+
+            if (cache == null)
+                return null;
+
+            String key = file.getPath();
+            ByteBuffer content = cache.get(key, length, lastModified);
+
+            if (content != null)
+                return content;
+
+            String etag = getETag(); // <-- Content hash, if known
+
+            if (etag != null && (content = cache.share(key, length, lastModified, etag)) != null)
+                return content; // <-- Identical contents of another file are shared
+
+            if (cache.admits(key, length)) {
+                content = __loadContent(file, length, cache.isMapped(length));
+
+                if (content != null)
+                    cache.put(key, lastModified, content, etag != null ? etag : ValidatorCache._computeETag(content));
+            }
+
+            return content;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            ChannelCache channelCache = __getChannelCache();
+
+            if (channelCache != null)
+                return channelCache.open(file, length, lastModified);
+
+            return new FileInputStream(file);
+        }
+    }
+
+    private final Map<String, VariantSet<File>> variantCache = new LruMap<>(VARIANT_CACHE_CAPACITY);
+
+    private final Object manifestLock = new Object();
+    private FileManifest manifest = null;
+    private boolean manifestInitialized = false;
+
+    private final Object fileCacheLock = new Object();
+    private TieredContentCache fileCache = null;
+    private boolean fileCacheInitialized = false;
+
+    private final Object channelCacheLock = new Object();
+    private ChannelCache channelCache = null;
+    private boolean channelCacheInitialized = false;
+
+    private final Object validatorCacheLock = new Object();
+    private ValidatorCache validatorCache = null;
+    private boolean validatorCacheInitialized = false;
+
+    private final Object hotPathRecorderLock = new Object();
+    private HotPathRecorder hotPathRecorder = null;
+    private boolean hotPathRecorderInitialized = false;
+
+    private volatile Thread warmUpThread = null;
+    private final AtomicLong warmedUpPaths = new AtomicLong();
+
+    // Returns the recorder of the most requested paths or null if such
+    // recording is disabled.
+    private HotPathRecorder __getHotPathRecorder() {
+        synchronized (hotPathRecorderLock) {
+            if (!hotPathRecorderInitialized) {
+                String hotPathFile = getHotPathFile();
+
+                if (hotPathFile != null)
+                    hotPathRecorder = new HotPathRecorder(Paths.get(hotPathFile), getHotPathCount(), getHotPathSaveInterval());
+
+                hotPathRecorderInitialized = true;
+            }
+
+            return hotPathRecorder;
+        }
+    }
+
+    // Loads given resource into memory (if contents are cached) or at least
+    // reads it sequentially, so that it is held by the page cache.
+    private void __warmUp(Resource resource, byte[] buffer) throws IOException {
+        if (!resource.exists())
+            return;
+
+        boolean read = resource instanceof HashedResource && ((HashedResource) resource).getContentETag() != null; // <-- Hash computation reads contents
+
+        if (resource.getContent() != null || read)
+            return;
+
+        try (InputStream is = resource.openStream()) {
+            if (is != null) {
+                while (is.read(buffer) >= 0) {
+                    // Contents are discarded
+                }
+            }
+        }
+    }
+
+    // Warms up the resource pointed by given path and its precompressed
+    // variants.
+    private void __warmUp(String path, byte[] buffer) throws IOException {
+        Resource resource = _getResource(path, null);
+
+        if (!resource.exists())
+            return;
+
+        __warmUp(resource, buffer);
+
+        for (String encoding : getPrecompressedEncodings()) {
+            Resource variant = _getResource(path, encoding);
+
+            if (encoding.equals(variant.getContentEncoding()))
+                __warmUp(variant, buffer);
+        }
+
+        warmedUpPaths.incrementAndGet();
+    }
+
+    // Warms up, in background, the most requested paths of the former run.
+    // Until finished, the servlet container does not report itself as ready.
+    private void __warmUp() {
+        String hotPathFile = getHotPathFile();
+
+        if (hotPathFile == null)
+            return;
+
+        final List<String> paths;
+
+        try {
+            paths = HotPathRecorder._load(Paths.get(hotPathFile), getHotPathCount());
+        } catch (IOException | InvalidPathException ex) {
+            return; // <-- Servlet starts cold
+        }
+
+        if (paths.isEmpty())
+            return;
+
+        Object attribute = getServletContext().getAttribute(ServletContainer.READINESS_ATTRIBUTE);
+        final Readiness readiness = attribute instanceof Readiness ? (Readiness) attribute : null;
+
+        if (readiness != null)
+            readiness.begin();
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+
+                    for (String path : paths) {
+                        if (Thread.currentThread().isInterrupted())
+                            return;
+
+                        try {
+                            __warmUp(path, buffer);
+                        } catch (IOException | RuntimeException ignored) {
+                            // Resource is loaded when requested
+                        }
+                    }
+                } finally {
+                    if (readiness != null)
+                        readiness.end();
+                }
+            }
+        }, getClass().getSimpleName() + "-warmup");
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        warmUpThread = thread;
+        thread.start();
+    }
+
+    // Returns the manifest of the mapped directory or null if manifest is
+    // disabled or could not be created.
+    FileManifest _getManifest() {
+        synchronized (manifestLock) {
+            if (!manifestInitialized) {
+                if (isManifestEnabled()) {
+                    try {
+                        // Paths probed while missing may exist now.
+                        manifest = new FileManifest(new File(getMappedDirPath()).toPath(), new Runnable() {
+                            @Override
+                            public void run() {
+                                NegativeCache negativeCache = _getNegativeCache();
+
+                                if (negativeCache != null)
+                                    negativeCache.clear();
+
+                                synchronized (variantCache) {
+                                    variantCache.clear();
+                                }
+                            }
+                        }, _getMimeRegistry());
+                    } catch (IOException | InvalidPathException ex) {
+                        manifest = null; // <-- Requests are served from the filesystem
+                    }
+                }
+
+                manifestInitialized = true;
+            }
+
+            return manifest;
+        }
+    }
+
+    // Returns the cache of file contents or null if such cache is disabled.
+    private TieredContentCache __getFileCache() {
+        synchronized (fileCacheLock) {
+            if (!fileCacheInitialized) {
+                if (isFileCacheEnabled())
+                    fileCache = new TieredContentCache(getFileCacheHeapSize(), getFileCacheMappedSize(), getZeroCopyThreshold());
+
+                fileCacheInitialized = true;
+            }
+
+            return fileCache;
+        }
+    }
+
+    // Returns the cache of open file channels or null if such cache is
+    // disabled.
+    private ChannelCache __getChannelCache() {
+        synchronized (channelCacheLock) {
+            if (!channelCacheInitialized) {
+                int capacity = getChannelCacheCapacity();
+
+                if (capacity > 0)
+                    channelCache = new ChannelCache(capacity, getChannelCacheIdleTimeout());
+
+                channelCacheInitialized = true;
+            }
+
+            return channelCache;
+        }
+    }
+
+    // Returns the cache of content hashes used by this instance or null if
+    // content hashes are disabled.
+    ValidatorCache _getValidatorCache() {
+        synchronized (validatorCacheLock) {
+            if (!validatorCacheInitialized) {
+                int capacity = getValidatorCacheCapacity();
+
+                if (capacity > 0)
+                    validatorCache = new ValidatorCache(capacity);
+
+                validatorCacheInitialized = true;
+            }
+
+            return validatorCache;
+        }
+    }
+
+    // Returns a strong entity tag derived from the content hash of given
+    // resource version or null if such hash is not available yet.
+    String _getETag(String key, long length, long lastModified, ValidatorCache.Source source) {
+        ValidatorCache cache = _getValidatorCache();
+
+        if (cache == null)
+            return null;
+
+        return cache.getETag(key, length, lastModified, source);
+    }
+
+    // Returns a strong entity tag derived from the content hash of given
+    // resource version, computing such hash in the calling thread if
+    // necessary, or null if content hashes are disabled.
+    String _computeETag(String key, long length, long lastModified, ValidatorCache.Source source) {
+        ValidatorCache cache = _getValidatorCache();
+
+        if (cache == null)
+            return null;
+
+        return cache.computeETag(key, length, lastModified, source);
+    }
+
+    // Returns the fingerprint of the resource pointed by given path or null
+    // if such resource cannot be fingerprinted. Content hashes are never
+    // computed by the calling thread: if the hash is not known yet, its
+    // computation is scheduled and the resource is not fingerprinted.
+    private String __getFingerprint(String path) throws IOException {
+        Resource resource = _getResource(path, null);
+
+        if (!(resource instanceof HashedResource) || !resource.exists() || resource.isDirectory())
+            return null;
+
+        String etag = resource.getETag();
+
+        if (etag == null)
+            return null;
+
+        return etag.substring(1, 1 + FINGERPRINT_LENGTH); // <-- Skips the leading quote
+    }
+
+    // Resolves given path as a fingerprinted one. Returns null if given path
+    // does not embed the fingerprint of current contents of the resource it
+    // points to.
+    private Resource __getFingerprintedResource(String pathInfo, String acceptEncoding) throws IOException {
+        int start = __getFingerprintStart(pathInfo);
+
+        if (start < 0)
+            return null;
+
+        int end = start + FINGERPRINT_LENGTH;
+        String path = pathInfo.substring(0, start - 1) + pathInfo.substring(end);
+
+        if (__isResourceIndex(path))
+            return null;
+
+        String fingerprint = __getFingerprint(path);
+
+        if (fingerprint == null || !pathInfo.regionMatches(start, fingerprint, 0, FINGERPRINT_LENGTH))
+            return null; // <-- Stale fingerprints are resolved as regular paths
+
+        return new FingerprintedResource(path, _getResource(path, acceptEncoding));
+    }
+
+    // Returns the precompressed variants available for given version of a
+    // file. Lookups are cached, so that siblings are queried only when the
+    // original file changes.
+    private VariantSet<File> __getVariants(File file, long length, long lastModified) {
+        String key = file.getPath();
+
+        synchronized (variantCache) {
+            VariantSet<File> variants = variantCache.get(key);
+
+            if (variants != null && variants.matches(length, lastModified))
+                return variants;
+        }
 
-            boolean isDirectory = file.isDirectory();
-            req.setAttribute(KEY_IS_DIR,        isDirectory);
-            
-            if (isDirectory)
-                file = new File(mappedDirPath, getIndexFilename());
+        VariantSet<File> variants = new VariantSet<>(length, lastModified);
+
+        for (String encoding : getPrecompressedEncodings()) {
+            File variantFile = new File(key + _getVariantSuffix(encoding));
+            BasicFileAttributes attributes = __readAttributes(variantFile);
+
+            if (attributes != null && !attributes.isDirectory())
+                variants.add(new VariantSet.Variant<>(encoding, variantFile, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        }
 
-            req.setAttribute(KEY_FILE,          file);
-            req.setAttribute(KEY_MIME,          __getMimeType(file));
-            req.setAttribute(KEY_LAST_MODIFIED, file.exists() ? file.lastModified() : 0);
+        synchronized (variantCache) {
+            variantCache.put(key, variants);
         }
+
+        return variants;
+    }
+
+    // Returns the precompressed variants available for given file, according
+    // to given manifest. Lookups are cached until the manifest is updated.
+    private VariantSet<File> __getVariants(FileManifest manifest, String key, File file, long length, long lastModified) {
+        long generation = manifest.getGeneration();
+
+        synchronized (variantCache) {
+            VariantSet<File> variants = variantCache.get(file.getPath());
+
+            if (variants != null && variants.matches(length, lastModified))
+                return variants;
+        }
+
+        VariantSet<File> variants = new VariantSet<>(length, lastModified);
+
+        for (String encoding : getPrecompressedEncodings()) {
+            String suffix = _getVariantSuffix(encoding);
+            FileManifest.Entry entry = manifest.get(key + suffix);
+
+            if (entry != null && !entry.isDirectory)
+                variants.add(new VariantSet.Variant<>(encoding, new File(file.getPath() + suffix), entry.length, entry.lastModified));
+        }
+
+        synchronized (variantCache) {
+            if (manifest.getGeneration() == generation) // <-- Otherwise, lookup may be outdated
+                variantCache.put(file.getPath(), variants);
+        }
+
+        return variants;
+    }
+
+    // Returns the resource associated with given file, selecting one of its
+    // precompressed variants according to given "Accept-Encoding" header.
+    private Resource __getResource(String acceptEncoding, File file, boolean isDirectory, String mime, long length, long lastModified, VariantSet<File> variants) {
+        String encoding = null;
+        boolean negotiated = variants != null && !variants.isEmpty();
+
+        if (negotiated) {
+            VariantSet.Variant<File> variant = variants.select(acceptEncoding);
+
+            if (variant != null) {
+                file         = variant.target;
+                length       = variant.length;
+                lastModified = variant.lastModified;
+                encoding     = variant.encoding;
+            }
+        }
+
+        return new FileResource(file, isDirectory, length, lastModified, mime, encoding, negotiated);
+    }
+
+    // Resolves the resource pointed by given path using given manifest,
+    // without querying the filesystem.
+    private Resource __getResourceFromManifest(String acceptEncoding, String pathInfo, FileManifest manifest) {
+        String key = FileManifest._getKey(pathInfo);
+        FileManifest.Entry entry = manifest.get(key);
+
+        boolean isDirectory = entry != null && entry.isDirectory;
+
+        if (isDirectory) {
+            key = key.isEmpty() ? getIndexFilename() : key + "/" + getIndexFilename();
+            entry = manifest.get(key);
+        }
+
+        if (entry != null && entry.isDirectory)
+            entry = null; // <-- Directories cannot be served
+
+        File file = new File(getMappedDirPath(), key.replace('/', File.separatorChar));
+
+        if (entry == null)
+            return __getResource(acceptEncoding, file, isDirectory, null, -1L, 0L, null);
+
+        return __getResource(acceptEncoding, file, isDirectory, entry.mime, entry.length, entry.lastModified, __getVariants(manifest, key, file, entry.length, entry.lastModified));
+    }
+
+    // Resolves the resource pointed by given path by querying the
+    // filesystem.
+    private Resource __getResourceFromFileSystem(String acceptEncoding, String pathInfo) {
+        File file = new File(getMappedDirPath(), pathInfo.replace('/', File.separatorChar));
+        BasicFileAttributes attributes = __readAttributes(file);
+
+        boolean isDirectory = attributes != null && attributes.isDirectory();
+
+        if (isDirectory) {
+            file = new File(file, getIndexFilename());
+            attributes = __readAttributes(file);
+        }
+
+        if (attributes != null && attributes.isDirectory())
+            attributes = null; // <-- Directories cannot be served
+
+        if (attributes == null)
+            return __getResource(acceptEncoding, file, isDirectory, null, -1L, 0L, null);
+
+        long length       = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        return __getResource(acceptEncoding, file, isDirectory, getMimeType(file.getPath()), length, lastModified, __getVariants(file, length, lastModified));
     }
 
     @Override
-    protected boolean isDirectory(HttpServletRequest req) {
-        _prepareResponseDataOnlyOnce(req);
-        
-        return (boolean) req.getAttribute(KEY_IS_DIR);
+    public void init() throws ServletException {
+        super.init();
+        _getManifest(); // <-- Manifest is built before serving any request
+        __warmUp();
     }
-    
+
     @Override
-    protected InputStream getTargetInputStreamFor(HttpServletRequest req) throws IOException {
-        _prepareResponseDataOnlyOnce(req);
-        
-        File targetFile = (File) req.getAttribute(KEY_FILE);
-        
-        if (!targetFile.exists()) {
-            return null;
+    public void destroy() {
+        Thread thread = warmUpThread;
+
+        if (thread != null)
+            thread.interrupt();
+
+        synchronized (hotPathRecorderLock) {
+            if (hotPathRecorder != null) {
+                try {
+                    hotPathRecorder.close();
+                } catch (IOException ignored) {
+                    // Former list is kept
+                }
+            }
+
+            hotPathRecorder = null;
+            hotPathRecorderInitialized = false;
+        }
+
+        synchronized (manifestLock) {
+            if (manifest != null)
+                manifest.close();
+
+            manifest = null;
+            manifestInitialized = false;
+        }
+
+        synchronized (fileCacheLock) {
+            fileCache = null; // <-- Mapped regions are released once unreachable
+            fileCacheInitialized = false;
+        }
+
+        synchronized (channelCacheLock) {
+            if (channelCache != null)
+                channelCache.close();
+
+            channelCache = null;
+            channelCacheInitialized = false;
+        }
+
+        synchronized (validatorCacheLock) {
+            if (validatorCache != null)
+                validatorCache.close();
+
+            validatorCache = null;
+            validatorCacheInitialized = false;
         }
-        
-        return new FileInputStream(targetFile);
+
+        super.destroy();
     }
 
     @Override
-    protected long getTargetLastModifiedFor(HttpServletRequest req) {
-        _prepareResponseDataOnlyOnce(req);
-        
-        return (long) req.getAttribute(KEY_LAST_MODIFIED);
+    boolean _isIndexed(String pathInfo) {
+        FileManifest manifest = _getManifest();
+        return manifest != null && manifest.isValid() && manifest.isIndexed(FileManifest._getKey(pathInfo));
+    }
+
+    // Resolves the resource pointed by given path (relative to the mapped
+    // directory), selecting one of its precompressed variants according to
+    // given "Accept-Encoding" header (null selects the original resource).
+    Resource _getResource(String pathInfo, String acceptEncoding) throws IOException {
+        FileManifest manifest = _getManifest();
+
+        if (_isIndexed(pathInfo))
+            return __getResourceFromManifest(acceptEncoding, pathInfo, manifest);
+
+        return __getResourceFromFileSystem(acceptEncoding, pathInfo);
     }
 
     @Override
-    protected String getTargetContentTypeFor(HttpServletRequest req) {
-        _prepareResponseDataOnlyOnce(req);
-        
-        return (String) req.getAttribute(KEY_MIME);
+    protected Resource getResource(HttpServletRequest req) throws IOException {
+        String pathInfo = req.getPathInfo();
+
+        if (pathInfo == null)
+            pathInfo = "";
+
+        if (__isResourceIndex(pathInfo))
+            return null; // <-- Served as missing
+
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        Resource resource = null;
+
+        if (isFingerprintEnabled())
+            resource = __getFingerprintedResource(pathInfo, acceptEncoding);
+
+        if (resource == null)
+            resource = _getResource(pathInfo, acceptEncoding);
+
+        HotPathRecorder recorder = __getHotPathRecorder();
+
+        if (recorder != null && resource.exists())
+            recorder.record(resource instanceof FingerprintedResource ? ((FingerprintedResource) resource).path : pathInfo);
+
+        return resource;
+    }
+
+    /**
+     * Returns the number of paths warmed up on initialization (see
+     * {@linkplain MappedFileServlet#getHotPathFile()}).
+     *
+     * @return the number of paths warmed up on initialization.
+     */
+    public long getWarmedUpPathCount() {
+        return warmedUpPaths.get();
+    }
+
+    /**
+     * Returns the fingerprinted form of given path, which embeds the content
+     * hash of the resource it points to (e.g. "/js/app.js" becomes
+     * "/js/app.3f9a1c2b7d4e.js"). Since a fingerprinted path changes whenever
+     * contents change, it is served with
+     * {@linkplain MappedFileServlet#FINGERPRINT_CACHE_CONTROL}. Requests
+     * carrying stale fingerprints are resolved as regular paths.
+     *
+     * @param path path relative to this servlet (i.e. the path info of the
+     * requests pointing to the resource).
+     * @return the fingerprinted form of given path or given path if
+     * fingerprints are disabled, content hashes are disabled or given path
+     * does not point to an existing file. Given path is also returned while
+     * the content hash of the resource is not known yet (its computation is
+     * scheduled, so that later calls return the fingerprinted form).
+     * @throws IOException if an I/O error happened while resolving given path.
+     */
+    public String getFingerprintedPath(String path) throws IOException {
+        if (!isFingerprintEnabled())
+            return path;
+
+        String fingerprint = __getFingerprint(path);
+
+        if (fingerprint == null)
+            return path;
+
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+
+        if (dot <= slash + 1) // <-- No extension (leading dots denote hidden files)
+            return path + "." + fingerprint;
+
+        return path.substring(0, dot) + "." + fingerprint + path.substring(dot);
     }
 
     /**
@@ -109,8 +905,300 @@ public abstract class MappedFileServlet extends AbstractFileServlet {
         return DEFAULT_INDEX_FILENAME;
     }
     
+    /**
+     * Returns the content-codings of the precompressed variants served by this
+     * servlet, in server preference order. A variant is a sibling of the
+     * original resource whose name has a suffix associated with its
+     * content-coding (".br" for {@linkplain MappedFileServlet#ENCODING_BROTLI}
+     * and ".gz" for {@linkplain AbstractFileServlet#ENCODING_GZIP}). Variants
+     * are selected according to the "Accept-Encoding" request header. The
+     * lookup for available variants of a resource is repeated only when the
+     * original resource changes.
+     *
+     * @return the content-codings of the precompressed variants served by this
+     * servlet. Default implementation returns
+     * {@linkplain MappedFileServlet#ENCODING_BROTLI} and
+     * {@linkplain AbstractFileServlet#ENCODING_GZIP}. An empty array disables
+     * precompressed variants.
+     */
+    protected String[] getPrecompressedEncodings() {
+        return new String[] { ENCODING_BROTLI, ENCODING_GZIP };
+    }
+
+    /**
+     * Returns the maximum number of content hashes kept in memory by this
+     * servlet. Content hashes are computed in background (by a single thread
+     * owned by this servlet, stopped once it is destroyed), once per resource
+     * version, and used as strong entity tags. Until a hash is available, an
+     * entity tag derived from resource length and last modification timestamp
+     * is used.
+     *
+     * @return the maximum number of content hashes kept in memory or zero in
+     * order to disable content hashes. Default implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_VALIDATOR_CACHE_CAPACITY}.
+     */
+    protected int getValidatorCacheCapacity() {
+        return DEFAULT_VALIDATOR_CACHE_CAPACITY;
+    }
+
+    /**
+     * Returns a boolean indicating if this servlet serves fingerprinted
+     * paths (see
+     * {@linkplain MappedFileServlet#getFingerprintedPath(String)}). Paths
+     * which are not fingerprinted are served with the policy given by
+     * {@linkplain AbstractFileServlet#getCacheControl()}. Fingerprints
+     * require content hashes (see
+     * {@linkplain MappedFileServlet#getValidatorCacheCapacity()}).
+     *
+     * @return a boolean indicating if this servlet serves fingerprinted
+     * paths. Default implementation returns false.
+     */
+    protected boolean isFingerprintEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns a boolean indicating if this servlet keeps an in-memory
+     * manifest of the {@linkplain MappedFileServlet#getMappedDirPath() mapped directory}.
+     * The manifest is built in parallel when the servlet is initialized and
+     * kept current by watching the directory tree, so that requests are
+     * resolved without querying the filesystem. Changes become visible once
+     * the watcher processes them. Whenever the watcher loses events, requests
+     * are resolved through the filesystem until the manifest is rebuilt.
+     * Without a manifest, paths requested while missing are only looked up
+     * again once their {@linkplain AbstractFileServlet#getNegativeCacheTtl() time-to-live}
+     * expires.
+     *
+     * @return a boolean indicating if this servlet keeps an in-memory
+     * manifest of the mapped directory. Default implementation returns false.
+     */
+    protected boolean isManifestEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns a boolean indicating if this servlet keeps the contents of
+     * frequently requested files in memory, so that such files are served
+     * without being opened nor read. Files smaller than the
+     * {@linkplain AbstractFileServlet#getZeroCopyThreshold() zero-copy threshold}
+     * are kept in the heap and larger ones as memory-mapped regions. Cached
+     * contents are discarded once the length or the last modification
+     * timestamp of their file changes. Since mapped regions reflect later
+     * writes to their file, files should be replaced (e.g. renamed over)
+     * rather than rewritten in place.
+     *
+     * @return a boolean indicating if this servlet keeps the contents of
+     * frequently requested files in memory. Default implementation returns
+     * false.
+     */
+    protected boolean isFileCacheEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of bytes of file contents kept in the heap
+     * (see {@linkplain MappedFileServlet#isFileCacheEnabled()}). Files larger
+     * than 1/8 of this size are not cached in the heap. Once the capacity is
+     * reached, a file replaces least recently used ones only if it was
+     * requested more often than them.
+     *
+     * @return the maximum number of bytes of file contents kept in the heap.
+     * Default implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_FILE_CACHE_HEAP_SIZE}.
+     */
+    protected long getFileCacheHeapSize() {
+        return DEFAULT_FILE_CACHE_HEAP_SIZE;
+    }
+
+    /**
+     * Returns the maximum number of bytes of file contents kept as
+     * memory-mapped regions (see {@linkplain MappedFileServlet#isFileCacheEnabled()}).
+     * Files larger than 1/8 of this size are not cached. Once the capacity
+     * is reached, a file replaces least recently used ones only if it was
+     * requested more often than them.
+     *
+     * @return the maximum number of bytes of file contents kept as
+     * memory-mapped regions. Default implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_FILE_CACHE_MAPPED_SIZE}.
+     */
+    protected long getFileCacheMappedSize() {
+        return DEFAULT_FILE_CACHE_MAPPED_SIZE;
+    }
+
+    /**
+     * Returns the maximum number of open files kept by this servlet. Open
+     * files are shared by concurrent requests (through positional reads), so
+     * that frequently requested files are not opened and closed on each
+     * request. A file is opened again once its length or last modification
+     * timestamp changes. Open files are mapped into memory on demand, once
+     * per version, so that they may be transferred without copying (see
+     * {@linkplain AbstractFileServlet#getZeroCopyThreshold()}). Since open
+     * files may not be deleted nor replaced on some platforms (e.g. Windows),
+     * the cache should be disabled there if files are changed while served.
+     *
+     * @return the maximum number of open files kept by this servlet or zero
+     * in order to disable the cache. Default implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_CHANNEL_CACHE_CAPACITY}.
+     */
+    protected int getChannelCacheCapacity() {
+        return DEFAULT_CHANNEL_CACHE_CAPACITY;
+    }
+
+    /**
+     * Returns the time after which an open file which is no longer requested
+     * is closed (see {@linkplain MappedFileServlet#getChannelCacheCapacity()}).
+     *
+     * @return the time (in milliseconds) after which an unused open file is
+     * closed. Default implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_CHANNEL_CACHE_IDLE_TIMEOUT}.
+     */
+    protected long getChannelCacheIdleTimeout() {
+        return DEFAULT_CHANNEL_CACHE_IDLE_TIMEOUT;
+    }
+
+    /**
+     * Returns the path of the file where this servlet periodically saves the
+     * list of its most requested paths (and once more when destroyed). On
+     * initialization, the paths of the former list are warmed up in
+     * background: contents are loaded into memory if cached (see
+     * {@linkplain MappedFileServlet#isFileCacheEnabled()}), or read
+     * sequentially so that the page cache holds them, and content hashes are
+     * computed. Until finished, {@linkplain ServletContainer#isReady()}
+     * returns false. In order to warm up when the container starts, the
+     * servlet must declare {@linkplain javax.servlet.annotation.WebServlet#loadOnStartup()}.
+     *
+     * @return the path of the file holding the most requested paths or null
+     * in order to disable both recording and warm-up. Default implementation
+     * returns null.
+     */
+    protected String getHotPathFile() {
+        return null;
+    }
+
+    /**
+     * Returns the maximum number of paths saved in the file given by
+     * {@linkplain MappedFileServlet#getHotPathFile()}.
+     *
+     * @return the maximum number of saved paths. Default implementation
+     * returns {@linkplain MappedFileServlet#DEFAULT_HOT_PATH_COUNT}.
+     */
+    protected int getHotPathCount() {
+        return DEFAULT_HOT_PATH_COUNT;
+    }
+
+    /**
+     * Returns the interval between saves of the file given by
+     * {@linkplain MappedFileServlet#getHotPathFile()}.
+     *
+     * @return the interval (in milliseconds) between saves. Default
+     * implementation returns
+     * {@linkplain MappedFileServlet#DEFAULT_HOT_PATH_SAVE_INTERVAL}.
+     */
+    protected long getHotPathSaveInterval() {
+        return DEFAULT_HOT_PATH_SAVE_INTERVAL;
+    }
+
+    /**
+     * Returns the number of requests which reused an open file.
+     *
+     * @return the number of requests which reused an open file.
+     */
+    public long getChannelCacheHits() {
+        ChannelCache cache = __getChannelCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of requests which required a file to be opened.
+     *
+     * @return the number of requests which required a file to be opened.
+     */
+    public long getChannelCacheMisses() {
+        ChannelCache cache = __getChannelCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Returns the number of requests served from the cache of file contents.
+     *
+     * @return the number of requests served from the cache of file contents.
+     */
+    public long getFileCacheHits() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of requests which required a file to be read.
+     *
+     * @return the number of requests which required a file to be read.
+     */
+    public long getFileCacheMisses() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Returns the ratio of requests served from the cache of file contents.
+     *
+     * @return the ratio of requests served from the cache of file contents
+     * (zero if no request was served yet).
+     */
+    public double getFileCacheHitRatio() {
+        long hits = getFileCacheHits();
+        long total = hits + getFileCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of files evicted from the cache of file contents.
+     *
+     * @return the number of files evicted from the cache of file contents.
+     */
+    public long getFileCacheEvictions() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    /**
+     * Returns the number of files which were not cached because they were
+     * requested less often than the files they would evict.
+     *
+     * @return the number of files which were not admitted into the cache of
+     * file contents.
+     */
+    public long getFileCacheRejections() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getRejectionCount();
+    }
+
+    /**
+     * Returns the number of files whose cached contents are shared with
+     * another file holding identical contents.
+     *
+     * @return the number of files sharing the cached contents of another
+     * file.
+     */
+    public long getFileCacheShares() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getShareCount();
+    }
+
+    /**
+     * Returns the number of bytes held by the cache of file contents (heap
+     * and memory-mapped). Contents shared by several files are counted once.
+     *
+     * @return the number of bytes held by the cache of file contents.
+     */
+    public long getFileCacheOccupancy() {
+        TieredContentCache cache = __getFileCache();
+        return cache == null ? 0 : cache.getHeapSize() + cache.getMappedSize();
+    }
+
     /**
      * Returns the directory path mapped for requests handled by this servlet.
+     * This method is called on every request, so implementations should not
+     * resolve the path on each call.
      *
      * @return the directory mapped for requests handled by this servlet.
      */
@@ -0,0 +1,1242 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of content types, indexed by (case-insensitive) file extension.
+ *
+ * Types are kept in an open-addressing table probed with the extension of
+ * a path, which is hashed and compared in place, so that lookups do not
+ * allocate. Optionally, a charset parameter is appended to textual types
+ * when the registry is built.
+ */
+final class MimeRegistry {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final Map<String, String> DEFAULT_TYPES = new HashMap<>(2048);
+
+    static {
+        DEFAULT_TYPES.put("123", "application/vnd.lotus-1-2-3");
+        DEFAULT_TYPES.put("3dml", "text/vnd.in3d.3dml");
+        DEFAULT_TYPES.put("3ds", "image/x-3ds");
+        DEFAULT_TYPES.put("3g2", "video/3gpp2");
+        DEFAULT_TYPES.put("3gp", "video/3gpp");
+        DEFAULT_TYPES.put("7z", "application/x-7z-compressed");
+        DEFAULT_TYPES.put("aab", "application/x-authorware-bin");
+        DEFAULT_TYPES.put("aac", "audio/x-aac");
+        DEFAULT_TYPES.put("aam", "application/x-authorware-map");
+        DEFAULT_TYPES.put("aas", "application/x-authorware-seg");
+        DEFAULT_TYPES.put("abs", "audio/x-mpeg");
+        DEFAULT_TYPES.put("abw", "application/x-abiword");
+        DEFAULT_TYPES.put("ac", "application/pkix-attr-cert");
+        DEFAULT_TYPES.put("acc", "application/vnd.americandynamics.acc");
+        DEFAULT_TYPES.put("ace", "application/x-ace-compressed");
+        DEFAULT_TYPES.put("acu", "application/vnd.acucobol");
+        DEFAULT_TYPES.put("acutc", "application/vnd.acucorp");
+        DEFAULT_TYPES.put("adp", "audio/adpcm");
+        DEFAULT_TYPES.put("aep", "application/vnd.audiograph");
+        DEFAULT_TYPES.put("afm", "application/x-font-type1");
+        DEFAULT_TYPES.put("afp", "application/vnd.ibm.modcap");
+        DEFAULT_TYPES.put("ahead", "application/vnd.ahead.space");
+        DEFAULT_TYPES.put("ai", "application/postscript");
+        DEFAULT_TYPES.put("aif", "audio/x-aiff");
+        DEFAULT_TYPES.put("aifc", "audio/x-aiff");
+        DEFAULT_TYPES.put("aiff", "audio/x-aiff");
+        DEFAULT_TYPES.put("aim", "application/x-aim");
+        DEFAULT_TYPES.put("air", "application/vnd.adobe.air-application-installer-package+zip");
+        DEFAULT_TYPES.put("ait", "application/vnd.dvb.ait");
+        DEFAULT_TYPES.put("ami", "application/vnd.amiga.ami");
+        DEFAULT_TYPES.put("anx", "application/annodex");
+        DEFAULT_TYPES.put("apk", "application/vnd.android.package-archive");
+        DEFAULT_TYPES.put("appcache", "text/cache-manifest");
+        DEFAULT_TYPES.put("application", "application/x-ms-application");
+        DEFAULT_TYPES.put("apr", "application/vnd.lotus-approach");
+        DEFAULT_TYPES.put("arc", "application/x-freearc");
+        DEFAULT_TYPES.put("art", "image/x-jg");
+        DEFAULT_TYPES.put("asc", "application/pgp-signature");
+        DEFAULT_TYPES.put("asf", "video/x-ms-asf");
+        DEFAULT_TYPES.put("asm", "text/x-asm");
+        DEFAULT_TYPES.put("aso", "application/vnd.accpac.simply.aso");
+        DEFAULT_TYPES.put("asx", "video/x-ms-asf");
+        DEFAULT_TYPES.put("atc", "application/vnd.acucorp");
+        DEFAULT_TYPES.put("atom", "application/atom+xml");
+        DEFAULT_TYPES.put("atomcat", "application/atomcat+xml");
+        DEFAULT_TYPES.put("atomsvc", "application/atomsvc+xml");
+        DEFAULT_TYPES.put("atx", "application/vnd.antix.game-component");
+        DEFAULT_TYPES.put("au", "audio/basic");
+        DEFAULT_TYPES.put("avi", "video/x-msvideo");
+        DEFAULT_TYPES.put("avx", "video/x-rad-screenplay");
+        DEFAULT_TYPES.put("aw", "application/applixware");
+        DEFAULT_TYPES.put("axa", "audio/annodex");
+        DEFAULT_TYPES.put("axv", "video/annodex");
+        DEFAULT_TYPES.put("azf", "application/vnd.airzip.filesecure.azf");
+        DEFAULT_TYPES.put("azs", "application/vnd.airzip.filesecure.azs");
+        DEFAULT_TYPES.put("azw", "application/vnd.amazon.ebook");
+        DEFAULT_TYPES.put("bat", "application/x-msdownload");
+        DEFAULT_TYPES.put("bcpio", "application/x-bcpio");
+        DEFAULT_TYPES.put("bdf", "application/x-font-bdf");
+        DEFAULT_TYPES.put("bdm", "application/vnd.syncml.dm+wbxml");
+        DEFAULT_TYPES.put("bed", "application/vnd.realvnc.bed");
+        DEFAULT_TYPES.put("bh2", "application/vnd.fujitsu.oasysprs");
+        DEFAULT_TYPES.put("bin", "application/octet-stream");
+        DEFAULT_TYPES.put("blb", "application/x-blorb");
+        DEFAULT_TYPES.put("blorb", "application/x-blorb");
+        DEFAULT_TYPES.put("bmi", "application/vnd.bmi");
+        DEFAULT_TYPES.put("bmp", "image/bmp");
+        DEFAULT_TYPES.put("body", "text/html");
+        DEFAULT_TYPES.put("book", "application/vnd.framemaker");
+        DEFAULT_TYPES.put("box", "application/vnd.previewsystems.box");
+        DEFAULT_TYPES.put("boz", "application/x-bzip2");
+        DEFAULT_TYPES.put("bpk", "application/octet-stream");
+        DEFAULT_TYPES.put("btif", "image/prs.btif");
+        DEFAULT_TYPES.put("bz", "application/x-bzip");
+        DEFAULT_TYPES.put("bz2", "application/x-bzip2");
+        DEFAULT_TYPES.put("c", "text/x-c");
+        DEFAULT_TYPES.put("c11amc", "application/vnd.cluetrust.cartomobile-config");
+        DEFAULT_TYPES.put("c11amz", "application/vnd.cluetrust.cartomobile-config-pkg");
+        DEFAULT_TYPES.put("c4d", "application/vnd.clonk.c4group");
+        DEFAULT_TYPES.put("c4f", "application/vnd.clonk.c4group");
+        DEFAULT_TYPES.put("c4g", "application/vnd.clonk.c4group");
+        DEFAULT_TYPES.put("c4p", "application/vnd.clonk.c4group");
+        DEFAULT_TYPES.put("c4u", "application/vnd.clonk.c4group");
+        DEFAULT_TYPES.put("cab", "application/vnd.ms-cab-compressed");
+        DEFAULT_TYPES.put("caf", "audio/x-caf");
+        DEFAULT_TYPES.put("cap", "application/vnd.tcpdump.pcap");
+        DEFAULT_TYPES.put("car", "application/vnd.curl.car");
+        DEFAULT_TYPES.put("cat", "application/vnd.ms-pki.seccat");
+        DEFAULT_TYPES.put("cb7", "application/x-cbr");
+        DEFAULT_TYPES.put("cba", "application/x-cbr");
+        DEFAULT_TYPES.put("cbr", "application/x-cbr");
+        DEFAULT_TYPES.put("cbt", "application/x-cbr");
+        DEFAULT_TYPES.put("cbz", "application/x-cbr");
+        DEFAULT_TYPES.put("cc", "text/x-c");
+        DEFAULT_TYPES.put("cct", "application/x-director");
+        DEFAULT_TYPES.put("ccxml", "application/ccxml+xml");
+        DEFAULT_TYPES.put("cdbcmsg", "application/vnd.contact.cmsg");
+        DEFAULT_TYPES.put("cdf", "application/x-cdf");
+        DEFAULT_TYPES.put("cdkey", "application/vnd.mediastation.cdkey");
+        DEFAULT_TYPES.put("cdmia", "application/cdmi-capability");
+        DEFAULT_TYPES.put("cdmic", "application/cdmi-container");
+        DEFAULT_TYPES.put("cdmid", "application/cdmi-domain");
+        DEFAULT_TYPES.put("cdmio", "application/cdmi-object");
+        DEFAULT_TYPES.put("cdmiq", "application/cdmi-queue");
+        DEFAULT_TYPES.put("cdx", "chemical/x-cdx");
+        DEFAULT_TYPES.put("cdxml", "application/vnd.chemdraw+xml");
+        DEFAULT_TYPES.put("cdy", "application/vnd.cinderella");
+        DEFAULT_TYPES.put("cer", "application/pkix-cert");
+        DEFAULT_TYPES.put("cfs", "application/x-cfs-compressed");
+        DEFAULT_TYPES.put("cgm", "image/cgm");
+        DEFAULT_TYPES.put("chat", "application/x-chat");
+        DEFAULT_TYPES.put("chm", "application/vnd.ms-htmlhelp");
+        DEFAULT_TYPES.put("chrt", "application/vnd.kde.kchart");
+        DEFAULT_TYPES.put("cif", "chemical/x-cif");
+        DEFAULT_TYPES.put("cii", "application/vnd.anser-web-certificate-issue-initiation");
+        DEFAULT_TYPES.put("cil", "application/vnd.ms-artgalry");
+        DEFAULT_TYPES.put("cla", "application/vnd.claymore");
+        DEFAULT_TYPES.put("class", "application/java");
+        DEFAULT_TYPES.put("clkk", "application/vnd.crick.clicker.keyboard");
+        DEFAULT_TYPES.put("clkp", "application/vnd.crick.clicker.palette");
+        DEFAULT_TYPES.put("clkt", "application/vnd.crick.clicker.template");
+        DEFAULT_TYPES.put("clkw", "application/vnd.crick.clicker.wordbank");
+        DEFAULT_TYPES.put("clkx", "application/vnd.crick.clicker");
+        DEFAULT_TYPES.put("clp", "application/x-msclip");
+        DEFAULT_TYPES.put("cmc", "application/vnd.cosmocaller");
+        DEFAULT_TYPES.put("cmdf", "chemical/x-cmdf");
+        DEFAULT_TYPES.put("cml", "chemical/x-cml");
+        DEFAULT_TYPES.put("cmp", "application/vnd.yellowriver-custom-menu");
+        DEFAULT_TYPES.put("cmx", "image/x-cmx");
+        DEFAULT_TYPES.put("cod", "application/vnd.rim.cod");
+        DEFAULT_TYPES.put("com", "application/x-msdownload");
+        DEFAULT_TYPES.put("conf", "text/plain");
+        DEFAULT_TYPES.put("cpio", "application/x-cpio");
+        DEFAULT_TYPES.put("cpp", "text/x-c");
+        DEFAULT_TYPES.put("cpt", "application/mac-compactpro");
+        DEFAULT_TYPES.put("crd", "application/x-mscardfile");
+        DEFAULT_TYPES.put("crl", "application/pkix-crl");
+        DEFAULT_TYPES.put("crt", "application/x-x509-ca-cert");
+        DEFAULT_TYPES.put("cryptonote", "application/vnd.rig.cryptonote");
+        DEFAULT_TYPES.put("csh", "application/x-csh");
+        DEFAULT_TYPES.put("csml", "chemical/x-csml");
+        DEFAULT_TYPES.put("csp", "application/vnd.commonspace");
+        DEFAULT_TYPES.put("css", "text/css");
+        DEFAULT_TYPES.put("cst", "application/x-director");
+        DEFAULT_TYPES.put("csv", "text/csv");
+        DEFAULT_TYPES.put("cu", "application/cu-seeme");
+        DEFAULT_TYPES.put("curl", "text/vnd.curl");
+        DEFAULT_TYPES.put("cww", "application/prs.cww");
+        DEFAULT_TYPES.put("cxt", "application/x-director");
+        DEFAULT_TYPES.put("cxx", "text/x-c");
+        DEFAULT_TYPES.put("dae", "model/vnd.collada+xml");
+        DEFAULT_TYPES.put("daf", "application/vnd.mobius.daf");
+        DEFAULT_TYPES.put("dart", "application/vnd.dart");
+        DEFAULT_TYPES.put("dataless", "application/vnd.fdsn.seed");
+        DEFAULT_TYPES.put("davmount", "application/davmount+xml");
+        DEFAULT_TYPES.put("dbk", "application/docbook+xml");
+        DEFAULT_TYPES.put("dcr", "application/x-director");
+        DEFAULT_TYPES.put("dcurl", "text/vnd.curl.dcurl");
+        DEFAULT_TYPES.put("dd2", "application/vnd.oma.dd2+xml");
+        DEFAULT_TYPES.put("ddd", "application/vnd.fujixerox.ddd");
+        DEFAULT_TYPES.put("deb", "application/x-debian-package");
+        DEFAULT_TYPES.put("def", "text/plain");
+        DEFAULT_TYPES.put("deploy", "application/octet-stream");
+        DEFAULT_TYPES.put("der", "application/x-x509-ca-cert");
+        DEFAULT_TYPES.put("dfac", "application/vnd.dreamfactory");
+        DEFAULT_TYPES.put("dgc", "application/x-dgc-compressed");
+        DEFAULT_TYPES.put("dib", "image/bmp");
+        DEFAULT_TYPES.put("dic", "text/x-c");
+        DEFAULT_TYPES.put("dir", "application/x-director");
+        DEFAULT_TYPES.put("dis", "application/vnd.mobius.dis");
+        DEFAULT_TYPES.put("dist", "application/octet-stream");
+        DEFAULT_TYPES.put("distz", "application/octet-stream");
+        DEFAULT_TYPES.put("djv", "image/vnd.djvu");
+        DEFAULT_TYPES.put("djvu", "image/vnd.djvu");
+        DEFAULT_TYPES.put("dll", "application/x-msdownload");
+        DEFAULT_TYPES.put("dmg", "application/x-apple-diskimage");
+        DEFAULT_TYPES.put("dmp", "application/vnd.tcpdump.pcap");
+        DEFAULT_TYPES.put("dms", "application/octet-stream");
+        DEFAULT_TYPES.put("dna", "application/vnd.dna");
+        DEFAULT_TYPES.put("doc", "application/msword");
+        DEFAULT_TYPES.put("docm", "application/vnd.ms-word.document.macroenabled.12");
+        DEFAULT_TYPES.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        DEFAULT_TYPES.put("dot", "application/msword");
+        DEFAULT_TYPES.put("dotm", "application/vnd.ms-word.template.macroenabled.12");
+        DEFAULT_TYPES.put("dotx", "application/vnd.openxmlformats-officedocument.wordprocessingml.template");
+        DEFAULT_TYPES.put("dp", "application/vnd.osgi.dp");
+        DEFAULT_TYPES.put("dpg", "application/vnd.dpgraph");
+        DEFAULT_TYPES.put("dra", "audio/vnd.dra");
+        DEFAULT_TYPES.put("dsc", "text/prs.lines.tag");
+        DEFAULT_TYPES.put("dssc", "application/dssc+der");
+        DEFAULT_TYPES.put("dtb", "application/x-dtbook+xml");
+        DEFAULT_TYPES.put("dtd", "application/xml-dtd");
+        DEFAULT_TYPES.put("dts", "audio/vnd.dts");
+        DEFAULT_TYPES.put("dtshd", "audio/vnd.dts.hd");
+        DEFAULT_TYPES.put("dump", "application/octet-stream");
+        DEFAULT_TYPES.put("dv", "video/x-dv");
+        DEFAULT_TYPES.put("dvb", "video/vnd.dvb.file");
+        DEFAULT_TYPES.put("dvi", "application/x-dvi");
+        DEFAULT_TYPES.put("dwf", "model/vnd.dwf");
+        DEFAULT_TYPES.put("dwg", "image/vnd.dwg");
+        DEFAULT_TYPES.put("dxf", "image/vnd.dxf");
+        DEFAULT_TYPES.put("dxp", "application/vnd.spotfire.dxp");
+        DEFAULT_TYPES.put("dxr", "application/x-director");
+        DEFAULT_TYPES.put("ecelp4800", "audio/vnd.nuera.ecelp4800");
+        DEFAULT_TYPES.put("ecelp7470", "audio/vnd.nuera.ecelp7470");
+        DEFAULT_TYPES.put("ecelp9600", "audio/vnd.nuera.ecelp9600");
+        DEFAULT_TYPES.put("ecma", "application/ecmascript");
+        DEFAULT_TYPES.put("edm", "application/vnd.novadigm.edm");
+        DEFAULT_TYPES.put("edx", "application/vnd.novadigm.edx");
+        DEFAULT_TYPES.put("efif", "application/vnd.picsel");
+        DEFAULT_TYPES.put("ei6", "application/vnd.pg.osasli");
+        DEFAULT_TYPES.put("elc", "application/octet-stream");
+        DEFAULT_TYPES.put("emf", "application/x-msmetafile");
+        DEFAULT_TYPES.put("eml", "message/rfc822");
+        DEFAULT_TYPES.put("emma", "application/emma+xml");
+        DEFAULT_TYPES.put("emz", "application/x-msmetafile");
+        DEFAULT_TYPES.put("eol", "audio/vnd.digital-winds");
+        DEFAULT_TYPES.put("eot", "application/vnd.ms-fontobject");
+        DEFAULT_TYPES.put("eps", "application/postscript");
+        DEFAULT_TYPES.put("epub", "application/epub+zip");
+        DEFAULT_TYPES.put("es3", "application/vnd.eszigno3+xml");
+        DEFAULT_TYPES.put("esa", "application/vnd.osgi.subsystem");
+        DEFAULT_TYPES.put("esf", "application/vnd.epson.esf");
+        DEFAULT_TYPES.put("et3", "application/vnd.eszigno3+xml");
+        DEFAULT_TYPES.put("etx", "text/x-setext");
+        DEFAULT_TYPES.put("eva", "application/x-eva");
+        DEFAULT_TYPES.put("evy", "application/x-envoy");
+        DEFAULT_TYPES.put("exe", "application/octet-stream");
+        DEFAULT_TYPES.put("exi", "application/exi");
+        DEFAULT_TYPES.put("ext", "application/vnd.novadigm.ext");
+        DEFAULT_TYPES.put("ez", "application/andrew-inset");
+        DEFAULT_TYPES.put("ez2", "application/vnd.ezpix-album");
+        DEFAULT_TYPES.put("ez3", "application/vnd.ezpix-package");
+        DEFAULT_TYPES.put("f", "text/x-fortran");
+        DEFAULT_TYPES.put("f4v", "video/x-f4v");
+        DEFAULT_TYPES.put("f77", "text/x-fortran");
+        DEFAULT_TYPES.put("f90", "text/x-fortran");
+        DEFAULT_TYPES.put("fbs", "image/vnd.fastbidsheet");
+        DEFAULT_TYPES.put("fcdt", "application/vnd.adobe.formscentral.fcdt");
+        DEFAULT_TYPES.put("fcs", "application/vnd.isac.fcs");
+        DEFAULT_TYPES.put("fdf", "application/vnd.fdf");
+        DEFAULT_TYPES.put("fe_launch", "application/vnd.denovo.fcselayout-link");
+        DEFAULT_TYPES.put("fg5", "application/vnd.fujitsu.oasysgp");
+        DEFAULT_TYPES.put("fgd", "application/x-director");
+        DEFAULT_TYPES.put("fh", "image/x-freehand");
+        DEFAULT_TYPES.put("fh4", "image/x-freehand");
+        DEFAULT_TYPES.put("fh5", "image/x-freehand");
+        DEFAULT_TYPES.put("fh7", "image/x-freehand");
+        DEFAULT_TYPES.put("fhc", "image/x-freehand");
+        DEFAULT_TYPES.put("fig", "application/x-xfig");
+        DEFAULT_TYPES.put("flac", "audio/flac");
+        DEFAULT_TYPES.put("fli", "video/x-fli");
+        DEFAULT_TYPES.put("flo", "application/vnd.micrografx.flo");
+        DEFAULT_TYPES.put("flv", "video/x-flv");
+        DEFAULT_TYPES.put("flw", "application/vnd.kde.kivio");
+        DEFAULT_TYPES.put("flx", "text/vnd.fmi.flexstor");
+        DEFAULT_TYPES.put("fly", "text/vnd.fly");
+        DEFAULT_TYPES.put("fm", "application/vnd.framemaker");
+        DEFAULT_TYPES.put("fnc", "application/vnd.frogans.fnc");
+        DEFAULT_TYPES.put("for", "text/x-fortran");
+        DEFAULT_TYPES.put("fpx", "image/vnd.fpx");
+        DEFAULT_TYPES.put("frame", "application/vnd.framemaker");
+        DEFAULT_TYPES.put("fsc", "application/vnd.fsc.weblaunch");
+        DEFAULT_TYPES.put("fst", "image/vnd.fst");
+        DEFAULT_TYPES.put("ftc", "application/vnd.fluxtime.clip");
+        DEFAULT_TYPES.put("fti", "application/vnd.anser-web-funds-transfer-initiation");
+        DEFAULT_TYPES.put("fvt", "video/vnd.fvt");
+        DEFAULT_TYPES.put("fxp", "application/vnd.adobe.fxp");
+        DEFAULT_TYPES.put("fxpl", "application/vnd.adobe.fxp");
+        DEFAULT_TYPES.put("fzs", "application/vnd.fuzzysheet");
+        DEFAULT_TYPES.put("g2w", "application/vnd.geoplan");
+        DEFAULT_TYPES.put("g3", "image/g3fax");
+        DEFAULT_TYPES.put("g3w", "application/vnd.geospace");
+        DEFAULT_TYPES.put("gac", "application/vnd.groove-account");
+        DEFAULT_TYPES.put("gam", "application/x-tads");
+        DEFAULT_TYPES.put("gbr", "application/rpki-ghostbusters");
+        DEFAULT_TYPES.put("gca", "application/x-gca-compressed");
+        DEFAULT_TYPES.put("gdl", "model/vnd.gdl");
+        DEFAULT_TYPES.put("geo", "application/vnd.dynageo");
+        DEFAULT_TYPES.put("gex", "application/vnd.geometry-explorer");
+        DEFAULT_TYPES.put("ggb", "application/vnd.geogebra.file");
+        DEFAULT_TYPES.put("ggt", "application/vnd.geogebra.tool");
+        DEFAULT_TYPES.put("ghf", "application/vnd.groove-help");
+        DEFAULT_TYPES.put("gif", "image/gif");
+        DEFAULT_TYPES.put("gim", "application/vnd.groove-identity-message");
+        DEFAULT_TYPES.put("gml", "application/gml+xml");
+        DEFAULT_TYPES.put("gmx", "application/vnd.gmx");
+        DEFAULT_TYPES.put("gnumeric", "application/x-gnumeric");
+        DEFAULT_TYPES.put("gph", "application/vnd.flographit");
+        DEFAULT_TYPES.put("gpx", "application/gpx+xml");
+        DEFAULT_TYPES.put("gqf", "application/vnd.grafeq");
+        DEFAULT_TYPES.put("gqs", "application/vnd.grafeq");
+        DEFAULT_TYPES.put("gram", "application/srgs");
+        DEFAULT_TYPES.put("gramps", "application/x-gramps-xml");
+        DEFAULT_TYPES.put("gre", "application/vnd.geometry-explorer");
+        DEFAULT_TYPES.put("grv", "application/vnd.groove-injector");
+        DEFAULT_TYPES.put("grxml", "application/srgs+xml");
+        DEFAULT_TYPES.put("gsf", "application/x-font-ghostscript");
+        DEFAULT_TYPES.put("gtar", "application/x-gtar");
+        DEFAULT_TYPES.put("gtm", "application/vnd.groove-tool-message");
+        DEFAULT_TYPES.put("gtw", "model/vnd.gtw");
+        DEFAULT_TYPES.put("gv", "text/vnd.graphviz");
+        DEFAULT_TYPES.put("gxf", "application/gxf");
+        DEFAULT_TYPES.put("gxt", "application/vnd.geonext");
+        DEFAULT_TYPES.put("gz", "application/x-gzip");
+        DEFAULT_TYPES.put("h", "text/x-c");
+        DEFAULT_TYPES.put("h261", "video/h261");
+        DEFAULT_TYPES.put("h263", "video/h263");
+        DEFAULT_TYPES.put("h264", "video/h264");
+        DEFAULT_TYPES.put("hal", "application/vnd.hal+xml");
+        DEFAULT_TYPES.put("hbci", "application/vnd.hbci");
+        DEFAULT_TYPES.put("hdf", "application/x-hdf");
+        DEFAULT_TYPES.put("hh", "text/x-c");
+        DEFAULT_TYPES.put("hlp", "application/winhlp");
+        DEFAULT_TYPES.put("hpgl", "application/vnd.hp-hpgl");
+        DEFAULT_TYPES.put("hpid", "application/vnd.hp-hpid");
+        DEFAULT_TYPES.put("hps", "application/vnd.hp-hps");
+        DEFAULT_TYPES.put("hqx", "application/mac-binhex40");
+        DEFAULT_TYPES.put("htc", "text/x-component");
+        DEFAULT_TYPES.put("htke", "application/vnd.kenameaapp");
+        DEFAULT_TYPES.put("htm", "text/html");
+        DEFAULT_TYPES.put("html", "text/html");
+        DEFAULT_TYPES.put("hvd", "application/vnd.yamaha.hv-dic");
+        DEFAULT_TYPES.put("hvp", "application/vnd.yamaha.hv-voice");
+        DEFAULT_TYPES.put("hvs", "application/vnd.yamaha.hv-script");
+        DEFAULT_TYPES.put("i2g", "application/vnd.intergeo");
+        DEFAULT_TYPES.put("icc", "application/vnd.iccprofile");
+        DEFAULT_TYPES.put("ice", "x-conference/x-cooltalk");
+        DEFAULT_TYPES.put("icm", "application/vnd.iccprofile");
+        DEFAULT_TYPES.put("ico", "image/x-icon");
+        DEFAULT_TYPES.put("ics", "text/calendar");
+        DEFAULT_TYPES.put("ief", "image/ief");
+        DEFAULT_TYPES.put("ifb", "text/calendar");
+        DEFAULT_TYPES.put("ifm", "application/vnd.shana.informed.formdata");
+        DEFAULT_TYPES.put("iges", "model/iges");
+        DEFAULT_TYPES.put("igl", "application/vnd.igloader");
+        DEFAULT_TYPES.put("igm", "application/vnd.insors.igm");
+        DEFAULT_TYPES.put("igs", "model/iges");
+        DEFAULT_TYPES.put("igx", "application/vnd.micrografx.igx");
+        DEFAULT_TYPES.put("iif", "application/vnd.shana.informed.interchange");
+        DEFAULT_TYPES.put("imp", "application/vnd.accpac.simply.imp");
+        DEFAULT_TYPES.put("ims", "application/vnd.ms-ims");
+        DEFAULT_TYPES.put("in", "text/plain");
+        DEFAULT_TYPES.put("ink", "application/inkml+xml");
+        DEFAULT_TYPES.put("inkml", "application/inkml+xml");
+        DEFAULT_TYPES.put("install", "application/x-install-instructions");
+        DEFAULT_TYPES.put("iota", "application/vnd.astraea-software.iota");
+        DEFAULT_TYPES.put("ipfix", "application/ipfix");
+        DEFAULT_TYPES.put("ipk", "application/vnd.shana.informed.package");
+        DEFAULT_TYPES.put("irm", "application/vnd.ibm.rights-management");
+        DEFAULT_TYPES.put("irp", "application/vnd.irepository.package+xml");
+        DEFAULT_TYPES.put("iso", "application/x-iso9660-image");
+        DEFAULT_TYPES.put("itp", "application/vnd.shana.informed.formtemplate");
+        DEFAULT_TYPES.put("ivp", "application/vnd.immervision-ivp");
+        DEFAULT_TYPES.put("ivu", "application/vnd.immervision-ivu");
+        DEFAULT_TYPES.put("jad", "text/vnd.sun.j2me.app-descriptor");
+        DEFAULT_TYPES.put("jam", "application/vnd.jam");
+        DEFAULT_TYPES.put("jar", "application/java-archive");
+        DEFAULT_TYPES.put("java", "text/x-java-source");
+        DEFAULT_TYPES.put("jisp", "application/vnd.jisp");
+        DEFAULT_TYPES.put("jlt", "application/vnd.hp-jlyt");
+        DEFAULT_TYPES.put("jnlp", "application/x-java-jnlp-file");
+        DEFAULT_TYPES.put("joda", "application/vnd.joost.joda-archive");
+        DEFAULT_TYPES.put("jpe", "image/jpeg");
+        DEFAULT_TYPES.put("jpeg", "image/jpeg");
+        DEFAULT_TYPES.put("jpg", "image/jpeg");
+        DEFAULT_TYPES.put("jpgm", "video/jpm");
+        DEFAULT_TYPES.put("jpgv", "video/jpeg");
+        DEFAULT_TYPES.put("jpm", "video/jpm");
+        DEFAULT_TYPES.put("js", "application/javascript");
+        DEFAULT_TYPES.put("jsf", "text/plain");
+        DEFAULT_TYPES.put("json", "application/json");
+        DEFAULT_TYPES.put("jsonml", "application/jsonml+json");
+        DEFAULT_TYPES.put("jspf", "text/plain");
+        DEFAULT_TYPES.put("kar", "audio/midi");
+        DEFAULT_TYPES.put("karbon", "application/vnd.kde.karbon");
+        DEFAULT_TYPES.put("kfo", "application/vnd.kde.kformula");
+        DEFAULT_TYPES.put("kia", "application/vnd.kidspiration");
+        DEFAULT_TYPES.put("kml", "application/vnd.google-earth.kml+xml");
+        DEFAULT_TYPES.put("kmz", "application/vnd.google-earth.kmz");
+        DEFAULT_TYPES.put("kne", "application/vnd.kinar");
+        DEFAULT_TYPES.put("knp", "application/vnd.kinar");
+        DEFAULT_TYPES.put("kon", "application/vnd.kde.kontour");
+        DEFAULT_TYPES.put("kpr", "application/vnd.kde.kpresenter");
+        DEFAULT_TYPES.put("kpt", "application/vnd.kde.kpresenter");
+        DEFAULT_TYPES.put("kpxx", "application/vnd.ds-keypoint");
+        DEFAULT_TYPES.put("ksp", "application/vnd.kde.kspread");
+        DEFAULT_TYPES.put("ktr", "application/vnd.kahootz");
+        DEFAULT_TYPES.put("ktx", "image/ktx");
+        DEFAULT_TYPES.put("ktz", "application/vnd.kahootz");
+        DEFAULT_TYPES.put("kwd", "application/vnd.kde.kword");
+        DEFAULT_TYPES.put("kwt", "application/vnd.kde.kword");
+        DEFAULT_TYPES.put("lasxml", "application/vnd.las.las+xml");
+        DEFAULT_TYPES.put("latex", "application/x-latex");
+        DEFAULT_TYPES.put("lbd", "application/vnd.llamagraphics.life-balance.desktop");
+        DEFAULT_TYPES.put("lbe", "application/vnd.llamagraphics.life-balance.exchange+xml");
+        DEFAULT_TYPES.put("les", "application/vnd.hhe.lesson-player");
+        DEFAULT_TYPES.put("lha", "application/x-lzh-compressed");
+        DEFAULT_TYPES.put("link66", "application/vnd.route66.link66+xml");
+        DEFAULT_TYPES.put("list", "text/plain");
+        DEFAULT_TYPES.put("list3820", "application/vnd.ibm.modcap");
+        DEFAULT_TYPES.put("listafp", "application/vnd.ibm.modcap");
+        DEFAULT_TYPES.put("lnk", "application/x-ms-shortcut");
+        DEFAULT_TYPES.put("log", "text/plain");
+        DEFAULT_TYPES.put("lostxml", "application/lost+xml");
+        DEFAULT_TYPES.put("lrf", "application/octet-stream");
+        DEFAULT_TYPES.put("lrm", "application/vnd.ms-lrm");
+        DEFAULT_TYPES.put("ltf", "application/vnd.frogans.ltf");
+        DEFAULT_TYPES.put("lvp", "audio/vnd.lucent.voice");
+        DEFAULT_TYPES.put("lwp", "application/vnd.lotus-wordpro");
+        DEFAULT_TYPES.put("lzh", "application/x-lzh-compressed");
+        DEFAULT_TYPES.put("m13", "application/x-msmediaview");
+        DEFAULT_TYPES.put("m14", "application/x-msmediaview");
+        DEFAULT_TYPES.put("m1v", "video/mpeg");
+        DEFAULT_TYPES.put("m21", "application/mp21");
+        DEFAULT_TYPES.put("m2a", "audio/mpeg");
+        DEFAULT_TYPES.put("m2v", "video/mpeg");
+        DEFAULT_TYPES.put("m3a", "audio/mpeg");
+        DEFAULT_TYPES.put("m3u", "audio/x-mpegurl");
+        DEFAULT_TYPES.put("m3u8", "application/vnd.apple.mpegurl");
+        DEFAULT_TYPES.put("m4a", "audio/mp4");
+        DEFAULT_TYPES.put("m4b", "audio/mp4");
+        DEFAULT_TYPES.put("m4r", "audio/mp4");
+        DEFAULT_TYPES.put("m4u", "video/vnd.mpegurl");
+        DEFAULT_TYPES.put("m4v", "video/mp4");
+        DEFAULT_TYPES.put("ma", "application/mathematica");
+        DEFAULT_TYPES.put("mac", "image/x-macpaint");
+        DEFAULT_TYPES.put("mads", "application/mads+xml");
+        DEFAULT_TYPES.put("mag", "application/vnd.ecowin.chart");
+        DEFAULT_TYPES.put("maker", "application/vnd.framemaker");
+        DEFAULT_TYPES.put("man", "text/troff");
+        DEFAULT_TYPES.put("mar", "application/octet-stream");
+        DEFAULT_TYPES.put("mathml", "application/mathml+xml");
+        DEFAULT_TYPES.put("mb", "application/mathematica");
+        DEFAULT_TYPES.put("mbk", "application/vnd.mobius.mbk");
+        DEFAULT_TYPES.put("mbox", "application/mbox");
+        DEFAULT_TYPES.put("mc1", "application/vnd.medcalcdata");
+        DEFAULT_TYPES.put("mcd", "application/vnd.mcd");
+        DEFAULT_TYPES.put("mcurl", "text/vnd.curl.mcurl");
+        DEFAULT_TYPES.put("mdb", "application/x-msaccess");
+        DEFAULT_TYPES.put("mdi", "image/vnd.ms-modi");
+        DEFAULT_TYPES.put("me", "text/troff");
+        DEFAULT_TYPES.put("mesh", "model/mesh");
+        DEFAULT_TYPES.put("meta4", "application/metalink4+xml");
+        DEFAULT_TYPES.put("metalink", "application/metalink+xml");
+        DEFAULT_TYPES.put("mets", "application/mets+xml");
+        DEFAULT_TYPES.put("mfm", "application/vnd.mfmp");
+        DEFAULT_TYPES.put("mft", "application/rpki-manifest");
+        DEFAULT_TYPES.put("mgp", "application/vnd.osgeo.mapguide.package");
+        DEFAULT_TYPES.put("mgz", "application/vnd.proteus.magazine");
+        DEFAULT_TYPES.put("mid", "audio/midi");
+        DEFAULT_TYPES.put("midi", "audio/midi");
+        DEFAULT_TYPES.put("mie", "application/x-mie");
+        DEFAULT_TYPES.put("mif", "application/x-mif");
+        DEFAULT_TYPES.put("mime", "message/rfc822");
+        DEFAULT_TYPES.put("mj2", "video/mj2");
+        DEFAULT_TYPES.put("mjp2", "video/mj2");
+        DEFAULT_TYPES.put("mk3d", "video/x-matroska");
+        DEFAULT_TYPES.put("mka", "audio/x-matroska");
+        DEFAULT_TYPES.put("mks", "video/x-matroska");
+        DEFAULT_TYPES.put("mkv", "video/x-matroska");
+        DEFAULT_TYPES.put("mlp", "application/vnd.dolby.mlp");
+        DEFAULT_TYPES.put("mmd", "application/vnd.chipnuts.karaoke-mmd");
+        DEFAULT_TYPES.put("mmf", "application/vnd.smaf");
+        DEFAULT_TYPES.put("mmr", "image/vnd.fujixerox.edmics-mmr");
+        DEFAULT_TYPES.put("mng", "video/x-mng");
+        DEFAULT_TYPES.put("mny", "application/x-msmoney");
+        DEFAULT_TYPES.put("mobi", "application/x-mobipocket-ebook");
+        DEFAULT_TYPES.put("mods", "application/mods+xml");
+        DEFAULT_TYPES.put("mov", "video/quicktime");
+        DEFAULT_TYPES.put("movie", "video/x-sgi-movie");
+        DEFAULT_TYPES.put("mp1", "audio/mpeg");
+        DEFAULT_TYPES.put("mp2", "audio/mpeg");
+        DEFAULT_TYPES.put("mp21", "application/mp21");
+        DEFAULT_TYPES.put("mp2a", "audio/mpeg");
+        DEFAULT_TYPES.put("mp3", "audio/mpeg");
+        DEFAULT_TYPES.put("mp4", "video/mp4");
+        DEFAULT_TYPES.put("mp4a", "audio/mp4");
+        DEFAULT_TYPES.put("mp4s", "application/mp4");
+        DEFAULT_TYPES.put("mp4v", "video/mp4");
+        DEFAULT_TYPES.put("mpa", "audio/mpeg");
+        DEFAULT_TYPES.put("mpc", "application/vnd.mophun.certificate");
+        DEFAULT_TYPES.put("mpe", "video/mpeg");
+        DEFAULT_TYPES.put("mpeg", "video/mpeg");
+        DEFAULT_TYPES.put("mpega", "audio/x-mpeg");
+        DEFAULT_TYPES.put("mpg", "video/mpeg");
+        DEFAULT_TYPES.put("mpg4", "video/mp4");
+        DEFAULT_TYPES.put("mpga", "audio/mpeg");
+        DEFAULT_TYPES.put("mpkg", "application/vnd.apple.installer+xml");
+        DEFAULT_TYPES.put("mpm", "application/vnd.blueice.multipass");
+        DEFAULT_TYPES.put("mpn", "application/vnd.mophun.application");
+        DEFAULT_TYPES.put("mpp", "application/vnd.ms-project");
+        DEFAULT_TYPES.put("mpt", "application/vnd.ms-project");
+        DEFAULT_TYPES.put("mpv2", "video/mpeg2");
+        DEFAULT_TYPES.put("mpy", "application/vnd.ibm.minipay");
+        DEFAULT_TYPES.put("mqy", "application/vnd.mobius.mqy");
+        DEFAULT_TYPES.put("mrc", "application/marc");
+        DEFAULT_TYPES.put("mrcx", "application/marcxml+xml");
+        DEFAULT_TYPES.put("ms", "text/troff");
+        DEFAULT_TYPES.put("mscml", "application/mediaservercontrol+xml");
+        DEFAULT_TYPES.put("mseed", "application/vnd.fdsn.mseed");
+        DEFAULT_TYPES.put("mseq", "application/vnd.mseq");
+        DEFAULT_TYPES.put("msf", "application/vnd.epson.msf");
+        DEFAULT_TYPES.put("msh", "model/mesh");
+        DEFAULT_TYPES.put("msi", "application/x-msdownload");
+        DEFAULT_TYPES.put("msl", "application/vnd.mobius.msl");
+        DEFAULT_TYPES.put("msty", "application/vnd.muvee.style");
+        DEFAULT_TYPES.put("mts", "model/vnd.mts");
+        DEFAULT_TYPES.put("mus", "application/vnd.musician");
+        DEFAULT_TYPES.put("musicxml", "application/vnd.recordare.musicxml+xml");
+        DEFAULT_TYPES.put("mvb", "application/x-msmediaview");
+        DEFAULT_TYPES.put("mwf", "application/vnd.mfer");
+        DEFAULT_TYPES.put("mxf", "application/mxf");
+        DEFAULT_TYPES.put("mxl", "application/vnd.recordare.musicxml");
+        DEFAULT_TYPES.put("mxml", "application/xv+xml");
+        DEFAULT_TYPES.put("mxs", "application/vnd.triscape.mxs");
+        DEFAULT_TYPES.put("mxu", "video/vnd.mpegurl");
+        DEFAULT_TYPES.put("n-gage", "application/vnd.nokia.n-gage.symbian.install");
+        DEFAULT_TYPES.put("n3", "text/n3");
+        DEFAULT_TYPES.put("nb", "application/mathematica");
+        DEFAULT_TYPES.put("nbp", "application/vnd.wolfram.player");
+        DEFAULT_TYPES.put("nc", "application/x-netcdf");
+        DEFAULT_TYPES.put("ncx", "application/x-dtbncx+xml");
+        DEFAULT_TYPES.put("nfo", "text/x-nfo");
+        DEFAULT_TYPES.put("ngdat", "application/vnd.nokia.n-gage.data");
+        DEFAULT_TYPES.put("nitf", "application/vnd.nitf");
+        DEFAULT_TYPES.put("nlu", "application/vnd.neurolanguage.nlu");
+        DEFAULT_TYPES.put("nml", "application/vnd.enliven");
+        DEFAULT_TYPES.put("nnd", "application/vnd.noblenet-directory");
+        DEFAULT_TYPES.put("nns", "application/vnd.noblenet-sealer");
+        DEFAULT_TYPES.put("nnw", "application/vnd.noblenet-web");
+        DEFAULT_TYPES.put("npx", "image/vnd.net-fpx");
+        DEFAULT_TYPES.put("nsc", "application/x-conference");
+        DEFAULT_TYPES.put("nsf", "application/vnd.lotus-notes");
+        DEFAULT_TYPES.put("ntf", "application/vnd.nitf");
+        DEFAULT_TYPES.put("nzb", "application/x-nzb");
+        DEFAULT_TYPES.put("oa2", "application/vnd.fujitsu.oasys2");
+        DEFAULT_TYPES.put("oa3", "application/vnd.fujitsu.oasys3");
+        DEFAULT_TYPES.put("oas", "application/vnd.fujitsu.oasys");
+        DEFAULT_TYPES.put("obd", "application/x-msbinder");
+        DEFAULT_TYPES.put("obj", "application/x-tgif");
+        DEFAULT_TYPES.put("oda", "application/oda");
+        DEFAULT_TYPES.put("odb", "application/vnd.oasis.opendocument.database");
+        DEFAULT_TYPES.put("odc", "application/vnd.oasis.opendocument.chart");
+        DEFAULT_TYPES.put("odf", "application/vnd.oasis.opendocument.formula");
+        DEFAULT_TYPES.put("odft", "application/vnd.oasis.opendocument.formula-template");
+        DEFAULT_TYPES.put("odg", "application/vnd.oasis.opendocument.graphics");
+        DEFAULT_TYPES.put("odi", "application/vnd.oasis.opendocument.image");
+        DEFAULT_TYPES.put("odm", "application/vnd.oasis.opendocument.text-master");
+        DEFAULT_TYPES.put("odp", "application/vnd.oasis.opendocument.presentation");
+        DEFAULT_TYPES.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+        DEFAULT_TYPES.put("odt", "application/vnd.oasis.opendocument.text");
+        DEFAULT_TYPES.put("oga", "audio/ogg");
+        DEFAULT_TYPES.put("ogg", "audio/ogg");
+        DEFAULT_TYPES.put("ogv", "video/ogg");
+        DEFAULT_TYPES.put("ogx", "application/ogg");
+        DEFAULT_TYPES.put("omdoc", "application/omdoc+xml");
+        DEFAULT_TYPES.put("onepkg", "application/onenote");
+        DEFAULT_TYPES.put("onetmp", "application/onenote");
+        DEFAULT_TYPES.put("onetoc", "application/onenote");
+        DEFAULT_TYPES.put("onetoc2", "application/onenote");
+        DEFAULT_TYPES.put("opf", "application/oebps-package+xml");
+        DEFAULT_TYPES.put("opml", "text/x-opml");
+        DEFAULT_TYPES.put("oprc", "application/vnd.palm");
+        DEFAULT_TYPES.put("org", "application/vnd.lotus-organizer");
+        DEFAULT_TYPES.put("osf", "application/vnd.yamaha.openscoreformat");
+        DEFAULT_TYPES.put("osfpvg", "application/vnd.yamaha.openscoreformat.osfpvg+xml");
+        DEFAULT_TYPES.put("otc", "application/vnd.oasis.opendocument.chart-template");
+        DEFAULT_TYPES.put("otf", "application/x-font-otf");
+        DEFAULT_TYPES.put("otg", "application/vnd.oasis.opendocument.graphics-template");
+        DEFAULT_TYPES.put("oth", "application/vnd.oasis.opendocument.text-web");
+        DEFAULT_TYPES.put("oti", "application/vnd.oasis.opendocument.image-template");
+        DEFAULT_TYPES.put("otp", "application/vnd.oasis.opendocument.presentation-template");
+        DEFAULT_TYPES.put("ots", "application/vnd.oasis.opendocument.spreadsheet-template");
+        DEFAULT_TYPES.put("ott", "application/vnd.oasis.opendocument.text-template");
+        DEFAULT_TYPES.put("oxps", "application/oxps");
+        DEFAULT_TYPES.put("oxt", "application/vnd.openofficeorg.extension");
+        DEFAULT_TYPES.put("p", "text/x-pascal");
+        DEFAULT_TYPES.put("p10", "application/pkcs10");
+        DEFAULT_TYPES.put("p12", "application/x-pkcs12");
+        DEFAULT_TYPES.put("p7b", "application/x-pkcs7-certificates");
+        DEFAULT_TYPES.put("p7c", "application/pkcs7-mime");
+        DEFAULT_TYPES.put("p7m", "application/pkcs7-mime");
+        DEFAULT_TYPES.put("p7r", "application/x-pkcs7-certreqresp");
+        DEFAULT_TYPES.put("p7s", "application/pkcs7-signature");
+        DEFAULT_TYPES.put("p8", "application/pkcs8");
+        DEFAULT_TYPES.put("pas", "text/x-pascal");
+        DEFAULT_TYPES.put("paw", "application/vnd.pawaafile");
+        DEFAULT_TYPES.put("pbd", "application/vnd.powerbuilder6");
+        DEFAULT_TYPES.put("pbm", "image/x-portable-bitmap");
+        DEFAULT_TYPES.put("pcap", "application/vnd.tcpdump.pcap");
+        DEFAULT_TYPES.put("pcf", "application/x-font-pcf");
+        DEFAULT_TYPES.put("pcl", "application/vnd.hp-pcl");
+        DEFAULT_TYPES.put("pclxl", "application/vnd.hp-pclxl");
+        DEFAULT_TYPES.put("pct", "image/pict");
+        DEFAULT_TYPES.put("pcurl", "application/vnd.curl.pcurl");
+        DEFAULT_TYPES.put("pcx", "image/x-pcx");
+        DEFAULT_TYPES.put("pdb", "application/vnd.palm");
+        DEFAULT_TYPES.put("pdf", "application/pdf");
+        DEFAULT_TYPES.put("pfa", "application/x-font-type1");
+        DEFAULT_TYPES.put("pfb", "application/x-font-type1");
+        DEFAULT_TYPES.put("pfm", "application/x-font-type1");
+        DEFAULT_TYPES.put("pfr", "application/font-tdpfr");
+        DEFAULT_TYPES.put("pfx", "application/x-pkcs12");
+        DEFAULT_TYPES.put("pgm", "image/x-portable-graymap");
+        DEFAULT_TYPES.put("pgn", "application/x-chess-pgn");
+        DEFAULT_TYPES.put("pgp", "application/pgp-encrypted");
+        DEFAULT_TYPES.put("pic", "image/pict");
+        DEFAULT_TYPES.put("pict", "image/pict");
+        DEFAULT_TYPES.put("pkg", "application/octet-stream");
+        DEFAULT_TYPES.put("pki", "application/pkixcmp");
+        DEFAULT_TYPES.put("pkipath", "application/pkix-pkipath");
+        DEFAULT_TYPES.put("plb", "application/vnd.3gpp.pic-bw-large");
+        DEFAULT_TYPES.put("plc", "application/vnd.mobius.plc");
+        DEFAULT_TYPES.put("plf", "application/vnd.pocketlearn");
+        DEFAULT_TYPES.put("pls", "audio/x-scpls");
+        DEFAULT_TYPES.put("pml", "application/vnd.ctc-posml");
+        DEFAULT_TYPES.put("png", "image/png");
+        DEFAULT_TYPES.put("pnm", "image/x-portable-anymap");
+        DEFAULT_TYPES.put("pnt", "image/x-macpaint");
+        DEFAULT_TYPES.put("portpkg", "application/vnd.macports.portpkg");
+        DEFAULT_TYPES.put("pot", "application/vnd.ms-powerpoint");
+        DEFAULT_TYPES.put("potm", "application/vnd.ms-powerpoint.template.macroenabled.12");
+        DEFAULT_TYPES.put("potx", "application/vnd.openxmlformats-officedocument.presentationml.template");
+        DEFAULT_TYPES.put("ppam", "application/vnd.ms-powerpoint.addin.macroenabled.12");
+        DEFAULT_TYPES.put("ppd", "application/vnd.cups-ppd");
+        DEFAULT_TYPES.put("ppm", "image/x-portable-pixmap");
+        DEFAULT_TYPES.put("pps", "application/vnd.ms-powerpoint");
+        DEFAULT_TYPES.put("ppsm", "application/vnd.ms-powerpoint.slideshow.macroenabled.12");
+        DEFAULT_TYPES.put("ppsx", "application/vnd.openxmlformats-officedocument.presentationml.slideshow");
+        DEFAULT_TYPES.put("ppt", "application/vnd.ms-powerpoint");
+        DEFAULT_TYPES.put("pptm", "application/vnd.ms-powerpoint.presentation.macroenabled.12");
+        DEFAULT_TYPES.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        DEFAULT_TYPES.put("pqa", "application/vnd.palm");
+        DEFAULT_TYPES.put("prc", "application/x-mobipocket-ebook");
+        DEFAULT_TYPES.put("pre", "application/vnd.lotus-freelance");
+        DEFAULT_TYPES.put("prf", "application/pics-rules");
+        DEFAULT_TYPES.put("ps", "application/postscript");
+        DEFAULT_TYPES.put("psb", "application/vnd.3gpp.pic-bw-small");
+        DEFAULT_TYPES.put("psd", "image/vnd.adobe.photoshop");
+        DEFAULT_TYPES.put("psf", "application/x-font-linux-psf");
+        DEFAULT_TYPES.put("pskcxml", "application/pskc+xml");
+        DEFAULT_TYPES.put("ptid", "application/vnd.pvi.ptid1");
+        DEFAULT_TYPES.put("pub", "application/x-mspublisher");
+        DEFAULT_TYPES.put("pvb", "application/vnd.3gpp.pic-bw-var");
+        DEFAULT_TYPES.put("pwn", "application/vnd.3m.post-it-notes");
+        DEFAULT_TYPES.put("pya", "audio/vnd.ms-playready.media.pya");
+        DEFAULT_TYPES.put("pyv", "video/vnd.ms-playready.media.pyv");
+        DEFAULT_TYPES.put("qam", "application/vnd.epson.quickanime");
+        DEFAULT_TYPES.put("qbo", "application/vnd.intu.qbo");
+        DEFAULT_TYPES.put("qfx", "application/vnd.intu.qfx");
+        DEFAULT_TYPES.put("qps", "application/vnd.publishare-delta-tree");
+        DEFAULT_TYPES.put("qt", "video/quicktime");
+        DEFAULT_TYPES.put("qti", "image/x-quicktime");
+        DEFAULT_TYPES.put("qtif", "image/x-quicktime");
+        DEFAULT_TYPES.put("qwd", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("qwt", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("qxb", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("qxd", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("qxl", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("qxt", "application/vnd.quark.quarkxpress");
+        DEFAULT_TYPES.put("ra", "audio/x-pn-realaudio");
+        DEFAULT_TYPES.put("ram", "audio/x-pn-realaudio");
+        DEFAULT_TYPES.put("rar", "application/x-rar-compressed");
+        DEFAULT_TYPES.put("ras", "image/x-cmu-raster");
+        DEFAULT_TYPES.put("rcprofile", "application/vnd.ipunplugged.rcprofile");
+        DEFAULT_TYPES.put("rdf", "application/rdf+xml");
+        DEFAULT_TYPES.put("rdz", "application/vnd.data-vision.rdz");
+        DEFAULT_TYPES.put("rep", "application/vnd.businessobjects");
+        DEFAULT_TYPES.put("res", "application/x-dtbresource+xml");
+        DEFAULT_TYPES.put("rgb", "image/x-rgb");
+        DEFAULT_TYPES.put("rif", "application/reginfo+xml");
+        DEFAULT_TYPES.put("rip", "audio/vnd.rip");
+        DEFAULT_TYPES.put("ris", "application/x-research-info-systems");
+        DEFAULT_TYPES.put("rl", "application/resource-lists+xml");
+        DEFAULT_TYPES.put("rlc", "image/vnd.fujixerox.edmics-rlc");
+        DEFAULT_TYPES.put("rld", "application/resource-lists-diff+xml");
+        DEFAULT_TYPES.put("rm", "application/vnd.rn-realmedia");
+        DEFAULT_TYPES.put("rmi", "audio/midi");
+        DEFAULT_TYPES.put("rmp", "audio/x-pn-realaudio-plugin");
+        DEFAULT_TYPES.put("rms", "application/vnd.jcp.javame.midlet-rms");
+        DEFAULT_TYPES.put("rmvb", "application/vnd.rn-realmedia-vbr");
+        DEFAULT_TYPES.put("rnc", "application/relax-ng-compact-syntax");
+        DEFAULT_TYPES.put("roa", "application/rpki-roa");
+        DEFAULT_TYPES.put("roff", "text/troff");
+        DEFAULT_TYPES.put("rp9", "application/vnd.cloanto.rp9");
+        DEFAULT_TYPES.put("rpss", "application/vnd.nokia.radio-presets");
+        DEFAULT_TYPES.put("rpst", "application/vnd.nokia.radio-preset");
+        DEFAULT_TYPES.put("rq", "application/sparql-query");
+        DEFAULT_TYPES.put("rs", "application/rls-services+xml");
+        DEFAULT_TYPES.put("rsd", "application/rsd+xml");
+        DEFAULT_TYPES.put("rss", "application/rss+xml");
+        DEFAULT_TYPES.put("rtf", "application/rtf");
+        DEFAULT_TYPES.put("rtx", "text/richtext");
+        DEFAULT_TYPES.put("s", "text/x-asm");
+        DEFAULT_TYPES.put("s3m", "audio/s3m");
+        DEFAULT_TYPES.put("saf", "application/vnd.yamaha.smaf-audio");
+        DEFAULT_TYPES.put("sbml", "application/sbml+xml");
+        DEFAULT_TYPES.put("sc", "application/vnd.ibm.secure-container");
+        DEFAULT_TYPES.put("scd", "application/x-msschedule");
+        DEFAULT_TYPES.put("scm", "application/vnd.lotus-screencam");
+        DEFAULT_TYPES.put("scq", "application/scvp-cv-request");
+        DEFAULT_TYPES.put("scs", "application/scvp-cv-response");
+        DEFAULT_TYPES.put("scurl", "text/vnd.curl.scurl");
+        DEFAULT_TYPES.put("sda", "application/vnd.stardivision.draw");
+        DEFAULT_TYPES.put("sdc", "application/vnd.stardivision.calc");
+        DEFAULT_TYPES.put("sdd", "application/vnd.stardivision.impress");
+        DEFAULT_TYPES.put("sdkd", "application/vnd.solent.sdkm+xml");
+        DEFAULT_TYPES.put("sdkm", "application/vnd.solent.sdkm+xml");
+        DEFAULT_TYPES.put("sdp", "application/sdp");
+        DEFAULT_TYPES.put("sdw", "application/vnd.stardivision.writer");
+        DEFAULT_TYPES.put("see", "application/vnd.seemail");
+        DEFAULT_TYPES.put("seed", "application/vnd.fdsn.seed");
+        DEFAULT_TYPES.put("sema", "application/vnd.sema");
+        DEFAULT_TYPES.put("semd", "application/vnd.semd");
+        DEFAULT_TYPES.put("semf", "application/vnd.semf");
+        DEFAULT_TYPES.put("ser", "application/java-serialized-object");
+        DEFAULT_TYPES.put("setpay", "application/set-payment-initiation");
+        DEFAULT_TYPES.put("setreg", "application/set-registration-initiation");
+        DEFAULT_TYPES.put("sfd-hdstx", "application/vnd.hydrostatix.sof-data");
+        DEFAULT_TYPES.put("sfs", "application/vnd.spotfire.sfs");
+        DEFAULT_TYPES.put("sfv", "text/x-sfv");
+        DEFAULT_TYPES.put("sgi", "image/sgi");
+        DEFAULT_TYPES.put("sgl", "application/vnd.stardivision.writer-global");
+        DEFAULT_TYPES.put("sgm", "text/sgml");
+        DEFAULT_TYPES.put("sgml", "text/sgml");
+        DEFAULT_TYPES.put("sh", "application/x-sh");
+        DEFAULT_TYPES.put("shar", "application/x-shar");
+        DEFAULT_TYPES.put("shf", "application/shf+xml");
+        DEFAULT_TYPES.put("shtml", "text/x-server-parsed-html");
+        DEFAULT_TYPES.put("sid", "image/x-mrsid-image");
+        DEFAULT_TYPES.put("sig", "application/pgp-signature");
+        DEFAULT_TYPES.put("sil", "audio/silk");
+        DEFAULT_TYPES.put("silo", "model/mesh");
+        DEFAULT_TYPES.put("sis", "application/vnd.symbian.install");
+        DEFAULT_TYPES.put("sisx", "application/vnd.symbian.install");
+        DEFAULT_TYPES.put("sit", "application/x-stuffit");
+        DEFAULT_TYPES.put("sitx", "application/x-stuffitx");
+        DEFAULT_TYPES.put("skd", "application/vnd.koan");
+        DEFAULT_TYPES.put("skm", "application/vnd.koan");
+        DEFAULT_TYPES.put("skp", "application/vnd.koan");
+        DEFAULT_TYPES.put("skt", "application/vnd.koan");
+        DEFAULT_TYPES.put("sldm", "application/vnd.ms-powerpoint.slide.macroenabled.12");
+        DEFAULT_TYPES.put("sldx", "application/vnd.openxmlformats-officedocument.presentationml.slide");
+        DEFAULT_TYPES.put("slt", "application/vnd.epson.salt");
+        DEFAULT_TYPES.put("sm", "application/vnd.stepmania.stepchart");
+        DEFAULT_TYPES.put("smf", "application/vnd.stardivision.math");
+        DEFAULT_TYPES.put("smi", "application/smil+xml");
+        DEFAULT_TYPES.put("smil", "application/smil+xml");
+        DEFAULT_TYPES.put("smv", "video/x-smv");
+        DEFAULT_TYPES.put("smzip", "application/vnd.stepmania.package");
+        DEFAULT_TYPES.put("snd", "audio/basic");
+        DEFAULT_TYPES.put("snf", "application/x-font-snf");
+        DEFAULT_TYPES.put("so", "application/octet-stream");
+        DEFAULT_TYPES.put("spc", "application/x-pkcs7-certificates");
+        DEFAULT_TYPES.put("spf", "application/vnd.yamaha.smaf-phrase");
+        DEFAULT_TYPES.put("spl", "application/x-futuresplash");
+        DEFAULT_TYPES.put("spot", "text/vnd.in3d.spot");
+        DEFAULT_TYPES.put("spp", "application/scvp-vp-response");
+        DEFAULT_TYPES.put("spq", "application/scvp-vp-request");
+        DEFAULT_TYPES.put("spx", "audio/ogg");
+        DEFAULT_TYPES.put("sql", "application/x-sql");
+        DEFAULT_TYPES.put("src", "application/x-wais-source");
+        DEFAULT_TYPES.put("srt", "application/x-subrip");
+        DEFAULT_TYPES.put("sru", "application/sru+xml");
+        DEFAULT_TYPES.put("srx", "application/sparql-results+xml");
+        DEFAULT_TYPES.put("ssdl", "application/ssdl+xml");
+        DEFAULT_TYPES.put("sse", "application/vnd.kodak-descriptor");
+        DEFAULT_TYPES.put("ssf", "application/vnd.epson.ssf");
+        DEFAULT_TYPES.put("ssml", "application/ssml+xml");
+        DEFAULT_TYPES.put("st", "application/vnd.sailingtracker.track");
+        DEFAULT_TYPES.put("stc", "application/vnd.sun.xml.calc.template");
+        DEFAULT_TYPES.put("std", "application/vnd.sun.xml.draw.template");
+        DEFAULT_TYPES.put("stf", "application/vnd.wt.stf");
+        DEFAULT_TYPES.put("sti", "application/vnd.sun.xml.impress.template");
+        DEFAULT_TYPES.put("stk", "application/hyperstudio");
+        DEFAULT_TYPES.put("stl", "application/vnd.ms-pki.stl");
+        DEFAULT_TYPES.put("str", "application/vnd.pg.format");
+        DEFAULT_TYPES.put("stw", "application/vnd.sun.xml.writer.template");
+        DEFAULT_TYPES.put("sub", "text/vnd.dvb.subtitle");
+        DEFAULT_TYPES.put("sus", "application/vnd.sus-calendar");
+        DEFAULT_TYPES.put("susp", "application/vnd.sus-calendar");
+        DEFAULT_TYPES.put("sv4cpio", "application/x-sv4cpio");
+        DEFAULT_TYPES.put("sv4crc", "application/x-sv4crc");
+        DEFAULT_TYPES.put("svc", "application/vnd.dvb.service");
+        DEFAULT_TYPES.put("svd", "application/vnd.svd");
+        DEFAULT_TYPES.put("svg", "image/svg+xml");
+        DEFAULT_TYPES.put("svgz", "image/svg+xml");
+        DEFAULT_TYPES.put("swa", "application/x-director");
+        DEFAULT_TYPES.put("swf", "application/x-shockwave-flash");
+        DEFAULT_TYPES.put("swi", "application/vnd.aristanetworks.swi");
+        DEFAULT_TYPES.put("sxc", "application/vnd.sun.xml.calc");
+        DEFAULT_TYPES.put("sxd", "application/vnd.sun.xml.draw");
+        DEFAULT_TYPES.put("sxg", "application/vnd.sun.xml.writer.global");
+        DEFAULT_TYPES.put("sxi", "application/vnd.sun.xml.impress");
+        DEFAULT_TYPES.put("sxm", "application/vnd.sun.xml.math");
+        DEFAULT_TYPES.put("sxw", "application/vnd.sun.xml.writer");
+        DEFAULT_TYPES.put("t", "text/troff");
+        DEFAULT_TYPES.put("t3", "application/x-t3vm-image");
+        DEFAULT_TYPES.put("taglet", "application/vnd.mynfc");
+        DEFAULT_TYPES.put("tao", "application/vnd.tao.intent-module-archive");
+        DEFAULT_TYPES.put("tar", "application/x-tar");
+        DEFAULT_TYPES.put("tcap", "application/vnd.3gpp2.tcap");
+        DEFAULT_TYPES.put("tcl", "application/x-tcl");
+        DEFAULT_TYPES.put("teacher", "application/vnd.smart.teacher");
+        DEFAULT_TYPES.put("tei", "application/tei+xml");
+        DEFAULT_TYPES.put("teicorpus", "application/tei+xml");
+        DEFAULT_TYPES.put("tex", "application/x-tex");
+        DEFAULT_TYPES.put("texi", "application/x-texinfo");
+        DEFAULT_TYPES.put("texinfo", "application/x-texinfo");
+        DEFAULT_TYPES.put("text", "text/plain");
+        DEFAULT_TYPES.put("tfi", "application/thraud+xml");
+        DEFAULT_TYPES.put("tfm", "application/x-tex-tfm");
+        DEFAULT_TYPES.put("tga", "image/x-tga");
+        DEFAULT_TYPES.put("thmx", "application/vnd.ms-officetheme");
+        DEFAULT_TYPES.put("tif", "image/tiff");
+        DEFAULT_TYPES.put("tiff", "image/tiff");
+        DEFAULT_TYPES.put("tmo", "application/vnd.tmobile-livetv");
+        DEFAULT_TYPES.put("torrent", "application/x-bittorrent");
+        DEFAULT_TYPES.put("tpl", "application/vnd.groove-tool-template");
+        DEFAULT_TYPES.put("tpt", "application/vnd.trid.tpt");
+        DEFAULT_TYPES.put("tr", "text/troff");
+        DEFAULT_TYPES.put("tra", "application/vnd.trueapp");
+        DEFAULT_TYPES.put("trm", "application/x-msterminal");
+        DEFAULT_TYPES.put("tsd", "application/timestamped-data");
+        DEFAULT_TYPES.put("tsv", "text/tab-separated-values");
+        DEFAULT_TYPES.put("ttc", "application/x-font-ttf");
+        DEFAULT_TYPES.put("ttf", "application/x-font-ttf");
+        DEFAULT_TYPES.put("ttl", "text/turtle");
+        DEFAULT_TYPES.put("twd", "application/vnd.simtech-mindmapper");
+        DEFAULT_TYPES.put("twds", "application/vnd.simtech-mindmapper");
+        DEFAULT_TYPES.put("txd", "application/vnd.genomatix.tuxedo");
+        DEFAULT_TYPES.put("txf", "application/vnd.mobius.txf");
+        DEFAULT_TYPES.put("txt", "text/plain");
+        DEFAULT_TYPES.put("u32", "application/x-authorware-bin");
+        DEFAULT_TYPES.put("udeb", "application/x-debian-package");
+        DEFAULT_TYPES.put("ufd", "application/vnd.ufdl");
+        DEFAULT_TYPES.put("ufdl", "application/vnd.ufdl");
+        DEFAULT_TYPES.put("ulw", "audio/basic");
+        DEFAULT_TYPES.put("ulx", "application/x-glulx");
+        DEFAULT_TYPES.put("umj", "application/vnd.umajin");
+        DEFAULT_TYPES.put("unityweb", "application/vnd.unity");
+        DEFAULT_TYPES.put("uoml", "application/vnd.uoml+xml");
+        DEFAULT_TYPES.put("uri", "text/uri-list");
+        DEFAULT_TYPES.put("uris", "text/uri-list");
+        DEFAULT_TYPES.put("urls", "text/uri-list");
+        DEFAULT_TYPES.put("ustar", "application/x-ustar");
+        DEFAULT_TYPES.put("utz", "application/vnd.uiq.theme");
+        DEFAULT_TYPES.put("uu", "text/x-uuencode");
+        DEFAULT_TYPES.put("uva", "audio/vnd.dece.audio");
+        DEFAULT_TYPES.put("uvd", "application/vnd.dece.data");
+        DEFAULT_TYPES.put("uvf", "application/vnd.dece.data");
+        DEFAULT_TYPES.put("uvg", "image/vnd.dece.graphic");
+        DEFAULT_TYPES.put("uvh", "video/vnd.dece.hd");
+        DEFAULT_TYPES.put("uvi", "image/vnd.dece.graphic");
+        DEFAULT_TYPES.put("uvm", "video/vnd.dece.mobile");
+        DEFAULT_TYPES.put("uvp", "video/vnd.dece.pd");
+        DEFAULT_TYPES.put("uvs", "video/vnd.dece.sd");
+        DEFAULT_TYPES.put("uvt", "application/vnd.dece.ttml+xml");
+        DEFAULT_TYPES.put("uvu", "video/vnd.uvvu.mp4");
+        DEFAULT_TYPES.put("uvv", "video/vnd.dece.video");
+        DEFAULT_TYPES.put("uvva", "audio/vnd.dece.audio");
+        DEFAULT_TYPES.put("uvvd", "application/vnd.dece.data");
+        DEFAULT_TYPES.put("uvvf", "application/vnd.dece.data");
+        DEFAULT_TYPES.put("uvvg", "image/vnd.dece.graphic");
+        DEFAULT_TYPES.put("uvvh", "video/vnd.dece.hd");
+        DEFAULT_TYPES.put("uvvi", "image/vnd.dece.graphic");
+        DEFAULT_TYPES.put("uvvm", "video/vnd.dece.mobile");
+        DEFAULT_TYPES.put("uvvp", "video/vnd.dece.pd");
+        DEFAULT_TYPES.put("uvvs", "video/vnd.dece.sd");
+        DEFAULT_TYPES.put("uvvt", "application/vnd.dece.ttml+xml");
+        DEFAULT_TYPES.put("uvvu", "video/vnd.uvvu.mp4");
+        DEFAULT_TYPES.put("uvvv", "video/vnd.dece.video");
+        DEFAULT_TYPES.put("uvvx", "application/vnd.dece.unspecified");
+        DEFAULT_TYPES.put("uvvz", "application/vnd.dece.zip");
+        DEFAULT_TYPES.put("uvx", "application/vnd.dece.unspecified");
+        DEFAULT_TYPES.put("uvz", "application/vnd.dece.zip");
+        DEFAULT_TYPES.put("vcard", "text/vcard");
+        DEFAULT_TYPES.put("vcd", "application/x-cdlink");
+        DEFAULT_TYPES.put("vcf", "text/x-vcard");
+        DEFAULT_TYPES.put("vcg", "application/vnd.groove-vcard");
+        DEFAULT_TYPES.put("vcs", "text/x-vcalendar");
+        DEFAULT_TYPES.put("vcx", "application/vnd.vcx");
+        DEFAULT_TYPES.put("vis", "application/vnd.visionary");
+        DEFAULT_TYPES.put("viv", "video/vnd.vivo");
+        DEFAULT_TYPES.put("vob", "video/x-ms-vob");
+        DEFAULT_TYPES.put("vor", "application/vnd.stardivision.writer");
+        DEFAULT_TYPES.put("vox", "application/x-authorware-bin");
+        DEFAULT_TYPES.put("vrml", "model/vrml");
+        DEFAULT_TYPES.put("vsd", "application/vnd.visio");
+        DEFAULT_TYPES.put("vsf", "application/vnd.vsf");
+        DEFAULT_TYPES.put("vss", "application/vnd.visio");
+        DEFAULT_TYPES.put("vst", "application/vnd.visio");
+        DEFAULT_TYPES.put("vsw", "application/vnd.visio");
+        DEFAULT_TYPES.put("vtu", "model/vnd.vtu");
+        DEFAULT_TYPES.put("vxml", "application/voicexml+xml");
+        DEFAULT_TYPES.put("w3d", "application/x-director");
+        DEFAULT_TYPES.put("wad", "application/x-doom");
+        DEFAULT_TYPES.put("wav", "audio/x-wav");
+        DEFAULT_TYPES.put("wax", "audio/x-ms-wax");
+        DEFAULT_TYPES.put("wbmp", "image/vnd.wap.wbmp");
+        DEFAULT_TYPES.put("wbs", "application/vnd.criticaltools.wbs+xml");
+        DEFAULT_TYPES.put("wbxml", "application/vnd.wap.wbxml");
+        DEFAULT_TYPES.put("wcm", "application/vnd.ms-works");
+        DEFAULT_TYPES.put("wdb", "application/vnd.ms-works");
+        DEFAULT_TYPES.put("wdp", "image/vnd.ms-photo");
+        DEFAULT_TYPES.put("weba", "audio/webm");
+        DEFAULT_TYPES.put("webm", "video/webm");
+        DEFAULT_TYPES.put("webp", "image/webp");
+        DEFAULT_TYPES.put("wg", "application/vnd.pmi.widget");
+        DEFAULT_TYPES.put("wgt", "application/widget");
+        DEFAULT_TYPES.put("wks", "application/vnd.ms-works");
+        DEFAULT_TYPES.put("wm", "video/x-ms-wm");
+        DEFAULT_TYPES.put("wma", "audio/x-ms-wma");
+        DEFAULT_TYPES.put("wmd", "application/x-ms-wmd");
+        DEFAULT_TYPES.put("wmf", "application/x-msmetafile");
+        DEFAULT_TYPES.put("wml", "text/vnd.wap.wml");
+        DEFAULT_TYPES.put("wmlc", "application/vnd.wap.wmlc");
+        DEFAULT_TYPES.put("wmls", "text/vnd.wap.wmlscript");
+        DEFAULT_TYPES.put("wmlsc", "application/vnd.wap.wmlscriptc");
+        DEFAULT_TYPES.put("wmv", "video/x-ms-wmv");
+        DEFAULT_TYPES.put("wmx", "video/x-ms-wmx");
+        DEFAULT_TYPES.put("wmz", "application/x-msmetafile");
+        DEFAULT_TYPES.put("woff", "application/x-font-woff");
+        DEFAULT_TYPES.put("wpd", "application/vnd.wordperfect");
+        DEFAULT_TYPES.put("wpl", "application/vnd.ms-wpl");
+        DEFAULT_TYPES.put("wps", "application/vnd.ms-works");
+        DEFAULT_TYPES.put("wqd", "application/vnd.wqd");
+        DEFAULT_TYPES.put("wri", "application/x-mswrite");
+        DEFAULT_TYPES.put("wrl", "model/vrml");
+        DEFAULT_TYPES.put("wsdl", "application/wsdl+xml");
+        DEFAULT_TYPES.put("wspolicy", "application/wspolicy+xml");
+        DEFAULT_TYPES.put("wtb", "application/vnd.webturbo");
+        DEFAULT_TYPES.put("wvx", "video/x-ms-wvx");
+        DEFAULT_TYPES.put("x32", "application/x-authorware-bin");
+        DEFAULT_TYPES.put("x3d", "model/x3d+xml");
+        DEFAULT_TYPES.put("x3db", "model/x3d+binary");
+        DEFAULT_TYPES.put("x3dbz", "model/x3d+binary");
+        DEFAULT_TYPES.put("x3dv", "model/x3d+vrml");
+        DEFAULT_TYPES.put("x3dvz", "model/x3d+vrml");
+        DEFAULT_TYPES.put("x3dz", "model/x3d+xml");
+        DEFAULT_TYPES.put("xaml", "application/xaml+xml");
+        DEFAULT_TYPES.put("xap", "application/x-silverlight-app");
+        DEFAULT_TYPES.put("xar", "application/vnd.xara");
+        DEFAULT_TYPES.put("xbap", "application/x-ms-xbap");
+        DEFAULT_TYPES.put("xbd", "application/vnd.fujixerox.docuworks.binder");
+        DEFAULT_TYPES.put("xbm", "image/x-xbitmap");
+        DEFAULT_TYPES.put("xdf", "application/xcap-diff+xml");
+        DEFAULT_TYPES.put("xdm", "application/vnd.syncml.dm+xml");
+        DEFAULT_TYPES.put("xdp", "application/vnd.adobe.xdp+xml");
+        DEFAULT_TYPES.put("xdssc", "application/dssc+xml");
+        DEFAULT_TYPES.put("xdw", "application/vnd.fujixerox.docuworks");
+        DEFAULT_TYPES.put("xenc", "application/xenc+xml");
+        DEFAULT_TYPES.put("xer", "application/patch-ops-error+xml");
+        DEFAULT_TYPES.put("xfdf", "application/vnd.adobe.xfdf");
+        DEFAULT_TYPES.put("xfdl", "application/vnd.xfdl");
+        DEFAULT_TYPES.put("xht", "application/xhtml+xml");
+        DEFAULT_TYPES.put("xhtml", "application/xhtml+xml");
+        DEFAULT_TYPES.put("xhvml", "application/xv+xml");
+        DEFAULT_TYPES.put("xif", "image/vnd.xiff");
+        DEFAULT_TYPES.put("xla", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xlam", "application/vnd.ms-excel.addin.macroenabled.12");
+        DEFAULT_TYPES.put("xlc", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xlf", "application/x-xliff+xml");
+        DEFAULT_TYPES.put("xlm", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xls", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xlsb", "application/vnd.ms-excel.sheet.binary.macroenabled.12");
+        DEFAULT_TYPES.put("xlsm", "application/vnd.ms-excel.sheet.macroenabled.12");
+        DEFAULT_TYPES.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        DEFAULT_TYPES.put("xlt", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xltm", "application/vnd.ms-excel.template.macroenabled.12");
+        DEFAULT_TYPES.put("xltx", "application/vnd.openxmlformats-officedocument.spreadsheetml.template");
+        DEFAULT_TYPES.put("xlw", "application/vnd.ms-excel");
+        DEFAULT_TYPES.put("xm", "audio/xm");
+        DEFAULT_TYPES.put("xml", "application/xml");
+        DEFAULT_TYPES.put("xo", "application/vnd.olpc-sugar");
+        DEFAULT_TYPES.put("xop", "application/xop+xml");
+        DEFAULT_TYPES.put("xpi", "application/x-xpinstall");
+        DEFAULT_TYPES.put("xpl", "application/xproc+xml");
+        DEFAULT_TYPES.put("xpm", "image/x-xpixmap");
+        DEFAULT_TYPES.put("xpr", "application/vnd.is-xpr");
+        DEFAULT_TYPES.put("xps", "application/vnd.ms-xpsdocument");
+        DEFAULT_TYPES.put("xpw", "application/vnd.intercon.formnet");
+        DEFAULT_TYPES.put("xpx", "application/vnd.intercon.formnet");
+        DEFAULT_TYPES.put("xsl", "application/xml");
+        DEFAULT_TYPES.put("xslt", "application/xslt+xml");
+        DEFAULT_TYPES.put("xsm", "application/vnd.syncml+xml");
+        DEFAULT_TYPES.put("xspf", "application/xspf+xml");
+        DEFAULT_TYPES.put("xul", "application/vnd.mozilla.xul+xml");
+        DEFAULT_TYPES.put("xvm", "application/xv+xml");
+        DEFAULT_TYPES.put("xvml", "application/xv+xml");
+        DEFAULT_TYPES.put("xwd", "image/x-xwindowdump");
+        DEFAULT_TYPES.put("xyz", "chemical/x-xyz");
+        DEFAULT_TYPES.put("xz", "application/x-xz");
+        DEFAULT_TYPES.put("yang", "application/yang");
+        DEFAULT_TYPES.put("yin", "application/yin+xml");
+        DEFAULT_TYPES.put("z", "application/x-compress");
+        DEFAULT_TYPES.put("Z", "application/x-compress");
+        DEFAULT_TYPES.put("z1", "application/x-zmachine");
+        DEFAULT_TYPES.put("z2", "application/x-zmachine");
+        DEFAULT_TYPES.put("z3", "application/x-zmachine");
+        DEFAULT_TYPES.put("z4", "application/x-zmachine");
+        DEFAULT_TYPES.put("z5", "application/x-zmachine");
+        DEFAULT_TYPES.put("z6", "application/x-zmachine");
+        DEFAULT_TYPES.put("z7", "application/x-zmachine");
+        DEFAULT_TYPES.put("z8", "application/x-zmachine");
+        DEFAULT_TYPES.put("zaz", "application/vnd.zzazz.deck+xml");
+        DEFAULT_TYPES.put("zip", "application/zip");
+        DEFAULT_TYPES.put("zir", "application/vnd.zul");
+        DEFAULT_TYPES.put("zirz", "application/vnd.zul");
+        DEFAULT_TYPES.put("zmm", "application/vnd.handheld-entertainment+xml");
+    }
+
+    /** Registry of default types. */
+    static final MimeRegistry DEFAULT = new MimeRegistry(null, null);
+
+    // Returns the case-insensitive hash of given region of a string.
+    private static int __hash(CharSequence str, int start, int end) {
+        int hash = 0;
+
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + Character.toLowerCase(str.charAt(i));
+
+        return hash ^ (hash >>> 16);
+    }
+
+    // Returns a boolean indicating if given region of a string equals
+    // (ignoring case) given lower-case key.
+    private static boolean __matches(String key, CharSequence str, int start, int end) {
+        if (key.length() != end - start)
+            return false;
+
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != Character.toLowerCase(str.charAt(i)))
+                return false;
+        }
+
+        return true;
+    }
+
+    // Returns a boolean indicating if given content type denotes text, so
+    // that it may carry a charset parameter.
+    private static boolean __isTextual(String mime) {
+        return mime.startsWith("text/")
+            || mime.equals("application/javascript")
+            || mime.equals("application/json")
+            || mime.equals("application/xml");
+    }
+    // </editor-fold>
+
+    private final String[] keys;
+    private final String[] values;
+    private final boolean[] overridden;
+    private final String textCharset;
+
+    // Types carrying the text charset, indexed by original type.
+    private final ConcurrentMap<String, String> charsetTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param overrides map of file extensions (case-insensitive, with or
+     * without the leading dot) to content types, overriding default types,
+     * or null.
+     * @param textCharset charset appended (as a "charset" parameter) to
+     * textual types which do not declare parameters or null in order to keep
+     * types as registered.
+     */
+    MimeRegistry(Map<String, String> overrides, String textCharset) {
+        Map<String, String> types = new HashMap<>(DEFAULT_TYPES);
+        Map<String, String> overriddenTypes = new HashMap<>();
+
+        if (overrides != null) {
+            for (Map.Entry<String, String> override : overrides.entrySet()) {
+                String extension = override.getKey();
+
+                if (extension.startsWith("."))
+                    extension = extension.substring(1);
+
+                extension = extension.toLowerCase(Locale.ENGLISH);
+                types.put(extension, override.getValue());
+                overriddenTypes.put(extension, override.getValue());
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(types.size(), 1) * 2 - 1) << 1; // <-- Load factor is at most 1/2
+
+        this.keys = new String[capacity];
+        this.values = new String[capacity];
+        this.overridden = new boolean[capacity];
+        this.textCharset = textCharset;
+
+        for (Map.Entry<String, String> type : types.entrySet()) {
+            String key = type.getKey();
+            String mime = type.getValue();
+
+            if (textCharset != null && mime.indexOf(';') < 0 && __isTextual(mime))
+                mime = mime + "; charset=" + textCharset;
+
+            int index = __hash(key, 0, key.length()) & (capacity - 1);
+
+            while (keys[index] != null)
+                index = (index + 1) & (capacity - 1);
+
+            keys[index] = key;
+            values[index] = mime;
+            overridden[index] = overriddenTypes.containsKey(key);
+        }
+    }
+
+    // Returns the table index of the extension of given path or -1 if there
+    // is no type associated with it.
+    private int __indexOf(CharSequence path) {
+        int end = path.length();
+        int start = end;
+
+        while (true) {
+            if (start == 0)
+                return -1; // <-- No extension
+
+            char c = path.charAt(start - 1);
+
+            if (c == '.')
+                break;
+
+            if (c == '/' || c == '\\')
+                return -1; // <-- No extension in the last segment
+
+            start--;
+        }
+
+        int mask = keys.length - 1;
+
+        for (int index = __hash(path, start, end) & mask; keys[index] != null; index = (index + 1) & mask) {
+            if (__matches(keys[index], path, start, end))
+                return index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the content type associated with the extension of given path.
+     *
+     * @param path file name, path or URI. Extension is the part of the last
+     * path segment which follows its last dot.
+     * @return the content type associated with the extension of given path
+     * or null if there is no such type.
+     */
+    String get(CharSequence path) {
+        int index = __indexOf(path);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Returns a boolean indicating if the type associated with the extension
+     * of given path was explicitly registered as an override.
+     *
+     * @param path file name, path or URI.
+     * @return a boolean indicating if the type associated with the extension
+     * of given path is an override.
+     */
+    boolean isOverridden(CharSequence path) {
+        int index = __indexOf(path);
+        return index >= 0 && overridden[index];
+    }
+
+    /**
+     * Returns given type as it would be registered, i.e. carrying the charset
+     * parameter of this registry if it is a textual type without parameters.
+     *
+     * @param mime content type.
+     * @return given type, carrying the charset of this registry if
+     * applicable.
+     */
+    String withCharset(String mime) {
+        if (textCharset == null || mime.indexOf(';') >= 0 || !__isTextual(mime))
+            return mime;
+
+        String charsetType = charsetTypes.get(mime);
+
+        if (charsetType == null) {
+            charsetType = mime + "; charset=" + textCharset;
+            charsetTypes.putIfAbsent(mime, charsetType);
+        }
+
+        return charsetType;
+    }
+
+    /**
+     * Returns the number of registered types.
+     *
+     * @return the number of registered types.
+     */
+    int size() {
+        int size = 0;
+
+        for (String key : keys) {
+            if (key != null)
+                size++;
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of paths known to point to missing resources.
+ *
+ * Entries expire after a fixed time-to-live, bounding the delay for a
+ * resource which appears after being probed. Owners able to detect new
+ * resources may {@linkplain NegativeCache#clear() clear} the cache instead;
+ * otherwise the time-to-live is the only invalidation. When the capacity is
+ * exceeded, least recently used entries are evicted. Paths resolved from an
+ * index of known resources are not cached, so this cache only holds paths
+ * whose lookup queries the storage.
+ */
+final class NegativeCache {
+
+    private final long ttl;
+    private final Map<String, Long> entries; // <-- path => expiry timestamp
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of cached paths.
+     * @param ttl time (in milliseconds) during which a path is known to be
+     * missing.
+     */
+    NegativeCache(int capacity, long ttl) {
+        if (ttl <= 0)
+            throw new IllegalArgumentException("Invalid time-to-live: " + ttl);
+
+        this.entries = new LruMap<>(capacity);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns a boolean indicating if given path is known to be missing.
+     *
+     * @param path resource path.
+     * @return a boolean indicating if given path is known to be missing.
+     */
+    boolean contains(String path) {
+        boolean found;
+
+        synchronized (this) {
+            Long expiry = entries.get(path);
+            found = expiry != null && expiry > System.currentTimeMillis();
+
+            if (expiry != null && !found)
+                entries.remove(path);
+        }
+
+        if (found) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+
+        return found;
+    }
+
+    /**
+     * Records that given path points to a missing resource.
+     *
+     * @param path resource path.
+     */
+    synchronized void add(String path) {
+        entries.put(path, System.currentTimeMillis() + ttl);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of lookups which found an entry.
+     *
+     * @return the number of lookups which found an entry.
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find an entry.
+     *
+     * @return the number of lookups which did not find an entry.
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+}
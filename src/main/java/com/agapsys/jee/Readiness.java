@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+/**
+ * Number of background tasks (e.g. cache warm-ups) which must finish before
+ * a servlet container reports itself as ready.
+ */
+final class Readiness {
+
+    private int pending = 0;
+
+    /** Registers a pending task. */
+    synchronized void begin() {
+        pending++;
+    }
+
+    /** Marks a pending task as finished. */
+    synchronized void end() {
+        if (pending > 0)
+            pending--;
+
+        if (pending == 0)
+            notifyAll();
+    }
+
+    /**
+     * Returns a boolean indicating if all tasks are finished.
+     *
+     * @return a boolean indicating if all tasks are finished.
+     */
+    synchronized boolean isReady() {
+        return pending == 0;
+    }
+
+    /**
+     * Waits until all tasks are finished.
+     *
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return a boolean indicating if all tasks are finished.
+     * @throws InterruptedException if current thread was interrupted while
+     * waiting.
+     */
+    synchronized boolean await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        for (long remaining = timeout; pending > 0 && remaining > 0; remaining = deadline - System.currentTimeMillis())
+            wait(remaining);
+
+        return pending == 0;
+    }
+}
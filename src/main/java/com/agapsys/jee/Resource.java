@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Representation of the resource pointed by a request, as resolved by
+ * {@linkplain AbstractFileServlet#getResource(javax.servlet.http.HttpServletRequest)}.
+ *
+ * Metadata is answered without opening the resource, so that conditional
+ * requests are answered from metadata only. Contents are obtained, in this
+ * order, through {@linkplain Resource#getContent()} (contents held in memory),
+ * {@linkplain Resource#openChannel()} (served through positional reads and,
+ * above the zero-copy threshold, memory-mapped regions) and
+ * {@linkplain Resource#openStream()}. A resource is used by a single request.
+ */
+public abstract class Resource {
+
+    /**
+     * Returns a boolean indicating if the request points to a directory. In
+     * such case, the resource represents the index file of the directory.
+     *
+     * @return a boolean indicating if the request points to a directory.
+     * Default implementation returns false.
+     */
+    public boolean isDirectory() {
+        return false;
+    }
+
+    /**
+     * Returns a boolean indicating if this resource exists.
+     *
+     * @return a boolean indicating if this resource exists. Default
+     * implementation returns true, deferring the check to
+     * {@linkplain Resource#openStream()}.
+     */
+    public boolean exists() {
+        return true;
+    }
+
+    /**
+     * Returns the length of this resource (as served, i.e. after
+     * {@linkplain Resource#getContentEncoding() content-coding}).
+     *
+     * @return the length (in bytes) of this resource or -1 if length is
+     * unknown until the resource is opened. Unless the resource is opened as
+     * a file channel or in-memory contents, its length remains unknown, so
+     * that it is served without ranges, content length nor strong entity
+     * tag. Default implementation returns -1.
+     */
+    public long getLength() {
+        return -1;
+    }
+
+    /**
+     * Returns the timestamp of the last modification of this resource.
+     *
+     * @return the number of milliseconds since UNIX epoch (GMT) representing
+     * the timestamp of the last modification of this resource or zero if
+     * unknown. Default implementation returns zero.
+     */
+    public long getLastModified() {
+        return 0;
+    }
+
+    /**
+     * Returns the content-type of this resource.
+     *
+     * @return the content-type of this resource. Default implementation
+     * returns {@linkplain AbstractFileServlet#DEFAULT_MIME}.
+     */
+    public String getContentType() {
+        return AbstractFileServlet.DEFAULT_MIME;
+    }
+
+    /**
+     * Returns the content-coding (e.g. "gzip") applied to this resource, such
+     * as when a precompressed variant was selected.
+     *
+     * @return the content-coding applied to this resource or null if resource
+     * is not encoded. Default implementation returns null.
+     */
+    public String getContentEncoding() {
+        return null;
+    }
+
+    /**
+     * Returns a boolean indicating if this representation was selected
+     * according to the "Accept-Encoding" request header. If so, responses
+     * carry a "Vary: Accept-Encoding" header.
+     *
+     * @return a boolean indicating if this representation was selected
+     * according to the "Accept-Encoding" request header. Default
+     * implementation returns false.
+     */
+    public boolean isEncodingNegotiated() {
+        return false;
+    }
+
+    /**
+     * Returns the entity tag (including surrounding quotes and, for weak
+     * tags, the "W/" prefix) of this resource.
+     *
+     * @return the entity tag of this resource or null in order to use a
+     * strong tag derived from resource length and last modification
+     * timestamp. Default implementation returns null.
+     */
+    public String getETag() {
+        return null;
+    }
+
+    /**
+     * Returns the "Cache-Control" header value sent along with this resource.
+     *
+     * @return the "Cache-Control" header value of this resource or null in
+     * order to use the policy of the servlet (see
+     * {@linkplain AbstractFileServlet#getCacheControl()}). Default
+     * implementation returns null.
+     */
+    public String getCacheControl() {
+        return null;
+    }
+
+    /**
+     * Returns the contents of this resource, if held in memory. This method
+     * is called at most once, only if contents are served.
+     *
+     * @return the contents of this resource (from position zero up to the
+     * buffer capacity) or null if contents must be read. Returned buffer is
+     * not modified. Default implementation returns null.
+     * @throws IOException if an I/O error happened.
+     */
+    public ByteBuffer getContent() throws IOException {
+        return null;
+    }
+
+    /**
+     * Opens a channel over the file holding this resource (from position
+     * zero up to the resource length). This method is called only if
+     * {@linkplain Resource#getContent()} returns null. The channel is closed
+     * once the response is sent.
+     *
+     * @return a channel over the file holding this resource or null if
+     * resource must be read through {@linkplain Resource#openStream()}.
+     * Default implementation returns null.
+     * @throws IOException if an I/O error happened.
+     */
+    public FileChannel openChannel() throws IOException {
+        return null;
+    }
+
+    /**
+     * Opens a stream over the contents of this resource. This method is
+     * called only if neither {@linkplain Resource#getContent()} nor
+     * {@linkplain Resource#openChannel()} provide the contents.
+     *
+     * @return a stream over the contents of this resource or null if resource
+     * does not exist.
+     * @throws IOException if an I/O error happened.
+     */
+    public abstract InputStream openStream() throws IOException;
+}
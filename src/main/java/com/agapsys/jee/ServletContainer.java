@@ -15,12 +15,14 @@
  */
 package com.agapsys.jee;
 
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.EventListener;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import javax.servlet.DispatcherType;
@@ -34,9 +36,13 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.log.StdErrLog;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 /**
  * Represents a servlet container
@@ -47,6 +53,16 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
     // =========================================================================
     public static final String ROOT_PATH         = "/";
     public static final int    DEFAULT_HTTP_PORT = 8080;
+
+    public static final int DEFAULT_MIN_THREADS         = 8;
+    public static final int DEFAULT_MAX_THREADS         = 200;
+    public static final int DEFAULT_THREAD_IDLE_TIMEOUT = 60000;
+    public static final int DEFAULT_RETRY_AFTER         = 1;
+
+    // Context attribute holding the background tasks the container waits for
+    // before reporting itself as ready.
+    static final String READINESS_ATTRIBUTE = ServletContainer.class.getName() + ".readiness";
+
     private static class NoLogger implements Logger {
         private static NoLogger singletonInstance = null;
 
@@ -87,6 +103,15 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
         return sc;
     }
 
+    /**
+     * Returns a boolean indicating if current runtime supports virtual threads.
+     *
+     * @return a boolean indicating if current runtime supports virtual threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreadPool.isSupported();
+    }
+
     static {
         Map<String, Logger> loggers = org.eclipse.jetty.util.log.Log.getLoggers();
         for (Map.Entry<String, Logger> entry : loggers.entrySet()) {
@@ -103,14 +128,28 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
     private final Map<String, List<Class<? extends Filter>>>   filterMap                 = new LinkedHashMap<>();
     private final Map<String, Class<? extends HttpServlet>>    servletMap                = new LinkedHashMap<>();
     private final Set<Class<? extends ServletContextListener>> servletContextListenerSet = new LinkedHashSet<>();
+    private final Map<String, String>                          mimeTypeMap               = new LinkedHashMap<>();
 
     private ErrorHandler errorHandler = null;
+    private boolean virtualThreadsEnabled = false;
+    private int minThreads        = DEFAULT_MIN_THREADS;
+    private int maxThreads        = DEFAULT_MAX_THREADS;
+    private int threadIdleTimeout = DEFAULT_THREAD_IDLE_TIMEOUT;
+    private int maxQueuedJobs     = -1;
+
+    private int maxConcurrentRequests = 0;
+    private int maxQueuedRequests     = -1;
+    private int retryAfter            = DEFAULT_RETRY_AFTER;
+
+    private ConcurrencyLimitHandler concurrencyLimitHandler = null;
+    private final Readiness readiness = new Readiness();
     private Server server;
 
     // <editor-fold desc="Private scope">
     // -------------------------------------------------------------------------
     private Server __buildServer() {
-        Server mServer = new Server();
+        ThreadPool threadPool = getThreadPool();
+        Server mServer = threadPool == null ? new Server() : new Server(threadPool);
 
         // Connectors...
         Connector[] connectors = getConnectors(mServer);
@@ -128,13 +167,24 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
         // Filters...
         for (Map.Entry<String, List<Class<? extends Filter>>> filterEntry : filterMap.entrySet()) {
             for (Class<? extends Filter> filterClass : filterEntry.getValue()) {
-                handler.addFilter(filterClass, filterEntry.getKey(), EnumSet.of(DispatcherType.REQUEST));
+                FilterHolder holder = handler.addFilter(filterClass, filterEntry.getKey(), EnumSet.of(DispatcherType.REQUEST));
+                WebFilter webFilter = filterClass.getAnnotation(WebFilter.class);
+
+                if (webFilter != null && webFilter.asyncSupported())
+                    holder.setAsyncSupported(true);
             }
         }
 
         // Servlets...
         for (Map.Entry<String, Class<? extends HttpServlet>> servletEntry : servletMap.entrySet()) {
-            handler.addServlet(servletEntry.getValue(), servletEntry.getKey());
+            ServletHolder holder = handler.addServlet(servletEntry.getValue(), servletEntry.getKey());
+            WebServlet webServlet = servletEntry.getValue().getAnnotation(WebServlet.class);
+
+            if (webServlet != null && webServlet.asyncSupported())
+                holder.setAsyncSupported(true);
+
+            if (webServlet != null && webServlet.loadOnStartup() >= 0)
+                holder.setInitOrder(webServlet.loadOnStartup());
         }
 
         // Event listeners...
@@ -147,11 +197,30 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
             }
         }
 
+        // MIME types...
+        if (!mimeTypeMap.isEmpty()) {
+            for (Map.Entry<String, String> mimeTypeEntry : mimeTypeMap.entrySet()) {
+                handler.getMimeTypes().addMimeMapping(mimeTypeEntry.getKey(), mimeTypeEntry.getValue());
+            }
+
+            handler.setAttribute(AbstractFileServlet.MIME_TYPES_ATTRIBUTE, Collections.unmodifiableMap(new LinkedHashMap<>(mimeTypeMap)));
+        }
+
+        handler.setAttribute(READINESS_ATTRIBUTE, readiness);
+
         // Error handler...
         if (errorHandler != null)
             handler.setErrorHandler(errorHandler);
 
-        mServer.setHandler(handler);
+        // Concurrency limit and load shedding...
+        if (maxConcurrentRequests > 0 || threadPool instanceof BoundedThreadPool) {
+            concurrencyLimitHandler = new ConcurrencyLimitHandler(maxConcurrentRequests, maxQueuedRequests, retryAfter);
+            concurrencyLimitHandler.setHandler(handler);
+            mServer.setHandler(concurrencyLimitHandler);
+        } else {
+            mServer.setHandler(handler);
+        }
+
         return mServer;
     }
 
@@ -193,6 +262,26 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
         http.setPort(DEFAULT_HTTP_PORT);
         return new Connector[] { http };
     }
+
+    /**
+     * Returns the thread pool used by the server.
+     *
+     * This method is called once during instance initialization.
+     *
+     * @return the thread pool used by the server or null in order to use
+     * Jetty's default pool. Default implementation returns a pool running each
+     * task in a new virtual thread if
+     * {@linkplain ServletContainer#setVirtualThreadsEnabled(boolean) enabled},
+     * or a queued pool configured by
+     * {@linkplain ServletContainer#setThreadPoolLimits(int, int, int)} and
+     * {@linkplain ServletContainer#setMaxQueuedJobs(int)}.
+     */
+    protected ThreadPool getThreadPool() {
+        if (virtualThreadsEnabled)
+            return new VirtualThreadPool();
+
+        return new BoundedThreadPool(minThreads, maxThreads, threadIdleTimeout, maxQueuedJobs);
+    }
     // -------------------------------------------------------------------------
     // </editor-fold>
 
@@ -216,6 +305,30 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
         return server != null && server.isRunning();
     }
 
+    /**
+     * Returns a boolean indicating if server is running and background tasks
+     * started by servlets on initialization (e.g. cache warm-ups) are
+     * finished. Servlets are initialized when server starts only if they
+     * declare {@linkplain WebServlet#loadOnStartup()}.
+     *
+     * @return a boolean indicating if server is ready.
+     */
+    public boolean isReady() {
+        return isRunning() && readiness.isReady();
+    }
+
+    /**
+     * Waits until server is {@linkplain ServletContainer#isReady() ready}.
+     *
+     * @param timeout maximum time to wait (in milliseconds).
+     * @return a boolean indicating if server is ready.
+     * @throws InterruptedException if current thread was interrupted while
+     * waiting.
+     */
+    public boolean awaitReady(long timeout) throws InterruptedException {
+        return readiness.await(timeout) && isRunning();
+    }
+
     /**
      * Stops the server.
      *
@@ -414,6 +527,217 @@ public class ServletContainer <SC extends ServletContainer<SC>> {
 
     }
 
+    /**
+     * Registers a content type for files with given extension. Registered
+     * types are returned by the servlet context and override the default
+     * types of file servlets (see {@linkplain AbstractFileServlet#MIME_TYPES_ATTRIBUTE}).
+     *
+     * @param extension file extension (case-insensitive, without the leading
+     * dot).
+     * @param mimeType content type (e.g. "text/markdown; charset=UTF-8").
+     * @return this.
+     */
+    public SC registerMimeType(String extension, String mimeType) {
+        __throwIfInitialized();
+
+        if (extension == null || extension.isEmpty())
+            throw new IllegalArgumentException("Null/Empty extension");
+
+        if (mimeType == null || mimeType.isEmpty())
+            throw new IllegalArgumentException("Null/Empty MIME type");
+
+        mimeTypeMap.put(extension.toLowerCase(Locale.ENGLISH), mimeType);
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines if requests are executed by virtual threads.
+     *
+     * Since virtual threads are created on demand, a concurrency limit (see
+     * {@linkplain ServletContainer#setMaxConcurrentRequests(int)}) should be
+     * defined in order to keep backpressure.
+     *
+     * @param enabled true in order to execute each request in a new virtual
+     * thread, or false to use a queued pool configured by
+     * {@linkplain ServletContainer#setThreadPoolLimits(int, int, int)} and
+     * {@linkplain ServletContainer#setMaxQueuedJobs(int)}.
+     * @return this.
+     * @throws UnsupportedOperationException if virtual threads are enabled
+     * and current runtime does not support them.
+     */
+    public SC setVirtualThreadsEnabled(boolean enabled) throws UnsupportedOperationException {
+        __throwIfInitialized();
+
+        if (enabled && !isVirtualThreadSupported())
+            throw new UnsupportedOperationException("Virtual threads are not supported by current runtime");
+
+        this.virtualThreadsEnabled = enabled;
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines the maximum number of requests handled concurrently. Requests
+     * exceeding this limit are suspended, without holding a thread, until a
+     * running request is finished.
+     *
+     * @param maxConcurrentRequests maximum number of requests handled
+     * concurrently or zero for no limit.
+     * @return this.
+     */
+    public SC setMaxConcurrentRequests(int maxConcurrentRequests) {
+        __throwIfInitialized();
+
+        if (maxConcurrentRequests < 0)
+            throw new IllegalArgumentException("Invalid concurrency limit: " + maxConcurrentRequests);
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines the maximum number of requests waiting for a running request to
+     * finish when the {@linkplain ServletContainer#setMaxConcurrentRequests(int)
+     * concurrency limit} is reached. Once this bound is reached, new requests
+     * are rejected immediately with a
+     * {@linkplain javax.servlet.http.HttpServletResponse#SC_SERVICE_UNAVAILABLE}
+     * status and a Retry-After header.
+     *
+     * This setting has effect only if a concurrency limit is defined.
+     *
+     * @param maxQueuedRequests maximum number of waiting requests or a
+     * negative value for no limit (default).
+     * @return this.
+     */
+    public SC setMaxQueuedRequests(int maxQueuedRequests) {
+        __throwIfInitialized();
+
+        this.maxQueuedRequests = maxQueuedRequests;
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines the delay suggested to clients whose requests were rejected.
+     *
+     * @param retryAfter delay (in seconds) sent in the Retry-After header of
+     * rejected requests. Default value is
+     * {@linkplain ServletContainer#DEFAULT_RETRY_AFTER}.
+     * @return this.
+     */
+    public SC setRetryAfter(int retryAfter) {
+        __throwIfInitialized();
+
+        if (retryAfter < 0)
+            throw new IllegalArgumentException("Invalid retry delay: " + retryAfter);
+
+        this.retryAfter = retryAfter;
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines the limits of the server thread pool. This setting is ignored
+     * if virtual threads are enabled.
+     *
+     * @param minThreads minimum number of threads. Default value is
+     * {@linkplain ServletContainer#DEFAULT_MIN_THREADS}.
+     * @param maxThreads maximum number of threads. Default value is
+     * {@linkplain ServletContainer#DEFAULT_MAX_THREADS}.
+     * @param idleTimeout time (in milliseconds) after which idle threads above
+     * the minimum are stopped. Default value is
+     * {@linkplain ServletContainer#DEFAULT_THREAD_IDLE_TIMEOUT}.
+     * @return this.
+     */
+    public SC setThreadPoolLimits(int minThreads, int maxThreads, int idleTimeout) {
+        __throwIfInitialized();
+
+        if (minThreads <= 0 || maxThreads < minThreads)
+            throw new IllegalArgumentException(String.format("Invalid thread limits: %d-%d", minThreads, maxThreads));
+
+        if (idleTimeout <= 0)
+            throw new IllegalArgumentException("Invalid idle timeout: " + idleTimeout);
+
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.threadIdleTimeout = idleTimeout;
+
+        return (SC) this;
+    }
+
+    /**
+     * Defines the maximum number of jobs waiting for a thread of the server
+     * thread pool. Requests exceeding this bound are rejected immediately
+     * with a
+     * {@linkplain javax.servlet.http.HttpServletResponse#SC_SERVICE_UNAVAILABLE}
+     * status and a Retry-After header (see
+     * {@linkplain ServletContainer#setRetryAfter(int)}) by a few dedicated
+     * threads. If those threads are saturated as well, connections are
+     * closed. This setting is ignored if virtual threads are enabled.
+     *
+     * @param maxQueuedJobs maximum number of waiting jobs or a negative value
+     * for no limit (default).
+     * @return this.
+     */
+    public SC setMaxQueuedJobs(int maxQueuedJobs) {
+        __throwIfInitialized();
+
+        if (maxQueuedJobs == 0)
+            throw new IllegalArgumentException("Invalid job queue size: " + maxQueuedJobs);
+
+        this.maxQueuedJobs = maxQueuedJobs;
+
+        return (SC) this;
+    }
+
+    /**
+     * Returns the number of requests waiting for a running request to finish.
+     *
+     * @return the number of requests waiting for a running request to finish.
+     */
+    public int getQueuedRequestCount() {
+        return concurrencyLimitHandler == null ? 0 : concurrencyLimitHandler.getQueuedRequestCount();
+    }
+
+    /**
+     * Returns the number of requests rejected due to the concurrency limit or
+     * to a saturated thread pool.
+     *
+     * @return the number of rejected requests.
+     */
+    public long getRejectedRequestCount() {
+        return concurrencyLimitHandler == null ? 0 : concurrencyLimitHandler.getRejectedRequestCount();
+    }
+
+    /**
+     * Returns the number of jobs waiting for a thread of the server thread
+     * pool.
+     *
+     * @return the number of jobs waiting for a thread of the server thread
+     * pool.
+     */
+    public int getQueuedJobCount() {
+        if (!isInitialized() || !(server.getThreadPool() instanceof QueuedThreadPool))
+            return 0;
+
+        return ((QueuedThreadPool) server.getThreadPool()).getQueueSize();
+    }
+
+    /**
+     * Returns the number of jobs which could not be queued by the server
+     * thread pool (see {@linkplain ServletContainer#setMaxQueuedJobs(int)}).
+     *
+     * @return the number of jobs which could not be queued by the server
+     * thread pool.
+     */
+    public long getRejectedJobCount() {
+        if (!isInitialized() || !(server.getThreadPool() instanceof BoundedThreadPool))
+            return 0;
+
+        return ((BoundedThreadPool) server.getThreadPool()).getRejectedJobCount();
+    }
 
     public SC setErrorHandler(ErrorHandler errorHandler) {
         __throwIfInitialized();
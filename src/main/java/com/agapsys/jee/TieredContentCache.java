@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of file contents, split into two tiers: small files are
+ * kept in the heap and large files as memory-mapped regions. Each tier has
+ * its own capacity (in bytes) and a single entry may not take more than 1/8
+ * of it.
+ *
+ * Entries are associated with the length and last modification timestamp
+ * of the file they were loaded from, and discarded once the file changes.
+ * When a tier is full, a new entry is only admitted if it was accessed more
+ * often than the least recently used entries it would evict (TinyLFU), so
+ * that files requested once (e.g. by crawlers) do not flush frequently
+ * requested ones.
+ *
+ * Contents are content-addressed: files holding identical contents (i.e.
+ * sharing a content hash) reference a single buffer, which is only released
+ * once no file references it. Tier sizes count each buffer once.
+ */
+final class TieredContentCache {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    // Fraction of a tier that a single entry may occupy.
+    private static final int ENTRY_RATIO = 8;
+
+    // Expected average entry length (used to size the frequency sketch).
+    private static final long AVERAGE_ENTRY_LENGTH = 16 * 1024;
+
+    // Contents shared by the files holding them.
+    private static final class Blob {
+        private final ByteBuffer content;
+        private final String hash; // <-- null if contents are not shared
+        private int references = 0;
+
+        private Blob(ByteBuffer content, String hash) {
+            this.content = content;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Blob blob;
+        private final long lastModified;
+
+        private Entry(Blob blob, long lastModified) {
+            this.blob = blob;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class Tier {
+        private final long capacity;
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size = 0;
+
+        private Tier(long capacity) {
+            if (capacity < 0)
+                throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+            this.capacity = capacity;
+        }
+    }
+    // </editor-fold>
+
+    private final Tier heap;
+    private final Tier mapped;
+    private final long heapThreshold;
+    private final FrequencySketch sketch;
+    private final Map<String, Blob> blobs = new HashMap<>(); // <-- Shared contents by hash
+
+    private final AtomicLong hits       = new AtomicLong();
+    private final AtomicLong misses     = new AtomicLong();
+    private final AtomicLong evictions  = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong shares     = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param heapCapacity maximum number of bytes kept in the heap.
+     * @param mappedCapacity maximum number of bytes kept as memory-mapped
+     * regions.
+     * @param heapThreshold length from which contents are kept as
+     * memory-mapped regions or a negative value in order to keep all
+     * contents in the heap.
+     */
+    TieredContentCache(long heapCapacity, long mappedCapacity, long heapThreshold) {
+        this.heap = new Tier(heapCapacity);
+        this.mapped = new Tier(mappedCapacity);
+        this.heapThreshold = heapThreshold;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, (heapCapacity + mappedCapacity) / AVERAGE_ENTRY_LENGTH));
+    }
+
+    // Adds an entry referencing given contents to given tier.
+    private void __add(Tier tier, String key, long lastModified, Blob blob) {
+        if (blob.references++ == 0) {
+            tier.size += blob.content.capacity();
+
+            if (blob.hash != null)
+                blobs.put(blob.hash, blob);
+        }
+
+        tier.entries.put(key, new Entry(blob, lastModified));
+    }
+
+    // Releases the contents referenced by given entry of given tier.
+    private void __release(Tier tier, Entry entry) {
+        Blob blob = entry.blob;
+
+        if (--blob.references == 0) {
+            tier.size -= blob.content.capacity();
+
+            if (blob.hash != null)
+                blobs.remove(blob.hash);
+        }
+    }
+
+    // Removes the entry associated with given key from given tier.
+    private void __remove(Tier tier, String key) {
+        Entry entry = tier.entries.remove(key);
+
+        if (entry != null)
+            __release(tier, entry);
+    }
+
+    // Removes the entry associated with given key from both tiers.
+    private void __remove(String key) {
+        __remove(heap, key);
+        __remove(mapped, key);
+    }
+
+    // Returns the tier which keeps contents of given length.
+    private Tier __getTier(long length) {
+        return heapThreshold < 0 || length < heapThreshold ? heap : mapped;
+    }
+
+    // Returns a boolean indicating if an entry with given key and length may
+    // be stored, evicting entries accessed less often if necessary. Entries
+    // denied because of their frequency are counted as rejections.
+    private boolean __admits(Tier tier, String key, long length) {
+        if (length > tier.capacity / ENTRY_RATIO || length > Integer.MAX_VALUE)
+            return false;
+
+        long required = tier.size + length - tier.capacity;
+
+        if (required <= 0)
+            return true;
+
+        int frequency = sketch.frequency(key);
+
+        for (Map.Entry<String, Entry> victim : tier.entries.entrySet()) {
+            Blob blob = victim.getValue().blob;
+            long released = blob.references == 1 ? blob.content.capacity() : 0; // <-- Shared contents may be kept
+
+            if (victim.getKey().equals(key)) {
+                required -= released; // <-- Replaced version
+            } else if (sketch.frequency(victim.getKey()) >= frequency) {
+                rejections.incrementAndGet();
+                return false;
+            } else {
+                required -= released;
+            }
+
+            if (required <= 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the contents associated with given version of a file and
+     * records an access to such file.
+     *
+     * @param key file key.
+     * @param length file length.
+     * @param lastModified file last modification timestamp.
+     * @return the contents associated with given file version or null if
+     * there is no such entry. Returned buffer must not be modified.
+     */
+    ByteBuffer get(String key, long length, long lastModified) {
+        sketch.increment(key);
+
+        ByteBuffer content = null;
+
+        synchronized (this) {
+            Tier tier = __getTier(length);
+            Entry entry = tier.entries.get(key);
+
+            if (entry != null && entry.blob.content.capacity() == length && entry.lastModified == lastModified) {
+                content = entry.blob.content;
+            } else {
+                // File was changed: stale contents are discarded.
+                __remove(key);
+            }
+        }
+
+        if (content == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return content;
+    }
+
+    /**
+     * Returns a boolean indicating if contents of given file would be stored
+     * by this cache, so that callers may skip loading contents which would be
+     * discarded.
+     *
+     * @param key file key.
+     * @param length file length.
+     * @return a boolean indicating if contents of given file would be stored.
+     */
+    synchronized boolean admits(String key, long length) {
+        return __admits(__getTier(length), key, length);
+    }
+
+    /**
+     * Returns a boolean indicating if contents of given length are kept as
+     * memory-mapped regions.
+     *
+     * @param length contents length.
+     * @return a boolean indicating if contents of given length are kept as
+     * memory-mapped regions.
+     */
+    boolean isMapped(long length) {
+        return __getTier(length) == mapped;
+    }
+
+    /**
+     * Associates given file version with cached contents having given hash,
+     * so that files holding identical contents share a single buffer.
+     *
+     * @param key file key.
+     * @param length file length.
+     * @param lastModified file last modification timestamp.
+     * @param hash content hash of given file version.
+     * @return the shared contents or null if no cached contents have given
+     * hash. Returned buffer must not be modified.
+     */
+    synchronized ByteBuffer share(String key, long length, long lastModified, String hash) {
+        Blob blob = blobs.get(hash);
+
+        if (blob == null || blob.content.capacity() != length)
+            return null;
+
+        __remove(key);
+        __add(__getTier(length), key, lastModified, blob);
+        shares.incrementAndGet();
+
+        return blob.content;
+    }
+
+    /**
+     * Stores the contents of given file version, if admitted.
+     *
+     * @param key file key.
+     * @param lastModified file last modification timestamp.
+     * @param content file contents. Stored buffers must not be modified.
+     */
+    void put(String key, long lastModified, ByteBuffer content) {
+        put(key, lastModified, content, null);
+    }
+
+    /**
+     * Stores the contents of given file version, if admitted. If contents
+     * with given hash are already cached, given file shares them instead.
+     *
+     * @param key file key.
+     * @param lastModified file last modification timestamp.
+     * @param content file contents. Stored buffers must not be modified.
+     * @param hash content hash of given file version or null if contents must
+     * not be shared.
+     */
+    synchronized void put(String key, long lastModified, ByteBuffer content, String hash) {
+        long length = content.capacity();
+
+        if (hash != null && share(key, length, lastModified, hash) != null)
+            return;
+
+        Tier tier = __getTier(length);
+
+        if (!__admits(tier, key, length))
+            return;
+
+        __remove(key);
+
+        Iterator<Map.Entry<String, Entry>> iterator = tier.entries.entrySet().iterator();
+
+        while (tier.size + length > tier.capacity && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            __release(tier, entry);
+            evictions.incrementAndGet();
+        }
+
+        __add(tier, key, lastModified, new Blob(content, hash));
+    }
+
+    /**
+     * Returns the number of lookups which found an entry.
+     *
+     * @return the number of lookups which found an entry.
+     */
+    long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find an entry.
+     *
+     * @return the number of lookups which did not find an entry.
+     */
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries evicted in order to store other ones.
+     *
+     * @return the number of entries evicted in order to store other ones.
+     */
+    long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of entries which were not stored because they were
+     * accessed less often than the entries they would evict.
+     *
+     * @return the number of rejected entries.
+     */
+    long getRejectionCount() {
+        return rejections.get();
+    }
+
+    /**
+     * Returns the number of entries which share the contents of another
+     * entry.
+     *
+     * @return the number of entries which share the contents of another
+     * entry.
+     */
+    long getShareCount() {
+        return shares.get();
+    }
+
+    /**
+     * Returns the number of bytes kept in the heap.
+     *
+     * @return the number of bytes kept in the heap.
+     */
+    synchronized long getHeapSize() {
+        return heap.size;
+    }
+
+    /**
+     * Returns the number of bytes kept as memory-mapped regions.
+     *
+     * @return the number of bytes kept as memory-mapped regions.
+     */
+    synchronized long getMappedSize() {
+        return mapped.size;
+    }
+}
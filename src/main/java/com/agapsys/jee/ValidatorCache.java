@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of content hashes of resources.
+ *
+ * A hash is computed once per resource version (identified by resource key,
+ * length and last modification timestamp). Computations are performed by a
+ * background thread owned by the cache (and stopped once the cache is closed
+ * or idle), so that request threads never read resource contents in order to
+ * obtain a validator. Hashes of resources changed while being read are
+ * discarded. Computations requested while the background queue is full are
+ * dropped (and requested again by later lookups).
+ */
+final class ValidatorCache {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int    HASH_LENGTH    = 16; // <-- Number of digest bytes used by hashes
+    private static final int    BUFFER_SIZE    = 8192;
+
+    private static final int  MAX_QUEUED_COMPUTATIONS = 1024;
+    private static final long IDLE_TIMEOUT            = 30000; // <-- Milliseconds
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Provides the contents of a resource. */
+    interface Source {
+        /**
+         * Opens the resource.
+         *
+         * @return a stream providing resource contents.
+         * @throws IOException if an I/O error happened while opening the resource.
+         */
+        InputStream open() throws IOException;
+
+        /**
+         * Returns a boolean indicating if the resource still has given
+         * version.
+         *
+         * @param length resource length.
+         * @param lastModified resource last modification timestamp.
+         * @return a boolean indicating if the resource still has given
+         * version. If false, a hash computed from its contents may not
+         * belong to given version.
+         */
+        boolean matches(long length, long lastModified);
+    }
+
+    private static class CacheEntry {
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+
+        private CacheEntry(long length, long lastModified, String etag) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+    }
+
+    private static MessageDigest __newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    // Returns the hexadecimal representation of the hash of the contents
+    // provided by given stream. Stream is not closed by this method.
+    static String _computeHash(InputStream is) throws IOException {
+        MessageDigest digest = __newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        for (int length = 0; (length = is.read(buffer)) > 0;) {
+            digest.update(buffer, 0, length);
+        }
+
+        return _toHex(digest.digest(), HASH_LENGTH);
+    }
+
+    // Returns the entity tag derived from the hash of given contents (from
+    // position zero up to the buffer capacity). Buffer is not modified.
+    static String _computeETag(ByteBuffer content) {
+        MessageDigest digest = __newDigest();
+        ByteBuffer duplicate = content.duplicate();
+        duplicate.clear();
+        digest.update(duplicate);
+
+        return "\"" + _toHex(digest.digest(), HASH_LENGTH) + "\"";
+    }
+
+    // Returns the hexadecimal representation of the first bytes of given array.
+    static String _toHex(byte[] bytes, int length) {
+        char[] chars = new char[length * 2];
+
+        for (int i = 0; i < length; i++) {
+            chars[i * 2]     = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+    // </editor-fold>
+
+    private final Map<String, CacheEntry> entries;
+    private final Set<String> pendingKeys = new HashSet<>();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of cached entries. When exceeded, least
+     * recently used entries are evicted.
+     */
+    ValidatorCache(int capacity) {
+        entries = new LruMap<>(capacity);
+        executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_COMPUTATIONS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, ValidatorCache.class.getSimpleName());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true); // <-- Idle caches do not hold a thread
+    }
+
+    // Computes the hash of given resource and stores it in this cache.
+    // Returns the resulting entity tag or null if resource is unavailable or
+    // was changed while being read. Only scheduled computations release the
+    // pending state of their key.
+    private String __compute(String key, long length, long lastModified, Source source, boolean scheduled) {
+        if (scheduled) {
+            String etag = __get(key, length, lastModified);
+
+            if (etag != null) { // <-- Already computed by a request thread
+                synchronized (this) {
+                    pendingKeys.remove(key);
+                }
+
+                return etag;
+            }
+        }
+
+        String etag = null;
+
+        try (InputStream is = source.open()) {
+            if (is != null)
+                etag = "\"" + _computeHash(is) + "\"";
+        } catch (IOException ignored) {
+            // Resource became unavailable. Hash will be computed again on next request.
+        }
+
+        if (etag != null && !source.matches(length, lastModified))
+            etag = null; // <-- Contents may belong to a newer version
+
+        synchronized (this) {
+            if (scheduled)
+                pendingKeys.remove(key);
+
+            if (etag != null)
+                entries.put(key, new CacheEntry(length, lastModified, etag));
+        }
+
+        return etag;
+    }
+
+    // Returns the cached entity tag of given resource version or null if
+    // there is no such entry.
+    private synchronized String __get(String key, long length, long lastModified) {
+        CacheEntry entry = entries.get(key);
+
+        if (entry != null && entry.length == length && entry.lastModified == lastModified)
+            return entry.etag;
+
+        return null;
+    }
+
+    /**
+     * Returns the strong entity tag derived from the content hash of given
+     * resource version. Tags are built once per version, so that lookups do
+     * not allocate.
+     *
+     * @param key resource key.
+     * @param length resource length.
+     * @param lastModified resource last modification timestamp.
+     * @param source source of resource contents.
+     * @return the entity tag (including surrounding quotes) of given resource
+     * version or null if its hash was not computed yet. In this case, a
+     * background computation is scheduled.
+     */
+    String getETag(final String key, final long length, final long lastModified, final Source source) {
+        synchronized (this) {
+            String etag = __get(key, length, lastModified);
+
+            if (etag != null)
+                return etag;
+
+            if (!pendingKeys.add(key))
+                return null; // <-- Computation is already scheduled
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    __compute(key, length, lastModified, source, true);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Queue is full (or cache is closed). Computation will be requested again on next lookup.
+            synchronized (this) {
+                pendingKeys.remove(key);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the strong entity tag derived from the content hash of given
+     * resource version, computing such hash in the calling thread if
+     * necessary.
+     *
+     * @param key resource key.
+     * @param length resource length.
+     * @param lastModified resource last modification timestamp.
+     * @param source source of resource contents.
+     * @return the entity tag (including surrounding quotes) of given resource
+     * version or null if resource is unavailable or was changed while being
+     * read.
+     */
+    String computeETag(String key, long length, long lastModified, Source source) {
+        String etag = __get(key, length, lastModified);
+
+        if (etag != null)
+            return etag;
+
+        return __compute(key, length, lastModified, source, false);
+    }
+
+    /**
+     * Stops background computations. Pending ones are discarded.
+     */
+    void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompressed variants available for a version of a resource.
+ *
+ * @param <T> type of the objects locating variant contents.
+ */
+final class VariantSet<T> {
+
+    /**
+     * Precompressed variant of a resource.
+     *
+     * @param <T> type of the object locating variant contents.
+     */
+    static final class Variant<T> {
+        final String encoding;
+        final T target;
+        final long length;
+        final long lastModified;
+
+        Variant(String encoding, T target, long length, long lastModified) {
+            this.encoding = encoding;
+            this.target = target;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    final long length;
+    final long lastModified;
+
+    private final List<Variant<T>> variants = new ArrayList<>(2);
+    private String[] encodings = new String[0];
+
+    /**
+     * Constructor.
+     *
+     * @param length length of the original resource.
+     * @param lastModified last modification timestamp of the original resource.
+     */
+    VariantSet(long length, long lastModified) {
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Adds a variant. Variants shall be added in server preference order.
+     *
+     * @param variant variant to be added.
+     */
+    void add(Variant<T> variant) {
+        variants.add(variant);
+
+        String[] newEncodings = new String[encodings.length + 1];
+        System.arraycopy(encodings, 0, newEncodings, 0, encodings.length);
+        newEncodings[encodings.length] = variant.encoding;
+        encodings = newEncodings;
+    }
+
+    /**
+     * Returns a boolean indicating if this set has no variants.
+     *
+     * @return a boolean indicating if this set has no variants.
+     */
+    boolean isEmpty() {
+        return variants.isEmpty();
+    }
+
+    /**
+     * Returns a boolean indicating if this set was built for given version of
+     * the original resource.
+     *
+     * @param length length of the original resource.
+     * @param lastModified last modification timestamp of the original resource.
+     * @return a boolean indicating if this set matches given resource version.
+     */
+    boolean matches(long length, long lastModified) {
+        return this.length == length && this.lastModified == lastModified;
+    }
+
+    /**
+     * Selects the variant preferred by a client.
+     *
+     * @param acceptEncoding value of the "Accept-Encoding" request header (may be null).
+     * @return the variant to be served or null if the original resource shall be served.
+     */
+    Variant<T> select(String acceptEncoding) {
+        String encoding = AbstractFileServlet._negotiateEncoding(acceptEncoding, encodings);
+
+        if (encoding == null)
+            return null;
+
+        for (Variant<T> variant : variants) {
+            if (variant.encoding.equals(encoding))
+                return variant;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Thread pool running each task in a new virtual thread.
+ *
+ * Virtual threads are obtained reflectively, so that this class can be loaded
+ * by runtimes which do not provide them (see
+ * {@linkplain VirtualThreadPool#isSupported()}). A new executor is created
+ * whenever the pool is started, so that a container can be restarted.
+ */
+final class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final Method FACTORY_METHOD;
+
+    static {
+        Method factoryMethod;
+
+        try {
+            factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            factoryMethod = null;
+        }
+
+        FACTORY_METHOD = factoryMethod;
+    }
+
+    /**
+     * Returns a boolean indicating if current runtime supports virtual threads.
+     *
+     * @return a boolean indicating if current runtime supports virtual threads.
+     */
+    static boolean isSupported() {
+        return FACTORY_METHOD != null;
+    }
+    // </editor-fold>
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private volatile ExecutorService executor = null;
+
+    /**
+     * Constructor.
+     *
+     * @throws UnsupportedOperationException if current runtime does not
+     * support virtual threads.
+     */
+    VirtualThreadPool() throws UnsupportedOperationException {
+        if (!isSupported())
+            throw new UnsupportedOperationException("Virtual threads are not supported by current runtime");
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        try {
+            executor = (ExecutorService) FACTORY_METHOD.invoke(null);
+        } catch (InvocationTargetException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+
+        executor.shutdown();
+
+        if (!executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS))
+            executor.shutdownNow();
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                threadCount.incrementAndGet();
+
+                try {
+                    command.run();
+                } finally {
+                    threadCount.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (!executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+            // Wait for termination
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return threadCount.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0; // <-- Threads are never reused
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false; // <-- Threads are created on demand
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Locations of the uncompressed (STORED) entries of a zip (or jar) file.
+ *
+ * Contents of a STORED entry are laid out verbatim in the archive, so that
+ * any region of the entry can be read at a fixed offset, without inflating
+ * the preceding bytes. Compressed, encrypted and ZIP64 entries are not
+ * listed, since their contents cannot be located that way. Entries are read
+ * through a single channel of the zip file, shared by all open entries and
+ * kept open until the directory is closed.
+ */
+final class ZipDirectory {
+
+    // <editor-fold desc="STATIC SCOPE" defaultstate="collapsed">
+    private static final int END_SIGNATURE          = 0x06054b50;
+    private static final int CENTRAL_SIGNATURE      = 0x02014b50;
+    private static final int LOCAL_SIGNATURE        = 0x04034b50;
+    private static final int END_RECORD_SIZE        = 22;
+    private static final int CENTRAL_HEADER_SIZE    = 46;
+    private static final int LOCAL_HEADER_SIZE      = 30;
+    private static final int MAX_COMMENT_LENGTH     = 0xffff;
+    private static final long ZIP64_MARKER          = 0xffffffffL;
+    private static final int METHOD_STORED          = 0;
+    private static final int FLAG_ENCRYPTED         = 0x01;
+
+    /** STORED entry. */
+    static final class Entry {
+        final long localHeaderOffset;
+        final long length;
+
+        // Resolved on first use.
+        volatile long dataOffset = -1;
+
+        private Entry(long localHeaderOffset, long length) {
+            this.localHeaderOffset = localHeaderOffset;
+            this.length = length;
+        }
+    }
+
+    // Reads exactly the remaining bytes of given buffer, starting at given
+    // position.
+    private static ByteBuffer __read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            int length = channel.read(buffer, position);
+
+            if (length < 0)
+                throw new EOFException("Unexpected end of file");
+
+            position += length;
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    // Returns the offset of the end of central directory record.
+    private static long __findEndRecord(FileChannel channel) throws IOException {
+        long size = channel.size();
+
+        if (size < END_RECORD_SIZE)
+            throw new IOException("Not a zip file");
+
+        // Record is followed by a comment of up to 64KiB.
+        long start = Math.max(0, size - END_RECORD_SIZE - MAX_COMMENT_LENGTH);
+        ByteBuffer tail = __read(channel, ByteBuffer.allocate((int) (size - start)), start);
+
+        for (int i = tail.limit() - END_RECORD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE && i + END_RECORD_SIZE + (tail.getShort(i + 20) & 0xffff) == tail.limit())
+                return start + i;
+        }
+
+        throw new IOException("Not a zip file");
+    }
+
+    /**
+     * Reads the central directory of given zip file.
+     *
+     * @param zipFile zip file.
+     * @return central directory of given file.
+     * @throws IOException if an I/O error happened or given file is not a
+     * supported zip file.
+     */
+    static ZipDirectory _read(Path zipFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ)) {
+            ByteBuffer end = __read(channel, ByteBuffer.allocate(END_RECORD_SIZE), __findEndRecord(channel));
+
+            int entryCount = end.getShort(10) & 0xffff;
+            long directorySize = end.getInt(12) & ZIP64_MARKER;
+            long directoryOffset = end.getInt(16) & ZIP64_MARKER;
+
+            if (directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER || directorySize > Integer.MAX_VALUE)
+                throw new IOException("ZIP64 archives are not supported");
+
+            ByteBuffer directory = __read(channel, ByteBuffer.allocate((int) directorySize), directoryOffset);
+            Map<String, Entry> entries = new HashMap<>();
+
+            for (int i = 0, pos = 0; i < entryCount; i++) {
+                if (pos + CENTRAL_HEADER_SIZE > directory.limit() || directory.getInt(pos) != CENTRAL_SIGNATURE)
+                    throw new IOException("Invalid central directory");
+
+                int flags = directory.getShort(pos + 8) & 0xffff;
+                int method = directory.getShort(pos + 10) & 0xffff;
+                long compressedSize = directory.getInt(pos + 20) & ZIP64_MARKER;
+                long size = directory.getInt(pos + 24) & ZIP64_MARKER;
+                int nameLength = directory.getShort(pos + 28) & 0xffff;
+                int extraLength = directory.getShort(pos + 30) & 0xffff;
+                int commentLength = directory.getShort(pos + 32) & 0xffff;
+                long localHeaderOffset = directory.getInt(pos + 42) & ZIP64_MARKER;
+
+                if (pos + CENTRAL_HEADER_SIZE + nameLength > directory.limit())
+                    throw new IOException("Invalid central directory");
+
+                boolean stored = method == METHOD_STORED
+                    && (flags & FLAG_ENCRYPTED) == 0
+                    && compressedSize == size
+                    && size != ZIP64_MARKER
+                    && localHeaderOffset != ZIP64_MARKER;
+
+                if (stored) {
+                    String name = new String(directory.array(), pos + CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+                    entries.put(name, new Entry(localHeaderOffset, size));
+                }
+
+                pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+
+            return new ZipDirectory(zipFile, entries);
+        }
+    }
+    // </editor-fold>
+
+    private final Path zipFile;
+    private final Map<String, Entry> entries;
+
+    private final Object channelLock = new Object();
+    private FileChannel channel = null;
+
+    // Entries do not own the shared channel.
+    private final Closeable entryOwner = new Closeable() {
+        @Override
+        public void close() {}
+    };
+
+    private ZipDirectory(Path zipFile, Map<String, Entry> entries) {
+        this.zipFile = zipFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the STORED entry with given name.
+     *
+     * @param name entry name.
+     * @return the STORED entry with given name or null if there is no such
+     * entry or if such entry is compressed.
+     */
+    Entry get(String name) {
+        return entries.get(name);
+    }
+
+    // Returns the shared channel of the zip file, opening it if needed (such
+    // channels are closed if a thread reading them is interrupted).
+    private FileChannel __getChannel() throws IOException {
+        synchronized (channelLock) {
+            if (channel == null || !channel.isOpen())
+                channel = FileChannel.open(zipFile, StandardOpenOption.READ);
+
+            return channel;
+        }
+    }
+
+    /**
+     * Opens the contents of given entry.
+     *
+     * @param entry STORED entry of this directory.
+     * @return a stream over the region of the zip file holding the contents
+     * of given entry. Closing the stream does not close the shared channel.
+     * @throws IOException if an I/O error happened or if the local header of
+     * given entry is invalid.
+     */
+    InputStream open(Entry entry) throws IOException {
+        FileChannel channel = __getChannel();
+        return new AbstractFileServlet.RegionStream(channel, getDataOffset(channel, entry), entry.length, entryOwner);
+    }
+
+    /**
+     * Closes the shared channel of the zip file. Streams opened afterwards
+     * open it again.
+     */
+    void close() {
+        synchronized (channelLock) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing to do
+                }
+            }
+
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the offset of the contents of given entry in the zip file.
+     *
+     * @param channel channel of the zip file.
+     * @param entry STORED entry of this directory.
+     * @return the offset of the contents of given entry in the zip file.
+     * @throws IOException if an I/O error happened or if the local header of
+     * given entry is invalid.
+     */
+    long getDataOffset(FileChannel channel, Entry entry) throws IOException {
+        long dataOffset = entry.dataOffset;
+
+        if (dataOffset < 0) {
+            // Local header may carry a different extra field than the
+            // central directory.
+            ByteBuffer header = __read(channel, ByteBuffer.allocate(LOCAL_HEADER_SIZE), entry.localHeaderOffset);
+
+            if (header.getInt(0) != LOCAL_SIGNATURE)
+                throw new IOException("Invalid local header in " + zipFile);
+
+            dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+
+            if (dataOffset + entry.length > channel.size())
+                throw new IOException("Invalid local header in " + zipFile);
+
+            entry.dataOffset = dataOffset;
+        }
+
+        return dataOffset;
+    }
+
+    /**
+     * Returns the number of STORED entries.
+     *
+     * @return the number of STORED entries.
+     */
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.AllocationFilter;
+import com.agapsys.jee.app.MappedWebrootServlet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+
+/**
+ * Reports the number of bytes allocated by the request thread per request
+ * (container included) while a file is served, for full (200), partial (206)
+ * and not modified (304) responses. Budgets checked by
+ * {@linkplain AllocationTest} are derived from these figures.
+ *
+ * Usage: AllocationBenchmark [warm-up requests (default 10000)] [measured requests (default 2000)]
+ *
+ * This is not part of the test suite. Run it with the test classpath on a
+ * HotSpot runtime (per-thread allocation counters are required).
+ */
+public class AllocationBenchmark {
+    private static final String URI = MappedWebrootServlet.URL + "/data.txt";
+
+    // Performs a request and returns its status code.
+    private static int request(TestingContainer<?> tc, String header, String value) throws IOException {
+        HttpURLConnection conn = tc.openConnection(URI);
+
+        if (header != null)
+            conn.setRequestProperty(header, value);
+
+        int status = conn.getResponseCode();
+
+        if (status < 300) {
+            try (InputStream is = conn.getInputStream()) {
+                while (is.read() >= 0) {}
+            }
+        }
+
+        return status;
+    }
+
+    // Measures the bytes allocated by given kind of request and prints the results.
+    private static void measure(TestingContainer<?> tc, String name, String header, String value, int expectedStatus, int warmUpRequests, int measuredRequests) throws IOException {
+        for (int i = 0; i < warmUpRequests; i++)
+            request(tc, header, value);
+
+        long[] samples = new long[measuredRequests];
+        long total = 0;
+
+        for (int i = 0; i < samples.length; i++) {
+            int status = request(tc, header, value);
+
+            if (status != expectedStatus)
+                throw new IllegalStateException("Unexpected status: " + status);
+
+            samples[i] = AllocationFilter.getLastAllocatedBytes();
+            total += samples[i];
+        }
+
+        Arrays.sort(samples);
+
+        System.out.println(String.format(
+            "%-4s bytes/op: median=%d mean=%d p90=%d min=%d",
+            name,
+            samples[samples.length / 2],
+            total / samples.length,
+            samples[samples.length * 9 / 10],
+            samples[0]
+        ));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmUpRequests = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int measuredRequests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        if (!AllocationFilter.isSupported()) {
+            System.out.println("Thread allocation counters are not supported by this runtime");
+            return;
+        }
+
+        TestingContainer<?> tc = TestingContainer.newInstance(MappedWebrootServlet.class).registerFilter(AllocationFilter.class);
+        tc.start();
+
+        try {
+            measure(tc, "200", null, null, 200, warmUpRequests, measuredRequests);
+            measure(tc, "206", "Range", "bytes=5-9", 206, warmUpRequests, measuredRequests);
+
+            String etag = tc.openConnection(URI).getHeaderField("ETag"); // <-- Content hash is computed by now
+            measure(tc, "304", "If-None-Match", etag, 304, warmUpRequests, measuredRequests);
+        } finally {
+            tc.stop();
+        }
+    }
+}
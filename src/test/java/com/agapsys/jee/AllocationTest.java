@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.AllocationFilter;
+import com.agapsys.jee.app.MappedWebrootServlet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the number of bytes allocated by the request thread while a file
+ * is served (including the container's own allocations). Budgets are loose
+ * enough to absorb JIT and container variance, but catch per-request copies
+ * of headers or contents.
+ */
+public class AllocationTest {
+
+    private static final String URI = MappedWebrootServlet.URL + "/data.txt";
+    private static final int WARMUP_REQUESTS = 2000;
+    private static final int MEASURED_REQUESTS = 200;
+
+    private static final long OK_BUDGET           = 2048;
+    private static final long NOT_MODIFIED_BUDGET = 1024;
+
+    private TestingContainer tc;
+
+    @Before
+    public void before() {
+        Assume.assumeTrue(AllocationFilter.isSupported());
+
+        tc = TestingContainer.newInstance(MappedWebrootServlet.class).registerFilter(AllocationFilter.class);
+        tc.start();
+    }
+
+    @After
+    public void after() {
+        if (tc != null)
+            tc.stop();
+    }
+
+    // Performs a request and returns its status code.
+    private int request(String etag) throws IOException {
+        HttpURLConnection conn = tc.openConnection(URI);
+
+        if (etag != null)
+            conn.setRequestProperty("If-None-Match", etag);
+
+        int status = conn.getResponseCode();
+
+        if (status == 200) {
+            try (InputStream is = conn.getInputStream()) {
+                while (is.read() >= 0) {}
+            }
+        }
+
+        return status;
+    }
+
+    // Returns the median number of bytes allocated per request.
+    private long measure(String etag, int expectedStatus) throws IOException {
+        for (int i = 0; i < WARMUP_REQUESTS; i++)
+            request(etag);
+
+        long[] samples = new long[MEASURED_REQUESTS];
+
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(expectedStatus, request(etag));
+            samples[i] = AllocationFilter.getLastAllocatedBytes();
+        }
+
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    @Test
+    public void testAllocationBudget() throws IOException {
+        long ok = measure(null, 200);
+        String etag = tc.openConnection(URI).getHeaderField("ETag");
+        long notModified = measure(etag, 304);
+
+        assertTrue("200 response allocated " + ok + " bytes", ok <= OK_BUDGET);
+        assertTrue("304 response allocated " + notModified + " bytes", notModified <= NOT_MODIFIED_BUDGET);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.AllocationFilter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import javax.servlet.annotation.WebServlet;
+
+/**
+ * Serves files from 1 KiB up to 1 GiB through pooled, adaptively sized
+ * transfer buffers and through unpooled fixed 4 KiB buffers (the former
+ * behavior), reporting throughput and bytes allocated by the request thread
+ * per request (container included). Zero-copy transfers and content hashes
+ * are disabled, so that every byte goes through transfer buffers.
+ *
+ * Usage: BufferPoolBenchmark [largest file size in bytes (default 1 GiB)]
+ *
+ * This is not part of the test suite. Run it with the test classpath; files
+ * are created in the default temporary directory.
+ */
+public class BufferPoolBenchmark {
+    private static final long BYTES_PER_SIZE = 256L * 1024 * 1024;
+    private static final int MAX_REQUESTS_PER_SIZE = 2000;
+
+    private static volatile File root;
+
+    // Servlet used by both modes.
+    private static abstract class BenchmarkServlet extends MappedFileServlet {
+        @Override
+        protected String getMappedDirPath() {
+            return root.getPath();
+        }
+
+        @Override
+        protected long getZeroCopyThreshold() {
+            return -1;
+        }
+
+        @Override
+        protected int getValidatorCacheCapacity() {
+            return 0;
+        }
+    }
+
+    @WebServlet(PooledServlet.URL + "/*")
+    public static class PooledServlet extends BenchmarkServlet {
+        public static final String URL = "/pooled";
+    }
+
+    @WebServlet(UnpooledServlet.URL + "/*")
+    public static class UnpooledServlet extends BenchmarkServlet {
+        public static final String URL = "/unpooled";
+
+        @Override
+        protected long getBufferPoolSize() {
+            return 0;
+        }
+
+        @Override
+        protected int getMaxBufferSize() {
+            return DEFAULT_BUFFER_SIZE;
+        }
+    }
+
+    // Performs a request and returns the number of received bytes.
+    private static long request(TestingContainer<?> tc, String uri, byte[] buffer) throws IOException {
+        HttpURLConnection conn = tc.openConnection(uri);
+
+        if (conn.getResponseCode() != 200)
+            throw new IllegalStateException("Unexpected status: " + conn.getResponseCode());
+
+        long received = 0;
+
+        try (InputStream is = conn.getInputStream()) {
+            for (int length = 0; (length = is.read(buffer)) >= 0;) {
+                received += length;
+            }
+        }
+
+        return received;
+    }
+
+    // Serves given file repeatedly and prints the results.
+    private static void measure(TestingContainer<?> tc, String mount, String name, long size) throws IOException {
+        String uri = mount + "/" + name;
+        byte[] buffer = new byte[64 * 1024];
+        int requestCount = (int) Math.max(3, Math.min(MAX_REQUESTS_PER_SIZE, BYTES_PER_SIZE / size));
+
+        for (int i = 0; i < requestCount; i++) {
+            request(tc, uri, buffer); // <-- Warm-up
+        }
+
+        long allocated = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < requestCount; i++) {
+            if (request(tc, uri, buffer) != size)
+                throw new IllegalStateException("Truncated response");
+
+            allocated += AllocationFilter.getLastAllocatedBytes();
+        }
+
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        System.out.println(String.format(
+            "%-9s %-14s requests=%-5d throughput=%8.1f MiB/s allocated=%d bytes/op",
+            mount.substring(1),
+            name,
+            requestCount,
+            size * requestCount * 1e9 / elapsed / (1024 * 1024),
+            allocated / requestCount
+        ));
+    }
+
+    public static void main(String[] args) throws IOException {
+        long maxSize = args.length > 0 ? Long.parseLong(args[0]) : 1024L * 1024 * 1024;
+
+        if (!AllocationFilter.isSupported()) {
+            System.out.println("Thread allocation counters are not supported by this runtime");
+            return;
+        }
+
+        root = Files.createTempDirectory("buffer-pool-benchmark").toFile();
+        TestingContainer<?> tc = TestingContainer.newInstance(PooledServlet.class, UnpooledServlet.class).registerFilter(AllocationFilter.class, "/*");
+        tc.start();
+
+        try {
+            for (long size = 1024; size <= maxSize; size *= 16) {
+                String name = size + ".bin";
+                File file = new File(root, name);
+
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(size);
+                }
+
+                try {
+                    measure(tc, PooledServlet.URL, name, size);
+                    measure(tc, UnpooledServlet.URL, name, size);
+                } finally {
+                    file.delete();
+                }
+            }
+
+            System.out.println(String.format(
+                "pool: hits=%d misses=%d occupancy=%d bytes",
+                tc.getServlet(PooledServlet.class).getBufferPoolHits(),
+                tc.getServlet(PooledServlet.class).getBufferPoolMisses(),
+                tc.getServlet(PooledServlet.class).getBufferPoolOccupancy()
+            ));
+        } finally {
+            tc.stop();
+            root.delete();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(16 * 1024 * 1024);
+
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(1).capacity());
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(BufferPool.MIN_BUFFER_SIZE).capacity());
+        assertEquals(2 * BufferPool.MIN_BUFFER_SIZE, pool.acquire(BufferPool.MIN_BUFFER_SIZE + 1).capacity());
+        assertEquals(32 * 1024, pool.acquire(20000).capacity());
+        assertEquals(BufferPool.MAX_BUFFER_SIZE, pool.acquire(BufferPool.MAX_BUFFER_SIZE).capacity());
+        assertEquals(BufferPool.MAX_BUFFER_SIZE + 1, pool.acquire(BufferPool.MAX_BUFFER_SIZE + 1).capacity());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(16 * 1024 * 1024);
+
+        ByteBuffer buffer = pool.acquire(4096);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        assertEquals(4096, pool.getPooledBytes());
+
+        ByteBuffer reused = pool.acquire(3000);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertEquals(0, pool.getPooledBytes());
+
+        assertNotSame(buffer, pool.acquire(4096)); // <-- Pool is empty
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+
+        // Oversized buffers are not pooled.
+        pool.release(pool.acquire(BufferPool.MAX_BUFFER_SIZE + 1));
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testCapacity() {
+        BufferPool pool = new BufferPool(0);
+
+        pool.release(pool.acquire(4096));
+        assertEquals(0, pool.getPooledBytes());
+        pool.acquire(4096);
+        assertEquals(0, pool.getHitCount());
+
+        // Each size class may hold up to its share of the pool capacity.
+        pool = new BufferPool(11 * 2 * 64 * 1024);
+        ByteBuffer[] buffers = { pool.acquire(64 * 1024), pool.acquire(64 * 1024), pool.acquire(64 * 1024) };
+
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        assertEquals(2 * 64 * 1024, pool.getPooledBytes());
+    }
+}
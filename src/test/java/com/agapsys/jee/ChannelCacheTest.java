@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelCacheTest {
+
+    private static FileChannel getChannel(InputStream is) {
+        return ((AbstractFileServlet.RegionStream) is).getChannel();
+    }
+
+    private File file;
+
+    @Before
+    public void before() throws IOException {
+        file = Files.createTempFile("channel", ".txt").toFile();
+        Files.write(file.toPath(), "0123456789".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void after() {
+        file.delete();
+    }
+
+    @Test
+    public void testSharedChannel() throws IOException {
+        ChannelCache cache = new ChannelCache(16, 60000);
+
+        InputStream a = cache.open(file, 10, 1);
+        InputStream b = cache.open(file, 10, 1);
+        assertSame(getChannel(a), getChannel(b));
+
+        a.close();
+        a.close(); // <-- Released only once
+        assertTrue(getChannel(b).isOpen());
+
+        b.close();
+        assertTrue(getChannel(b).isOpen()); // <-- Kept open while cached
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.close();
+        assertFalse(getChannel(b).isOpen());
+    }
+
+    @Test
+    public void testMappedRegions() throws IOException {
+        ChannelCache cache = new ChannelCache(16, 60000);
+
+        InputStream a = cache.open(file, 10, 1);
+        InputStream b = cache.open(file, 10, 1);
+
+        ByteBuffer regionA = ((AbstractFileServlet.RegionStream) a).getMappedRegions().getMappedRegion(2, 3);
+        ByteBuffer regionB = ((AbstractFileServlet.RegionStream) b).getMappedRegions().getMappedRegion(0, 10);
+
+        assertEquals(3, regionA.remaining());
+        assertEquals('2', regionA.get());
+        assertEquals(10, regionB.remaining());
+        assertEquals('0', regionB.get());
+
+        a.close();
+        b.close();
+        cache.close();
+    }
+
+    @Test
+    public void testReplacedFile() throws IOException {
+        ChannelCache cache = new ChannelCache(16, 60000);
+
+        InputStream a = cache.open(file, 10, 1);
+        InputStream b = cache.open(file, 10, 2);
+        assertFalse(getChannel(a) == getChannel(b));
+
+        // Former channel is closed once released.
+        assertTrue(getChannel(a).isOpen());
+        a.close();
+        assertFalse(getChannel(a).isOpen());
+
+        b.close();
+        assertTrue(getChannel(b).isOpen());
+        assertEquals(1, cache.size());
+
+        cache.close();
+    }
+
+    @Test
+    public void testCapacity() throws IOException {
+        File other = Files.createTempFile("channel", ".txt").toFile();
+
+        try {
+            ChannelCache cache = new ChannelCache(1, 60000);
+
+            InputStream a = cache.open(file, 10, 1);
+            InputStream b = cache.open(other, 0, 1);
+            assertEquals(2, cache.size()); // <-- Channels in use are not closed
+
+            a.close();
+            b.close();
+            cache.open(other, 0, 1).close();
+
+            assertEquals(1, cache.size());
+            assertFalse(getChannel(a).isOpen());
+            assertTrue(getChannel(b).isOpen());
+
+            cache.close();
+        } finally {
+            other.delete();
+        }
+    }
+
+    @Test
+    public void testIdleEviction() throws IOException, InterruptedException {
+        ChannelCache cache = new ChannelCache(16, 50);
+
+        InputStream is = cache.open(file, 10, 1);
+        Thread.sleep(200);
+        assertTrue(getChannel(is).isOpen()); // <-- Channel in use is kept
+
+        is.close();
+        Thread.sleep(200);
+        assertFalse(getChannel(is).isOpen());
+        assertEquals(0, cache.size());
+
+        cache.close();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class ContentCacheTest {
+
+    @Test
+    public void testEviction() {
+        ContentCache cache = new ContentCache(100);
+
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        cache.get("a");
+        cache.put("c", new byte[40]); // <-- Least recently used entry is evicted
+
+        assertNull(cache.get("b"));
+        assertEquals(80, cache.getSize());
+    }
+
+    @Test
+    public void testSharedData() {
+        ContentCache cache = new ContentCache(100);
+        byte[] data = new byte[40];
+
+        cache.put("a", data, "\"hash\"");
+        cache.put("b", new byte[40], "\"hash\"");
+        assertSame(data, cache.share("c", "\"hash\""));
+        assertSame(data, cache.get("b"));
+        assertEquals(40, cache.getSize());
+        assertEquals(2, cache.getShareCount());
+
+        // Shared data counts once, so that more entries fit.
+        cache.put("d", new byte[60]);
+        assertEquals(100, cache.getSize());
+        assertSame(data, cache.get("a"));
+
+        // Shared data is released once no entry references it.
+        cache.put("e", new byte[80]);
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertNull(cache.share("f", "\"hash\""));
+        assertEquals(80, cache.getSize());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.IndexedWebrootServlet;
+import com.agapsys.jee.app.MappedWebrootServlet;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class EmbeddedResourceIndexTest {
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        IndexedWebrootServlet.generateIndex();
+    }
+
+    private static Path getWebroot() throws URISyntaxException {
+        return new File(EmbeddedResourceIndexTest.class.getResource(MappedWebrootServlet.WEBROOT).toURI()).toPath();
+    }
+
+    @Test
+    public void testGeneratedIndex() throws IOException, URISyntaxException {
+        Path webroot = getWebroot();
+        StringWriter writer = new StringWriter();
+        EmbeddedResourceIndex._write(webroot, writer);
+
+        String stored = new String(Files.readAllBytes(webroot.resolve(EmbeddedResourceIndex.RESOURCE_NAME)), StandardCharsets.UTF_8);
+        assertEquals(writer.toString(), stored);
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        EmbeddedResourceIndex index = EmbeddedResourceIndex._load(MappedWebrootServlet.WEBROOT);
+        assertNotNull(index);
+
+        assertTrue(index.get("").isDirectory);
+        assertNull(index.get(EmbeddedResourceIndex.RESOURCE_NAME));
+        assertNull(index.get("missing.txt"));
+
+        EmbeddedResourceIndex.Entry entry = index.get("data.txt");
+        assertFalse(entry.isDirectory);
+        assertEquals(62, entry.length);
+        assertEquals("text/plain", entry.mime);
+        assertEquals(32, entry.hash.length());
+
+        assertNull(EmbeddedResourceIndex._load("/missing"));
+    }
+
+    @Test
+    public void testGenerator() throws IOException {
+        Path output = Files.createTempDirectory("index");
+        Path dir = Files.createDirectories(output.resolve("static").resolve("sub"));
+        Files.write(dir.resolve("a.css"), "a{}".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            EmbeddedResourceIndex.main(new String[] { output.toString(), "/static" });
+
+            Path indexFile = output.resolve("static").resolve(EmbeddedResourceIndex.RESOURCE_NAME);
+            String content = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8);
+
+            assertTrue(content.contains("sub\td\t0\t-\t-\n"));
+            assertTrue(content.contains("sub/a.css\tf\t3\ttext/css\t"));
+
+            Files.delete(indexFile);
+        } finally {
+            Files.delete(dir.resolve("a.css"));
+            Files.delete(dir);
+            Files.delete(output.resolve("static"));
+            Files.delete(output);
+        }
+    }
+}
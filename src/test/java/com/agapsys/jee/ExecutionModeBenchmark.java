@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.SlowServlet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the default thread pool with virtual threads under concurrent
+ * slow requests (see {@linkplain SlowServlet}). Every request is sent at
+ * once by its own client thread, and the benchmark reports elapsed time,
+ * throughput, peak platform thread count and peak heap usage (sampled, client
+ * included) for each mode.
+ *
+ * Usage: ExecutionModeBenchmark [requests (default 10000)] [concurrency limit (default 0, no limit)]
+ *
+ * This is not part of the test suite. Run it with the test classpath, on a
+ * runtime supporting virtual threads in order to compare both modes.
+ */
+public class ExecutionModeBenchmark {
+    private static final long CLIENT_STACK_SIZE = 256 * 1024;
+    private static final long SAMPLING_INTERVAL = 10;
+
+    // Sends given number of concurrent requests and prints the results.
+    private static void run(String mode, boolean virtualThreads, int requestCount, int limit) throws InterruptedException {
+        TestingContainer<?> tc = TestingContainer.newInstance(SlowServlet.class);
+
+        if (virtualThreads)
+            tc.setVirtualThreadsEnabled(true);
+
+        if (limit > 0)
+            tc.setMaxConcurrentRequests(limit);
+
+        tc.start();
+
+        try {
+            tc.openConnection(SlowServlet.URL).getResponseCode(); // <-- Warm-up
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        System.gc();
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final AtomicLong peakHeap = new AtomicLong();
+        final Runtime runtime = Runtime.getRuntime();
+
+        Thread sampler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long used = runtime.totalMemory() - runtime.freeMemory();
+
+                    if (used > peakHeap.get())
+                        peakHeap.set(used);
+
+                    try {
+                        Thread.sleep(SAMPLING_INTERVAL);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        });
+        sampler.setDaemon(true);
+
+        final TestingContainer<?> container = tc;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(requestCount);
+        final AtomicInteger successCount = new AtomicInteger();
+
+        threads.resetPeakThreadCount();
+        sampler.start();
+
+        for (int i = 0; i < requestCount; i++) {
+            Thread client = new Thread(null, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        HttpURLConnection conn = container.openConnection(SlowServlet.URL);
+
+                        if (conn.getResponseCode() == 200) {
+                            try (InputStream is = conn.getInputStream()) {
+                                while (is.read() >= 0) {}
+                            }
+
+                            successCount.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException ignored) {
+                        // Counted as failure
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "client-" + i, CLIENT_STACK_SIZE);
+
+            client.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = (System.nanoTime() - startTime) / 1000000;
+
+        sampler.interrupt();
+        tc.stop();
+
+        System.out.println(String.format(
+            "%-8s requests=%d ok=%d elapsed=%dms throughput=%.1f req/s peakThreads=%d peakHeap=%dMiB",
+            mode,
+            requestCount,
+            successCount.get(),
+            elapsed,
+            successCount.get() * 1000.0 / Math.max(1, elapsed),
+            threads.getPeakThreadCount(),
+            peakHeap.get() / (1024 * 1024)
+        ));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int requestCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int limit = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        run("platform", false, requestCount, limit);
+
+        if (ServletContainer.isVirtualThreadSupported())
+            run("virtual", true, requestCount, limit);
+        else
+            System.out.println("virtual  not supported by this runtime");
+    }
+}
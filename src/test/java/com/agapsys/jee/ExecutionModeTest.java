@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.AsyncSlowServlet;
+import com.agapsys.jee.app.SlowServlet;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutionModeTest {
+    private static final int REQUEST_COUNT = 6;
+    private static final int CONCURRENCY_LIMIT = 2;
+
+    private TestingContainer tc;
+
+    @Before
+    public void before() {
+        SlowServlet.reset();
+        AsyncSlowServlet.reset();
+        tc = TestingContainer.newInstance(SlowServlet.class, AsyncSlowServlet.class);
+    }
+
+    @After
+    public void after() {
+        tc.stop();
+    }
+
+    private final AtomicInteger retryCount = new AtomicInteger();
+
+    // Performs given number of concurrent requests and returns the number of
+    // successful ones. Rejected requests carrying a Retry-After header are
+    // counted in retryCount.
+    private int doConcurrentRequests(int count) throws InterruptedException {
+        return doConcurrentRequests(SlowServlet.URL, count);
+    }
+
+    private int doConcurrentRequests(final String uri, int count) throws InterruptedException {
+        final AtomicInteger successCount = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await(); // <-- Requests are sent at once
+                        HttpURLConnection conn = tc.openConnection(uri);
+
+                        if (conn.getResponseCode() == 200)
+                            successCount.incrementAndGet();
+
+                        if (conn.getResponseCode() == 503 && conn.getHeaderField("Retry-After") != null)
+                            retryCount.incrementAndGet();
+                    } catch (IOException | InterruptedException ignored) {
+                        // Counted as failure
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return successCount.get();
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws InterruptedException {
+        tc.setMaxConcurrentRequests(CONCURRENCY_LIMIT);
+        tc.start();
+
+        assertEquals(REQUEST_COUNT, doConcurrentRequests(REQUEST_COUNT));
+        assertTrue(SlowServlet.getMaxRunning() <= CONCURRENCY_LIMIT);
+    }
+
+    @Test
+    public void testAsyncConcurrencyLimit() throws InterruptedException {
+        tc.setMaxConcurrentRequests(CONCURRENCY_LIMIT);
+        tc.start();
+
+        // Asynchronous requests hold their permits until completed...
+        assertEquals(REQUEST_COUNT, doConcurrentRequests(AsyncSlowServlet.URL, REQUEST_COUNT));
+        assertTrue(AsyncSlowServlet.getMaxRunning() <= CONCURRENCY_LIMIT);
+
+        // ...and their asynchronous dispatches do not wait for another one.
+        AsyncSlowServlet.reset();
+        assertEquals(REQUEST_COUNT, doConcurrentRequests(AsyncSlowServlet.URL + "?dispatch", REQUEST_COUNT));
+        assertTrue(AsyncSlowServlet.getMaxRunning() <= CONCURRENCY_LIMIT);
+        assertEquals(0, tc.getQueuedRequestCount());
+    }
+
+    @Test
+    public void testLoadShedding() throws InterruptedException {
+        tc.setMaxConcurrentRequests(1).setMaxQueuedRequests(1).setRetryAfter(5);
+        tc.start();
+
+        int successCount = doConcurrentRequests(REQUEST_COUNT);
+
+        assertTrue(successCount >= 2);
+        assertEquals(REQUEST_COUNT - successCount, tc.getRejectedRequestCount());
+        assertEquals(REQUEST_COUNT - successCount, retryCount.get());
+        assertEquals(0, tc.getQueuedRequestCount());
+    }
+
+    @Test
+    public void testThreadPoolLimits() throws InterruptedException {
+        tc.setThreadPoolLimits(6, 12, 1000).setMaxQueuedJobs(64);
+        tc.start();
+
+        assertEquals(REQUEST_COUNT, doConcurrentRequests(REQUEST_COUNT));
+        assertEquals(0, tc.getRejectedJobCount());
+        assertEquals(0, tc.getQueuedJobCount());
+    }
+
+    @Test
+    public void testThreadPoolSaturation() throws InterruptedException {
+        int requestCount = 40;
+
+        tc.setThreadPoolLimits(12, 12, 1000).setMaxQueuedJobs(1).setRetryAfter(5);
+        tc.start();
+
+        // Requests which cannot be queued are answered immediately.
+        int successCount = doConcurrentRequests(requestCount);
+
+        assertTrue(successCount > 0);
+        assertTrue(retryCount.get() > 0);
+        assertEquals(requestCount, successCount + retryCount.get());
+        assertEquals(retryCount.get(), tc.getRejectedRequestCount());
+        assertTrue(tc.getRejectedJobCount() > 0); // <-- A shed connection may carry several requests
+    }
+
+    @Test
+    public void testVirtualThreads() throws InterruptedException {
+        if (!ServletContainer.isVirtualThreadSupported()) {
+            try {
+                tc.setVirtualThreadsEnabled(true);
+                fail("Virtual threads should not be available");
+            } catch (UnsupportedOperationException ignored) {
+                // Expected
+            }
+
+            return;
+        }
+
+        tc.setVirtualThreadsEnabled(true).setMaxConcurrentRequests(CONCURRENCY_LIMIT);
+        tc.start();
+
+        assertEquals(REQUEST_COUNT, doConcurrentRequests(REQUEST_COUNT));
+        assertTrue(SlowServlet.getMaxRunning() <= CONCURRENCY_LIMIT);
+
+        tc.stop();
+        tc.start(); // <-- Pool must be restartable
+
+        assertEquals(1, doConcurrentRequests(1));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.ManifestWebrootServlet;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileManifestTest {
+
+    private static void write(Path path, String content) throws IOException {
+        try (OutputStream os = Files.newOutputStream(path)) {
+            os.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private Path root;
+    private TestingContainer tc;
+
+    @Before
+    public void before() throws IOException {
+        root = Files.createTempDirectory("manifest");
+        write(root.resolve("a.txt"), "a");
+        Files.createDirectory(root.resolve("sub"));
+        write(root.resolve("sub").resolve("index.html"), "index");
+
+        ManifestWebrootServlet.root = root.toFile();
+        tc = TestingContainer.newInstance(ManifestWebrootServlet.class);
+        tc.start();
+    }
+
+    @After
+    public void after() {
+        tc.stop();
+        delete(root.toFile());
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection conn = tc.openConnection(ManifestWebrootServlet.URL + path);
+        conn.setInstanceFollowRedirects(false);
+
+        if (conn.getResponseCode() != 200)
+            return null;
+
+        try (InputStream is = conn.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int length = is.read(buffer);
+            return new String(buffer, 0, Math.max(length, 0), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Waits until given path is served with given content (null meaning not
+    // found), since the manifest is updated by a background watcher.
+    private void awaitContent(String path, String expected) throws IOException, InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            String content = get(path);
+
+            if (expected == null ? content == null : expected.equals(content))
+                return;
+
+            Thread.sleep(50);
+        }
+
+        fail("Unexpected content for " + path);
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        assertEquals("a", get("/a.txt"));
+        assertEquals("index", get("/sub/"));
+        assertNull(get("/missing.txt"));
+
+        HttpURLConnection conn = tc.openConnection(ManifestWebrootServlet.URL + "/sub");
+        conn.setInstanceFollowRedirects(false);
+        assertEquals(302, conn.getResponseCode());
+    }
+
+    @Test
+    public void testChangesAreTracked() throws IOException, InterruptedException {
+        write(root.resolve("b.txt"), "b");
+        awaitContent("/b.txt", "b");
+
+        Files.delete(root.resolve("a.txt"));
+        awaitContent("/a.txt", null);
+
+        Path dir = root.resolve("dir");
+        Files.createDirectory(dir);
+        write(dir.resolve("c.txt"), "c");
+        awaitContent("/dir/c.txt", "c");
+
+        write(root.resolve("sub").resolve("index.html"), "changed");
+        awaitContent("/sub/", "changed");
+    }
+
+    @Test
+    public void testNewFileAfterNotFound() throws IOException, InterruptedException {
+        assertNull(get("/late.txt"));
+        assertNull(get("/late.txt")); // <-- Answered from the manifest
+
+        write(root.resolve("late.txt"), "late");
+        awaitContent("/late.txt", "late");
+    }
+
+    @Test
+    public void testManifest() throws IOException {
+        FileManifest manifest = new FileManifest(root, null);
+
+        try {
+            assertTrue(manifest.isValid());
+            assertEquals(4, manifest.size()); // <-- root, a.txt, sub and sub/index.html
+            assertTrue(manifest.get("").isDirectory);
+            assertTrue(manifest.get(FileManifest._getKey("/sub/")).isDirectory);
+            assertEquals(5, manifest.get(FileManifest._getKey("//sub//index.html")).length);
+            assertEquals(5, manifest.get(FileManifest._getKey("/sub/index.html")).length);
+            assertEquals("text/plain", manifest.get("a.txt").mime);
+            assertNull(manifest.get("missing.txt"));
+        } finally {
+            manifest.close();
+        }
+
+        assertFalse(manifest.isValid());
+    }
+
+    @Test
+    public void testSymbolicLinks() throws IOException, InterruptedException {
+        Path target = Files.createTempDirectory("linked");
+
+        try {
+            write(target.resolve("linked.txt"), "linked");
+            Files.createSymbolicLink(root.resolve("link"), target);
+
+            FileManifest manifest = new FileManifest(root, null);
+
+            try {
+                // Linked contents are not tracked, but the rest of the tree is.
+                assertTrue(manifest.isValid());
+                assertFalse(manifest.isIndexed("link"));
+                assertFalse(manifest.isIndexed("link/linked.txt"));
+                assertTrue(manifest.isIndexed("sub/index.html"));
+                assertTrue(manifest.isIndexed("linked.txt"));
+            } finally {
+                manifest.close();
+            }
+
+            assertEquals("linked", get("/link/linked.txt"));
+
+            write(root.resolve("b.txt"), "b");
+            awaitContent("/b.txt", "b");
+
+            write(target.resolve("late.txt"), "late");
+            awaitContent("/link/late.txt", "late");
+
+            Files.delete(root.resolve("link"));
+            awaitContent("/link/linked.txt", null);
+        } finally {
+            delete(target.toFile());
+        }
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.AsyncWebrootServlet;
+import com.agapsys.jee.app.CachedWebrootServlet;
+import com.agapsys.jee.app.EmbeddedWebrootServlet;
+import com.agapsys.jee.app.IndexedWebrootServlet;
+import com.agapsys.jee.app.MappedWebrootServlet;
+import com.agapsys.jee.app.ResponseWrapperFilter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileServletTest {
+    private static final String DATA_FILE = "/data.txt";
+    private static final String DATA      = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final String[] MOUNTS = { MappedWebrootServlet.URL, EmbeddedWebrootServlet.URL, IndexedWebrootServlet.URL, AsyncWebrootServlet.URL, CachedWebrootServlet.URL };
+
+    // Returns the response body associated with given connection.
+    private static String getBody(HttpURLConnection conn) throws IOException {
+        InputStream is = conn.getResponseCode() < 400 ? conn.getInputStream() : conn.getErrorStream();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        if (is != null) {
+            byte[] buffer = new byte[1024];
+
+            for (int length = 0; (length = is.read(buffer)) > 0;) {
+                baos.write(buffer, 0, length);
+            }
+
+            is.close();
+        }
+
+        return baos.toString("ISO-8859-1");
+    }
+
+    // Returns the decompressed contents of given string.
+    private static String decompress(String compressed, boolean gzip) throws IOException {
+        InputStream compressedStream = new ByteArrayInputStream(compressed.getBytes("ISO-8859-1"));
+        InputStream is = gzip ? new GZIPInputStream(compressedStream) : new InflaterInputStream(compressedStream);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+
+        for (int length = 0; (length = is.read(buffer)) > 0;) {
+            baos.write(buffer, 0, length);
+        }
+
+        is.close();
+        return baos.toString("ISO-8859-1");
+    }
+
+    // Returns the contents of given web root resource.
+    private static String getWebrootResource(String name) throws IOException {
+        InputStream is = FileServletTest.class.getResourceAsStream(MappedWebrootServlet.WEBROOT + name);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+
+        for (int length = 0; (length = is.read(buffer)) > 0;) {
+            baos.write(buffer, 0, length);
+        }
+
+        is.close();
+        return baos.toString("ISO-8859-1");
+    }
+
+    // Returns the entity tag expected for given content.
+    private static String getContentETag(String content) throws IOException {
+        return "\"" + ValidatorCache._computeHash(new ByteArrayInputStream(content.getBytes("ISO-8859-1"))) + "\"";
+    }
+
+    private TestingContainer<?> tc;
+
+    @Before
+    public void before() {
+        tc = TestingContainer.newInstance(MappedWebrootServlet.class, EmbeddedWebrootServlet.class, IndexedWebrootServlet.class, AsyncWebrootServlet.class, CachedWebrootServlet.class);
+        tc.start();
+    }
+
+    @After
+    public void after() {
+        tc.stop();
+    }
+
+    private HttpURLConnection request(String uri, String range) {
+        HttpURLConnection conn = tc.openConnection(uri);
+
+        if (range != null)
+            conn.setRequestProperty("Range", range);
+
+        return conn;
+    }
+
+    // Waits until the content hash of given resource is computed and returns
+    // the associated entity tag.
+    private String getStableETag(String uri, String content) throws IOException, InterruptedException {
+        String expected = getContentETag(content);
+
+        for (int i = 0; i < 100; i++) {
+            String etag = request(uri, null).getHeaderField("ETag");
+
+            if (expected.equals(etag))
+                return etag;
+
+            Thread.sleep(50);
+        }
+
+        fail("Content hash was not computed");
+        return null;
+    }
+
+    private void assertPartial(String mount, String range, int start, int end) throws IOException {
+        HttpURLConnection conn = request(mount + DATA_FILE, range);
+
+        assertEquals(206, conn.getResponseCode());
+        assertEquals(String.valueOf(end - start + 1), conn.getHeaderField("Content-Length"));
+        assertEquals(String.format("bytes %d-%d/%d", start, end, DATA.length()), conn.getHeaderField("Content-Range"));
+        assertEquals(DATA.substring(start, end + 1), getBody(conn));
+    }
+
+    @Test
+    public void testFullContent() throws IOException {
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, null);
+
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("bytes", conn.getHeaderField("Accept-Ranges"));
+            assertEquals(String.valueOf(DATA.length()), conn.getHeaderField("Content-Length"));
+            assertEquals(DATA, getBody(conn));
+        }
+    }
+
+    @Test
+    public void testBoundedRange() throws IOException {
+        for (String mount : MOUNTS) {
+            assertPartial(mount, "bytes=5-9", 5, 9);
+            assertPartial(mount, "bytes=0-0", 0, 0);
+            assertPartial(mount, "bytes=60-1000", 60, DATA.length() - 1);
+        }
+    }
+
+    @Test
+    public void testOpenEndedRange() throws IOException {
+        for (String mount : MOUNTS) {
+            assertPartial(mount, "bytes=56-", 56, DATA.length() - 1);
+        }
+    }
+
+    @Test
+    public void testSuffixRange() throws IOException {
+        for (String mount : MOUNTS) {
+            assertPartial(mount, "bytes=-4", DATA.length() - 4, DATA.length() - 1);
+            assertPartial(mount, "bytes=-1000", 0, DATA.length() - 1);
+        }
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws IOException {
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, "bytes=" + DATA.length() + "-");
+
+            assertEquals(416, conn.getResponseCode());
+            assertEquals("bytes */" + DATA.length(), conn.getHeaderField("Content-Range"));
+        }
+    }
+
+    @Test
+    public void testMalformedRange() throws IOException {
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, "bytes=9-5");
+
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(DATA, getBody(conn));
+        }
+    }
+
+    @Test
+    public void testMultipleRanges() throws IOException {
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, "bytes=20-21,0-1,-2");
+
+            assertEquals(206, conn.getResponseCode());
+
+            String contentType = conn.getHeaderField("Content-Type");
+            assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+
+            String boundary = contentType.substring("multipart/byteranges; boundary=".length());
+            String partPrefix = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes ";
+            String expected = partPrefix + "0-1/62\r\n\r\n01"
+                + partPrefix + "20-21/62\r\n\r\nkl"
+                + partPrefix + "60-61/62\r\n\r\nYZ"
+                + "\r\n--" + boundary + "--\r\n";
+
+            assertEquals(String.valueOf(expected.length()), conn.getHeaderField("Content-Length"));
+            assertEquals(expected, getBody(conn));
+        }
+    }
+
+    @Test
+    public void testMultipleRangesThroughWrapper() throws IOException {
+        // Mapped contents written through a wrapped response must be read
+        // from the absolute position of each part.
+        tc.stop();
+        tc = TestingContainer.newInstance(CachedWebrootServlet.class).registerFilter(ResponseWrapperFilter.class);
+        tc.start();
+
+        for (int i = 0; i < 2; i++) {
+            HttpURLConnection conn = request(CachedWebrootServlet.URL + DATA_FILE, "bytes=0-1,50-53");
+
+            assertEquals(206, conn.getResponseCode());
+
+            String boundary = conn.getHeaderField("Content-Type").substring("multipart/byteranges; boundary=".length());
+            String partPrefix = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes ";
+            String expected = partPrefix + "0-1/62\r\n\r\n01"
+                + partPrefix + "50-53/62\r\n\r\nOPQR"
+                + "\r\n--" + boundary + "--\r\n";
+
+            assertEquals(expected, getBody(conn));
+        }
+
+        assertEquals(1, tc.getServlet(CachedWebrootServlet.class).getFileCacheHits());
+    }
+
+    @Test
+    public void testZeroCopyTransfer() throws IOException {
+        MappedWebrootServlet servlet = tc.getServlet(MappedWebrootServlet.class);
+        long transfers = servlet.getZeroCopyTransferCount();
+
+        // Files kept open are handed to the container as mapped regions.
+        assertEquals(DATA, getBody(request(MappedWebrootServlet.URL + DATA_FILE, null)));
+        assertEquals(transfers + 1, servlet.getZeroCopyTransferCount());
+
+        assertEquals("01", getBody(request(MappedWebrootServlet.URL + DATA_FILE, "bytes=0-1")));
+        assertEquals(transfers + 2, servlet.getZeroCopyTransferCount());
+
+        // Asynchronous transfers go through pooled buffers.
+        AsyncWebrootServlet asyncServlet = tc.getServlet(AsyncWebrootServlet.class);
+        assertEquals(DATA, getBody(request(AsyncWebrootServlet.URL + DATA_FILE, null)));
+        assertEquals(0, asyncServlet.getZeroCopyTransferCount());
+    }
+
+    @Test
+    public void testCoalescedRanges() throws IOException {
+        for (String mount : MOUNTS) {
+            assertPartial(mount, "bytes=3-9,0-4", 0, 9);
+            assertPartial(mount, "bytes=0-4,5-9", 0, 9);
+            assertPartial(mount, "bytes=0-4,-60", 0, DATA.length() - 1);
+        }
+    }
+
+    @Test
+    public void testRangeCountLimit() throws IOException {
+        StringBuilder sb = new StringBuilder("bytes=");
+
+        for (int i = 0; i <= AbstractFileServlet.DEFAULT_MAX_RANGE_COUNT; i++) {
+            if (i > 0)
+                sb.append(",");
+
+            sb.append(i * 2).append("-").append(i * 2);
+        }
+
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, sb.toString());
+
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(DATA, getBody(conn));
+        }
+    }
+
+    private HttpURLConnection request(String uri, String header, String value) {
+        HttpURLConnection conn = tc.openConnection(uri);
+        conn.setRequestProperty(header, value);
+        return conn;
+    }
+
+    @Test
+    public void testContentHashETag() throws IOException, InterruptedException {
+        for (String mount : MOUNTS) {
+            String etag = getStableETag(mount + DATA_FILE, DATA);
+
+            assertEquals(etag, request(mount + DATA_FILE + "?v=1", null).getHeaderField("ETag"));
+            assertEquals(etag, request(mount + DATA_FILE + "?v=2", null).getHeaderField("ETag"));
+        }
+    }
+
+    @Test
+    public void testIndexedContentHashETag() throws IOException {
+        // Hash is known at build time, so it is available on first request.
+        HttpURLConnection conn = request(IndexedWebrootServlet.URL + DATA_FILE, null);
+        assertEquals(getContentETag(DATA), conn.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void testEmbeddedContentCache() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(DATA, getBody(request(IndexedWebrootServlet.URL + DATA_FILE, null)));
+            assertPartial(IndexedWebrootServlet.URL, "bytes=5-9", 5, 9);
+        }
+
+        // Indexed resources are loaded on initialization.
+        IndexedWebrootServlet servlet = tc.getServlet(IndexedWebrootServlet.class);
+        assertEquals(0, servlet.getContentCacheMisses());
+        assertEquals(4, servlet.getContentCacheHits());
+    }
+
+    @Test
+    public void testFileCache() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(DATA, getBody(request(CachedWebrootServlet.URL + DATA_FILE, null)));
+            assertPartial(CachedWebrootServlet.URL, "bytes=5-9", 5, 9);
+        }
+
+        // File is read once, when first requested.
+        CachedWebrootServlet servlet = tc.getServlet(CachedWebrootServlet.class);
+        assertEquals(1, servlet.getFileCacheMisses());
+        assertEquals(3, servlet.getFileCacheHits());
+        assertEquals(0.75, servlet.getFileCacheHitRatio(), 0);
+    }
+
+    @Test
+    public void testBufferPool() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(DATA, getBody(request(AsyncWebrootServlet.URL + DATA_FILE, null)));
+        }
+
+        // Read buffers are returned to the pool once a transfer is finished.
+        AsyncWebrootServlet servlet = tc.getServlet(AsyncWebrootServlet.class);
+        assertTrue(servlet.getBufferPoolHits() > 0);
+        assertTrue(servlet.getBufferPoolMisses() < 6);
+    }
+
+    @Test
+    public void testHead() throws IOException, InterruptedException {
+        for (String mount : MOUNTS) {
+            getStableETag(mount + DATA_FILE, DATA); // <-- Entity tag does not change between requests
+
+            HttpURLConnection get = request(mount + DATA_FILE, null);
+            assertEquals(DATA, getBody(get));
+
+            HttpURLConnection head = request(mount + DATA_FILE, null);
+            head.setRequestMethod("HEAD");
+            assertEquals(200, head.getResponseCode());
+
+            for (String header : new String[] { "Content-Length", "Content-Type", "ETag", "Last-Modified", "Accept-Ranges" }) {
+                assertEquals(header, get.getHeaderField(header), head.getHeaderField(header));
+            }
+
+            assertEquals("", getBody(head));
+
+            head = request(mount + "/missing.txt", null);
+            head.setRequestMethod("HEAD");
+            assertEquals(404, head.getResponseCode());
+        }
+
+        // Contents are not looked up by HEAD requests.
+        CachedWebrootServlet servlet = tc.getServlet(CachedWebrootServlet.class);
+        long fileCacheLookups = servlet.getFileCacheHits() + servlet.getFileCacheMisses();
+
+        HttpURLConnection head = request(CachedWebrootServlet.URL + DATA_FILE, null);
+        head.setRequestMethod("HEAD");
+        assertEquals(200, head.getResponseCode());
+        assertEquals(fileCacheLookups, servlet.getFileCacheHits() + servlet.getFileCacheMisses());
+    }
+
+    @Test
+    public void testHeadCompressedVariant() throws IOException, InterruptedException {
+        String lorem = getWebrootResource("/lorem.txt");
+
+        for (String mount : MOUNTS) {
+            getStableETag(mount + "/lorem.txt", lorem); // <-- Entity tag does not change between requests
+
+            // Compressed variant is not cached yet when HEAD is received.
+            HttpURLConnection head = request(mount + "/lorem.txt", "Accept-Encoding", "gzip");
+            head.setRequestMethod("HEAD");
+            assertEquals(200, head.getResponseCode());
+            assertEquals("", getBody(head));
+
+            HttpURLConnection get = request(mount + "/lorem.txt", "Accept-Encoding", "gzip");
+            assertEquals(get.getHeaderField("Content-Length"), String.valueOf(getBody(get).length()));
+
+            for (String header : new String[] { "Content-Encoding", "ETag", "Vary" }) {
+                assertEquals(header, get.getHeaderField(header), head.getHeaderField(header));
+            }
+
+            assertNull(head.getHeaderField("Content-Length")); // <-- Compressed length was unknown
+
+            head = request(mount + "/lorem.txt", "Accept-Encoding", "gzip");
+            head.setRequestMethod("HEAD");
+            assertEquals(get.getHeaderField("Content-Length"), head.getHeaderField("Content-Length"));
+        }
+    }
+
+    @Test
+    public void testNegativeCache() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(404, request(CachedWebrootServlet.URL + "/missing.txt", null).getResponseCode());
+            assertEquals(404, request(IndexedWebrootServlet.URL + "/missing.txt", null).getResponseCode());
+        }
+
+        // Missing files are cached, unless looked up in an index.
+        assertEquals(1, tc.getServlet(CachedWebrootServlet.class).getNegativeCacheHits());
+        assertEquals(0, tc.getServlet(IndexedWebrootServlet.class).getNegativeCacheHits());
+        assertEquals(0, tc.getServlet(IndexedWebrootServlet.class).getNegativeCacheMisses());
+    }
+
+    @Test
+    public void testResourceIndexNotServed() throws IOException {
+        String path = "/" + EmbeddedResourceIndex.RESOURCE_NAME;
+
+        for (String mount : new String[] { MappedWebrootServlet.URL, EmbeddedWebrootServlet.URL, IndexedWebrootServlet.URL, CachedWebrootServlet.URL }) {
+            assertEquals(404, request(mount + path, null).getResponseCode());
+            assertEquals(404, request(mount + path + ".000000000000", null).getResponseCode());
+        }
+    }
+
+    @Test
+    public void testFingerprintedPaths() throws IOException, InterruptedException {
+        String fingerprinted = "/data." + getContentETag(DATA).substring(1, 13) + ".txt";
+
+        // Paths are not fingerprinted until the content hash is known (its computation is scheduled).
+        assertEquals(DATA_FILE, tc.getServlet(CachedWebrootServlet.class).getFingerprintedPath(DATA_FILE));
+        getStableETag(CachedWebrootServlet.URL + DATA_FILE, DATA);
+
+        for (String mount : new String[] { CachedWebrootServlet.URL, IndexedWebrootServlet.URL }) {
+            assertEquals(200, request(mount + DATA_FILE, null).getResponseCode());
+
+            MappedFileServlet servlet = mount.equals(CachedWebrootServlet.URL) ? tc.getServlet(CachedWebrootServlet.class) : tc.getServlet(IndexedWebrootServlet.class);
+            assertEquals(fingerprinted, servlet.getFingerprintedPath(DATA_FILE));
+            assertEquals("/missing.txt", servlet.getFingerprintedPath("/missing.txt"));
+
+            HttpURLConnection conn = request(mount + fingerprinted, null);
+            assertEquals(DATA, getBody(conn));
+            assertEquals(MappedFileServlet.FINGERPRINT_CACHE_CONTROL, conn.getHeaderField("Cache-Control"));
+
+            conn = request(mount + fingerprinted, null);
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+            assertEquals(MappedFileServlet.FINGERPRINT_CACHE_CONTROL, conn.getHeaderField("Cache-Control"));
+
+            // Paths which are not fingerprinted use the policy of the servlet.
+            assertEquals("no-cache", request(mount + DATA_FILE, null).getHeaderField("Cache-Control"));
+
+            // Stale fingerprints are resolved as regular paths.
+            assertEquals(404, request(mount + "/data.000000000000.txt", null).getResponseCode());
+        }
+
+        // Fingerprints are disabled by default.
+        assertNull(request(MappedWebrootServlet.URL + fingerprinted, null).getHeaderField("Cache-Control"));
+        assertEquals(404, request(MappedWebrootServlet.URL + fingerprinted, null).getResponseCode());
+    }
+
+    @Test
+    public void testAllowedMethods() throws IOException {
+        HttpURLConnection conn = request(MappedWebrootServlet.URL + DATA_FILE, null);
+        conn.setRequestMethod("OPTIONS");
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("GET, HEAD, OPTIONS", conn.getHeaderField("Allow"));
+
+        conn = request(MappedWebrootServlet.URL + DATA_FILE, null);
+        conn.setRequestMethod("DELETE");
+        assertEquals(405, conn.getResponseCode());
+        assertEquals("GET, HEAD, OPTIONS", conn.getHeaderField("Allow"));
+    }
+
+    @Test
+    public void testIfNoneMatch() throws IOException, InterruptedException {
+        for (String mount : MOUNTS) {
+            String etag = getStableETag(mount + DATA_FILE, DATA);
+
+            HttpURLConnection conn = request(mount + DATA_FILE, "If-None-Match", etag);
+            assertEquals(304, conn.getResponseCode());
+            assertEquals(etag, conn.getHeaderField("ETag"));
+
+            assertEquals(304, request(mount + DATA_FILE, "If-None-Match", "\"other\", W/" + etag).getResponseCode());
+            assertEquals(304, request(mount + DATA_FILE, "If-None-Match", "*").getResponseCode());
+            assertEquals(200, request(mount + DATA_FILE, "If-None-Match", "\"other\"").getResponseCode());
+        }
+    }
+
+    @Test
+    public void testIfModifiedSince() throws IOException {
+        String lastModified = request(MappedWebrootServlet.URL + DATA_FILE, null).getHeaderField("Last-Modified");
+        assertNotNull(lastModified);
+
+        assertEquals(304, request(MappedWebrootServlet.URL + DATA_FILE, "If-Modified-Since", lastModified).getResponseCode());
+        assertEquals(200, request(MappedWebrootServlet.URL + DATA_FILE, "If-Modified-Since", "Thu, 01 Jan 1970 00:00:01 GMT").getResponseCode());
+    }
+
+    @Test
+    public void testIfMatch() throws IOException, InterruptedException {
+        for (String mount : MOUNTS) {
+            String etag = getStableETag(mount + DATA_FILE, DATA);
+
+            assertEquals(200, request(mount + DATA_FILE, "If-Match", etag).getResponseCode());
+            assertEquals(412, request(mount + DATA_FILE, "If-Match", "\"other\"").getResponseCode());
+            assertEquals(412, request(mount + DATA_FILE, "If-Match", "W/" + etag).getResponseCode());
+        }
+    }
+
+    @Test
+    public void testIfUnmodifiedSince() throws IOException {
+        String lastModified = request(MappedWebrootServlet.URL + DATA_FILE, null).getHeaderField("Last-Modified");
+
+        assertEquals(200, request(MappedWebrootServlet.URL + DATA_FILE, "If-Unmodified-Since", lastModified).getResponseCode());
+        assertEquals(412, request(MappedWebrootServlet.URL + DATA_FILE, "If-Unmodified-Since", "Thu, 01 Jan 1970 00:00:01 GMT").getResponseCode());
+    }
+
+    @Test
+    public void testIfRange() throws IOException, InterruptedException {
+        for (String mount : MOUNTS) {
+            String etag = getStableETag(mount + DATA_FILE, DATA);
+
+            HttpURLConnection conn = request(mount + DATA_FILE, "bytes=0-1");
+            conn.setRequestProperty("If-Range", etag);
+            assertEquals(206, conn.getResponseCode());
+            assertEquals("01", getBody(conn));
+
+            conn = request(mount + DATA_FILE, "bytes=0-1");
+            conn.setRequestProperty("If-Range", "\"other\"");
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(DATA, getBody(conn));
+        }
+    }
+
+    @Test
+    public void testPrecompressedVariants() throws IOException {
+        String gzip   = getWebrootResource(DATA_FILE + ".gz");
+        String brotli = getWebrootResource(DATA_FILE + ".br");
+
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, "Accept-Encoding", "gzip");
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+            assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+            assertEquals("text/plain", conn.getHeaderField("Content-Type"));
+            assertEquals(String.valueOf(gzip.length()), conn.getHeaderField("Content-Length"));
+            assertEquals(gzip, getBody(conn));
+
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "gzip, deflate, br");
+            assertEquals("br", conn.getHeaderField("Content-Encoding"));
+            assertEquals(brotli, getBody(conn));
+
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "br;q=0.5, gzip");
+            assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "gzip;q=0, br;q=0");
+            assertNull(conn.getHeaderField("Content-Encoding"));
+            assertEquals(DATA, getBody(conn));
+
+            // Identity is not served when explicitly refused.
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "identity;q=0, gzip;q=0");
+            assertEquals(406, conn.getResponseCode());
+            assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+
+            // Preconditions are evaluated first.
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "identity;q=0, gzip;q=0");
+            conn.setRequestProperty("If-None-Match", "*");
+            assertEquals(304, conn.getResponseCode());
+
+            conn = request(mount + DATA_FILE, "Accept-Encoding", "identity;q=0, gzip;q=0");
+            conn.setRequestProperty("If-Match", "\"other\"");
+            assertEquals(412, conn.getResponseCode());
+
+            assertEquals(406, request(mount + DATA_FILE, "Accept-Encoding", "*;q=0").getResponseCode());
+            assertEquals(DATA, getBody(request(mount + DATA_FILE, "Accept-Encoding", "*;q=0, identity")));
+            assertEquals("gzip", request(mount + DATA_FILE, "Accept-Encoding", "identity;q=0, gzip").getHeaderField("Content-Encoding"));
+
+            conn = request(mount + DATA_FILE, null);
+            assertNull(conn.getHeaderField("Content-Encoding"));
+            assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+            assertEquals(DATA, getBody(conn));
+        }
+    }
+
+    @Test
+    public void testPrecompressedVariantRange() throws IOException {
+        String gzip = getWebrootResource(DATA_FILE + ".gz");
+
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + DATA_FILE, "bytes=0-1");
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+
+            assertEquals(206, conn.getResponseCode());
+            assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+            assertEquals("bytes 0-1/" + gzip.length(), conn.getHeaderField("Content-Range"));
+            assertEquals(gzip.substring(0, 2), getBody(conn));
+
+            String identityETag = request(mount + DATA_FILE, null).getHeaderField("ETag");
+            String gzipETag = request(mount + DATA_FILE, "Accept-Encoding", "gzip").getHeaderField("ETag");
+            assertFalse(identityETag.equals(gzipETag));
+        }
+    }
+
+    @Test
+    public void testOnTheFlyCompression() throws IOException {
+        String lorem = getWebrootResource("/lorem.txt");
+
+        for (String mount : MOUNTS) {
+            HttpURLConnection conn = request(mount + "/lorem.txt", null);
+            assertNull(conn.getHeaderField("Content-Encoding"));
+            assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+            String identityETag = conn.getHeaderField("ETag");
+            assertEquals(lorem, getBody(conn));
+
+            for (int i = 0; i < 2; i++) { // <-- Second request is served from cache
+                conn = request(mount + "/lorem.txt", "Accept-Encoding", "gzip");
+                assertEquals(200, conn.getResponseCode());
+                assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+                assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+                assertTrue(conn.getHeaderField("ETag").endsWith("-gzip\""));
+                assertFalse(conn.getHeaderField("ETag").equals(identityETag));
+
+                String body = getBody(conn);
+                assertEquals(String.valueOf(body.length()), conn.getHeaderField("Content-Length"));
+                assertTrue(body.length() < lorem.length());
+                assertEquals(lorem, decompress(body, true));
+            }
+
+            conn = request(mount + "/lorem.txt", "Accept-Encoding", "deflate");
+            assertEquals("deflate", conn.getHeaderField("Content-Encoding"));
+            assertEquals(lorem, decompress(getBody(conn), false));
+
+            conn = request(mount + "/lorem.txt", "bytes=0-1");
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals(206, conn.getResponseCode());
+            assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+            assertEquals("\u001f\u008b", getBody(conn));
+        }
+    }
+
+    @Test
+    public void testRegisteredMimeTypes() throws IOException {
+        tc.stop();
+        tc = TestingContainer.newInstance(MappedWebrootServlet.class, EmbeddedWebrootServlet.class, IndexedWebrootServlet.class).registerMimeType("TXT", "text/x-data");
+        tc.start();
+
+        for (String mount : new String[] { MappedWebrootServlet.URL, EmbeddedWebrootServlet.URL, IndexedWebrootServlet.URL }) {
+            HttpURLConnection conn = request(mount + DATA_FILE, null);
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("text/x-data", conn.getHeaderField("Content-Type"));
+        }
+    }
+}
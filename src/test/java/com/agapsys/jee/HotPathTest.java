@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.WarmWebrootServlet;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HotPathTest {
+
+    private Path hotPathFile;
+    private TestingContainer<?> tc;
+
+    @Before
+    public void before() throws IOException {
+        hotPathFile = Files.createTempFile("hot-paths", ".txt");
+        WarmWebrootServlet.setHotPathFile(hotPathFile);
+        tc = TestingContainer.newInstance(WarmWebrootServlet.class);
+    }
+
+    @After
+    public void after() throws IOException {
+        tc.stop();
+        Files.deleteIfExists(hotPathFile);
+    }
+
+    private int get(String path) throws IOException {
+        HttpURLConnection conn = tc.openConnection(WarmWebrootServlet.URL + path);
+        int status = conn.getResponseCode();
+        conn.disconnect();
+        return status;
+    }
+
+    @Test
+    public void testWarmUp() throws IOException, InterruptedException {
+        Files.write(hotPathFile, Arrays.asList("/data.txt", "/missing.txt", "/lorem.txt"), StandardCharsets.UTF_8);
+        tc.start();
+
+        assertTrue(tc.awaitReady(10000));
+        assertTrue(tc.isReady());
+
+        WarmWebrootServlet servlet = tc.getServlet(WarmWebrootServlet.class);
+        assertEquals(2, servlet.getWarmedUpPathCount());
+
+        // Contents (including precompressed variants) were loaded before the
+        // first request.
+        long misses = servlet.getFileCacheMisses();
+        assertEquals(200, get("/data.txt"));
+        assertEquals(200, get("/lorem.txt"));
+        assertEquals(misses, servlet.getFileCacheMisses());
+        assertEquals(2, servlet.getFileCacheHits());
+    }
+
+    @Test
+    public void testRecording() throws IOException {
+        Files.delete(hotPathFile);
+        tc.start();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, get("/lorem.txt"));
+        }
+
+        assertEquals(200, get("/data.txt"));
+        assertEquals(404, get("/missing.txt"));
+
+        tc.stop(); // <-- List is saved when servlet is destroyed
+        assertEquals(Arrays.asList("/lorem.txt", "/data.txt"), HotPathRecorder._load(hotPathFile, 16));
+        assertEquals(Arrays.asList("/lorem.txt"), HotPathRecorder._load(hotPathFile, 1));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class MimeRegistryTest {
+
+    @Test
+    public void testDefaultTypes() {
+        MimeRegistry registry = MimeRegistry.DEFAULT;
+
+        assertEquals("image/png", registry.get("image.png"));
+        assertEquals("image/png", registry.get("/static/IMG.PNG"));
+        assertEquals("text/html", registry.get("index.Html"));
+        assertEquals("application/zip", registry.get("archive.tar.zip"));
+        assertNull(registry.get("README"));
+        assertNull(registry.get("file."));
+        assertNull(registry.get("/dir.png/README"));
+        assertNull(registry.get("archive.unknown"));
+        assertEquals("application/octet-stream", AbstractFileServlet._getMimeType("README"));
+    }
+
+    @Test
+    public void testOverrides() {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        overrides.put("MD", "text/markdown");
+        overrides.put(".png", "image/x-png");
+
+        MimeRegistry registry = new MimeRegistry(overrides, "UTF-8");
+
+        assertEquals(MimeRegistry.DEFAULT.size() + 1, registry.size());
+        assertEquals("text/markdown; charset=UTF-8", registry.get("notes.md"));
+        assertEquals("image/x-png", registry.get("image.PNG"));
+        assertEquals("text/plain; charset=UTF-8", registry.get("data.txt"));
+        assertEquals("application/json; charset=UTF-8", registry.get("data.json"));
+        assertEquals("image/jpeg", registry.get("photo.jpg"));
+
+        assertTrue(registry.isOverridden("image.png"));
+        assertFalse(registry.isOverridden("data.txt"));
+        assertFalse(registry.isOverridden("README"));
+        assertFalse(MimeRegistry.DEFAULT.isOverridden("notes.md"));
+
+        assertEquals("text/x-custom; charset=UTF-8", registry.withCharset("text/x-custom"));
+        assertEquals("text/plain; charset=ASCII", registry.withCharset("text/plain; charset=ASCII"));
+        assertEquals("image/png", registry.withCharset("image/png"));
+        assertEquals("text/plain", MimeRegistry.DEFAULT.withCharset("text/plain"));
+    }
+
+    @Test
+    public void testAllocationFreeLookups() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        String[] paths = { "/static/app.JS", "/static/style.css", "/index.html", "/README" };
+        long threadId = Thread.currentThread().getId();
+        int found = 0;
+
+        for (int i = 0; i < 10000; i++) { // <-- Warm-up
+            found += MimeRegistry.DEFAULT.get(paths[i % paths.length]) != null ? 1 : 0;
+        }
+
+        long overhead = threadMXBean.getThreadAllocatedBytes(threadId);
+        overhead = threadMXBean.getThreadAllocatedBytes(threadId) - overhead;
+
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < 100000; i++) {
+            found += MimeRegistry.DEFAULT.get(paths[i % paths.length]) != null ? 1 : 0;
+        }
+
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - start - overhead;
+
+        assertEquals(82500, found);
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NegativeCacheTest {
+
+    @Test
+    public void testLookups() {
+        NegativeCache cache = new NegativeCache(16, 60000);
+
+        assertFalse(cache.contains("/missing"));
+        cache.add("/missing");
+        assertTrue(cache.contains("/missing"));
+        assertTrue(cache.contains("/missing"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        assertFalse(cache.contains("/missing"));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        NegativeCache cache = new NegativeCache(16, 50);
+
+        cache.add("/missing");
+        assertTrue(cache.contains("/missing"));
+
+        Thread.sleep(100);
+        assertFalse(cache.contains("/missing"));
+    }
+
+    @Test
+    public void testCapacity() {
+        NegativeCache cache = new NegativeCache(2, 60000);
+
+        cache.add("/a");
+        cache.add("/b");
+        cache.add("/c");
+
+        assertFalse(cache.contains("/a"));
+        assertTrue(cache.contains("/b"));
+        assertTrue(cache.contains("/c"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import com.agapsys.jee.app.CustomResourceServlet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceTest {
+
+    private static String getBody(HttpURLConnection conn) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (InputStream is = conn.getInputStream()) {
+            byte[] buffer = new byte[1024];
+
+            for (int length = 0; (length = is.read(buffer)) > 0;) {
+                baos.write(buffer, 0, length);
+            }
+        }
+
+        return baos.toString("ISO-8859-1");
+    }
+
+    private TestingContainer tc;
+
+    @Before
+    public void before() {
+        tc = TestingContainer.newInstance(CustomResourceServlet.class);
+        tc.start();
+    }
+
+    @After
+    public void after() {
+        tc.stop();
+    }
+
+    @Test
+    public void testCustomResource() throws IOException {
+        for (String path : new String[] { "/buffer", "/channel" }) {
+            HttpURLConnection conn = tc.openConnection(CustomResourceServlet.URL + path);
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(CustomResourceServlet.CONTENT, getBody(conn));
+
+            conn = tc.openConnection(CustomResourceServlet.URL + path);
+            conn.setRequestProperty("Range", "bytes=10-19");
+            assertEquals(206, conn.getResponseCode());
+            assertEquals(CustomResourceServlet.CONTENT.substring(10, 20), getBody(conn));
+        }
+
+        assertEquals(404, tc.openConnection(CustomResourceServlet.URL + "/missing").getResponseCode());
+    }
+
+    @Test
+    public void testUnknownLength() throws IOException {
+        HttpURLConnection conn = tc.openConnection(CustomResourceServlet.URL + "/stream");
+        conn.setRequestProperty("Range", "bytes=10-19"); // <-- Ranges need a known length
+        assertEquals(200, conn.getResponseCode());
+        assertNull(conn.getHeaderField("Accept-Ranges"));
+        assertTrue(conn.getHeaderField("ETag").startsWith("W/"));
+        assertEquals(CustomResourceServlet.CONTENT, getBody(conn));
+    }
+
+    @Test
+    public void testHeadFromMetadata() throws IOException {
+        int openCount = CustomResourceServlet.getOpenCount();
+
+        for (String path : new String[] { "/buffer", "/channel" }) {
+            HttpURLConnection conn = tc.openConnection(CustomResourceServlet.URL + path);
+            conn.setRequestMethod("HEAD");
+            conn.setRequestProperty("Range", "bytes=10-19"); // <-- Ignored by HEAD requests
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(String.valueOf(CustomResourceServlet.CONTENT.length()), conn.getHeaderField("Content-Length"));
+            assertEquals("text/plain", conn.getHeaderField("Content-Type"));
+            assertEquals("bytes", conn.getHeaderField("Accept-Ranges"));
+            assertNotNull(conn.getHeaderField("ETag"));
+        }
+
+        // Contents were neither loaded nor opened.
+        assertEquals(openCount, CustomResourceServlet.getOpenCount());
+    }
+
+    @Test
+    public void testHeadCompressedFromMetadata() throws IOException {
+        int openCount = CustomResourceServlet.getOpenCount();
+
+        // Compressed representation is not cached yet.
+        HttpURLConnection head = tc.openConnection(CustomResourceServlet.URL + "/html");
+        head.setRequestMethod("HEAD");
+        head.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, head.getResponseCode());
+        assertEquals("gzip", head.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", head.getHeaderField("Vary"));
+        assertNull(head.getHeaderField("Content-Length"));
+
+        // Contents were neither opened nor compressed.
+        assertEquals(openCount, CustomResourceServlet.getOpenCount());
+
+        HttpURLConnection get = tc.openConnection(CustomResourceServlet.URL + "/html");
+        get.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("gzip", get.getHeaderField("Content-Encoding"));
+        assertEquals(head.getHeaderField("ETag"), get.getHeaderField("ETag"));
+        String length = get.getHeaderField("Content-Length");
+        getBody(get);
+
+        // Once cached, the compressed length is known.
+        head = tc.openConnection(CustomResourceServlet.URL + "/html");
+        head.setRequestMethod("HEAD");
+        head.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(length, head.getHeaderField("Content-Length"));
+    }
+}
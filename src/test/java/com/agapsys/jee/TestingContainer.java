@@ -20,10 +20,15 @@ import com.agapsys.http.HttpRequest;
 import com.agapsys.http.HttpResponse;
 import com.agapsys.http.HttpResponse.StringResponse;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 
 public class TestingContainer<TC extends TestingContainer<TC>> extends ServletContainer<TC> {
 
@@ -88,6 +93,55 @@ public class TestingContainer<TC extends TestingContainer<TC>> extends ServletCo
         return resp;
     }
 
+    /**
+     * Returns the instance of given servlet class handling requests in this
+     * container.
+     *
+     * @param <T> servlet type.
+     * @param servletClass registered servlet class.
+     * @return the instance of given servlet class. If not initialized yet,
+     * the servlet is initialized by this call.
+     */
+    public <T extends HttpServlet> T getServlet(Class<T> servletClass) {
+        if (!isRunning()) {
+            throw new IllegalStateException("Server is not running");
+        }
+
+        Server server = getConnectors()[0].getServer();
+        ServletContextHandler handler = server.getChildHandlerByClass(ServletContextHandler.class);
+
+        for (ServletHolder holder : handler.getServletHandler().getServlets()) {
+            if (holder.getHeldClass() == servletClass) {
+                try {
+                    return servletClass.cast(holder.getServlet());
+                } catch (ServletException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("Servlet is not registered: " + servletClass.getName());
+    }
+
+    /**
+     * Opens a connection against this servlet container.
+     *
+     * @param uri request URI.
+     * @return connection. Request properties (headers) may be set before
+     * connecting.
+     */
+    public HttpURLConnection openConnection(String uri) {
+        if (!isRunning()) {
+            throw new IllegalStateException("Server is not running");
+        }
+
+        try {
+            return (HttpURLConnection) new URL(String.format("http://127.0.0.1:%d%s", getRunningPort(), uri)).openConnection();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Perform a request against this servlet container.
      *
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TieredContentCacheTest {
+
+    // Looks up and, if admitted, stores an entry with given key and length.
+    private static void access(TieredContentCache cache, String key, int length) {
+        if (cache.get(key, length, 0) == null && cache.admits(key, length))
+            cache.put(key, 0, ByteBuffer.allocate(length));
+    }
+
+    @Test
+    public void testInvalidation() {
+        TieredContentCache cache = new TieredContentCache(1024, 0, -1);
+
+        cache.put("/a", 1, ByteBuffer.allocate(10));
+        assertNotNull(cache.get("/a", 10, 1));
+        assertNull(cache.get("/a", 10, 2));
+        assertNull(cache.get("/a", 10, 1)); // <-- Stale version was discarded
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHeapSize());
+    }
+
+    @Test
+    public void testTiers() {
+        TieredContentCache cache = new TieredContentCache(1024, 1024, 64);
+
+        assertFalse(cache.isMapped(63));
+        assertTrue(cache.isMapped(64));
+
+        access(cache, "/small", 32);
+        access(cache, "/large", 128);
+        access(cache, "/huge", 129); // <-- Larger than 1/8 of its tier
+
+        assertEquals(32, cache.getHeapSize());
+        assertEquals(128, cache.getMappedSize());
+        assertNull(cache.get("/huge", 129, 0));
+    }
+
+    @Test
+    public void testFrequencyAdmission() {
+        TieredContentCache cache = new TieredContentCache(80, 0, -1);
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 8; j++)
+                access(cache, "/hot" + j, 10);
+        }
+
+        // Files requested once do not flush frequently requested ones.
+        for (int i = 0; i < 100; i++)
+            access(cache, "/cold" + i, 10);
+
+        for (int j = 0; j < 8; j++)
+            assertNotNull(cache.get("/hot" + j, 10, 0));
+
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(100, cache.getRejectionCount());
+
+        // A file requested more often than cached ones replaces them.
+        for (int i = 0; i < 10; i++)
+            access(cache, "/popular", 10);
+
+        assertNotNull(cache.get("/popular", 10, 0));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testSharedContents() {
+        TieredContentCache cache = new TieredContentCache(1024, 0, -1);
+        ByteBuffer content = ByteBuffer.allocate(100);
+
+        cache.put("/a", 0, content, "\"hash\"");
+        cache.put("/b", 0, ByteBuffer.allocate(100), "\"hash\""); // <-- Identical contents are not stored twice
+        assertSame(content, cache.share("/c", 100, 0, "\"hash\""));
+        assertNull(cache.share("/d", 100, 0, "\"other\""));
+
+        assertSame(content, cache.get("/b", 100, 0));
+        assertEquals(100, cache.getHeapSize());
+        assertEquals(2, cache.getShareCount());
+
+        // Shared contents are released once no file references them.
+        assertNull(cache.get("/a", 100, 1));
+        assertNull(cache.get("/b", 100, 1));
+        assertEquals(100, cache.getHeapSize());
+        assertNull(cache.get("/c", 100, 1));
+        assertEquals(0, cache.getHeapSize());
+        assertNull(cache.share("/a", 100, 0, "\"hash\""));
+    }
+}
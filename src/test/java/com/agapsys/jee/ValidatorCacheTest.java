@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ValidatorCacheTest {
+
+    // Source whose contents are replaced once read.
+    private static class ChangingSource implements ValidatorCache.Source {
+        private volatile String content = "old";
+        private volatile boolean changed = false;
+
+        @Override
+        public InputStream open() throws IOException {
+            InputStream is = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+
+            if (!changed) {
+                content = "new";
+                changed = true;
+            }
+
+            return is;
+        }
+
+        @Override
+        public boolean matches(long length, long lastModified) {
+            return !changed || lastModified == 2;
+        }
+    }
+
+    @Test
+    public void testChangedWhileHashed() throws IOException {
+        ValidatorCache cache = new ValidatorCache(16);
+        ChangingSource source = new ChangingSource();
+
+        // Hash of the former version is not stored under its key.
+        assertNull(cache.computeETag("a", 3, 1, source));
+        assertNull(cache.computeETag("a", 3, 1, source));
+
+        String etag = cache.computeETag("a", 3, 2, source);
+        assertEquals("\"" + ValidatorCache._computeHash(new ByteArrayInputStream("new".getBytes(StandardCharsets.UTF_8))) + "\"", etag);
+        assertEquals(etag, cache.computeETag("a", 3, 2, source));
+    }
+
+    @Test
+    public void testClosed() throws InterruptedException {
+        ValidatorCache cache = new ValidatorCache(16);
+        final AtomicInteger openCount = new AtomicInteger();
+
+        cache.close();
+
+        // Computations are no longer scheduled.
+        assertNull(cache.getETag("a", 3, 1, new ValidatorCache.Source() {
+            @Override
+            public InputStream open() {
+                openCount.incrementAndGet();
+                return new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public boolean matches(long length, long lastModified) {
+                return true;
+            }
+        }));
+
+        Thread.sleep(100);
+        assertEquals(0, openCount.get());
+    }
+}
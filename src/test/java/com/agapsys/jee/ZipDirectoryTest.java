@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZipDirectoryTest {
+
+    private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    private static void putEntry(JarOutputStream jos, String name, int method) throws IOException {
+        JarEntry entry = new JarEntry(name);
+        entry.setMethod(method);
+
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(DATA);
+
+            entry.setSize(DATA.length);
+            entry.setCompressedSize(DATA.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        jos.putNextEntry(entry);
+        jos.write(DATA);
+        jos.closeEntry();
+    }
+
+    private static String read(InputStream is, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int count = 0;
+
+        for (int read; count < length && (read = is.read(buffer, count, length - count)) > 0;) {
+            count += read;
+        }
+
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+    private Path jar;
+
+    @Before
+    public void before() throws IOException {
+        jar = Files.createTempFile("directory", ".jar");
+
+        try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(jar))) {
+            jos.setComment("comment");
+            putEntry(jos, "webroot/deflated.txt", ZipEntry.DEFLATED);
+            putEntry(jos, "webroot/stored.txt", ZipEntry.STORED);
+        }
+    }
+
+    @After
+    public void after() throws IOException {
+        Files.delete(jar);
+    }
+
+    @Test
+    public void testStoredEntries() throws IOException {
+        ZipDirectory directory = ZipDirectory._read(jar);
+
+        assertEquals(1, directory.size());
+        assertNull(directory.get("webroot/deflated.txt"));
+        assertNull(directory.get("webroot/missing.txt"));
+
+        ZipDirectory.Entry entry = directory.get("webroot/stored.txt");
+        assertNotNull(entry);
+        assertEquals(DATA.length, entry.length);
+
+        FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ);
+
+        try (InputStream is = new AbstractFileServlet.RegionStream(channel, directory.getDataOffset(channel, entry), entry.length)) {
+            assertEquals("01234", read(is, 5));
+            assertEquals(10, is.skip(10));
+            assertEquals("fghij", read(is, 10));
+            assertEquals(-1, is.read());
+        }
+    }
+
+    @Test
+    public void testSharedChannel() throws IOException {
+        ZipDirectory directory = ZipDirectory._read(jar);
+        ZipDirectory.Entry entry = directory.get("webroot/stored.txt");
+
+        try (InputStream first = directory.open(entry)) {
+            // Closing a stream does not close the channel shared with others.
+            try (InputStream second = directory.open(entry)) {
+                assertEquals("01234", read(second, 5));
+            }
+
+            assertEquals(new String(DATA, StandardCharsets.UTF_8), read(first, DATA.length));
+        } finally {
+            directory.close();
+        }
+
+        // Channel is opened again after being closed.
+        try (InputStream is = directory.open(entry)) {
+            assertEquals("01234", read(is, 5));
+        } finally {
+            directory.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidArchive() throws IOException {
+        Files.write(jar, DATA);
+        ZipDirectory._read(jar);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Records the number of bytes allocated by the request thread while serving each request. */
+@WebFilter(MappedWebrootServlet.URL + "/*")
+public class AllocationFilter extends SimpleHttpFilter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile long lastAllocatedBytes = -1;
+
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN.isThreadAllocatedMemorySupported() && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    public static long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws IOException, ServletException {
+        long threadId = Thread.currentThread().getId();
+        long start = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+
+        filterChain.doFilter(request, response);
+
+        lastAllocatedBytes = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - start;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet finishing its requests asynchronously, after a delay. Requests
+ * carrying a "dispatch" parameter are finished by an asynchronous dispatch
+ * instead of being completed directly.
+ */
+@WebServlet(value = AsyncSlowServlet.URL, asyncSupported = true)
+public class AsyncSlowServlet extends HttpServlet {
+    public static final String URL = "/async-slow";
+
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+    public static int getMaxRunning() {
+        return MAX_RUNNING.get();
+    }
+
+    public static void reset() {
+        RUNNING.set(0);
+        MAX_RUNNING.set(0);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (req.getDispatcherType() == DispatcherType.ASYNC) {
+            RUNNING.decrementAndGet();
+            resp.getWriter().print("dispatched");
+            return;
+        }
+
+        int running = RUNNING.incrementAndGet();
+
+        synchronized (MAX_RUNNING) {
+            if (running > MAX_RUNNING.get())
+                MAX_RUNNING.set(running);
+        }
+
+        final boolean dispatch = req.getParameter("dispatch") != null;
+        final AsyncContext asyncContext = req.startAsync();
+
+        asyncContext.start(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(SlowServlet.DELAY);
+
+                    if (dispatch) {
+                        asyncContext.dispatch();
+                        return;
+                    }
+
+                    RUNNING.decrementAndGet();
+                    asyncContext.getResponse().getWriter().print("completed");
+                } catch (InterruptedException | IOException ignored) {
+                    RUNNING.decrementAndGet();
+                }
+
+                asyncContext.complete();
+            }
+        });
+    }
+}
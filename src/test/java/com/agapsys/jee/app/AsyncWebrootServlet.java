@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(value = AsyncWebrootServlet.URL + "/*", asyncSupported = true)
+public class AsyncWebrootServlet extends MappedWebrootServlet {
+    public static final String URL = "/async";
+
+    @Override
+    protected boolean isAsyncEnabled() {
+        return true;
+    }
+
+    @Override
+    protected int getMaxBufferSize() {
+        return 7; // <-- Forces transfers to span several writes
+    }
+}
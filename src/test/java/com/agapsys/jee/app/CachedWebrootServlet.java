@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(CachedWebrootServlet.URL + "/*")
+public class CachedWebrootServlet extends MappedWebrootServlet {
+    public static final String URL = "/cached";
+
+    @Override
+    protected boolean isFingerprintEnabled() {
+        return true;
+    }
+
+    @Override
+    protected String getCacheControl() {
+        return "no-cache";
+    }
+
+    @Override
+    protected boolean isFileCacheEnabled() {
+        return true;
+    }
+
+    @Override
+    protected long getZeroCopyThreshold() {
+        return 48; // <-- Small files are kept in the heap, larger ones are mapped
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import com.agapsys.jee.AbstractFileServlet;
+import com.agapsys.jee.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Serves "/buffer" from memory, "/channel" from a file channel, "/html"
+ * (compressible) from a file channel and "/stream" from an inflating stream
+ * of unknown length.
+ */
+@WebServlet(CustomResourceServlet.URL + "/*")
+public class CustomResourceServlet extends AbstractFileServlet {
+    public static final String URL = "/custom";
+    public static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final File FILE;
+    private static final AtomicInteger OPEN_COUNT = new AtomicInteger();
+
+    /** Returns the number of times resource contents were obtained. */
+    public static int getOpenCount() {
+        return OPEN_COUNT.get();
+    }
+
+    static {
+        try {
+            FILE = new File(CustomResourceServlet.class.getResource(MappedWebrootServlet.WEBROOT + "/data.txt").toURI());
+        } catch (URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static class CustomResource extends Resource {
+        private final boolean buffered;
+        private final String mime;
+
+        private CustomResource(boolean buffered, String mime) {
+            this.buffered = buffered;
+            this.mime = mime;
+        }
+
+        @Override
+        public long getLength() {
+            return CONTENT.length();
+        }
+
+        @Override
+        public String getContentType() {
+            return mime;
+        }
+
+        @Override
+        public ByteBuffer getContent() {
+            if (!buffered)
+                return null;
+
+            OPEN_COUNT.incrementAndGet();
+            ByteBuffer content = ByteBuffer.allocateDirect(CONTENT.length());
+            content.put(CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+            return content;
+        }
+
+        @Override
+        public FileChannel openChannel() throws IOException {
+            OPEN_COUNT.incrementAndGet();
+            return FileChannel.open(FILE.toPath(), StandardOpenOption.READ);
+        }
+
+        @Override
+        public InputStream openStream() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class StreamResource extends Resource {
+        @Override
+        public String getContentType() {
+            return "text/plain";
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            try (DeflaterOutputStream os = new DeflaterOutputStream(baos)) {
+                os.write(CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+            }
+
+            return new InflaterInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        }
+    }
+
+    @Override
+    protected Resource getResource(HttpServletRequest req) {
+        String pathInfo = req.getPathInfo();
+
+        if ("/buffer".equals(pathInfo))
+            return new CustomResource(true, "text/plain");
+
+        if ("/channel".equals(pathInfo))
+            return new CustomResource(false, "text/plain");
+
+        if ("/html".equals(pathInfo))
+            return new CustomResource(false, "text/html");
+
+        if ("/stream".equals(pathInfo))
+            return new StreamResource();
+
+        return null;
+    }
+
+    @Override
+    protected long getCompressionThreshold() {
+        return 0;
+    }
+
+    @Override
+    protected boolean isCompressible(String mime) {
+        return mime.equals("text/html"); // <-- Other contents are served as provided
+    }
+}
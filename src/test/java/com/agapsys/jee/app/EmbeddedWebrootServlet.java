@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee.app;
+
+import com.agapsys.jee.EmbeddedFileServlet;
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(EmbeddedWebrootServlet.URL + "/*")
+public class EmbeddedWebrootServlet extends EmbeddedFileServlet {
+    public static final String URL = "/embedded";
+
+    @Override
+    protected String getMappedDirPath() {
+        return MappedWebrootServlet.WEBROOT;
+    }
+
+    @Override
+    protected boolean isResourceIndexEnabled() {
+        return false; // <-- Resources are looked up in the classpath
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import com.agapsys.jee.EmbeddedFileServlet;
+import com.agapsys.jee.EmbeddedResourceIndex;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(IndexedWebrootServlet.URL + "/*")
+public class IndexedWebrootServlet extends EmbeddedFileServlet {
+    public static final String URL = "/indexed";
+
+    private static boolean indexGenerated = false;
+
+    /**
+     * Generates the index of testing webroot in test output directory (in
+     * applications, this is done during the build).
+     *
+     * @throws IOException if an I/O error happened.
+     */
+    public static synchronized void generateIndex() throws IOException {
+        if (indexGenerated)
+            return;
+
+        try {
+            File webroot = new File(IndexedWebrootServlet.class.getResource(MappedWebrootServlet.WEBROOT).toURI());
+            EmbeddedResourceIndex.main(new String[] { webroot.getParent(), MappedWebrootServlet.WEBROOT });
+            indexGenerated = true;
+        } catch (URISyntaxException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            generateIndex();
+        } catch (IOException ex) {
+            throw new ServletException(ex);
+        }
+
+        super.init();
+    }
+
+    @Override
+    protected boolean isFingerprintEnabled() {
+        return true;
+    }
+
+    @Override
+    protected String getCacheControl() {
+        return "no-cache";
+    }
+
+    @Override
+    protected boolean isContentCachePreloaded() {
+        return true;
+    }
+
+    @Override
+    protected String getMappedDirPath() {
+        return MappedWebrootServlet.WEBROOT;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import com.agapsys.jee.MappedFileServlet;
+import java.io.File;
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(ManifestWebrootServlet.URL + "/*")
+public class ManifestWebrootServlet extends MappedFileServlet {
+    public static final String URL = "/manifest";
+
+    public static volatile File root;
+
+    @Override
+    protected String getMappedDirPath() {
+        return root.getPath();
+    }
+
+    @Override
+    protected boolean isManifestEnabled() {
+        return true;
+    }
+
+    @Override
+    protected long getNegativeCacheTtl() {
+        return 60000; // <-- Missing paths are invalidated by the manifest only
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.agapsys.jee.app;
+
+import com.agapsys.jee.MappedFileServlet;
+import java.io.File;
+import java.net.URISyntaxException;
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(MappedWebrootServlet.URL + "/*")
+public class MappedWebrootServlet extends MappedFileServlet {
+    public static final String URL = "/mapped";
+    public static final String WEBROOT = "/webroot";
+
+    private static final String MAPPED_DIR_PATH;
+
+    static {
+        try {
+            MAPPED_DIR_PATH = new File(MappedWebrootServlet.class.getResource(WEBROOT).toURI()).getPath();
+        } catch (URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    protected String getMappedDirPath() {
+        return MAPPED_DIR_PATH;
+    }
+
+    @Override
+    protected long getZeroCopyThreshold() {
+        return 0; // <-- Forces zero-copy transfers for any file
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@WebServlet(SlowServlet.URL)
+public class SlowServlet extends HttpServlet {
+    public static final String URL = "/slow";
+    public static final long DELAY = 200;
+
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+    public static int getMaxRunning() {
+        return MAX_RUNNING.get();
+    }
+
+    public static void reset() {
+        RUNNING.set(0);
+        MAX_RUNNING.set(0);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        int running = RUNNING.incrementAndGet();
+
+        synchronized (MAX_RUNNING) {
+            if (running > MAX_RUNNING.get())
+                MAX_RUNNING.set(running);
+        }
+
+        try {
+            Thread.sleep(DELAY);
+        } catch (InterruptedException ex) {
+            throw new ServletException(ex);
+        } finally {
+            RUNNING.decrementAndGet();
+        }
+
+        resp.getWriter().print(Thread.currentThread().getName());
+    }
+}
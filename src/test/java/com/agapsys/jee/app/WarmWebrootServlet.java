@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Agapsys Tecnologia Ltda-ME.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agapsys.jee.app;
+
+import java.nio.file.Path;
+import javax.servlet.annotation.WebServlet;
+
+@WebServlet(value = WarmWebrootServlet.URL + "/*", loadOnStartup = 1)
+public class WarmWebrootServlet extends MappedWebrootServlet {
+    public static final String URL = "/warm";
+
+    private static volatile Path hotPathFile;
+
+    public static void setHotPathFile(Path hotPathFile) {
+        WarmWebrootServlet.hotPathFile = hotPathFile;
+    }
+
+    @Override
+    protected boolean isFileCacheEnabled() {
+        return true;
+    }
+
+    @Override
+    protected String getHotPathFile() {
+        return hotPathFile.toString();
+    }
+}